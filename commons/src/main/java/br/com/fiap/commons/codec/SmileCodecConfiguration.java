@@ -0,0 +1,43 @@
+package br.com.fiap.commons.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeType;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+//Smile is the binary form of JSON, the same objects and annotations are written with a smaller payload and less
+//parsing. It is only used when the caller asks for it in the Accept header, the other callers keep receiving JSON.
+//The services that answer in Smile import it in their application class, it is outside their component scan.
+@Configuration
+public class SmileCodecConfiguration implements WebMvcConfigurer {
+	public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+	private final ObjectMapper smileObjectMapper;
+
+	public SmileCodecConfiguration(Jackson2ObjectMapperBuilder builder) {
+		this.smileObjectMapper = builder.factory(new SmileFactory()).build();
+	}
+
+	//Responses of the controllers. Added after the JSON converter, so JSON is still chosen when any type is accepted.
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new MappingJackson2SmileHttpMessageConverter(this.smileObjectMapper));
+	}
+
+	//Outputs of the functions exposed on /api, converted by Spring Cloud Function to the type accepted by the caller
+	@Bean
+	public MappingJackson2MessageConverter smileMessageConverter() {
+		MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(MimeType.valueOf(SMILE_VALUE));
+		converter.setObjectMapper(this.smileObjectMapper);
+		converter.setStrictContentTypeMatch(true);
+		return converter;
+	}
+}
@@ -0,0 +1,72 @@
+package br.com.fiap.commons.concurrency;
+
+//Number of requests served at the same time, following the latency like the gradient limiters of TCP: while the recent
+//latency stays close to the long term one the limit grows by its square root, when the requests start to queue the
+//recent latency goes up and the limit goes down in the same proportion. An overload answered by the application
+//(504, or 503 when it isn't a dependency failure, see ConcurrencyLimitFilter) cuts the limit right away.
+class AdaptiveConcurrencyLimit {
+	private static final double SHORT_GAIN = 0.1;
+	private static final double LONG_GAIN = 0.01;
+	private static final double SMOOTHING = 0.2;
+	private static final double BACKOFF = 0.9;
+	private static final double MIN_GRADIENT = 0.5;
+
+	private final int minLimit;
+	private final int maxLimit;
+
+	private double limit;
+	private double shortLatency;
+	private double longLatency;
+	private int inFlight;
+
+	AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = initialLimit;
+	}
+
+	//Each group only uses its share of the limit, so the groups with the smaller shares are rejected first
+	synchronized boolean tryAcquire(double share) {
+		if (inFlight >= Math.max(1, (int) (limit * share))) return false;
+
+		inFlight++;
+		return true;
+	}
+
+	synchronized void release(long latencyNanos, boolean overloaded) {
+		int concurrent = inFlight--;
+
+		if (overloaded) {
+			limit = Math.max(minLimit, limit * BACKOFF);
+			return;
+		}
+
+		if (longLatency == 0) {
+			shortLatency = latencyNanos;
+			longLatency = latencyNanos;
+			return;
+		}
+
+		shortLatency += SHORT_GAIN * (latencyNanos - shortLatency);
+		longLatency += LONG_GAIN * (latencyNanos - longLatency);
+
+		//The latency went back down long after a slow period, the long term latency follows it faster
+		if (longLatency / shortLatency > 2) longLatency *= 0.95;
+
+		double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longLatency / shortLatency));
+		double newLimit = limit * gradient + Math.sqrt(limit);
+
+		//Too few requests to say anything about the capacity, the limit isn't raised without load
+		if (newLimit > limit && concurrent < limit / 2) return;
+
+		limit = Math.max(minLimit, Math.min(maxLimit, (1 - SMOOTHING) * limit + SMOOTHING * newLimit));
+	}
+
+	synchronized int limit() {
+		return (int) limit;
+	}
+
+	synchronized int inFlight() {
+		return inFlight;
+	}
+}
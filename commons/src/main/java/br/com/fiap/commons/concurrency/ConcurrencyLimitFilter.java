@@ -0,0 +1,168 @@
+package br.com.fiap.commons.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Admission control of the requests. Above the adaptive limit the request is answered with 503 and Retry-After before
+//reaching the controllers, so an overload doesn't turn into queues, timeouts and retries. Each service lists in its
+//concurrency-limit properties the paths of the critical group, which usually uses the whole limit, and of the low
+//group, the default and low groups only use a share of it. The services import it in their application class.
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+	//Request attribute of a 503 answered because a dependency failed (open circuit or full bulkhead). It says nothing
+	//about the load of this service, so it doesn't cut the limit.
+	public static final String DEPENDENCY_FAILURE = "concurrency-limit.dependency-failure";
+
+	private static final String CRITICAL = "critical";
+	private static final String DEFAULT = "default";
+	private static final String LOW = "low";
+
+	private final boolean enabled;
+	private final AdaptiveConcurrencyLimit limit;
+	private final List<PathPattern> criticalPaths;
+	private final List<PathPattern> lowPaths;
+	private final Map<String, Double> shares;
+	private final Map<String, Counter> rejected;
+	private final String retryAfter;
+	private final ObjectMapper objectMapper;
+
+	public ConcurrencyLimitFilter(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+			@Value("${concurrency-limit.enabled}") boolean enabled,
+			@Value("${concurrency-limit.initial-limit}") int initialLimit,
+			@Value("${concurrency-limit.min-limit}") int minLimit,
+			@Value("${concurrency-limit.max-limit}") int maxLimit,
+			@Value("${concurrency-limit.retry-after}") String retryAfter,
+			@Value("${concurrency-limit.critical.paths}") String[] criticalPaths,
+			@Value("${concurrency-limit.critical.share}") double criticalShare,
+			@Value("${concurrency-limit.default.share}") double defaultShare,
+			@Value("${concurrency-limit.low.paths}") String[] lowPaths,
+			@Value("${concurrency-limit.low.share}") double lowShare) {
+		this.objectMapper = objectMapper;
+		this.enabled = enabled;
+		this.retryAfter = retryAfter;
+		this.limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+		this.criticalPaths = parse(criticalPaths);
+		this.lowPaths = parse(lowPaths);
+		this.shares = Map.of(CRITICAL, criticalShare, DEFAULT, defaultShare, LOW, lowShare);
+		this.rejected = Map.of(
+				CRITICAL, rejectedCounter(meterRegistry, CRITICAL),
+				DEFAULT, rejectedCounter(meterRegistry, DEFAULT),
+				LOW, rejectedCounter(meterRegistry, LOW));
+
+		Gauge.builder("http.server.concurrency.limit", this.limit, AdaptiveConcurrencyLimit::limit).register(meterRegistry);
+		Gauge.builder("http.server.concurrency.in-flight", this.limit, AdaptiveConcurrencyLimit::inFlight).register(meterRegistry);
+	}
+
+	private static List<PathPattern> parse(String[] paths) {
+		return Arrays.stream(paths).map(String::trim).filter(p -> !p.isEmpty())
+				.map(PathPatternParser.defaultInstance::parse).toList();
+	}
+
+	private static Counter rejectedCounter(MeterRegistry meterRegistry, String group) {
+		return Counter.builder("http.server.concurrency.rejected").tag("group", group).register(meterRegistry);
+	}
+
+	//The health checks and the metrics must answer even when the service is overloaded
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !enabled || request.getRequestURI().startsWith("/actuator");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String group = group(request);
+		if (!limit.tryAcquire(shares.get(group))) {
+			rejected.get(group).increment();
+			reject(request, response);
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean async = false;
+		try {
+			chain.doFilter(request, response);
+
+			//An asynchronous request answers after the filter returns, it is released when it completes
+			if (request.isAsyncStarted()) {
+				async = true;
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						release(start, request, response);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+					}
+				});
+			}
+		} finally {
+			if (!async) release(start, request, response);
+		}
+	}
+
+	private void release(long start, HttpServletRequest request, HttpServletResponse response) {
+		int status = response.getStatus();
+		boolean overloaded = status == HttpStatus.GATEWAY_TIMEOUT.value()
+				|| (status == HttpStatus.SERVICE_UNAVAILABLE.value() && request.getAttribute(DEPENDENCY_FAILURE) == null);
+		limit.release(System.nanoTime() - start, overloaded);
+	}
+
+	private String group(HttpServletRequest request) {
+		PathContainer path = PathContainer.parsePath(request.getRequestURI());
+		if (criticalPaths.stream().anyMatch(p -> p.matches(path))) return CRITICAL;
+		if (lowPaths.stream().anyMatch(p -> p.matches(path))) return LOW;
+		return DEFAULT;
+	}
+
+	private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+
+		//Same fields as the StandardError of the services
+		Map<String, Object> newError = new LinkedHashMap<>();
+		newError.put("timestamp", Instant.now());
+		newError.put("status", status.value());
+		newError.put("error", "Serviço sobrecarregado."); //Service overloaded
+		newError.put("message", "Limite de requisições simultâneas atingido"); //Concurrent requests limit reached
+		newError.put("path", request.getRequestURI());
+
+		response.setStatus(status.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding("UTF-8");
+		objectMapper.writeValue(response.getOutputStream(), newError);
+	}
+}
@@ -0,0 +1,52 @@
+package br.com.fiap.commons.cpf;
+
+//The CPF is stored as a number, the formatted value 000.000.000-00 is only used on the API
+public final class Cpf {
+	public static final String INVALID_FORMAT = "CPF precisa seguir o padrão 000.000.000-00"; //CPF needs to follow the pattern 000.000.000-00
+
+	private Cpf() {
+	}
+
+	//Accepts 000.000.000-00 or 00000000000
+	public static long parse(CharSequence cpf) {
+		int length = cpf.length();
+		if (length != 14 && length != 11) throw new IllegalArgumentException(INVALID_FORMAT);
+
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			char c = cpf.charAt(i);
+
+			if (length == 14 && (i == 3 || i == 7)) {
+				if (c != '.') throw new IllegalArgumentException(INVALID_FORMAT);
+				continue;
+			}
+			if (length == 14 && i == 11) {
+				if (c != '-') throw new IllegalArgumentException(INVALID_FORMAT);
+				continue;
+			}
+			if (c < '0' || c > '9') throw new IllegalArgumentException(INVALID_FORMAT);
+
+			value = value * 10 + (c - '0');
+		}
+
+		return value;
+	}
+
+	public static String format(long cpf) {
+		char[] chars = new char[14];
+		long value = cpf;
+
+		for (int i = 13; i >= 0; i--) {
+			if (i == 11) {
+				chars[i] = '-';
+			} else if (i == 3 || i == 7) {
+				chars[i] = '.';
+			} else {
+				chars[i] = (char) ('0' + (value % 10));
+				value /= 10;
+			}
+		}
+
+		return new String(chars);
+	}
+}
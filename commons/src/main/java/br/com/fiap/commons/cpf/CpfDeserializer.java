@@ -0,0 +1,27 @@
+package br.com.fiap.commons.cpf;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+//Reads the formatted CPF (or only the digits), an invalid format is answered as a bad request
+public class CpfDeserializer extends StdDeserializer<Long> {
+	public CpfDeserializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) return parser.getLongValue();
+
+		String text = parser.getValueAsString();
+		try {
+			return Cpf.parse(text == null ? "" : text.trim());
+		} catch (IllegalArgumentException e) {
+			throw context.weirdStringException(text, Long.class, Cpf.INVALID_FORMAT);
+		}
+	}
+}
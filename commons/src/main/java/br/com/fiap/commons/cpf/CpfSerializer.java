@@ -0,0 +1,18 @@
+package br.com.fiap.commons.cpf;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+public class CpfSerializer extends StdSerializer<Long> {
+	public CpfSerializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public void serialize(Long cpf, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		generator.writeString(Cpf.format(cpf));
+	}
+}
@@ -0,0 +1,84 @@
+package br.com.fiap.commons.cpf;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+//Checks the format and the check digits in a single scan, without regex or allocation
+public class CpfValidation implements ConstraintValidator<ValidCpf, Object> {
+	private static final long MAX_CPF = 99_999_999_999L;
+
+	@Override
+	public boolean isValid(Object cpf, ConstraintValidatorContext context) {
+		if (cpf == null) return Boolean.TRUE; //Same as the other constraints, the null value is checked by @NotNull/@Column
+
+		if (cpf instanceof Number number) return isValidCpf(number.longValue());
+		return cpf instanceof CharSequence chars && isValidCpf(chars);
+	}
+
+	//000.000.000-00 or 00000000000
+	public static boolean isValidCpf(CharSequence cpf) {
+		int length = cpf.length();
+		if (length != 14 && length != 11) return false;
+
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			char c = cpf.charAt(i);
+
+			if (length == 14 && (i == 3 || i == 7)) {
+				if (c != '.') return false;
+				continue;
+			}
+			if (length == 14 && i == 11) {
+				if (c != '-') return false;
+				continue;
+			}
+			if (c < '0' || c > '9') return false;
+
+			value = value * 10 + (c - '0');
+		}
+
+		return isValidCpf(value);
+	}
+
+	//The 11 digits are read from the most significant, the CPF can start with zeros
+	public static boolean isValidCpf(long cpf) {
+		if (cpf < 0 || cpf > MAX_CPF) return false;
+
+		int sum1 = 0; //Weights 10..2 over the first 9 digits
+		int sum2 = 0; //Weights 11..2 over the first 10 digits
+		int first = -1;
+		boolean allEqual = true;
+		int checkDigit1 = 0;
+		int checkDigit2 = 0;
+		long divisor = 10_000_000_000L;
+
+		for (int i = 0; i < 11; i++) {
+			int digit = (int) ((cpf / divisor) % 10);
+			divisor /= 10;
+
+			if (first < 0) first = digit;
+			else if (digit != first) allEqual = false;
+
+			if (i < 9) {
+				sum1 += digit * (10 - i);
+				sum2 += digit * (11 - i);
+			} else if (i == 9) {
+				checkDigit1 = digit;
+				sum2 += digit * 2;
+			} else {
+				checkDigit2 = digit;
+			}
+		}
+
+		//000.000.000-00, 111.111.111-11 ... have valid check digits but aren't valid CPFs
+		if (allEqual) return false;
+
+		int expected1 = 11 - (sum1 % 11);
+		if (expected1 >= 10) expected1 = 0;
+		if (checkDigit1 != expected1) return false;
+
+		int expected2 = 11 - (sum2 % 11);
+		if (expected2 >= 10) expected2 = 0;
+		return checkDigit2 == expected2;
+	}
+}
@@ -0,0 +1,20 @@
+package br.com.fiap.commons.cpf;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = CpfValidation.class)
+public @interface ValidCpf {
+	//The CPF needs to follow the pattern 000.000.000-00 (or 11 digits) and have valid check digits
+	String message() default "CPF inválido, o CPF precisa seguir o padrão 000.000.000-00 e ter dígitos verificadores válidos";
+
+	Class<?>[] groups() default {};
+	Class<? extends Payload> [] payload() default {};
+}
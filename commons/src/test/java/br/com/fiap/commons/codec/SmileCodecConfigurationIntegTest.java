@@ -0,0 +1,111 @@
+package br.com.fiap.commons.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(classes = SmileCodecConfigurationIntegTest.TestApplication.class)
+@AutoConfigureMockMvc
+public class SmileCodecConfigurationIntegTest {
+	private static final MediaType SMILE = MediaType.valueOf(SmileCodecConfiguration.SMILE_VALUE);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MappingJackson2MessageConverter smileMessageConverter;
+
+	private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+	@Nested
+	class Controllers {
+		@Test
+		void allowAnswerSmile_WhenTheCallerAcceptsIt() throws Exception {
+			//Act
+			MvcResult result = mockMvc.perform(get("/item").accept(SMILE, MediaType.APPLICATION_JSON)).andReturn();
+
+			//Assert
+			assertThat(result.getResponse().getStatus()).isEqualTo(200);
+			assertThat(MediaType.valueOf(result.getResponse().getContentType()).isCompatibleWith(SMILE)).isTrue();
+			assertThat(smileMapper.readTree(result.getResponse().getContentAsByteArray()).get("name").asText())
+					.isEqualTo(Item.NAME);
+		}
+
+		@Test
+		void allowAnswerJson_WhenTheCallerAcceptsAnyType() throws Exception {
+			//Act
+			MvcResult result = mockMvc.perform(get("/item").accept(MediaType.ALL)).andReturn();
+
+			//Assert
+			assertThat(result.getResponse().getStatus()).isEqualTo(200);
+			assertThat(MediaType.valueOf(result.getResponse().getContentType()).isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+			assertThat(result.getResponse().getContentAsString()).contains(Item.NAME);
+		}
+	}
+
+	@Nested
+	class Functions {
+		@Test
+		void allowWriteSmile_WhenTheContentTypeIsSmile() throws Exception {
+			//Arrange
+			MessageHeaders headers = new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, SMILE));
+
+			//Act
+			Message<?> message = smileMessageConverter.toMessage(new Item(Item.NAME), headers);
+
+			//Assert
+			assertThat(message).isNotNull();
+			assertThat(smileMapper.readTree((byte[]) message.getPayload()).get("name").asText()).isEqualTo(Item.NAME);
+		}
+
+		@Test
+		void shouldNotWrite_WhenTheContentTypeIsJson() {
+			//Arrange
+			MessageHeaders headers = new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON));
+
+			//Act
+			Message<?> message = smileMessageConverter.toMessage(new Item(Item.NAME), headers);
+
+			//Assert
+			assertThat(message).isNull();
+		}
+	}
+
+	record Item(String name) {
+		static final String NAME = "Dummy item";
+	}
+
+	@RestController
+	static class ItemController {
+		@GetMapping("/item")
+		Item getItem() {
+			return new Item(Item.NAME);
+		}
+	}
+
+	@Configuration
+	@EnableAutoConfiguration
+	@Import({SmileCodecConfiguration.class, ItemController.class})
+	static class TestApplication {
+	}
+}
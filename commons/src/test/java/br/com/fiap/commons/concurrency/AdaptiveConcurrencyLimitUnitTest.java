@@ -0,0 +1,111 @@
+package br.com.fiap.commons.concurrency;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimitUnitTest {
+
+	private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+	//Keeps the limit full and answers every request with the same latency
+	private static void serve(AdaptiveConcurrencyLimit limit, long latency, int requests) {
+		for (int i = 0; i < requests; i++) {
+			while (limit.tryAcquire(1.0)) { }
+			limit.release(latency, false);
+		}
+	}
+
+	@Nested
+	class TryAcquire {
+		@Test
+		void allowTryAcquire_UpToTheShareOfTheLimit() {
+			//Arrange
+			AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+			//Act
+			int low = 0;
+			while (limit.tryAcquire(0.5)) low++;
+			int critical = 0;
+			while (limit.tryAcquire(1.0)) critical++;
+
+			//Assert
+			assertThat(low).isEqualTo(5);
+			assertThat(critical).isEqualTo(5);
+			assertThat(limit.inFlight()).isEqualTo(10);
+		}
+
+		@Test
+		void allowTryAcquire_OneRequestWithTheSmallestShare() {
+			//Arrange
+			AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 100);
+
+			//Act && Assert
+			assertThat(limit.tryAcquire(0.1)).isTrue();
+			assertThat(limit.tryAcquire(0.1)).isFalse();
+		}
+	}
+
+	@Nested
+	class Release {
+		@Test
+		void allowRelease_RaisingTheLimitWhileTheLatencyIsStable() {
+			//Arrange
+			AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+			//Act
+			serve(limit, LATENCY, 200);
+
+			//Assert
+			assertThat(limit.limit()).isGreaterThan(10);
+		}
+
+		@Test
+		void allowRelease_KeepingTheLimitWithoutLoad() {
+			//Arrange
+			AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100);
+
+			//Act
+			for (int i = 0; i < 200; i++) {
+				limit.tryAcquire(1.0);
+				limit.release(LATENCY, false);
+			}
+
+			//Assert
+			assertThat(limit.limit()).isEqualTo(10);
+			assertThat(limit.inFlight()).isZero();
+		}
+
+		@Test
+		void allowRelease_LoweringTheLimitWhenTheLatencyGoesUp() {
+			//Arrange
+			AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 1, 100);
+			serve(limit, LATENCY, 100);
+			int before = limit.limit();
+
+			//Act
+			serve(limit, LATENCY * 5, 100);
+
+			//Assert
+			assertThat(limit.limit()).isLessThan(before);
+		}
+
+		@Test
+		void allowRelease_CuttingTheLimitOnOverload() {
+			//Arrange
+			AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 10, 100);
+
+			//Act
+			for (int i = 0; i < 100; i++) {
+				limit.tryAcquire(1.0);
+				limit.release(LATENCY, true);
+			}
+
+			//Assert
+			assertThat(limit.limit()).isEqualTo(10);
+		}
+	}
+}
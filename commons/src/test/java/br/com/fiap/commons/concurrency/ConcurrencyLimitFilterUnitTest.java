@@ -0,0 +1,111 @@
+package br.com.fiap.commons.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterUnitTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private ConcurrencyLimitFilter filter;
+
+	@BeforeEach
+	void setup() {
+		filter = filter(10);
+	}
+
+	//A registry for each filter, the gauges are registered by the constructor
+	private ConcurrencyLimitFilter filter(int initialLimit) {
+		meterRegistry = new SimpleMeterRegistry();
+		return new ConcurrencyLimitFilter(new ObjectMapper().findAndRegisterModules(), meterRegistry, true, initialLimit,
+				1, 100, "1", new String[]{"/critical"}, 1.0, 0.8, new String[]{"/low/**"}, 0.5);
+	}
+
+	private double limit() {
+		return meterRegistry.get("http.server.concurrency.limit").gauge().value();
+	}
+
+	private MockHttpServletResponse serve(String path, FilterChain chain) throws ServletException, IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", path), response, chain);
+		return response;
+	}
+
+	@Nested
+	class Release {
+		@Test
+		void shouldCutTheLimit_WhenTheRequestTimesOut() throws Exception {
+			//Act
+			serve("/resource", (req, res) -> ((HttpServletResponse) res).setStatus(504));
+
+			//Assert
+			assertThat(limit()).isEqualTo(9);
+		}
+
+		@Test
+		void shouldCutTheLimit_WhenTheServiceAnswersUnavailable() throws Exception {
+			//Act
+			serve("/resource", (req, res) -> ((HttpServletResponse) res).setStatus(503));
+
+			//Assert
+			assertThat(limit()).isEqualTo(9);
+		}
+
+		@Test
+		void shouldKeepTheLimit_WhenADependencyFailed() throws Exception {
+			//Act
+			serve("/resource", (req, res) -> {
+				req.setAttribute(ConcurrencyLimitFilter.DEPENDENCY_FAILURE, true);
+				((HttpServletResponse) res).setStatus(503);
+			});
+
+			//Assert
+			assertThat(limit()).isEqualTo(10);
+		}
+	}
+
+	@Nested
+	class Reject {
+		@Test
+		void shouldReject_AboveTheShareOfTheGroup() throws Exception {
+			//Arrange
+			filter = filter(2);
+			AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+			//Act
+			MockHttpServletResponse response = serve("/low/1", (req, res) -> nested.set(serve("/low/2", (r, s) -> { })));
+
+			//Assert
+			assertThat(response.getStatus()).isEqualTo(200);
+			assertThat(nested.get().getStatus()).isEqualTo(503);
+			assertThat(nested.get().getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+			assertThat(meterRegistry.get("http.server.concurrency.rejected").tag("group", "low").counter().count()).isEqualTo(1);
+		}
+
+		@Test
+		void allowCriticalRequests_UpToTheWholeLimit() throws Exception {
+			//Arrange
+			filter = filter(2);
+			AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+
+			//Act
+			serve("/critical", (req, res) -> nested.set(serve("/critical", (r, s) -> { })));
+
+			//Assert
+			assertThat(nested.get().getStatus()).isEqualTo(200);
+		}
+	}
+}
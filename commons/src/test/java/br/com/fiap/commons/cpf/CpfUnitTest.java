@@ -0,0 +1,109 @@
+package br.com.fiap.commons.cpf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CpfUnitTest {
+
+	@Nested
+	class IsValidCpf {
+		@Test
+		void allowValidCpf() {
+			assertThat(CpfValidation.isValidCpf("822.685.230-71")).isTrue();
+			assertThat(CpfValidation.isValidCpf("905.013.870-56")).isTrue();
+			assertThat(CpfValidation.isValidCpf("82268523071")).isTrue(); //Without the separators
+		}
+
+		@Test
+		void shouldRejectWrongCheckDigits() {
+			assertThat(CpfValidation.isValidCpf("822.685.230-72")).isFalse();
+			assertThat(CpfValidation.isValidCpf("822.685.230-81")).isFalse();
+		}
+
+		@Test
+		void shouldRejectWrongFormat() {
+			assertThat(CpfValidation.isValidCpf("822,685.230-71")).isFalse();
+			assertThat(CpfValidation.isValidCpf("822.685.230.71")).isFalse();
+			assertThat(CpfValidation.isValidCpf("822.685.23a-71")).isFalse();
+			assertThat(CpfValidation.isValidCpf("822685230-71")).isFalse();
+			assertThat(CpfValidation.isValidCpf("")).isFalse();
+		}
+
+		@Test
+		void shouldRejectRepeatedDigits() {
+			assertThat(CpfValidation.isValidCpf("000.000.000-00")).isFalse();
+			assertThat(CpfValidation.isValidCpf("11111111111")).isFalse();
+		}
+
+		@Test
+		void allowValidNumericCpf() {
+			assertThat(CpfValidation.isValidCpf(82268523071L)).isTrue();
+			assertThat(CpfValidation.isValidCpf(Cpf.parse("012.345.678-90"))).isTrue(); //Starting with zero
+			assertThat(CpfValidation.isValidCpf(82268523072L)).isFalse();
+			assertThat(CpfValidation.isValidCpf(0L)).isFalse();
+			assertThat(CpfValidation.isValidCpf(-1L)).isFalse();
+		}
+
+		@Test
+		void allowNullCpf() {
+			assertThat(new CpfValidation().isValid(null, null)).isTrue();
+		}
+	}
+
+	@Nested
+	class ParseAndFormat {
+		@Test
+		void allowParseAndFormat() {
+			assertThat(Cpf.parse("822.685.230-71")).isEqualTo(82268523071L);
+			assertThat(Cpf.parse("82268523071")).isEqualTo(82268523071L);
+			assertThat(Cpf.format(82268523071L)).isEqualTo("822.685.230-71");
+			assertThat(Cpf.format(1234567890L)).isEqualTo("012.345.678-90");
+		}
+
+		@Test
+		void shouldThrowIllegalArgumentException_WhenParseWrongFormat() {
+			assertThatThrownBy(() -> Cpf.parse("822.685.230")).isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> Cpf.parse("822-685.230.71")).isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Nested
+	class Json {
+		static class Holder {
+			@JsonSerialize(using = CpfSerializer.class)
+			@JsonDeserialize(using = CpfDeserializer.class)
+			public Long cpf;
+		}
+
+		private final ObjectMapper objectMapper = new ObjectMapper();
+
+		@Test
+		void allowSerializeAndDeserialize() throws Exception {
+			//Arrange
+			Holder holder = new Holder();
+			holder.cpf = 1234567890L;
+
+			//Act
+			String json = objectMapper.writeValueAsString(holder);
+			Holder read = objectMapper.readValue("{\"cpf\":\" 822.685.230-71 \"}", Holder.class);
+
+			//Assert
+			assertThat(json).isEqualTo("{\"cpf\":\"012.345.678-90\"}");
+			assertThat(read.cpf).isEqualTo(82268523071L);
+		}
+
+		@Test
+		void shouldThrowInvalidFormatException_WhenDeserializeWrongFormat() {
+			assertThatThrownBy(() -> objectMapper.readValue("{\"cpf\":\"822-685\"}", Holder.class))
+					.isInstanceOf(InvalidFormatException.class)
+					.hasMessageContaining(Cpf.INVALID_FORMAT);
+		}
+	}
+}
@@ -1,11 +1,14 @@
 package br.com.fiap.msbatches;
 
+import br.com.fiap.commons.concurrency.ConcurrencyLimitFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
+@Import(ConcurrencyLimitFilter.class)
 public class BatchesApplication {
 
 	public static void main(String[] args) {
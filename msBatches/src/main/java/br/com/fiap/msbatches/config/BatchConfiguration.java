@@ -1,85 +1,198 @@
 package br.com.fiap.msbatches.config;
 
 import br.com.fiap.msbatches.entity.Product;
+import br.com.fiap.msbatches.services.ChunkSummaryListener;
+import br.com.fiap.msbatches.services.DeadLetterListener;
+import br.com.fiap.msbatches.services.InputLinesListener;
+import br.com.fiap.msbatches.services.ProductLineMapper;
 import br.com.fiap.msbatches.services.ProductProcessor;
 import br.com.fiap.msbatches.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.ItemProcessListener;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.SkipListener;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
-import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.ItemReader;
-import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.integration.async.AsyncItemProcessor;
+import org.springframework.batch.integration.async.AsyncItemWriter;
 import org.springframework.batch.item.database.BeanPropertyItemSqlParameterSourceProvider;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
-import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.retry.backoff.ExponentialBackOffPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
-import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @Transactional
 public class BatchConfiguration {
+	public static final String INPUT_FILE_PARAMETER = "input.file";
+	public static final String INPUT_VERSION_PARAMETER = "input.version";
 
 	@Bean
-	public Job productProcessor(JobRepository jobRepository, Step fileProcessor) {
+	public Job productProcessor(JobRepository jobRepository, Step fileProcessor, InputLinesListener inputLinesListener) {
 		return new JobBuilder("productProcessor", jobRepository)
 				.incrementer(new RunIdIncrementer())
+				.listener(inputLinesListener)
 				.start(fileProcessor)
 				.build();
 	}
 
+	//Launches the job in background, the caller receives the job execution id right away
+	@Bean
+	public TaskExecutorJobLauncher asyncJobLauncher(JobRepository jobRepository) throws Exception {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(1);
+		taskExecutor.setMaxPoolSize(1);
+		taskExecutor.setThreadNamePrefix("batch-launcher-");
+		taskExecutor.initialize();
+
+		TaskExecutorJobLauncher jobLauncher = new TaskExecutorJobLauncher();
+		jobLauncher.setJobRepository(jobRepository);
+		jobLauncher.setTaskExecutor(taskExecutor);
+		jobLauncher.afterPropertiesSet();
+		return jobLauncher;
+	}
+
+	//The file is read by a single thread so the reader position can be saved on every chunk commit and a failed
+	//execution restarts from the last committed chunk. Only the processing of the items runs in parallel.
 	@Bean
 	public Step fileProcessor(JobRepository jobRepository,
 			PlatformTransactionManager transactionManager,
-			ItemReader<Product> itemReader,
-			ItemProcessor<Product, Product> itemProcessor,
-			ItemWriter<Product> itemWriter) {
+			FlatFileItemReader<Product> itemReader,
+			AsyncItemProcessor<Product, Product> asyncItemProcessor,
+			AsyncItemWriter<Product> asyncItemWriter,
+			DeadLetterListener deadLetterListener,
+			ChunkSummaryListener chunkSummaryListener,
+			ExponentialBackOffPolicy batchBackOffPolicy,
+			@Value("${batch.product.chunk-size}") int chunkSize,
+			@Value("${batch.product.skip-limit}") int skipLimit,
+			@Value("${batch.retry.max-attempts}") int retryLimit) {
+		//Invalid rows are skipped to the dead-letter file. When a write fails the chunk is rolled back and written
+		//again item by item, so only the bad rows are skipped and the rest of the chunk is committed.
 		return new StepBuilder("fileProcessor", jobRepository)
-				.<Product, Product>chunk(50, transactionManager)
-				.taskExecutor(new SimpleAsyncTaskExecutor())
+				.<Product, Future<Product>>chunk(chunkSize, transactionManager)
 				.reader(itemReader)
-				.processor(itemProcessor)
-				.writer(itemWriter)
-				.allowStartIfComplete(true)
+				.processor(asyncItemProcessor)
+				.writer(asyncItemWriter)
+				.faultTolerant()
+				.skip(FlatFileParseException.class)
+				.skip(DataIntegrityViolationException.class)
+				.skipLimit(skipLimit)
+				.retry(TransientDataAccessException.class)
+				.retryLimit(retryLimit)
+				.backOffPolicy(batchBackOffPolicy)
+				.listener((SkipListener<Product, Future<Product>>) deadLetterListener)
+				.listener((ItemProcessListener<Product, Future<Product>>) deadLetterListener)
+				.listener((StepExecutionListener) deadLetterListener)
+				.listener(chunkSummaryListener)
 				.build();
 	}
 
 	@Bean
-	public ItemReader<Product> itemReader() throws IOException {
-		BeanWrapperFieldSetMapper<Product> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
-		fieldSetMapper.setTargetType(Product.class);
-
+	@StepScope
+	public FlatFileItemReader<Product> itemReader(@Value("#{jobParameters['" + INPUT_FILE_PARAMETER + "']}") String inputFile) {
 		return new FlatFileItemReaderBuilder<Product>()
 				.name("productItemReader")
-				.resource(new ClassPathResource("filesource/products.csv"))
-				.delimited()
-				.delimiter(";")
-				.names("name", "description", "price", "quantity")
-				.fieldSetMapper(fieldSetMapper)
+				.resource(new DefaultResourceLoader().getResource(inputFile))
+				.saveState(true) //Keep the current line on the step execution context to allow the restart
+				.lineMapper(new ProductLineMapper())
 				.build();
 	}
 
 	@Bean
-	public ItemProcessor<Product, Product> itemProcessor(ProductRepository productRepository){
-		return new ProductProcessor(productRepository);
+	public ProductProcessor itemProcessor(ProductRepository productRepository, ExponentialBackOffPolicy batchBackOffPolicy,
+			MeterRegistry meterRegistry,
+			@Value("${batch.retry.max-attempts}") int maxAttempts,
+			@Value("${batch.log.item-sample-rate}") double itemSampleRate){
+		RetryTemplate retryTemplate = RetryTemplate.builder()
+				.maxAttempts(maxAttempts)
+				.retryOn(TransientDataAccessException.class)
+				.customBackoff(batchBackOffPolicy)
+				.build();
+
+		return new ProductProcessor(productRepository, retryTemplate, meterRegistry, itemSampleRate);
+	}
+
+	@Bean
+	public ExponentialBackOffPolicy batchBackOffPolicy(@Value("${batch.retry.initial-interval}") long initialInterval,
+			@Value("${batch.retry.multiplier}") double multiplier,
+			@Value("${batch.retry.max-interval}") long maxInterval) {
+		ExponentialBackOffPolicy backOffPolicy = new ExponentialBackOffPolicy();
+		backOffPolicy.setInitialInterval(initialInterval);
+		backOffPolicy.setMultiplier(multiplier);
+		backOffPolicy.setMaxInterval(maxInterval);
+		return backOffPolicy;
 	}
 
 	@Bean
-	public ItemWriter<Product> itemWriter(DataSource dataSource){
+	public AsyncItemProcessor<Product, Product> asyncItemProcessor(ProductProcessor itemProcessor,
+			TaskExecutor batchTaskExecutor) {
+		AsyncItemProcessor<Product, Product> asyncItemProcessor = new AsyncItemProcessor<>();
+		asyncItemProcessor.setDelegate(itemProcessor);
+		asyncItemProcessor.setTaskExecutor(batchTaskExecutor);
+		return asyncItemProcessor;
+	}
+
+	@Bean
+	public JdbcBatchItemWriter<Product> itemWriter(DataSource dataSource){
 		return new JdbcBatchItemWriterBuilder<Product>()
 				.itemSqlParameterSourceProvider(new BeanPropertyItemSqlParameterSourceProvider<>())
 				.dataSource(dataSource)
 				.sql("UPDATE products SET name = :name, description = :description, price = :price, quantity = :quantity WHERE id = :id")
 				.build();
 	}
+
+	@Bean
+	public AsyncItemWriter<Product> asyncItemWriter(JdbcBatchItemWriter<Product> itemWriter) {
+		AsyncItemWriter<Product> asyncItemWriter = new AsyncItemWriter<>();
+		asyncItemWriter.setDelegate(itemWriter);
+		return asyncItemWriter;
+	}
+
+	//On virtual threads the number of items processed at the same time is limited to the max pool size, when the limit
+	//is reached the reader thread waits, the same backpressure the pool gives with the caller-runs policy
+	@Bean
+	public TaskExecutor batchTaskExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+			@Value("${batch.executor.core-pool-size}") int corePoolSize,
+			@Value("${batch.executor.max-pool-size}") int maxPoolSize,
+			@Value("${batch.executor.queue-capacity}") int queueCapacity) {
+		if (virtualThreads) {
+			SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("batch-");
+			taskExecutor.setVirtualThreads(true);
+			taskExecutor.setConcurrencyLimit(maxPoolSize);
+			return taskExecutor;
+		}
+
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(corePoolSize);
+		taskExecutor.setMaxPoolSize(maxPoolSize);
+		taskExecutor.setQueueCapacity(queueCapacity);
+		taskExecutor.setThreadNamePrefix("batch-");
+		//When the pool and the queue are full the reader thread processes the item itself, slowing down the reading
+		taskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		return taskExecutor;
+	}
 }
@@ -0,0 +1,41 @@
+package br.com.fiap.msbatches.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+//The product database stays as the main data source (JPA, batch metadata and import), the purchase database is
+//only read by the export job
+@Configuration
+public class DataSourceConfiguration {
+
+	@Bean
+	@Primary
+	@ConfigurationProperties("spring.datasource")
+	public DataSourceProperties dataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@Primary
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+		return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	@ConfigurationProperties("batch.export.purchase-datasource")
+	public DataSourceProperties purchaseDataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@ConfigurationProperties("batch.export.purchase-datasource.hikari")
+	public HikariDataSource purchaseDataSource(@Qualifier("purchaseDataSourceProperties") DataSourceProperties purchaseDataSourceProperties) {
+		return purchaseDataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+}
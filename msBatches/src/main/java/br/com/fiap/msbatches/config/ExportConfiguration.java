@@ -0,0 +1,142 @@
+package br.com.fiap.msbatches.config;
+
+import br.com.fiap.msbatches.export.ColumnType;
+import br.com.fiap.msbatches.export.ExportColumn;
+import br.com.fiap.msbatches.export.ExportTable;
+import br.com.fiap.msbatches.export.PartitionedColumnarItemWriter;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Configuration
+public class ExportConfiguration {
+	public static final String EXPORT_JOB_NAME = "snapshotExporter";
+
+	private static final ExportTable PRODUCTS = new ExportTable("products",
+			"SELECT id, name, description, price, quantity FROM products",
+			List.of(new ExportColumn("id", ColumnType.LONG),
+					new ExportColumn("name", ColumnType.STRING),
+					new ExportColumn("description", ColumnType.STRING),
+					new ExportColumn("price", ColumnType.DOUBLE),
+					new ExportColumn("quantity", ColumnType.LONG)),
+			row -> "", null);
+
+	private static final ExportTable PURCHASES = new ExportTable("purchases",
+			"SELECT id, customer_cpf, customer_name, delivery_zip_code, delivery_address, delivery_group, total_amount, status FROM purchases ORDER BY id",
+			List.of(new ExportColumn("id", ColumnType.LONG),
+					new ExportColumn("customer_cpf", ColumnType.LONG),
+					new ExportColumn("customer_name", ColumnType.STRING),
+					new ExportColumn("delivery_zip_code", ColumnType.STRING),
+					new ExportColumn("delivery_address", ColumnType.STRING),
+					new ExportColumn("delivery_group", ColumnType.STRING),
+					new ExportColumn("total_amount", ColumnType.DOUBLE),
+					new ExportColumn("status", ColumnType.STRING)),
+			row -> "status=" + row[7], null);
+
+	//The items are linked to the purchases by the join table created for Purchase.items
+	private static final ExportTable PURCHASE_ITEMS = new ExportTable("purchase_items",
+			"SELECT i.id, pi.purchases_id, i.product_id, i.quantity FROM purchase_items i JOIN purchases_items pi ON pi.items_id = i.id ORDER BY pi.purchases_id",
+			List.of(new ExportColumn("id", ColumnType.LONG),
+					new ExportColumn("purchase_id", ColumnType.LONG),
+					new ExportColumn("product_id", ColumnType.LONG),
+					new ExportColumn("quantity", ColumnType.LONG)),
+			row -> "", null);
+
+	//One directory per day and status over years of history, the files of a day are finished when the next day starts
+	private static final ExportTable PURCHASE_HISTORY = new ExportTable("purchase_history",
+			"SELECT id, purchase_id, status, status_date FROM purchase_history ORDER BY status_date",
+			List.of(new ExportColumn("id", ColumnType.LONG),
+					new ExportColumn("purchase_id", ColumnType.LONG),
+					new ExportColumn("status", ColumnType.STRING),
+					new ExportColumn("status_date", ColumnType.TIMESTAMP)),
+			row -> "day=" + day(row) + "/status=" + row[2],
+			ExportConfiguration::day);
+
+	private final JobRepository jobRepository;
+	private final PlatformTransactionManager transactionManager;
+	private final Path outputDir;
+	private final int chunkSize;
+	private final int fetchSize;
+	private final int rowGroupSize;
+
+	public ExportConfiguration(JobRepository jobRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${batch.export.output-dir}") String outputDir,
+			@Value("${batch.export.chunk-size}") int chunkSize,
+			@Value("${batch.export.fetch-size}") int fetchSize,
+			@Value("${batch.export.row-group-size}") int rowGroupSize) {
+		this.jobRepository = jobRepository;
+		this.transactionManager = transactionManager;
+		this.outputDir = Path.of(outputDir);
+		this.chunkSize = chunkSize;
+		this.fetchSize = fetchSize;
+		this.rowGroupSize = rowGroupSize;
+	}
+
+	@Bean
+	public Job snapshotExporter(DataSource dataSource, @Qualifier("purchaseDataSource") DataSource purchaseDataSource) {
+		return new JobBuilder(EXPORT_JOB_NAME, jobRepository)
+				.start(exportStep(PRODUCTS, dataSource))
+				.next(exportStep(PURCHASES, purchaseDataSource))
+				.next(exportStep(PURCHASE_ITEMS, purchaseDataSource))
+				.next(exportStep(PURCHASE_HISTORY, purchaseDataSource))
+				.build();
+	}
+
+	private Step exportStep(ExportTable table, DataSource dataSource) {
+		return new StepBuilder("export-" + table.name(), jobRepository)
+				.<Object[], Object[]>chunk(chunkSize, transactionManager)
+				.reader(exportReader(table, dataSource))
+				.writer(new PartitionedColumnarItemWriter(table, outputDir, rowGroupSize))
+				.build();
+	}
+
+	//PostgreSQL only streams the result with a cursor when the fetch size is set and the connection isn't in auto commit
+	private JdbcCursorItemReader<Object[]> exportReader(ExportTable table, DataSource dataSource) {
+		return new JdbcCursorItemReaderBuilder<Object[]>()
+				.name("export-" + table.name() + "-reader")
+				.dataSource(dataSource)
+				.sql(table.sql())
+				.fetchSize(fetchSize)
+				.connectionAutoCommit(false)
+				.saveState(false)
+				.rowMapper(rowMapper(table.columns()))
+				.build();
+	}
+
+	//The rows without status date come last in the order of the query
+	private static Object day(Object[] row) {
+		return row[3] == null ? "unknown" : ((LocalDateTime) row[3]).toLocalDate();
+	}
+
+	private static RowMapper<Object[]> rowMapper(List<ExportColumn> columns) {
+		return (resultSet, rowNum) -> {
+			Object[] row = new Object[columns.size()];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = switch (columns.get(i).type()) {
+					case LONG -> resultSet.getLong(i + 1);
+					case DOUBLE -> resultSet.getDouble(i + 1);
+					case STRING -> resultSet.getString(i + 1);
+					case TIMESTAMP -> resultSet.getObject(i + 1, LocalDateTime.class);
+				};
+				if (resultSet.wasNull()) row[i] = null;
+			}
+			return row;
+		};
+	}
+}
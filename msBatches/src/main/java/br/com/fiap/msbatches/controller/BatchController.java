@@ -1,23 +1,46 @@
 package br.com.fiap.msbatches.controller;
 
+import br.com.fiap.msbatches.entity.BatchProgress;
+import br.com.fiap.msbatches.services.BatchProgressService;
 import br.com.fiap.msbatches.services.BatchService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/batches")
 public class BatchController {
 	private final BatchService batchService;
+	private final BatchProgressService batchProgressService;
 
-	public BatchController(BatchService batchService) {
+	public BatchController(BatchService batchService, BatchProgressService batchProgressService) {
 		this.batchService = batchService;
+		this.batchProgressService = batchProgressService;
 	}
 
+	//The job runs in background, the progress can be followed by the returned execution id
 	@PostMapping("/runProductBatch")
-	public ResponseEntity<String> runProductBatch() {
-		batchService.runProductBatch();
-		return ResponseEntity.ok("O batch de produto foi executado com sucesso"); //Batch job has been invoked
+	public ResponseEntity<BatchProgress> runProductBatch() {
+		return ResponseEntity.status(HttpStatus.ACCEPTED)
+				.body(this.batchProgressService.toBatchProgress(this.batchService.runProductBatch()));
+	}
+
+	@PostMapping("/runSnapshotExport")
+	public ResponseEntity<BatchProgress> runSnapshotExport() {
+		return ResponseEntity.status(HttpStatus.ACCEPTED)
+				.body(this.batchProgressService.toBatchProgress(this.batchService.runSnapshotExport()));
+	}
+
+	@GetMapping("/getExecutionById/{executionId}")
+	public ResponseEntity<BatchProgress> getExecutionById(@PathVariable Long executionId) {
+		return ResponseEntity.ok(this.batchProgressService.getExecutionById(executionId));
+	}
+
+	@GetMapping("/getExecutions")
+	public ResponseEntity<List<BatchProgress>> getExecutions(@RequestParam(defaultValue = "productProcessor") String jobName,
+			@RequestParam(defaultValue = "10") int count) {
+		return ResponseEntity.ok(this.batchProgressService.getExecutions(jobName, count));
 	}
 }
@@ -0,0 +1,25 @@
+package br.com.fiap.msbatches.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BatchProgress {
+	private Long executionId;
+	private Long jobInstanceId;
+	private String jobName;
+	private String status;
+	private String exitCode;
+	private LocalDateTime createTime;
+	private LocalDateTime startTime;
+	private LocalDateTime endTime;
+	private Long totalLines;
+	private Long etaSeconds;
+	private List<String> failures = new ArrayList<>();
+	private List<StepProgress> steps = new ArrayList<>();
+}
@@ -27,4 +27,6 @@ public class Product {
 	@Column(nullable = false)
 	private Integer quantity;
 
+	@Transient
+	private Integer lineNumber; //Line of the input file, set by the ProductLineMapper and used on the dead-letter file
 }
@@ -0,0 +1,26 @@
+package br.com.fiap.msbatches.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class StepProgress {
+	private String stepName;
+	private String status;
+	private LocalDateTime startTime;
+	private LocalDateTime endTime;
+	private Long durationMillis;
+	private Long readCount;
+	private Long writeCount;
+	private Long skipCount;
+	private Long filterCount;
+	private Long commitCount;
+	private Long rollbackCount;
+	private Double itemsPerSecond;
+	private Double commitsPerSecond;
+	private Long linesRead; // Position of the reader in the file, including the lines read before a restart
+	private Long etaSeconds; // Estimated time to finish, only while the step is running
+}
@@ -0,0 +1,8 @@
+package br.com.fiap.msbatches.export;
+
+public enum ColumnType {
+	LONG, //Zigzag varint of the delta to the previous value of the row group
+	DOUBLE, //8 bytes IEEE 754
+	STRING, //Dictionary of the row group followed by the varint index of each row
+	TIMESTAMP //Epoch millis, encoded as LONG
+}
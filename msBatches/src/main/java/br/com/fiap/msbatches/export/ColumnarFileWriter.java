@@ -0,0 +1,160 @@
+package br.com.fiap.msbatches.export;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Writes rows in a gzip compressed columnar file, the rows are buffered and written in row groups:
+ *
+ *   magic "SSCOL" | version | column count | (name, type) per column
+ *   row group*: row count | per column: null bitmap, encoded values of the non null rows
+ *   end: row count 0
+ *
+ * Counts, lengths and indexes are unsigned varints, strings are UTF-8 prefixed by the length.
+ */
+public class ColumnarFileWriter implements Closeable {
+	private static final byte[] MAGIC = "SSCOL".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+
+	private final List<ExportColumn> columns;
+	private final int rowGroupSize;
+	private final DataOutputStream output;
+	private final List<Object[]> rowGroup;
+	private long rowCount;
+
+	public ColumnarFileWriter(Path file, List<ExportColumn> columns, int rowGroupSize) throws IOException {
+		this.columns = columns;
+		this.rowGroupSize = rowGroupSize;
+		this.rowGroup = new ArrayList<>(rowGroupSize);
+
+		OutputStream fileOutput = Files.newOutputStream(file);
+		this.output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fileOutput, 64 * 1024)));
+
+		output.write(MAGIC);
+		writeVarint(VERSION);
+		writeVarint(columns.size());
+		for (ExportColumn column : columns) {
+			writeString(column.name());
+			writeVarint(column.type().ordinal());
+		}
+	}
+
+	public void write(Object[] row) throws IOException {
+		rowGroup.add(row);
+		rowCount++;
+		if (rowGroup.size() >= rowGroupSize) flushRowGroup();
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flushRowGroup();
+			writeVarint(0);
+		} finally {
+			output.close();
+		}
+	}
+
+	private void flushRowGroup() throws IOException {
+		if (rowGroup.isEmpty()) return;
+
+		writeVarint(rowGroup.size());
+		for (int column = 0; column < columns.size(); column++) {
+			writeNullBitmap(column);
+
+			switch (columns.get(column).type()) {
+				case LONG, TIMESTAMP -> writeLongs(column);
+				case DOUBLE -> writeDoubles(column);
+				case STRING -> writeStrings(column);
+			}
+		}
+
+		rowGroup.clear();
+	}
+
+	private void writeNullBitmap(int column) throws IOException {
+		byte[] bitmap = new byte[(rowGroup.size() + 7) / 8];
+		for (int row = 0; row < rowGroup.size(); row++) {
+			if (rowGroup.get(row)[column] == null) bitmap[row / 8] |= (byte) (1 << (row % 8));
+		}
+		output.write(bitmap);
+	}
+
+	private void writeLongs(int column) throws IOException {
+		long previous = 0;
+		for (Object[] row : rowGroup) {
+			if (row[column] == null) continue;
+
+			long value = toLong(row[column]);
+			long delta = value - previous;
+			writeVarint((delta << 1) ^ (delta >> 63));
+			previous = value;
+		}
+	}
+
+	private void writeDoubles(int column) throws IOException {
+		for (Object[] row : rowGroup) {
+			if (row[column] != null) output.writeDouble(((Number) row[column]).doubleValue());
+		}
+	}
+
+	private void writeStrings(int column) throws IOException {
+		Map<String, Integer> dictionary = new HashMap<>();
+		List<String> values = new ArrayList<>();
+		int[] indexes = new int[rowGroup.size()];
+
+		int count = 0;
+		for (Object[] row : rowGroup) {
+			if (row[column] == null) continue;
+
+			String value = row[column].toString();
+			Integer index = dictionary.get(value);
+			if (index == null) {
+				index = values.size();
+				dictionary.put(value, index);
+				values.add(value);
+			}
+			indexes[count++] = index;
+		}
+
+		writeVarint(values.size());
+		for (String value : values) writeString(value);
+		for (int i = 0; i < count; i++) writeVarint(indexes[i]);
+	}
+
+	private static long toLong(Object value) {
+		if (value instanceof LocalDateTime dateTime) return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+		return ((Number) value).longValue();
+	}
+
+	private void writeString(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		output.write(bytes);
+	}
+
+	private void writeVarint(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			output.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		output.write((int) value);
+	}
+}
@@ -0,0 +1,4 @@
+package br.com.fiap.msbatches.export;
+
+public record ExportColumn(String name, ColumnType type) {
+}
@@ -0,0 +1,12 @@
+package br.com.fiap.msbatches.export;
+
+import java.util.List;
+import java.util.function.Function;
+
+//A table exported by the snapshot job: the query read by a server side cursor, the columns in the order of the
+//query and the partition path of each row ("" when the table isn't partitioned). When the query is ordered by a part
+//of the path, segment returns that part: the files of a segment are finished when the next one starts, instead of
+//staying open until the end of the table (null when the files are few and all kept open).
+public record ExportTable(String name, String sql, List<ExportColumn> columns, Function<Object[], String> partitioner,
+		Function<Object[], Object> segment) {
+}
@@ -0,0 +1,121 @@
+package br.com.fiap.msbatches.export;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+//Writes the rows of a table under <output dir>/snapshot-<job execution id>/<table>/<partition>/part-00000.col.gz.
+//The files are written with a temporary name and only renamed when they are complete: at the end of a successful
+//step, or when the segment of the table they belong to is over (see ExportTable.segment). Only the files of the
+//current segment are open. A restarted step writes the table again, replacing the files already renamed.
+public class PartitionedColumnarItemWriter implements ItemStreamWriter<Object[]>, StepExecutionListener {
+	private static final String FILE_NAME = "part-00000.col.gz";
+	private static final String IN_PROGRESS_SUFFIX = ".inprogress";
+
+	private final ExportTable table;
+	private final Path outputDir;
+	private final int rowGroupSize;
+	private final Map<String, ColumnarFileWriter> writers = new HashMap<>();
+
+	private Path tableDir;
+	private Object segment;
+
+	public PartitionedColumnarItemWriter(ExportTable table, Path outputDir, int rowGroupSize) {
+		this.table = table;
+		this.outputDir = outputDir;
+		this.rowGroupSize = rowGroupSize;
+	}
+
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		tableDir = outputDir.resolve("snapshot-" + stepExecution.getJobExecutionId()).resolve(table.name());
+	}
+
+	@Override
+	public void write(Chunk<? extends Object[]> chunk) throws Exception {
+		for (Object[] row : chunk) {
+			if (table.segment() != null) {
+				Object rowSegment = table.segment().apply(row);
+				if (!writers.isEmpty() && !Objects.equals(rowSegment, segment)) publishWriters();
+				segment = rowSegment;
+			}
+
+			String partition = table.partitioner().apply(row);
+			ColumnarFileWriter writer = writers.get(partition);
+
+			if (writer == null) {
+				Path partitionDir = partition.isEmpty() ? tableDir : tableDir.resolve(partition);
+				Files.createDirectories(partitionDir);
+				writer = new ColumnarFileWriter(partitionDir.resolve(FILE_NAME + IN_PROGRESS_SUFFIX), table.columns(), rowGroupSize);
+				writers.put(partition, writer);
+			}
+
+			writer.write(row);
+		}
+	}
+
+	//Only the writers left open by a failed step are closed here, the successful ones are closed on afterStep
+	@Override
+	public void close() throws ItemStreamException {
+		try {
+			closeWriters();
+		} catch (IOException e) {
+			throw new ItemStreamException("Error closing the export files of " + table.name(), e);
+		} finally {
+			writers.clear();
+		}
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		writers.clear();
+		segment = null;
+	}
+
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		if (stepExecution.getStatus().isUnsuccessful()) return stepExecution.getExitStatus();
+
+		try {
+			publishWriters();
+		} catch (IOException e) {
+			//Exceptions thrown by afterStep are only logged, the step is failed here so the snapshot isn't taken as complete
+			stepExecution.setStatus(BatchStatus.FAILED);
+			stepExecution.addFailureException(e);
+			return ExitStatus.FAILED.addExitDescription(e);
+		}
+
+		return stepExecution.getExitStatus();
+	}
+
+	//Closes the files written so far and renames them, the writers of the next rows start empty
+	private void publishWriters() throws IOException {
+		try {
+			closeWriters();
+			for (String partition : writers.keySet()) {
+				Path partitionDir = partition.isEmpty() ? tableDir : tableDir.resolve(partition);
+				Files.move(partitionDir.resolve(FILE_NAME + IN_PROGRESS_SUFFIX), partitionDir.resolve(FILE_NAME),
+						StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			writers.clear();
+		}
+	}
+
+	private void closeWriters() throws IOException {
+		for (ColumnarFileWriter writer : writers.values()) writer.close();
+	}
+}
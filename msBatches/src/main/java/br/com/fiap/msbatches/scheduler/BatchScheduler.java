@@ -1,9 +1,7 @@
 package br.com.fiap.msbatches.scheduler;
 
-import org.springframework.batch.core.Job;
-import org.springframework.batch.core.JobParameters;
-import org.springframework.batch.core.JobParametersBuilder;
-import org.springframework.batch.core.launch.JobLauncher;
+import br.com.fiap.msbatches.services.BatchAlreadyRunningException;
+import br.com.fiap.msbatches.services.BatchService;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -12,17 +10,27 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class BatchScheduler {
 
-	private final JobLauncher jobLauncher;
-	private final Job job;
+	private final BatchService batchService;
 
-	public BatchScheduler(JobLauncher jobLauncher, Job job) {
-		this.jobLauncher = jobLauncher;
-		this.job = job;
+	public BatchScheduler(BatchService batchService) {
+		this.batchService = batchService;
 	}
 
 	@Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
-	public void executeBatch() throws Exception {
-		JobParameters jobParameters = new JobParametersBuilder().toJobParameters();
-		jobLauncher.run(job, jobParameters);
+	public void executeBatch() {
+		try {
+			batchService.runProductBatch();
+		} catch (BatchAlreadyRunningException e) {
+			//An execution triggered by the API is still running, this cycle is skipped
+		}
+	}
+
+	@Scheduled(cron = "${batch.export.cron}")
+	public void executeExport() {
+		try {
+			batchService.runSnapshotExport();
+		} catch (BatchAlreadyRunningException e) {
+			//An export triggered by the API is still running, this cycle is skipped
+		}
 	}
 }
@@ -0,0 +1,12 @@
+package br.com.fiap.msbatches.services;
+
+//A launch refused because an execution of the same job is running, here or in another instance. Answered with 409.
+public class BatchAlreadyRunningException extends RuntimeException {
+	public BatchAlreadyRunningException(String message) {
+		super(message);
+	}
+
+	public BatchAlreadyRunningException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
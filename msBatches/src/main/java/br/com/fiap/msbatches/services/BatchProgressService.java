@@ -0,0 +1,118 @@
+package br.com.fiap.msbatches.services;
+
+import br.com.fiap.msbatches.entity.BatchProgress;
+import br.com.fiap.msbatches.entity.StepProgress;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+public class BatchProgressService {
+	public static final String EXECUTION_NOT_FOUND = "Execução do batch não encontrada"; //Batch execution not found
+	public static final String READER_POSITION_KEY = "productItemReader.read.count"; //Line saved by the reader on each commit
+
+	private final JobExplorer jobExplorer;
+
+	public BatchProgressService(JobExplorer jobExplorer) {
+		this.jobExplorer = jobExplorer;
+	}
+
+	public BatchProgress getExecutionById(Long executionId) {
+		JobExecution jobExecution = jobExplorer.getJobExecution(executionId);
+		if (jobExecution == null) throw new EntityNotFoundException(EXECUTION_NOT_FOUND);
+
+		return toBatchProgress(jobExecution);
+	}
+
+	public List<BatchProgress> getExecutions(String jobName, int count) {
+		List<BatchProgress> executions = new ArrayList<>();
+
+		for (JobInstance jobInstance : jobExplorer.getJobInstances(jobName, 0, count)) {
+			for (JobExecution jobExecution : jobExplorer.getJobExecutions(jobInstance)) {
+				executions.add(toBatchProgress(jobExecution));
+			}
+		}
+
+		executions.sort(Comparator.comparing(BatchProgress::getExecutionId).reversed());
+		return executions.size() > count ? executions.subList(0, count) : executions;
+	}
+
+	public BatchProgress toBatchProgress(JobExecution jobExecution) {
+		BatchProgress batchProgress = new BatchProgress();
+		batchProgress.setExecutionId(jobExecution.getId());
+		batchProgress.setJobInstanceId(jobExecution.getJobInstance().getInstanceId());
+		batchProgress.setJobName(jobExecution.getJobInstance().getJobName());
+		batchProgress.setStatus(jobExecution.getStatus().name());
+		batchProgress.setExitCode(jobExecution.getExitStatus().getExitCode());
+		batchProgress.setCreateTime(jobExecution.getCreateTime());
+		batchProgress.setStartTime(jobExecution.getStartTime());
+		batchProgress.setEndTime(jobExecution.getEndTime());
+
+		Long totalLines = jobExecution.getExecutionContext().containsKey(InputLinesListener.TOTAL_LINES_KEY)
+				? jobExecution.getExecutionContext().getLong(InputLinesListener.TOTAL_LINES_KEY)
+				: null;
+		batchProgress.setTotalLines(totalLines);
+
+		for (Throwable failure : jobExecution.getAllFailureExceptions()) {
+			batchProgress.getFailures().add(failure.getMessage());
+		}
+
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			StepProgress stepProgress = toStepProgress(stepExecution, totalLines);
+			batchProgress.getSteps().add(stepProgress);
+
+			if (stepProgress.getEtaSeconds() != null) batchProgress.setEtaSeconds(stepProgress.getEtaSeconds());
+		}
+
+		return batchProgress;
+	}
+
+	private StepProgress toStepProgress(StepExecution stepExecution, Long totalLines) {
+		StepProgress stepProgress = new StepProgress();
+		stepProgress.setStepName(stepExecution.getStepName());
+		stepProgress.setStatus(stepExecution.getStatus().name());
+		stepProgress.setStartTime(stepExecution.getStartTime());
+		stepProgress.setEndTime(stepExecution.getEndTime());
+		stepProgress.setReadCount(stepExecution.getReadCount());
+		stepProgress.setWriteCount(stepExecution.getWriteCount());
+		stepProgress.setSkipCount(stepExecution.getSkipCount());
+		stepProgress.setFilterCount(stepExecution.getFilterCount());
+		stepProgress.setCommitCount(stepExecution.getCommitCount());
+		stepProgress.setRollbackCount(stepExecution.getRollbackCount());
+
+		if (stepExecution.getStartTime() == null) return stepProgress;
+
+		//A running step is measured until now, the counters are updated by the repository on every chunk commit
+		LocalDateTime endTime = stepExecution.getEndTime() != null ? stepExecution.getEndTime() : LocalDateTime.now();
+		long durationMillis = Math.max(Duration.between(stepExecution.getStartTime(), endTime).toMillis(), 0);
+		stepProgress.setDurationMillis(durationMillis);
+
+		if (durationMillis == 0) return stepProgress;
+
+		double seconds = durationMillis / 1000.0;
+		double itemsPerSecond = stepExecution.getWriteCount() / seconds;
+		stepProgress.setItemsPerSecond(itemsPerSecond);
+		stepProgress.setCommitsPerSecond(stepExecution.getCommitCount() / seconds);
+
+		if (stepExecution.getExecutionContext().containsKey(READER_POSITION_KEY)) {
+			stepProgress.setLinesRead(stepExecution.getExecutionContext().getLong(READER_POSITION_KEY));
+		}
+
+		if (stepExecution.getStatus().isRunning() && totalLines != null && itemsPerSecond > 0) {
+			long linesRead = stepProgress.getLinesRead() != null ? stepProgress.getLinesRead() : stepExecution.getReadCount();
+			long remainingLines = Math.max(totalLines - linesRead, 0);
+			stepProgress.setEtaSeconds(Math.round(remainingLines / itemsPerSecond));
+		}
+
+		return stepProgress;
+	}
+}
@@ -1,27 +1,198 @@
 package br.com.fiap.msbatches.services;
 
+import br.com.fiap.msbatches.config.BatchConfiguration;
+import br.com.fiap.msbatches.config.ExportConfiguration;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
 @Service
 public class BatchService {
+	public static final String BATCH_ALREADY_RUNNING = "Já existe uma execução do batch de produtos em andamento"; //There is already a product batch execution running
+	public static final String EXPORT_ALREADY_RUNNING = "Já existe uma exportação em andamento"; //There is already an export running
+	public static final String INPUT_FILE_NOT_FOUND = "Arquivo de entrada %s não encontrado"; //Input file not found
+
+	//Non identifying parameter with the instance that launched the execution
+	public static final String INSTANCE_PARAMETER = "launched.by";
+
 	private final JobLauncher jobLauncher;
+	private final JobExplorer jobExplorer;
+	private final JobRepository jobRepository;
 	private final Job job;
+	private final Job exportJob;
+	private final String inputFile;
+	private final String instanceId;
+	private final long staleAfter;
+
+	//Serialize the launches made by the HTTP trigger and by the scheduler inside this instance. Each job has its own
+	//lock, an export doesn't hold back the product import.
+	private final ReentrantLock productLaunchLock = new ReentrantLock();
+	private final ReentrantLock exportLaunchLock = new ReentrantLock();
 
-	public BatchService(JobLauncher jobLauncher, Job job) {
+	public BatchService(@Qualifier("asyncJobLauncher") JobLauncher jobLauncher,
+			JobExplorer jobExplorer,
+			JobRepository jobRepository,
+			@Qualifier("productProcessor") Job job,
+			@Qualifier(ExportConfiguration.EXPORT_JOB_NAME) Job exportJob,
+			@Value("${batch.product.input-file}") String inputFile,
+			@Value("${batch.instance-id}") String instanceId,
+			@Value("${batch.recovery.stale-after}") long staleAfter) {
 		this.jobLauncher = jobLauncher;
+		this.jobExplorer = jobExplorer;
+		this.jobRepository = jobRepository;
 		this.job = job;
+		this.exportJob = exportJob;
+		this.inputFile = inputFile;
+		this.instanceId = instanceId;
+		this.staleAfter = staleAfter;
+	}
+
+	public JobExecution runProductBatch() {
+		if (!productLaunchLock.tryLock()) throw new BatchAlreadyRunningException(BATCH_ALREADY_RUNNING);
+
+		try {
+			if (!jobExplorer.findRunningJobExecutions(job.getName()).isEmpty()) {
+				throw new BatchAlreadyRunningException(BATCH_ALREADY_RUNNING);
+			}
+
+			JobParameters jobParameters = createJobParameters();
+			try {
+				//A failed execution with the same file and version is restarted from the last committed chunk
+				return jobLauncher.run(job, jobParameters);
+			} catch (JobExecutionAlreadyRunningException e) {
+				throw new BatchAlreadyRunningException(BATCH_ALREADY_RUNNING, e);
+			} catch (JobInstanceAlreadyCompleteException e) {
+				//The file didn't change since the last successful execution, there is nothing to import
+				return jobRepository.getLastJobExecution(job.getName(), jobParameters);
+			} catch (Exception e) {
+				throw new RuntimeException("Error running batch job", e);
+			}
+		} finally {
+			productLaunchLock.unlock();
+		}
+	}
+
+	//Every export reads the databases again, so each request is a new job instance
+	public JobExecution runSnapshotExport() {
+		if (!exportLaunchLock.tryLock()) throw new BatchAlreadyRunningException(EXPORT_ALREADY_RUNNING);
+
+		try {
+			if (!jobExplorer.findRunningJobExecutions(exportJob.getName()).isEmpty()) {
+				throw new BatchAlreadyRunningException(EXPORT_ALREADY_RUNNING);
+			}
+
+			JobParameters jobParameters = new JobParametersBuilder()
+					.addLocalDateTime("requested.at", LocalDateTime.now())
+					.addString(INSTANCE_PARAMETER, instanceId, false)
+					.toJobParameters();
+			try {
+				return jobLauncher.run(exportJob, jobParameters);
+			} catch (JobExecutionAlreadyRunningException e) {
+				throw new BatchAlreadyRunningException(EXPORT_ALREADY_RUNNING, e);
+			} catch (Exception e) {
+				throw new RuntimeException("Error running export job", e);
+			}
+		} finally {
+			exportLaunchLock.unlock();
+		}
 	}
 
-	public void runProductBatch() {
-		JobParameters jobParameters = new JobParametersBuilder().toJobParameters();
+	//Executions left as running by a crash of this instance can't be restarted, so they are marked as failed on startup.
+	//The ones launched by another instance may still be running there, they are only failed once they are stale.
+	@EventListener(ApplicationReadyEvent.class)
+	public void recoverInterruptedExecutions() {
+		recoverInterruptedExecutions(job.getName(), true);
+		recoverInterruptedExecutions(exportJob.getName(), true);
+	}
+
+	//Executions of an instance that stopped and didn't come back, their chunks stopped being committed
+	@Scheduled(fixedDelayString = "${batch.recovery.interval}")
+	public void recoverStaleExecutions() {
+		recoverInterruptedExecutions(job.getName(), false);
+		recoverInterruptedExecutions(exportJob.getName(), false);
+	}
+
+	private void recoverInterruptedExecutions(String jobName, boolean startup) {
+		LocalDateTime staleBefore = LocalDateTime.now().minus(staleAfter, ChronoUnit.MILLIS);
+
+		for (JobExecution jobExecution : jobExplorer.findRunningJobExecutions(jobName)) {
+			boolean launchedHere = instanceId.equals(jobExecution.getJobParameters().getString(INSTANCE_PARAMETER));
+			if (!(startup && launchedHere) && !lastHeartbeat(jobExecution).isBefore(staleBefore)) continue;
+
+			LocalDateTime now = LocalDateTime.now();
+
+			for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+				if (stepExecution.getStatus().isRunning()) {
+					stepExecution.setStatus(BatchStatus.FAILED);
+					stepExecution.setExitStatus(ExitStatus.FAILED);
+					stepExecution.setEndTime(now);
+					jobRepository.update(stepExecution);
+				}
+			}
+
+			jobExecution.setStatus(BatchStatus.FAILED);
+			jobExecution.setExitStatus(ExitStatus.FAILED);
+			jobExecution.setEndTime(now);
+			jobRepository.update(jobExecution);
+		}
+	}
+
+	//Each committed chunk updates last_updated of its step, it is the heartbeat of the execution
+	private static LocalDateTime lastHeartbeat(JobExecution jobExecution) {
+		LocalDateTime heartbeat = jobExecution.getLastUpdated() != null ? jobExecution.getLastUpdated() : jobExecution.getCreateTime();
+		for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+			if (stepExecution.getLastUpdated() != null && stepExecution.getLastUpdated().isAfter(heartbeat)) {
+				heartbeat = stepExecution.getLastUpdated();
+			}
+		}
+		return heartbeat;
+	}
+
+	//The file and its version identify the job instance, a new version of the file starts a new instance.
+	//A file that is missing, or removed before its version is read, is answered with 404.
+	private JobParameters createJobParameters() {
+		Resource resource = new DefaultResourceLoader().getResource(inputFile);
+		if (!resource.exists()) throw new EntityNotFoundException(String.format(INPUT_FILE_NOT_FOUND, inputFile));
+
+		long lastModified;
+		long contentLength;
 		try {
-			jobLauncher.run(job, jobParameters);
-		} catch (Exception e) {
-			throw new RuntimeException("Error running batch job", e);
+			lastModified = resource.lastModified();
+			contentLength = resource.contentLength();
+		} catch (IOException e) {
+			EntityNotFoundException notFound = new EntityNotFoundException(String.format(INPUT_FILE_NOT_FOUND, inputFile));
+			notFound.initCause(e);
+			throw notFound;
 		}
+
+		return new JobParametersBuilder()
+				.addString(BatchConfiguration.INPUT_FILE_PARAMETER, inputFile)
+				.addString(BatchConfiguration.INPUT_VERSION_PARAMETER, lastModified + "-" + contentLength)
+				.addLocalDateTime("requested.at", LocalDateTime.now(), false)
+				.addString(INSTANCE_PARAMETER, instanceId, false)
+				.toJobParameters();
 	}
 }
@@ -0,0 +1,89 @@
+package br.com.fiap.msbatches.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+//Logs one line per chunk instead of one per item, and keeps the same totals as counters
+@Slf4j
+@Component
+public class ChunkSummaryListener implements ChunkListener {
+	private final Counter readCounter;
+	private final Counter writeCounter;
+	private final Counter skipCounter;
+	private final Counter filterCounter;
+	private final Timer chunkTimer;
+
+	//The chunks of a step are executed one after the other by the same thread
+	private long chunkStart;
+	private long lastRead;
+	private long lastWrite;
+	private long lastSkip;
+	private long lastFilter;
+	private Long lastStepExecutionId;
+
+	public ChunkSummaryListener(MeterRegistry meterRegistry) {
+		this.readCounter = Counter.builder("batch.product.items").tag("outcome", "read").register(meterRegistry);
+		this.writeCounter = Counter.builder("batch.product.items").tag("outcome", "written").register(meterRegistry);
+		this.skipCounter = Counter.builder("batch.product.items").tag("outcome", "skipped").register(meterRegistry);
+		this.filterCounter = Counter.builder("batch.product.items").tag("outcome", "filtered").register(meterRegistry);
+		this.chunkTimer = Timer.builder("batch.product.chunk").register(meterRegistry);
+	}
+
+	@Override
+	public void beforeChunk(ChunkContext context) {
+		StepExecution stepExecution = context.getStepContext().getStepExecution();
+
+		if (!stepExecution.getId().equals(lastStepExecutionId)) {
+			lastStepExecutionId = stepExecution.getId();
+			lastRead = stepExecution.getReadCount();
+			lastWrite = stepExecution.getWriteCount();
+			lastSkip = stepExecution.getSkipCount();
+			lastFilter = stepExecution.getFilterCount();
+		}
+
+		chunkStart = System.nanoTime();
+	}
+
+	@Override
+	public void afterChunk(ChunkContext context) {
+		summarize(context, "committed");
+	}
+
+	@Override
+	public void afterChunkError(ChunkContext context) {
+		summarize(context, "rolled back");
+	}
+
+	private void summarize(ChunkContext context, String result) {
+		StepExecution stepExecution = context.getStepContext().getStepExecution();
+		long elapsed = System.nanoTime() - chunkStart;
+
+		long read = stepExecution.getReadCount() - lastRead;
+		long written = stepExecution.getWriteCount() - lastWrite;
+		long skipped = stepExecution.getSkipCount() - lastSkip;
+		long filtered = stepExecution.getFilterCount() - lastFilter;
+
+		readCounter.increment(read);
+		writeCounter.increment(written);
+		skipCounter.increment(skipped);
+		filterCounter.increment(filtered);
+		chunkTimer.record(elapsed, TimeUnit.NANOSECONDS);
+
+		log.info("Chunk {} step={} execution={} read={} written={} skipped={} filtered={} elapsedMs={} totalWritten={}",
+				result, stepExecution.getStepName(), stepExecution.getJobExecutionId(), read, written, skipped, filtered,
+				TimeUnit.NANOSECONDS.toMillis(elapsed), stepExecution.getWriteCount());
+
+		lastRead = stepExecution.getReadCount();
+		lastWrite = stepExecution.getWriteCount();
+		lastSkip = stepExecution.getSkipCount();
+		lastFilter = stepExecution.getFilterCount();
+	}
+}
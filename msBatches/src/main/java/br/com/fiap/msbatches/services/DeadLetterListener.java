@@ -0,0 +1,138 @@
+package br.com.fiap.msbatches.services;
+
+import br.com.fiap.msbatches.entity.Product;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Writes the skipped rows to a dead-letter file as "lineNumber;reason;input", one file per job execution. The line is
+//the one of the input file on every kind of skip, taken from the FlatFileParseException or from the product.
+@Component
+public class DeadLetterListener implements SkipListener<Product, Future<Product>>, ItemProcessListener<Product, Future<Product>>,
+		StepExecutionListener {
+	private final Path deadLetterDir;
+
+	//The product each future was created for, a failed future doesn't give it back. The entries go away with the
+	//futures once the chunk is written.
+	private final Map<Future<Product>, Product> processedItems = Collections.synchronizedMap(new WeakHashMap<>());
+
+	//A lock instead of synchronized, a virtual thread writing the file while holding a monitor would pin its carrier
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private BufferedWriter writer;
+	private Path currentFile;
+
+	public DeadLetterListener(@Value("${batch.product.dead-letter-dir}") String deadLetterDir) {
+		this.deadLetterDir = Path.of(deadLetterDir);
+	}
+
+	@Override
+	public void beforeStep(StepExecution stepExecution) {
+		lock.lock();
+		try {
+			currentFile = deadLetterDir.resolve("products-" + stepExecution.getJobExecutionId() + ".csv");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public ExitStatus afterStep(StepExecution stepExecution) {
+		lock.lock();
+		try {
+			close();
+		} finally {
+			lock.unlock();
+		}
+		return stepExecution.getExitStatus();
+	}
+
+	@Override
+	public void afterProcess(Product item, Future<Product> result) {
+		if (result != null) processedItems.put(result, item);
+	}
+
+	@Override
+	public void onSkipInRead(Throwable t) {
+		if (t instanceof FlatFileParseException parseException) {
+			write(String.valueOf(parseException.getLineNumber()), reason(parseException), parseException.getInput());
+		} else {
+			write("", reason(t), "");
+		}
+	}
+
+	@Override
+	public void onSkipInProcess(Product item, Throwable t) {
+		write(lineNumber(item), reason(t), render(item));
+	}
+
+	//The async processor hands a future to the writer, the failed item is the one the future was created for
+	@Override
+	public void onSkipInWrite(Future<Product> item, Throwable t) {
+		Product product = processedItems.remove(item);
+		write(product == null ? "" : lineNumber(product), reason(t), product == null ? "" : render(product));
+	}
+
+	private void write(String lineNumber, String reason, String input) {
+		lock.lock();
+		try {
+			if (writer == null) {
+				Files.createDirectories(deadLetterDir);
+				writer = Files.newBufferedWriter(currentFile, StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			}
+
+			writer.write(lineNumber + ";" + reason + ";" + input);
+			writer.newLine();
+			writer.flush(); //Skips are rare, every row is flushed so nothing is lost if the instance crashes
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void close() {
+		if (writer == null) return;
+
+		try {
+			writer.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			writer = null;
+		}
+	}
+
+	private static String lineNumber(Product product) {
+		return product.getLineNumber() == null ? "" : String.valueOf(product.getLineNumber());
+	}
+
+	private static String reason(Throwable t) {
+		Throwable cause = t instanceof FlatFileParseException && t.getCause() != null ? t.getCause() : t;
+		String message = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+		return message.replace(';', ',').replace('\n', ' ').replace('\r', ' ');
+	}
+
+	private static String render(Product product) {
+		return product.getName() + ";" + product.getDescription() + ";" + product.getPrice() + ";" + product.getQuantity();
+	}
+}
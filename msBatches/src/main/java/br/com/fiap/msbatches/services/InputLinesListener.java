@@ -0,0 +1,55 @@
+package br.com.fiap.msbatches.services;
+
+import br.com.fiap.msbatches.config.BatchConfiguration;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Component
+public class InputLinesListener implements JobExecutionListener {
+	public static final String TOTAL_LINES_KEY = "input.totalLines";
+
+	private final JobRepository jobRepository;
+
+	public InputLinesListener(JobRepository jobRepository) {
+		this.jobRepository = jobRepository;
+	}
+
+	//Counts the lines of the input file before the import starts, it's used to estimate the remaining time
+	@Override
+	public void beforeJob(JobExecution jobExecution) {
+		String inputFile = jobExecution.getJobParameters().getString(BatchConfiguration.INPUT_FILE_PARAMETER);
+		if (inputFile == null) return;
+
+		Resource resource = new DefaultResourceLoader().getResource(inputFile);
+		try (InputStream inputStream = resource.getInputStream()) {
+			jobExecution.getExecutionContext().putLong(TOTAL_LINES_KEY, countLines(inputStream));
+			jobRepository.updateExecutionContext(jobExecution);
+		} catch (IOException e) {
+			//Without the total of lines the progress is reported without the estimated time
+		}
+	}
+
+	static long countLines(InputStream inputStream) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		long lines = 0;
+		int read;
+		byte last = '\n';
+
+		while ((read = inputStream.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++) {
+				if (buffer[i] == '\n') lines++;
+			}
+			if (read > 0) last = buffer[read - 1];
+		}
+
+		//The last line doesn't always end with a line break
+		return last == '\n' ? lines : lines + 1;
+	}
+}
@@ -0,0 +1,34 @@
+package br.com.fiap.msbatches.services;
+
+import br.com.fiap.msbatches.entity.Product;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+//Any exception thrown here is wrapped by the reader in a FlatFileParseException with the line number and the input
+public class ProductFieldSetMapper implements FieldSetMapper<Product> {
+	public static final String NAME_REQUIRED = "Nome do produto não informado"; //Product name is required
+	public static final String NAME_TOO_LONG = "Nome do produto excede 50 caracteres"; //Product name exceeds 50 characters
+	public static final String DESCRIPTION_REQUIRED = "Descrição do produto não informada"; //Product description is required
+	public static final String INVALID_PRICE = "Preço do produto deve ser maior que zero"; //Product price must be greater than zero
+	public static final String INVALID_QUANTITY = "Quantidade do produto não pode ser negativa"; //Product quantity can't be negative
+
+	@Override
+	public Product mapFieldSet(FieldSet fieldSet) {
+		Product product = new Product();
+		product.setName(fieldSet.readString("name"));
+		product.setDescription(fieldSet.readString("description"));
+		product.setPrice(fieldSet.readFloat("price"));
+		product.setQuantity(fieldSet.readInt("quantity"));
+
+		validate(product);
+		return product;
+	}
+
+	private void validate(Product product) {
+		if (product.getName() == null || product.getName().isBlank()) throw new IllegalArgumentException(NAME_REQUIRED);
+		if (product.getName().length() > 50) throw new IllegalArgumentException(NAME_TOO_LONG);
+		if (product.getDescription() == null || product.getDescription().isBlank()) throw new IllegalArgumentException(DESCRIPTION_REQUIRED);
+		if (product.getPrice() <= 0 || product.getPrice().isNaN()) throw new IllegalArgumentException(INVALID_PRICE);
+		if (product.getQuantity() < 0) throw new IllegalArgumentException(INVALID_QUANTITY);
+	}
+}
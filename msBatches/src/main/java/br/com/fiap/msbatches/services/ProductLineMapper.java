@@ -0,0 +1,26 @@
+package br.com.fiap.msbatches.services;
+
+import br.com.fiap.msbatches.entity.Product;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+
+//Maps the "name;description;price;quantity" lines keeping the line of the file on the product, the same number the
+//reader puts on the FlatFileParseException, so every skipped row points to its line on the dead-letter file
+public class ProductLineMapper implements LineMapper<Product> {
+	private final DefaultLineMapper<Product> delegate = new DefaultLineMapper<>();
+
+	public ProductLineMapper() {
+		DelimitedLineTokenizer lineTokenizer = new DelimitedLineTokenizer(";");
+		lineTokenizer.setNames("name", "description", "price", "quantity");
+		delegate.setLineTokenizer(lineTokenizer);
+		delegate.setFieldSetMapper(new ProductFieldSetMapper());
+	}
+
+	@Override
+	public Product mapLine(String line, int lineNumber) throws Exception {
+		Product product = delegate.mapLine(line, lineNumber);
+		product.setLineNumber(lineNumber);
+		return product;
+	}
+}
@@ -2,17 +2,38 @@ package br.com.fiap.msbatches.services;
 
 import br.com.fiap.msbatches.entity.Product;
 import br.com.fiap.msbatches.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.retry.support.RetryTemplate;
 
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
 public class ProductProcessor implements ItemProcessor<Product, Product> {
 	private final ProductRepository productRepository;
+	private final RetryTemplate retryTemplate;
+	private final double itemSampleRate;
+	private final Counter createdCounter;
+	private final Counter existingCounter;
 
-	public ProductProcessor(ProductRepository productRepository) {
+	public ProductProcessor(ProductRepository productRepository, RetryTemplate retryTemplate,
+			MeterRegistry meterRegistry, double itemSampleRate) {
 		this.productRepository = productRepository;
+		this.retryTemplate = retryTemplate;
+		this.itemSampleRate = itemSampleRate;
+		this.createdCounter = Counter.builder("batch.product.processed").tag("result", "created").register(meterRegistry);
+		this.existingCounter = Counter.builder("batch.product.processed").tag("result", "existing").register(meterRegistry);
 	}
 
+	//The processing runs inside a future, a failure only reaches the step on the write, so transient errors are retried here
 	@Override
 	public Product process(Product item) throws Exception {
+		return retryTemplate.execute(context -> processItem(item));
+	}
+
+	private Product processItem(Product item) {
 		Float price = (float) (Math.round(item.getPrice() * 100.0) / 100.0);
 		item.setPrice(price);
 
@@ -26,12 +47,18 @@ public class ProductProcessor implements ItemProcessor<Product, Product> {
 
 			var savedProduct = productRepository.save(product);
 			item.setId(savedProduct.getId());
+			createdCounter.increment();
 		}
 		else{
 			item.setId(product.getId());
+			existingCounter.increment();
+		}
+
+		//Only a sample of the items is logged, the totals are reported per chunk by the ChunkSummaryListener
+		if (itemSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < itemSampleRate) {
+			log.info("Processed product line={} id={} name={}", item.getLineNumber(), item.getId(), item.getName());
 		}
 
-		System.out.println("Processing: " + item.toString());
 		return item;
 	}
 }
@@ -0,0 +1,145 @@
+package br.com.fiap.msbatches.benchmark;
+
+import br.com.fiap.msbatches.entity.Product;
+import br.com.fiap.msbatches.repository.ProductRepository;
+import br.com.fiap.msbatches.services.ProductProcessor;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Items processed per millisecond by the import threads, before (every item printed to stdout) and after (1% of the
+//items logged through the async appender) the change of the logging. The repository is kept in memory so only the
+//processing and the logging are measured, both write to a temporary file instead of the console.
+//Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=br.com.fiap.msbatches.benchmark.ImportBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8) //batch.executor.max-pool-size
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+	@Param({"stdout", "sampled"})
+	public String logging;
+
+	private final AtomicLong ids = new AtomicLong();
+	private final AtomicLong lines = new AtomicLong();
+
+	private ProductProcessor processor;
+	private PrintStream stdout;
+	private Path logFile;
+
+	@Setup
+	public void setup() throws IOException {
+		logFile = Files.createTempFile("import-benchmark", ".log");
+		ProductRepository productRepository = productRepository();
+
+		if ("stdout".equals(logging)) {
+			stdout = System.out;
+			System.setOut(new PrintStream(new FileOutputStream(logFile.toFile()), true));
+			processor = new StdoutProductProcessor(productRepository);
+		} else {
+			asyncLogging(logFile);
+			processor = new ProductProcessor(productRepository, new RetryTemplate(), new SimpleMeterRegistry(), 0.01);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		if (stdout != null) {
+			System.out.close();
+			System.setOut(stdout);
+		}
+		((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+		Files.deleteIfExists(logFile);
+	}
+
+	@Benchmark
+	public Product processItem() throws Exception {
+		long line = lines.incrementAndGet();
+		Product item = new Product(null, "Bola de futebol " + line, "Bola oficial tamanho 5, costurada a mão", 129.9f, 10, (int) line);
+		return processor.process(item);
+	}
+
+	//The processing before the change, every item printed with its toString
+	private static class StdoutProductProcessor extends ProductProcessor {
+		StdoutProductProcessor(ProductRepository productRepository) {
+			super(productRepository, new RetryTemplate(), new SimpleMeterRegistry(), 0);
+		}
+
+		@Override
+		public Product process(Product item) throws Exception {
+			Product product = super.process(item);
+			System.out.println("Processing: " + product.toString());
+			return product;
+		}
+	}
+
+	//The same appender as logback-spring.xml, writing to the file instead of the console
+	private static void asyncLogging(Path logFile) {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.reset();
+
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern("%d %5p [%t] %logger{39} : %m%n");
+		encoder.start();
+
+		FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+		fileAppender.setContext(context);
+		fileAppender.setFile(logFile.toString());
+		fileAppender.setEncoder(encoder);
+		fileAppender.start();
+
+		AsyncAppender asyncAppender = new AsyncAppender();
+		asyncAppender.setContext(context);
+		asyncAppender.setQueueSize(8192);
+		asyncAppender.setDiscardingThreshold(0);
+		asyncAppender.setNeverBlock(true);
+		asyncAppender.addAppender(fileAppender);
+		asyncAppender.start();
+
+		ch.qos.logback.classic.Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+		root.setLevel(Level.INFO);
+		root.addAppender(asyncAppender);
+	}
+
+	//Every product is new, as on the first import of a file
+	private ProductRepository productRepository() {
+		return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+				new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+					case "findByName" -> Optional.empty();
+					case "save" -> {
+						Product product = (Product) args[0];
+						product.setId(ids.incrementAndGet());
+						yield product;
+					}
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ImportBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,92 @@
+package br.com.fiap.msbatches.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Chunks of two lines and a single skip allowed, the second invalid line fails the execution after the first chunk
+@SpringBootTest(properties = {"batch.product.chunk-size=2", "batch.product.skip-limit=1",
+		"batch.product.dead-letter-dir=target/test-deadletter"})
+@SpringBatchTest
+public class BatchConfigurationIntegTest {
+	@Autowired
+	private JobLauncherTestUtils jobLauncherTestUtils;
+
+	@Autowired
+	@Qualifier("productProcessor")
+	private Job productProcessor;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	private Path inputDir;
+
+	@BeforeEach
+	void setup() {
+		//Two Job beans, the utils must be told which one to launch
+		jobLauncherTestUtils.setJob(productProcessor);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM products WHERE name LIKE 'Dummy restart product %'");
+	}
+
+	@Test
+	void allowRestartFailedExecution_FromTheLastCommittedChunk() throws Exception {
+		//Arrange
+		Path inputFile = inputDir.resolve("products.csv");
+		Files.write(inputFile, List.of(
+				line(1, "15.8"), line(2, "20.5"),
+				line(3, "-1"), line(4, "-1"), //Invalid price
+				line(5, "30.0"), line(6, "42.9")), StandardCharsets.UTF_8);
+		JobParameters jobParameters = new JobParametersBuilder()
+				.addString(BatchConfiguration.INPUT_FILE_PARAMETER, "file:" + inputFile.toAbsolutePath())
+				.addString(BatchConfiguration.INPUT_VERSION_PARAMETER, "restart-test")
+				.toJobParameters();
+
+		//Act
+		JobExecution failedExecution = jobLauncherTestUtils.launchJob(jobParameters);
+		Files.write(inputFile, List.of(
+				line(1, "15.8"), line(2, "20.5"), line(3, "10.0"), line(4, "12.0"),
+				line(5, "30.0"), line(6, "42.9")), StandardCharsets.UTF_8);
+		JobExecution restartedExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+		//Assert
+		assertThat(failedExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+		assertThat(restartedExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+		assertThat(restartedExecution.getJobInstance().getInstanceId())
+				.isEqualTo(failedExecution.getJobInstance().getInstanceId());
+
+		//Only the lines after the first chunk are read again
+		StepExecution restartedStep = restartedExecution.getStepExecutions().iterator().next();
+		assertThat(restartedStep.getReadCount()).isEqualTo(4);
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM products WHERE name LIKE 'Dummy restart product %'", Long.class))
+				.isEqualTo(6L);
+	}
+
+	private static String line(int number, String price) {
+		return "Dummy restart product " + number + ";Dummy product description;" + price + ";10";
+	}
+}
@@ -0,0 +1,90 @@
+package br.com.fiap.msbatches.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "batch.export.output-dir=target/test-exports")
+@SpringBatchTest
+public class ExportConfigurationIntegTest {
+	@Autowired
+	private JobLauncherTestUtils jobLauncherTestUtils;
+
+	@Autowired
+	@Qualifier(ExportConfiguration.EXPORT_JOB_NAME)
+	private Job exportJob;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	@Qualifier("purchaseDataSource")
+	private DataSource purchaseDataSource;
+
+	private JdbcTemplate purchaseJdbcTemplate;
+
+	@BeforeEach
+	void setup() {
+		//Two Job beans, the utils must be told which one to launch
+		jobLauncherTestUtils.setJob(exportJob);
+		purchaseJdbcTemplate = new JdbcTemplate(purchaseDataSource);
+
+		//Committed, the job reads them with its own connections
+		jdbcTemplate.update("INSERT INTO products (name, description, price, quantity) VALUES " +
+				"('Dummy export product 1', 'Dummy product description', 15.8, 10), " +
+				"('Dummy export product 2', 'Dummy product description', 20.5, 0)");
+		purchaseJdbcTemplate.update("INSERT INTO purchase_history (purchase_id, status, status_date) VALUES " +
+				"(900001, 'PAGO', '2024-05-10 10:00:00'), (900001, 'ENTREGUE', '2024-05-11 15:30:00')");
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM products WHERE name LIKE 'Dummy export product %'");
+		purchaseJdbcTemplate.update("DELETE FROM purchase_history WHERE purchase_id = 900001");
+	}
+
+	@Test
+	void allowRunSnapshotExport() throws Exception {
+		//Arrange
+		long products = jdbcTemplate.queryForObject("SELECT count(*) FROM products", Long.class);
+
+		//Act
+		JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParametersBuilder()
+				.addLocalDateTime("requested.at", LocalDateTime.now())
+				.toJobParameters());
+
+		//Assert
+		assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+		assertThat(jobExecution.getStepExecutions()).extracting(StepExecution::getStepName)
+				.containsExactly("export-products", "export-purchases", "export-purchase_items", "export-purchase_history");
+		StepExecution productsStep = jobExecution.getStepExecutions().iterator().next();
+		assertThat(productsStep.getWriteCount()).isEqualTo(products).isGreaterThanOrEqualTo(2);
+
+		Path snapshotDir = Path.of("target/test-exports", "snapshot-" + jobExecution.getId());
+		assertThat(snapshotDir.resolve("products/part-00000.col.gz")).exists();
+		assertThat(snapshotDir.resolve("purchase_history/day=2024-05-10/status=PAGO/part-00000.col.gz")).exists();
+		assertThat(snapshotDir.resolve("purchase_history/day=2024-05-11/status=ENTREGUE/part-00000.col.gz")).exists();
+		try (Stream<Path> files = Files.walk(snapshotDir)) {
+			assertThat(files.filter(f -> f.toString().endsWith(".inprogress"))).isEmpty();
+		}
+	}
+}
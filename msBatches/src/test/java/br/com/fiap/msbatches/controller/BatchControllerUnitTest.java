@@ -0,0 +1,84 @@
+package br.com.fiap.msbatches.controller;
+
+import br.com.fiap.msbatches.controller.exception.ControllerExceptionHandler;
+import br.com.fiap.msbatches.services.BatchAlreadyRunningException;
+import br.com.fiap.msbatches.services.BatchProgressService;
+import br.com.fiap.msbatches.services.BatchService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BatchControllerUnitTest {
+	private MockMvc mockMvc;
+
+	@Mock
+	private BatchService batchService;
+
+	@Mock
+	private BatchProgressService batchProgressService;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		BatchController batchController = new BatchController(batchService, batchProgressService);
+		mockMvc = MockMvcBuilders.standaloneSetup(batchController)
+				.setControllerAdvice(new ControllerExceptionHandler())
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	@Nested
+	class RunProductBatch{
+		@Test
+		void shouldThrowBatchAlreadyRunningException_WhenRunProductBatch() throws Exception {
+			//Arrange
+			when(batchService.runProductBatch()).thenThrow(new BatchAlreadyRunningException(BatchService.BATCH_ALREADY_RUNNING));
+
+			//Act && Assert
+			mockMvc.perform(post("/batches/runProductBatch"))
+					.andExpect(status().isConflict())
+					.andExpect(jsonPath("$.message").value(BatchService.BATCH_ALREADY_RUNNING));
+			verify(batchService, times(1)).runProductBatch();
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenTheInputFileIsMissing() throws Exception {
+			//Arrange
+			when(batchService.runProductBatch()).thenThrow(new EntityNotFoundException(BatchService.INPUT_FILE_NOT_FOUND));
+
+			//Act && Assert
+			mockMvc.perform(post("/batches/runProductBatch"))
+					.andExpect(status().isNotFound());
+		}
+	}
+
+	@Nested
+	class RunSnapshotExport{
+		@Test
+		void shouldThrowBatchAlreadyRunningException_WhenRunSnapshotExport() throws Exception {
+			//Arrange
+			when(batchService.runSnapshotExport()).thenThrow(new BatchAlreadyRunningException(BatchService.EXPORT_ALREADY_RUNNING));
+
+			//Act && Assert
+			mockMvc.perform(post("/batches/runSnapshotExport"))
+					.andExpect(status().isConflict());
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package br.com.fiap.msbatches.export;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PartitionedColumnarItemWriterUnitTest {
+	private static final ExportTable HISTORY = new ExportTable("history", "SELECT 1",
+			List.of(new ExportColumn("day", ColumnType.STRING), new ExportColumn("status", ColumnType.STRING)),
+			row -> "day=" + row[0] + "/status=" + row[1],
+			row -> row[0]);
+
+	@TempDir
+	Path outputDir;
+
+	private PartitionedColumnarItemWriter writer;
+	private StepExecution stepExecution;
+	private Path tableDir;
+
+	@BeforeEach
+	void setup() {
+		writer = new PartitionedColumnarItemWriter(HISTORY, outputDir, 2);
+		stepExecution = new StepExecution("export-history", new JobExecution(1L));
+		tableDir = outputDir.resolve("snapshot-1").resolve("history");
+		writer.beforeStep(stepExecution);
+		writer.open(new ExecutionContext());
+	}
+
+	@Test
+	void allowWrite_FinishingTheFilesOfTheSegmentsOver() throws Exception {
+		//Act
+		writer.write(Chunk.of(new Object[]{"2024-05-10", "PAGO"}, new Object[]{"2024-05-10", "CANCELADO"},
+				new Object[]{"2024-05-11", "PAGO"}));
+
+		//Assert
+		assertThat(tableDir.resolve("day=2024-05-10/status=PAGO/part-00000.col.gz")).exists();
+		assertThat(tableDir.resolve("day=2024-05-10/status=CANCELADO/part-00000.col.gz")).exists();
+		assertThat(tableDir.resolve("day=2024-05-11/status=PAGO/part-00000.col.gz")).doesNotExist();
+		assertThat(tableDir.resolve("day=2024-05-11/status=PAGO/part-00000.col.gz.inprogress")).exists();
+	}
+
+	@Test
+	void allowAfterStep_FinishingTheLastSegment() throws Exception {
+		//Arrange
+		writer.write(Chunk.of(new Object[]{"2024-05-10", "PAGO"}, new Object[]{"2024-05-11", "PAGO"}));
+
+		//Act
+		ExitStatus exitStatus = writer.afterStep(stepExecution);
+		writer.close();
+
+		//Assert
+		assertThat(exitStatus).isEqualTo(stepExecution.getExitStatus());
+		assertThat(tableDir.resolve("day=2024-05-11/status=PAGO/part-00000.col.gz")).exists();
+		try (var files = Files.walk(tableDir)) {
+			assertThat(files.filter(f -> f.toString().endsWith(".inprogress"))).isEmpty();
+		}
+	}
+}
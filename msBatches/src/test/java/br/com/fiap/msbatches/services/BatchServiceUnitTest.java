@@ -0,0 +1,254 @@
+package br.com.fiap.msbatches.services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class BatchServiceUnitTest {
+
+	private BatchService batchService;
+
+	@Mock
+	private JobLauncher jobLauncher;
+
+	@Mock
+	private JobExplorer jobExplorer;
+
+	@Mock
+	private JobRepository jobRepository;
+
+	@Mock
+	private Job productJob;
+
+	@Mock
+	private Job exportJob;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		when(productJob.getName()).thenReturn("productProcessor");
+		when(exportJob.getName()).thenReturn("snapshotExporter");
+		when(jobExplorer.findRunningJobExecutions(anyString())).thenReturn(Set.of());
+		batchService = new BatchService(jobLauncher, jobExplorer, jobRepository, productJob, exportJob,
+				"classpath:filesource/products.csv", "instance-1", 600000);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	//A running execution of the product job with a running step, launched by the instance informed
+	private JobExecution runningExecution(long id, String launchedBy, LocalDateTime lastUpdated) {
+		JobExecution jobExecution = new JobExecution(id, new JobParametersBuilder()
+				.addString(BatchService.INSTANCE_PARAMETER, launchedBy, false)
+				.toJobParameters());
+		jobExecution.setStatus(BatchStatus.STARTED);
+		jobExecution.setCreateTime(lastUpdated);
+		jobExecution.setLastUpdated(lastUpdated);
+		StepExecution stepExecution = jobExecution.createStepExecution("fileProcessor");
+		stepExecution.setStatus(BatchStatus.STARTED);
+		stepExecution.setLastUpdated(lastUpdated);
+		return jobExecution;
+	}
+
+	@Nested
+	class RunProductBatch {
+		@Test
+		void allowRunProductBatch_WithTheSameInstanceForTheSameFile() throws Exception {
+			//Arrange
+			when(jobLauncher.run(eq(productJob), any(JobParameters.class))).thenReturn(new JobExecution(1L));
+			ArgumentCaptor<JobParameters> parameters = ArgumentCaptor.forClass(JobParameters.class);
+
+			//Act
+			batchService.runProductBatch();
+			batchService.runProductBatch();
+
+			//Assert
+			//A failed execution is restarted by launching the same identifying parameters again
+			verify(jobLauncher, times(2)).run(eq(productJob), parameters.capture());
+			List<JobParameters> launched = parameters.getAllValues();
+			assertThat(launched.get(0).getIdentifyingParameters()).isEqualTo(launched.get(1).getIdentifyingParameters())
+					.containsKeys("input.file", "input.version");
+		}
+
+		@Test
+		void allowRunProductBatch_WhenTheFileWasAlreadyImported() throws Exception {
+			//Arrange
+			JobExecution lastExecution = new JobExecution(1L);
+			when(jobLauncher.run(eq(productJob), any(JobParameters.class))).thenThrow(new JobInstanceAlreadyCompleteException("Complete"));
+			when(jobRepository.getLastJobExecution(eq("productProcessor"), any(JobParameters.class))).thenReturn(lastExecution);
+
+			//Act
+			JobExecution execution = batchService.runProductBatch();
+
+			//Assert
+			assertThat(execution).isSameAs(lastExecution);
+		}
+
+		@Test
+		void shouldThrowBatchAlreadyRunningException_WhenRunProductBatch_AlreadyRunning() throws Exception {
+			//Arrange
+			when(jobExplorer.findRunningJobExecutions("productProcessor")).thenReturn(Set.of(new JobExecution(1L)));
+
+			//Act && Assert
+			assertThatExceptionOfType(BatchAlreadyRunningException.class)
+					.isThrownBy(() -> batchService.runProductBatch())
+					.withMessage(BatchService.BATCH_ALREADY_RUNNING);
+			verify(jobLauncher, never()).run(any(Job.class), any(JobParameters.class));
+		}
+
+		@Test
+		void shouldThrowBatchAlreadyRunningException_WhileAnotherLaunchHoldsTheLock() throws Exception {
+			//Arrange
+			CountDownLatch launching = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			JobExecution execution = new JobExecution(1L);
+			when(jobLauncher.run(eq(productJob), any(JobParameters.class))).thenAnswer(i -> {
+				launching.countDown();
+				release.await(5, TimeUnit.SECONDS);
+				return execution;
+			});
+			CompletableFuture<JobExecution> firstRun = CompletableFuture.supplyAsync(batchService::runProductBatch);
+			assertThat(launching.await(5, TimeUnit.SECONDS)).isTrue();
+
+			//Act && Assert
+			assertThatExceptionOfType(BatchAlreadyRunningException.class)
+					.isThrownBy(() -> batchService.runProductBatch());
+			release.countDown();
+			assertThat(firstRun.get(5, TimeUnit.SECONDS)).isSameAs(execution);
+			verify(jobLauncher, times(1)).run(eq(productJob), any(JobParameters.class));
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenTheInputFileIsMissing() throws Exception {
+			//Arrange
+			batchService = new BatchService(jobLauncher, jobExplorer, jobRepository, productJob, exportJob,
+					"classpath:filesource/missing.csv", "instance-1", 600000);
+
+			//Act && Assert
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> batchService.runProductBatch())
+					.withMessage(String.format(BatchService.INPUT_FILE_NOT_FOUND, "classpath:filesource/missing.csv"));
+			verify(jobLauncher, never()).run(any(Job.class), any(JobParameters.class));
+		}
+	}
+
+	@Nested
+	class RecoverInterruptedExecutions {
+		@Test
+		void allowFailExecutionsOfThisInstance_OnStartup() {
+			//Arrange
+			JobExecution execution = runningExecution(1L, "instance-1", LocalDateTime.now());
+			when(jobExplorer.findRunningJobExecutions("productProcessor")).thenReturn(Set.of(execution));
+
+			//Act
+			batchService.recoverInterruptedExecutions();
+
+			//Assert
+			assertThat(execution.getStatus()).isEqualTo(BatchStatus.FAILED);
+			assertThat(execution.getEndTime()).isNotNull();
+			assertThat(execution.getStepExecutions()).allMatch(s -> s.getStatus() == BatchStatus.FAILED);
+			verify(jobRepository, times(1)).update(any(StepExecution.class));
+			verify(jobRepository, times(1)).update(execution);
+		}
+
+		@Test
+		void shouldKeepExecutionsOfAnotherInstance_WhileTheyCommitChunks() {
+			//Arrange
+			JobExecution execution = runningExecution(1L, "instance-2", LocalDateTime.now());
+			when(jobExplorer.findRunningJobExecutions("productProcessor")).thenReturn(Set.of(execution));
+
+			//Act
+			batchService.recoverInterruptedExecutions();
+			batchService.recoverStaleExecutions();
+
+			//Assert
+			assertThat(execution.getStatus()).isEqualTo(BatchStatus.STARTED);
+			verify(jobRepository, never()).update(any(JobExecution.class));
+		}
+
+		@Test
+		void allowFailStaleExecutionsOfAnotherInstance() {
+			//Arrange
+			JobExecution execution = runningExecution(1L, "instance-2", LocalDateTime.now().minusHours(1));
+			when(jobExplorer.findRunningJobExecutions("productProcessor")).thenReturn(Set.of(execution));
+
+			//Act
+			batchService.recoverStaleExecutions();
+
+			//Assert
+			assertThat(execution.getStatus()).isEqualTo(BatchStatus.FAILED);
+			verify(jobRepository, times(1)).update(execution);
+		}
+	}
+
+	@Nested
+	class RunSnapshotExport {
+		@Test
+		void allowRunSnapshotExport_WhileTheProductBatchIsLaunching() throws Exception {
+			//Arrange
+			CountDownLatch productLaunching = new CountDownLatch(1);
+			CountDownLatch releaseProduct = new CountDownLatch(1);
+			JobExecution productExecution = new JobExecution(1L);
+			JobExecution exportExecution = new JobExecution(2L);
+			when(jobLauncher.run(eq(productJob), any(JobParameters.class))).thenAnswer(i -> {
+				productLaunching.countDown();
+				releaseProduct.await(5, TimeUnit.SECONDS);
+				return productExecution;
+			});
+			when(jobLauncher.run(eq(exportJob), any(JobParameters.class))).thenReturn(exportExecution);
+			CompletableFuture<JobExecution> productRun = CompletableFuture.supplyAsync(batchService::runProductBatch);
+			assertThat(productLaunching.await(5, TimeUnit.SECONDS)).isTrue();
+
+			//Act
+			JobExecution export = batchService.runSnapshotExport();
+
+			//Assert
+			assertThat(export).isSameAs(exportExecution);
+			releaseProduct.countDown();
+			assertThat(productRun.get(5, TimeUnit.SECONDS)).isSameAs(productExecution);
+		}
+
+		@Test
+		void shouldThrowBatchAlreadyRunningException_WhenRunSnapshotExport_AlreadyRunning() {
+			//Arrange
+			when(jobExplorer.findRunningJobExecutions("snapshotExporter")).thenReturn(Set.of(new JobExecution(2L)));
+
+			//Act && Assert
+			assertThatExceptionOfType(BatchAlreadyRunningException.class)
+					.isThrownBy(() -> batchService.runSnapshotExport())
+					.withMessage(BatchService.EXPORT_ALREADY_RUNNING);
+		}
+	}
+}
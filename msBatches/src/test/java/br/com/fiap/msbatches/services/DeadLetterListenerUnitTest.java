@@ -0,0 +1,76 @@
+package br.com.fiap.msbatches.services;
+
+import br.com.fiap.msbatches.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class DeadLetterListenerUnitTest {
+	private static final long JOB_EXECUTION_ID = 1L;
+
+	@TempDir
+	private Path deadLetterDir;
+
+	private DeadLetterListener deadLetterListener;
+	private StepExecution stepExecution;
+
+	@BeforeEach
+	void setup() {
+		deadLetterListener = new DeadLetterListener(deadLetterDir.toString());
+		stepExecution = new StepExecution("fileProcessor", new JobExecution(JOB_EXECUTION_ID));
+		deadLetterListener.beforeStep(stepExecution);
+	}
+
+	@Test
+	void allowWriteTheLineOfTheFile_OnEveryKindOfSkip() throws Exception {
+		//Arrange
+		ProductLineMapper lineMapper = new ProductLineMapper();
+		String invalidLine = "Dummy product 2;Dummy product description;-1;10";
+		FlatFileParseException parseException = new FlatFileParseException("Parsing error",
+				new IllegalArgumentException(ProductFieldSetMapper.INVALID_PRICE), invalidLine, 2);
+
+		Product processed = lineMapper.mapLine("Dummy product 5;Dummy product description;15.8;10", 5);
+		Product failed = lineMapper.mapLine("Dummy product 7;Dummy product description;20.5;10", 7);
+		Future<Product> processedFuture = CompletableFuture.completedFuture(processed);
+		Future<Product> failedFuture = CompletableFuture.failedFuture(new DataIntegrityViolationException("Dummy failure"));
+		deadLetterListener.afterProcess(processed, processedFuture);
+		deadLetterListener.afterProcess(failed, failedFuture);
+
+		//Act
+		deadLetterListener.onSkipInRead(parseException);
+		deadLetterListener.onSkipInWrite(processedFuture, new DataIntegrityViolationException("Dummy write"));
+		deadLetterListener.onSkipInWrite(failedFuture, new DataIntegrityViolationException("Dummy failure"));
+		deadLetterListener.afterStep(stepExecution);
+
+		//Assert
+		assertThat(Files.readAllLines(deadLetterDir.resolve("products-" + JOB_EXECUTION_ID + ".csv"), StandardCharsets.UTF_8))
+				.containsExactly(
+						"2;" + ProductFieldSetMapper.INVALID_PRICE + ";" + invalidLine,
+						"5;Dummy write;Dummy product 5;Dummy product description;15.8;10",
+						"7;Dummy failure;Dummy product 7;Dummy product description;20.5;10");
+	}
+
+	@Test
+	void shouldThrowIllegalArgumentException_WhenTheLineIsInvalid() {
+		//Arrange
+		ProductLineMapper lineMapper = new ProductLineMapper();
+
+		//Act && Assert
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> lineMapper.mapLine("Dummy product;Dummy product description;15.8;-1", 3))
+				.withMessage(ProductFieldSetMapper.INVALID_QUANTITY);
+	}
+}
@@ -1,9 +1,15 @@
 package br.com.fiap.mscustomers;
 
+import br.com.fiap.commons.codec.SmileCodecConfiguration;
+import br.com.fiap.commons.concurrency.ConcurrencyLimitFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@Import({SmileCodecConfiguration.class, ConcurrencyLimitFilter.class})
 public class CustomersApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(CustomersApplication.class, args);
@@ -1,6 +1,9 @@
 package br.com.fiap.mscustomers.controller;
 
 import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerBulk;
+import br.com.fiap.mscustomers.entity.CustomerBulkResult;
+import br.com.fiap.mscustomers.entity.CustomerSearchResult;
 import br.com.fiap.mscustomers.service.CustomerService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -28,11 +31,23 @@ public class CustomerController {
 		return ResponseEntity.ok(this.customerService.getByName(name));
 	}
 
+	@GetMapping("/searchCustomers")
+	public ResponseEntity<CustomerSearchResult> searchCustomers(@RequestParam String name,
+			@RequestParam(defaultValue = "" + CustomerService.DEFAULT_SEARCH_LIMIT) int limit,
+			@RequestParam(required = false) String cursor) {
+		return ResponseEntity.ok(this.customerService.searchByName(name, limit, cursor));
+	}
+
 	@PostMapping("/createCustomer")
 	public ResponseEntity<Customer> createCustomer(@RequestBody @Valid Customer customer) {
 		return ResponseEntity.status(HttpStatus.CREATED).body(this.customerService.createCustomer(customer));
 	}
 
+	@PostMapping("/createCustomers")
+	public ResponseEntity<CustomerBulkResult> createCustomers(@RequestBody @Valid CustomerBulk customerBulk) {
+		return ResponseEntity.status(HttpStatus.CREATED).body(this.customerService.createCustomers(customerBulk.getCustomers()));
+	}
+
 	@PutMapping("/updateCustomer/{cpf}")
 	public ResponseEntity<Customer> updateCustomer(@PathVariable String cpf, @RequestBody @Valid Customer customer) {
 		return ResponseEntity.ok(this.customerService.updateCustomer(cpf, customer));
@@ -1,6 +1,11 @@
 package br.com.fiap.mscustomers.entity;
 
+import br.com.fiap.commons.cpf.CpfDeserializer;
+import br.com.fiap.commons.cpf.CpfSerializer;
+import br.com.fiap.commons.cpf.ValidCpf;
 import br.com.fiap.mscustomers.entity.validation.ValidZipCode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
@@ -9,7 +14,6 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.validator.constraints.br.CPF;
 
 @Data
 @NoArgsConstructor
@@ -19,9 +23,11 @@ import org.hibernate.validator.constraints.br.CPF;
 public class Customer {
 
 	@Id
-	@CPF
-	@Column(length = 14, nullable = false) //Format: 000.000.000-00
-	private String cpf;
+	@ValidCpf
+	@JsonSerialize(using = CpfSerializer.class)
+	@JsonDeserialize(using = CpfDeserializer.class)
+	@Column(nullable = false) //Stored as a number, the API uses the format 000.000.000-00
+	private Long cpf;
 
 	@NotBlank
 	@Column(length = 50, nullable = false)
@@ -0,0 +1,18 @@
+package br.com.fiap.mscustomers.entity;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class CustomerBulk {
+	@Valid
+	@NotEmpty
+	@Size(max = 10000)
+	private List<Customer> customers;
+}
@@ -0,0 +1,18 @@
+package br.com.fiap.mscustomers.entity;
+
+import br.com.fiap.commons.cpf.CpfSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerBulkResult {
+	private Integer created;
+	@JsonSerialize(contentUsing = CpfSerializer.class)
+	private List<Long> alreadyExists; //CPFs already registered, these customers were not changed
+}
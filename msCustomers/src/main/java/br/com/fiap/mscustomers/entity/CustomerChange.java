@@ -0,0 +1,79 @@
+package br.com.fiap.mscustomers.entity;
+
+import br.com.fiap.commons.cpf.CpfSerializer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.SourceType;
+
+import java.time.LocalDateTime;
+
+//Change feed of the customer delivery data, written in the same transaction as the change of the customer
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "customer_changes", indexes = @Index(name = "customer_changes_published_idx", columnList = "published, id"))
+public class CustomerChange {
+	public static final String UPSERT = "UPSERT";
+	public static final String DELETE = "DELETE";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@JsonSerialize(using = CpfSerializer.class)
+	@Column(nullable = false)
+	private Long cpf;
+
+	@Column(length = 6, nullable = false) //UPSERT or DELETE
+	private String type;
+
+	@Column(length = 50)
+	private String fullName;
+
+	@Column(length = 9) //Format: 00000-000
+	private String zipCode;
+
+	@Column
+	private String deliveryAddress; //Rendered once here, the consumers store it as it is
+
+	@CreationTimestamp(source = SourceType.DB)
+	@Column(nullable = false)
+	private LocalDateTime changedAt;
+
+	@JsonIgnore
+	@ColumnDefault("false") //Also for the rows written by CustomerRepositoryImpl
+	@Column(nullable = false)
+	private boolean published; //Sent to the broker by CustomerChangeRelay
+
+	public static CustomerChange upsert(Customer customer) {
+		CustomerChange change = new CustomerChange();
+		change.setCpf(customer.getCpf());
+		change.setType(UPSERT);
+		change.setFullName(customer.getFullName());
+		change.setZipCode(customer.getZipCode());
+		change.setDeliveryAddress(renderAddress(customer));
+		return change;
+	}
+
+	public static CustomerChange delete(Long cpf) {
+		CustomerChange change = new CustomerChange();
+		change.setCpf(cpf);
+		change.setType(DELETE);
+		return change;
+	}
+
+	public static String renderAddress(Customer customer) {
+		return customer.getAddress() + ", " + customer.getCity() + " - " + customer.getState() + ", " + customer.getCountry();
+	}
+}
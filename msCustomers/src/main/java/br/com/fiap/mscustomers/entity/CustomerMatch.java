@@ -0,0 +1,13 @@
+package br.com.fiap.mscustomers.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerMatch {
+	private Customer customer;
+	private Float score; //Trigram word similarity between the searched name and the customer name
+}
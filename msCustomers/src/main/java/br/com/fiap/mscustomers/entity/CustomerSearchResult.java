@@ -0,0 +1,15 @@
+package br.com.fiap.mscustomers.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerSearchResult {
+	private List<CustomerMatch> matches;
+	private String nextCursor; //Sent back to get the next page, null on the last page
+}
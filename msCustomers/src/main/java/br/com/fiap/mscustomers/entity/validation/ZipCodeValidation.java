@@ -4,18 +4,27 @@ import br.com.fiap.mscustomers.entity.Customer;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class ZipCodeValidation implements ConstraintValidator<ValidZipCode, Customer> {
 	@Override
 	public boolean isValid(Customer customer, ConstraintValidatorContext context) {
-		//00000-000
-		if(customer.getZipCode().length() != 9) return Boolean.FALSE;
+		if (customer.getZipCode() == null) return Boolean.TRUE; //The empty zip code is checked by @NotBlank
+
+		return isValidZipCode(customer.getZipCode());
+	}
+
+	//00000-000, checked char by char to avoid a regex on every validation
+	public static boolean isValidZipCode(CharSequence zipCode) {
+		if (zipCode.length() != 9) return false;
 
-		Pattern regex = Pattern.compile("^\\d{5}-\\d{3}$"); // 00000-000
-		Matcher matcher = regex.matcher(customer.getZipCode());
+		for (int i = 0; i < 9; i++) {
+			char c = zipCode.charAt(i);
+			if (i == 5) {
+				if (c != '-') return false;
+			} else if (c < '0' || c > '9') {
+				return false;
+			}
+		}
 
-		return matcher.matches();
+		return true;
 	}
 }
@@ -1,10 +1,12 @@
 package br.com.fiap.mscustomers.function;
 
 import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerChange;
 import br.com.fiap.mscustomers.service.CustomerService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.function.Function;
 
 @Component
@@ -19,4 +21,16 @@ public class CustomerConsumer {
 	Function<String, Customer> findCustomerConsumer(){
 		return customerService::getByCpf;
 	}
+
+	//Customers not found are left out of the result
+	@Bean(name = "findCustomers")
+	Function<List<String>, List<Customer>> findCustomersConsumer(){
+		return customerService::getByCpfs;
+	}
+
+	//Change feed of the delivery data, read by the services that keep a local copy of the customers
+	@Bean(name = "customerChanges")
+	Function<Long, List<CustomerChange>> customerChangesConsumer(){
+		return customerService::getChangesAfter;
+	}
 }
@@ -0,0 +1,34 @@
+package br.com.fiap.mscustomers.repository;
+
+import br.com.fiap.mscustomers.entity.CustomerChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CustomerChangeRepository extends JpaRepository<CustomerChange, Long> {
+	//Taken by every transaction before it writes its change and held until it commits (or rolls back), so the ids
+	//are given in commit order: once a change is visible, every change with a lower id is visible too.
+	String LOCK_FEED = "SELECT 1 FROM pg_advisory_xact_lock(hashtext('customer_changes'))";
+
+	@Query(value = LOCK_FEED, nativeQuery = true)
+	Integer lockFeed();
+
+	//The ids follow the commit order (LOCK_FEED), so a consumer asking from the last id it applied skips nothing
+	@Query(value = "SELECT * FROM customer_changes WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+	List<CustomerChange> findChangesAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+	//The oldest changes not sent yet. Without SKIP LOCKED the instances wait for each other, so the changes are sent in
+	//the order they were made.
+	@Query(value = "SELECT * FROM customer_changes WHERE published = false ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+	List<CustomerChange> lockUnpublished(@Param("limit") int limit);
+
+	@Modifying
+	@Query("UPDATE CustomerChange c SET c.published = true WHERE c.id IN :ids")
+	int markPublished(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,18 @@
+package br.com.fiap.mscustomers.repository;
+
+import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerMatch;
+
+import java.util.List;
+
+public interface CustomerRepositoryCustom {
+	//Returns false when the CPF is already registered
+	boolean insertIfAbsent(Customer customer);
+
+	//Returns the CPFs that were already registered (or repeated in the list) and were not inserted
+	List<Long> insertAllIfAbsent(List<Customer> customers);
+
+	//Accent and case insensitive search ordered by word similarity, continuing after the given score and CPF when
+	//informed. The name must have at least 3 characters, the trigrams of a shorter one don't select anything.
+	List<CustomerMatch> searchByName(String name, Float afterScore, Long afterCpf, int limit);
+}
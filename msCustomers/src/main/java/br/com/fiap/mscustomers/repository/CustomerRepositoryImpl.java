@@ -0,0 +1,94 @@
+package br.com.fiap.mscustomers.repository;
+
+import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerChange;
+import br.com.fiap.mscustomers.entity.CustomerMatch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+//The duplicate check is made by the primary key in the same statement, without reading the customer first
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+	//The change feed row is written by the same statement, only when the customer was really inserted. The feed lock is
+	//taken before its id is drawn, see CustomerChangeRepository.LOCK_FEED.
+	private static final String INSERT_IF_ABSENT = "WITH inserted AS (" +
+			"INSERT INTO customers (cpf, full_name, email, zip_code, address, city, state, country) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (cpf) DO NOTHING RETURNING cpf, full_name, zip_code) " +
+			"INSERT INTO customer_changes (cpf, type, full_name, zip_code, delivery_address, changed_at) " +
+			"SELECT cpf, '" + CustomerChange.UPSERT + "', full_name, zip_code, ?, now() " +
+			"FROM inserted, (" + CustomerChangeRepository.LOCK_FEED + ") feed_lock";
+
+	//The customers whose name has a word similar to the searched one (<%, pg_trgm.word_similarity_threshold of 0.6),
+	//closest first. The filter and the order by the distance (1 - score) are both served by the GiST index, which
+	//stops after the rows of the page.
+	private static final String SEARCH_BY_NAME = "SELECT * FROM (" +
+			"SELECT c.*, word_similarity(lower(f_unaccent(?)), lower(f_unaccent(c.full_name))) AS score, " +
+			"lower(f_unaccent(?)) <<-> lower(f_unaccent(c.full_name)) AS distance FROM customers c " +
+			"WHERE lower(f_unaccent(?)) <% lower(f_unaccent(c.full_name))) m " +
+			"WHERE (CAST(? AS real) IS NULL OR m.score < CAST(? AS real) OR (m.score = CAST(? AS real) AND m.cpf > ?)) " +
+			"ORDER BY m.distance, m.cpf LIMIT ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final int batchSize;
+
+	public CustomerRepositoryImpl(JdbcTemplate jdbcTemplate, @Value("${customers.bulk.batch-size}") int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public boolean insertIfAbsent(Customer customer) {
+		return jdbcTemplate.update(INSERT_IF_ABSENT, ps -> setValues(ps, customer)) > 0;
+	}
+
+	@Override
+	@Transactional
+	public List<Long> insertAllIfAbsent(List<Customer> customers) {
+		int[][] updateCounts = jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, customers, batchSize, this::setValues);
+
+		List<Long> notInserted = new ArrayList<>();
+		int index = 0;
+		for (int[] batch : updateCounts) {
+			for (int count : batch) {
+				if (count == 0) notInserted.add(customers.get(index).getCpf());
+				index++;
+			}
+		}
+
+		return notInserted;
+	}
+
+	@Override
+	public List<CustomerMatch> searchByName(String name, Float afterScore, Long afterCpf, int limit) {
+		return jdbcTemplate.query(SEARCH_BY_NAME, (rs, rowNum) -> {
+			Customer customer = new Customer();
+			customer.setCpf(rs.getLong("cpf"));
+			customer.setFullName(rs.getString("full_name"));
+			customer.setEmail(rs.getString("email"));
+			customer.setZipCode(rs.getString("zip_code"));
+			customer.setAddress(rs.getString("address"));
+			customer.setCity(rs.getString("city"));
+			customer.setState(rs.getString("state"));
+			customer.setCountry(rs.getString("country"));
+
+			return new CustomerMatch(customer, rs.getFloat("score"));
+		}, name, name, name, afterScore, afterScore, afterScore, afterCpf, limit);
+	}
+
+	private void setValues(PreparedStatement ps, Customer customer) throws SQLException {
+		ps.setLong(1, customer.getCpf());
+		ps.setString(2, customer.getFullName());
+		ps.setString(3, customer.getEmail());
+		ps.setString(4, customer.getZipCode());
+		ps.setString(5, customer.getAddress());
+		ps.setString(6, customer.getCity());
+		ps.setString(7, customer.getState());
+		ps.setString(8, customer.getCountry());
+		ps.setString(9, CustomerChange.renderAddress(customer));
+	}
+}
@@ -0,0 +1,66 @@
+package br.com.fiap.mscustomers.service;
+
+import br.com.fiap.mscustomers.entity.CustomerChange;
+import br.com.fiap.mscustomers.repository.CustomerChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//The customer_changes rows are sent to the broker, so the services with a local copy of the customers get the changes
+//without asking for them. The change feed (customerChanges) is still served, for the consumers that catch up from it.
+@Slf4j
+@Service
+public class CustomerChangeRelay {
+	static final String BINDING = "customerChanged-out-0";
+
+	private final CustomerChangeRepository customerChangeRepository;
+	private final StreamBridge streamBridge;
+	private final TransactionTemplate transactionTemplate;
+	private final int batchSize;
+
+	public CustomerChangeRelay(CustomerChangeRepository customerChangeRepository,
+			StreamBridge streamBridge,
+			PlatformTransactionManager transactionManager,
+			@Value("${customers.change-relay.batch-size}") int batchSize) {
+		this.customerChangeRepository = customerChangeRepository;
+		this.streamBridge = streamBridge;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = batchSize;
+	}
+
+	@Scheduled(fixedDelayString = "${customers.change-relay.interval}")
+	public void relay() {
+		Integer sent;
+		do {
+			sent = this.transactionTemplate.execute(status -> relayBatch());
+		} while (sent != null && sent == this.batchSize);
+	}
+
+	//Stops at the first change not sent, the ones sent before it are marked when the transaction commits.
+	//A change sent but not marked (the instance stopped in between) is sent again, the consumers skip it by its id.
+	private int relayBatch() {
+		List<CustomerChange> batch = this.customerChangeRepository.lockUnpublished(this.batchSize);
+
+		List<Long> sent = new ArrayList<>();
+		for (CustomerChange change : batch) {
+			try {
+				if (!this.streamBridge.send(BINDING, change)) break;
+			} catch (MessagingException e) {
+				log.warn("Broker unavailable, {} customer changes not sent: {}", batch.size() - sent.size(), e.getMessage());
+				break;
+			}
+			sent.add(change.getId());
+		}
+
+		if (!sent.isEmpty()) this.customerChangeRepository.markPublished(sent);
+		return sent.size();
+	}
+}
@@ -1,12 +1,20 @@
 package br.com.fiap.mscustomers.service;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerBulkResult;
+import br.com.fiap.mscustomers.entity.CustomerChange;
+import br.com.fiap.mscustomers.entity.CustomerMatch;
+import br.com.fiap.mscustomers.entity.CustomerSearchResult;
+import br.com.fiap.mscustomers.repository.CustomerChangeRepository;
 import br.com.fiap.mscustomers.repository.CustomerRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.hibernate.HibernateException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -16,14 +24,24 @@ public class CustomerService {
 	public static final String CPF_ALREADY_EXISTS = "CPF já cadastrado"; //CPF already registered
 	public static final String CUSTOMER_DELETED = "Cliente %s : %s deletado com sucesso";
 
+	public static final String INVALID_CURSOR = "Cursor de busca inválido"; //Invalid search cursor
+	public static final String SEARCH_TERM_TOO_SHORT = "O nome buscado deve ter ao menos 3 caracteres"; //The searched name must have at least 3 characters
+	public static final int MIN_SEARCH_LENGTH = 3;
+	public static final int DEFAULT_SEARCH_LIMIT = 20;
+	public static final int MAX_SEARCH_LIMIT = 100;
+
+	public static final int CHANGES_PAGE_SIZE = 500;
+
 	private final CustomerRepository customerRepository;
+	private final CustomerChangeRepository customerChangeRepository;
 
-	public CustomerService(CustomerRepository customerRepository) {
+	public CustomerService(CustomerRepository customerRepository, CustomerChangeRepository customerChangeRepository) {
 		this.customerRepository = customerRepository;
+		this.customerChangeRepository = customerChangeRepository;
 	}
 
 	public Customer getByCpf(String cpf) {
-		return this.customerRepository.findById(cpf)
+		return this.customerRepository.findById(parseCpf(cpf))
 				.orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND));
 	}
 
@@ -31,15 +49,69 @@ public class CustomerService {
 		return this.customerRepository.findByFullNameContainingIgnoreCase(name);
 	}
 
+	//The cursor is the score and the CPF of the last customer of the previous page
+	public CustomerSearchResult searchByName(String name, int limit, String cursor) {
+		//Shorter names have no trigram to look up in the index
+		if (name == null || name.strip().length() < MIN_SEARCH_LENGTH) throw new DataIntegrityViolationException(SEARCH_TERM_TOO_SHORT);
+		name = name.strip();
+
+		Float afterScore = null;
+		Long afterCpf = null;
+
+		if (cursor != null && !cursor.isBlank()) {
+			int separator = cursor.indexOf('_');
+			if (separator <= 0) throw new DataIntegrityViolationException(INVALID_CURSOR);
+			try {
+				afterScore = Float.valueOf(cursor.substring(0, separator));
+				afterCpf = Long.valueOf(cursor.substring(separator + 1));
+			} catch (NumberFormatException e) {
+				throw new DataIntegrityViolationException(INVALID_CURSOR);
+			}
+		}
+
+		limit = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+		List<CustomerMatch> matches = this.customerRepository.searchByName(name, afterScore, afterCpf, limit + 1);
+		if (matches.size() <= limit) return new CustomerSearchResult(matches, null);
+
+		matches = matches.subList(0, limit);
+		CustomerMatch last = matches.get(limit - 1);
+		return new CustomerSearchResult(matches, last.getScore() + "_" + last.getCustomer().getCpf());
+	}
+
+	//CPFs with an invalid format can't exist, they are left out like the ones not found
+	public List<Customer> getByCpfs(List<String> cpfs) {
+		List<Long> keys = new ArrayList<>(cpfs.size());
+		for (String cpf : cpfs) {
+			try {
+				keys.add(Cpf.parse(cpf));
+			} catch (IllegalArgumentException e) {
+				//Ignored
+			}
+		}
+
+		return this.customerRepository.findAllById(keys);
+	}
+
+	//Changes are returned in the order they were made, the consumer asks again with the id of the last one it applied
+	public List<CustomerChange> getChangesAfter(Long afterId) {
+		return this.customerChangeRepository.findChangesAfter(afterId == null ? 0L : afterId, CHANGES_PAGE_SIZE);
+	}
+
 	public Customer createCustomer(Customer customer) {
-		Customer findCustomer = this.customerRepository.findById(customer.getCpf()).orElse(null);
-		if (findCustomer != null) throw new DataIntegrityViolationException(CPF_ALREADY_EXISTS);
+		if (!this.customerRepository.insertIfAbsent(customer)) throw new DataIntegrityViolationException(CPF_ALREADY_EXISTS);
 
-		return this.customerRepository.save(customer);
+		return customer;
 	}
 
+	public CustomerBulkResult createCustomers(List<Customer> customers) {
+		List<Long> alreadyExists = this.customerRepository.insertAllIfAbsent(customers);
+
+		return new CustomerBulkResult(customers.size() - alreadyExists.size(), alreadyExists);
+	}
+
+	@Transactional
 	public Customer updateCustomer(String cpf, Customer customer) {
-		Customer customerToUpdate = this.customerRepository.findById(cpf)
+		Customer customerToUpdate = this.customerRepository.findById(parseCpf(cpf))
 				.orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND));
 
 		customerToUpdate.setFullName(customer.getFullName());
@@ -50,16 +122,32 @@ public class CustomerService {
 		customerToUpdate.setState(customer.getState());
 		customerToUpdate.setCountry(customer.getCountry());
 
-		return this.customerRepository.save(customerToUpdate);
+		Customer savedCustomer = this.customerRepository.save(customerToUpdate);
+		this.customerChangeRepository.lockFeed(); //Held until the commit, the change id follows the commit order
+		this.customerChangeRepository.save(CustomerChange.upsert(savedCustomer));
+
+		return savedCustomer;
 	}
 
+	@Transactional
 	public String deleteCustomer(String cpf) {
-		Customer customerToDelete = this.customerRepository.findById(cpf)
+		Customer customerToDelete = this.customerRepository.findById(parseCpf(cpf))
 				.orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND));
 
 		this.customerRepository.delete(customerToDelete);
+		this.customerChangeRepository.lockFeed(); //Held until the commit, the change id follows the commit order
+		this.customerChangeRepository.save(CustomerChange.delete(customerToDelete.getCpf()));
 
 		// Customer deleted successfully
-		return String.format(CUSTOMER_DELETED, customerToDelete.getFullName(), customerToDelete.getCpf());
+		return String.format(CUSTOMER_DELETED, customerToDelete.getFullName(), Cpf.format(customerToDelete.getCpf()));
+	}
+
+	//A CPF that can't be parsed can't be registered, so it's answered as not found
+	private static long parseCpf(String cpf) {
+		try {
+			return Cpf.parse(cpf);
+		} catch (IllegalArgumentException e) {
+			throw new EntityNotFoundException(ENTITY_NOT_FOUND);
+		}
 	}
 }
@@ -0,0 +1,62 @@
+package br.com.fiap.mscustomers.benchmark;
+
+import br.com.fiap.commons.cpf.CpfValidation;
+import br.com.fiap.mscustomers.entity.validation.ZipCodeValidation;
+import org.hibernate.validator.constraints.br.CPF;
+import org.hibernate.validator.internal.constraintvalidators.hv.br.CPFValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+//Compares the previous validators (regex compiled on every call and Hibernate @CPF) with the char scan validators.
+//Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=br.com.fiap.mscustomers.benchmark.ValidationBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+	private static class CpfHolder {
+		@CPF
+		String cpf;
+	}
+
+	private final String zipCode = "01310-100";
+	private final String cpf = "822.685.230-71";
+	private CPFValidator hibernateCpfValidator;
+
+	@Setup
+	public void setup() throws NoSuchFieldException {
+		hibernateCpfValidator = new CPFValidator();
+		hibernateCpfValidator.initialize(CpfHolder.class.getDeclaredField("cpf").getAnnotation(CPF.class));
+	}
+
+	@Benchmark
+	public boolean zipCodeRegex() {
+		return Pattern.compile("^\\d{5}-\\d{3}$").matcher(zipCode).matches();
+	}
+
+	@Benchmark
+	public boolean zipCodeCharScan() {
+		return ZipCodeValidation.isValidZipCode(zipCode);
+	}
+
+	@Benchmark
+	public boolean cpfHibernate() {
+		return hibernateCpfValidator.isValid(cpf, null);
+	}
+
+	@Benchmark
+	public boolean cpfCharScan() {
+		return CpfValidation.isValidCpf(cpf);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ValidationBenchmark.class.getSimpleName()).build()).run();
+	}
+}
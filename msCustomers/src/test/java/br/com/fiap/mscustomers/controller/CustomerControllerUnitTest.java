@@ -1,7 +1,12 @@
 package br.com.fiap.mscustomers.controller;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mscustomers.controller.exception.ControllerExceptionHandler;
 import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerBulk;
+import br.com.fiap.mscustomers.entity.CustomerBulkResult;
+import br.com.fiap.mscustomers.entity.CustomerMatch;
+import br.com.fiap.mscustomers.entity.CustomerSearchResult;
 import br.com.fiap.mscustomers.service.CustomerService;
 import br.com.fiap.mscustomers.utils.CustomerUtils;
 import jakarta.persistence.EntityNotFoundException;
@@ -20,6 +25,9 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -53,7 +61,7 @@ class CustomerControllerUnitTest {
 		void shouldGetCustomerByCpf() throws Exception {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			String cpf = customer.getCpf();
+			String cpf = Cpf.format(customer.getCpf());
 			when(customerService.getByCpf(any(String.class))).thenReturn(customer);
 
 			//Act && Assert
@@ -67,7 +75,7 @@ class CustomerControllerUnitTest {
 		void shouldThrowEntityNotFoundException_WhenGetCustomerByCpf() throws Exception {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			String cpf = customer.getCpf();
+			String cpf = Cpf.format(customer.getCpf());
 			when(customerService.getByCpf(any(String.class))).thenThrow(EntityNotFoundException.class);
 
 			//Act && Assert
@@ -97,6 +105,24 @@ class CustomerControllerUnitTest {
 		}
 	}
 
+	@Nested
+	class SearchCustomers{
+		@Test
+		void shouldSearchCustomers() throws Exception {
+			//Arrange
+			Customer customer = CustomerUtils.createFakeCustomer("822.685.230-71", "João da Silva");
+			CustomerSearchResult result = new CustomerSearchResult(List.of(new CustomerMatch(customer, 0.8f)), null);
+
+			when(customerService.searchByName(any(String.class), anyInt(), isNull())).thenReturn(result);
+
+			//Act && Assert
+			mockMvc.perform(get("/customers/searchCustomers").param("name", "joao")
+			).andExpect(status().isOk())
+			.andExpect(MockMvcResultMatchers.content().json(CustomerUtils.asJsonString(result)));
+			verify(customerService, times(1)).searchByName("joao", CustomerService.DEFAULT_SEARCH_LIMIT, null);
+		}
+	}
+
 	@Nested
 	class CreateCustomer{
 		@Test
@@ -144,6 +170,45 @@ class CustomerControllerUnitTest {
 		}
 	}
 
+	@Nested
+	class CreateCustomers{
+		@Test
+		void shouldCreateCustomers() throws Exception {
+			//Arrange
+			Customer customer1 = CustomerUtils.createFakeCustomer("822.685.230-71", "Fulano da Silva Sauro");
+			Customer customer2 = CustomerUtils.createFakeCustomer("905.013.870-56", "Ciclano da Silva Sauro");
+			CustomerBulk customerBulk = new CustomerBulk();
+			customerBulk.setCustomers(List.of(customer1, customer2));
+
+			CustomerBulkResult result = new CustomerBulkResult(1, List.of(customer2.getCpf()));
+			when(customerService.createCustomers(anyList())).thenReturn(result);
+
+			//Act && Assert
+			mockMvc.perform(post("/customers/createCustomers")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(CustomerUtils.asJsonString(customerBulk))
+					).andExpect(status().isCreated())
+					.andExpect(MockMvcResultMatchers.content().json(CustomerUtils.asJsonString(result)));
+			verify(customerService, times(1)).createCustomers(anyList());
+		}
+
+		@Test
+		void shouldThrowMethodArgumentNotValidException_WhenCreateCustomers() throws Exception {
+			//Arrange
+			Customer customer = CustomerUtils.createFakeCustomer();
+			customer.setZipCode("000"); //wrong zip code
+			CustomerBulk customerBulk = new CustomerBulk();
+			customerBulk.setCustomers(List.of(customer));
+
+			//Act && Assert
+			mockMvc.perform(post("/customers/createCustomers")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(CustomerUtils.asJsonString(customerBulk))
+			).andExpect(status().isBadRequest());
+			verify(customerService, never()).createCustomers(anyList());
+		}
+	}
+
 	@Nested
 	class UpdateCustomer{
 		@Test
@@ -156,7 +221,7 @@ class CustomerControllerUnitTest {
 			when(customerService.updateCustomer(any(String.class), any(Customer.class))).thenAnswer(c -> c.getArgument(1));
 
 			//Act && Assert
-			mockMvc.perform(put("/customers/updateCustomer/{cpf}", customer.getCpf())
+			mockMvc.perform(put("/customers/updateCustomer/{cpf}", Cpf.format(customer.getCpf()))
 					.contentType(MediaType.APPLICATION_JSON)
 					.content(CustomerUtils.asJsonString(newCustomer))
 			).andExpect(status().isOk())
@@ -175,7 +240,7 @@ class CustomerControllerUnitTest {
 			when(customerService.updateCustomer(any(String.class), any(Customer.class))).thenThrow(EntityNotFoundException.class);
 
 			//Act && Assert
-			mockMvc.perform(put("/customers/updateCustomer/{cpf}", customer.getCpf())
+			mockMvc.perform(put("/customers/updateCustomer/{cpf}", Cpf.format(customer.getCpf()))
 					.contentType(MediaType.APPLICATION_JSON)
 					.content(CustomerUtils.asJsonString(newCustomer))
 			).andExpect(status().isNotFound());
@@ -192,7 +257,7 @@ class CustomerControllerUnitTest {
 			newCustomer.setZipCode("000"); //wrong zip code
 
 			//Act && Assert
-			mockMvc.perform(put("/customers/updateCustomer/{cpf}", customer.getCpf())
+			mockMvc.perform(put("/customers/updateCustomer/{cpf}", Cpf.format(customer.getCpf()))
 					.contentType(MediaType.APPLICATION_JSON)
 					.content(CustomerUtils.asJsonString(newCustomer))
 			).andExpect(status().isBadRequest());
@@ -206,12 +271,12 @@ class CustomerControllerUnitTest {
 		void shouldDeleteCustomer() throws Exception {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			String deleteMessage = String.format(CustomerService.CUSTOMER_DELETED, customer.getFullName(), customer.getCpf());
+			String deleteMessage = String.format(CustomerService.CUSTOMER_DELETED, customer.getFullName(), Cpf.format(customer.getCpf()));
 
 			when(customerService.deleteCustomer(any(String.class))).thenReturn(deleteMessage);
 
 			//Act && Assert
-			mockMvc.perform(delete("/customers/deleteCustomer/{cpf}", customer.getCpf())
+			mockMvc.perform(delete("/customers/deleteCustomer/{cpf}", Cpf.format(customer.getCpf()))
 			).andExpect(status().isOk())
 					.andExpect(MockMvcResultMatchers.content().string(deleteMessage));
 			verify(customerService, times(1)).deleteCustomer(any(String.class));
@@ -224,7 +289,7 @@ class CustomerControllerUnitTest {
 			when(customerService.deleteCustomer(any(String.class))).thenThrow(EntityNotFoundException.class);
 
 			//Act && Assert
-			mockMvc.perform(delete("/customers/deleteCustomer/{cpf}", customer.getCpf())
+			mockMvc.perform(delete("/customers/deleteCustomer/{cpf}", Cpf.format(customer.getCpf()))
 					).andExpect(status().isNotFound());
 			verify(customerService, times(1)).deleteCustomer(any(String.class));
 		}
@@ -0,0 +1,25 @@
+package br.com.fiap.mscustomers.entity.validation;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ValidationUnitTest {
+
+	@Nested
+	class ZipCode {
+		@Test
+		void allowValidZipCode() {
+			assertThat(ZipCodeValidation.isValidZipCode("01310-100")).isTrue();
+		}
+
+		@Test
+		void shouldRejectWrongFormat() {
+			assertThat(ZipCodeValidation.isValidZipCode("01310100")).isFalse();
+			assertThat(ZipCodeValidation.isValidZipCode("0131-0100")).isFalse();
+			assertThat(ZipCodeValidation.isValidZipCode("01310-10a")).isFalse();
+			assertThat(ZipCodeValidation.isValidZipCode("000")).isFalse();
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package br.com.fiap.mscustomers.repository;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerMatch;
 import br.com.fiap.mscustomers.utils.CustomerUtils;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.Test;
@@ -24,7 +26,7 @@ class CustomerRepositoryIntegTest {
 	@Test
 	void allowFindByCpf() {
 		//Arrange
-		String cpf = "822.685.230-71";
+		Long cpf = Cpf.parse("822.685.230-71");
 		Customer customer = CustomerUtils.createFakeCustomer();
 		customer.setCpf(cpf);
 
@@ -92,4 +94,35 @@ class CustomerRepositoryIntegTest {
 		//Assert
 		assertThat(findCustomer).isNull();
 	}
+
+	@Test
+	void allowSearchByNameIgnoringAccents() {
+		//Arrange
+		Customer customer1 = customerRepository.saveAndFlush(CustomerUtils.createFakeCustomer("822.685.230-71", "João da Conceição"));
+		customerRepository.saveAndFlush(CustomerUtils.createFakeCustomer("905.013.870-56", "Maria Souza")); //The search runs on JDBC, the customers must be flushed
+
+		//Act
+		List<CustomerMatch> matches = customerRepository.searchByName("joao da conceicao", null, null, 10);
+
+		//Assert
+		assertThat(matches).hasSize(1);
+		assertThat(matches.get(0).getCustomer()).isEqualTo(customer1);
+	}
+
+	@Test
+	void allowSearchByNameByOneWordOfTheName() {
+		//Arrange
+		Customer customer1 = customerRepository.saveAndFlush(CustomerUtils.createFakeCustomer("822.685.230-71", "Maria da Silva Santos"));
+		Customer customer2 = customerRepository.saveAndFlush(CustomerUtils.createFakeCustomer("905.013.870-56", "José Silvá"));
+		customerRepository.saveAndFlush(CustomerUtils.createFakeCustomer("529.982.247-25", "Pedro Oliveira"));
+
+		//Act
+		List<CustomerMatch> firstPage = customerRepository.searchByName("silva", null, null, 1);
+		CustomerMatch last = firstPage.get(0);
+		List<CustomerMatch> secondPage = customerRepository.searchByName("silva", last.getScore(), last.getCustomer().getCpf(), 10);
+
+		//Assert
+		assertThat(firstPage).extracting(CustomerMatch::getCustomer).containsExactly(customer1);
+		assertThat(secondPage).extracting(CustomerMatch::getCustomer).containsExactly(customer2);
+	}
 }
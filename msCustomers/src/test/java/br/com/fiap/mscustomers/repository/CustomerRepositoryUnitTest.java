@@ -1,5 +1,6 @@
 package br.com.fiap.mscustomers.repository;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mscustomers.entity.Customer;
 import br.com.fiap.mscustomers.utils.CustomerUtils;
 import jakarta.transaction.Transactional;
@@ -40,18 +41,18 @@ class CustomerRepositoryUnitTest {
 	@Test
 	void allowFindByCpf() {
 		//Arrange
-		String cpf = "822.685.230-71";
+		Long cpf = Cpf.parse("822.685.230-71");
 		Customer customer = CustomerUtils.createFakeCustomer();
 		customer.setCpf(cpf);
 
-		when(customerRepository.findById(any(String.class))).thenReturn(Optional.of(customer));
+		when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
 
 		//Act
 		Optional<Customer> findCustomer = customerRepository.findById(cpf);
 
 		//Assert
 		assertThat(findCustomer).isPresent().isEqualTo(Optional.of(customer));
-		verify(customerRepository, times(1)).findById(any(String.class));
+		verify(customerRepository, times(1)).findById(any(Long.class));
 	}
 
 	@Test
@@ -115,6 +116,6 @@ class CustomerRepositoryUnitTest {
 		//Assert
 		assertThat(findCustomer).isNotPresent();
 		verify(customerRepository, times(1)).delete(any(Customer.class));
-		verify(customerRepository, times(1)).findById(any(String.class));
+		verify(customerRepository, times(1)).findById(any(Long.class));
 	}
 }
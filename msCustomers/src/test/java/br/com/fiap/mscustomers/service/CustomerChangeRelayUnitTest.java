@@ -0,0 +1,107 @@
+package br.com.fiap.mscustomers.service;
+
+import br.com.fiap.mscustomers.entity.CustomerChange;
+import br.com.fiap.mscustomers.repository.CustomerChangeRepository;
+import br.com.fiap.mscustomers.utils.CustomerUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CustomerChangeRelayUnitTest {
+
+	private CustomerChangeRelay customerChangeRelay;
+
+	@Mock
+	private CustomerChangeRepository customerChangeRepository;
+
+	@Mock
+	private StreamBridge streamBridge;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		customerChangeRelay = new CustomerChangeRelay(customerChangeRepository, streamBridge, transactionManager, 2);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	private static CustomerChange createChange(Long id) {
+		CustomerChange change = CustomerChange.upsert(CustomerUtils.createFakeCustomer());
+		change.setId(id);
+		return change;
+	}
+
+	@Nested
+	class Relay {
+		@Test
+		void allowRelay() {
+			//Arrange
+			CustomerChange c1 = createChange(1L);
+			CustomerChange c2 = createChange(2L);
+			CustomerChange c3 = createChange(3L);
+			when(customerChangeRepository.lockUnpublished(2)).thenReturn(List.of(c1, c2), List.of(c3));
+			when(streamBridge.send(anyString(), any())).thenReturn(true);
+
+			//Act
+			customerChangeRelay.relay();
+
+			//Assert
+			verify(streamBridge, times(3)).send(eq("customerChanged-out-0"), any(CustomerChange.class));
+			verify(customerChangeRepository).markPublished(List.of(1L, 2L));
+			verify(customerChangeRepository).markPublished(List.of(3L));
+			verify(customerChangeRepository, times(2)).lockUnpublished(anyInt()); //The second batch wasn't full
+		}
+
+		@Test
+		void allowRelay_StoppingWhenBrokerUnavailable() {
+			//Arrange
+			CustomerChange c1 = createChange(1L);
+			CustomerChange c2 = createChange(2L);
+			when(customerChangeRepository.lockUnpublished(anyInt())).thenReturn(List.of(c1, c2));
+			when(streamBridge.send(anyString(), any())).thenReturn(true)
+					.thenThrow(new MessageDeliveryException("Broker unavailable"));
+
+			//Act
+			customerChangeRelay.relay();
+
+			//Assert
+			verify(customerChangeRepository).markPublished(List.of(1L));
+			verify(customerChangeRepository, times(1)).lockUnpublished(anyInt());
+		}
+
+		@Test
+		void allowRelay_NothingToSend() {
+			//Arrange
+			when(customerChangeRepository.lockUnpublished(anyInt())).thenReturn(List.of());
+
+			//Act
+			customerChangeRelay.relay();
+
+			//Assert
+			verify(customerChangeRepository, never()).markPublished(anyCollection());
+			verifyNoInteractions(streamBridge);
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package br.com.fiap.mscustomers.service;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerBulkResult;
 import br.com.fiap.mscustomers.utils.CustomerUtils;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
@@ -31,7 +33,7 @@ class CustomerServiceIntegTest {
 
 			//Act
 			Customer savedCustomer = customerService.createCustomer(customer);
-			Customer findCustomer = customerService.getByCpf(customer.getCpf());
+			Customer findCustomer = customerService.getByCpf(Cpf.format(customer.getCpf()));
 
 			//Assert
 			assertThat(findCustomer).isNotNull().isEqualTo(savedCustomer);
@@ -43,7 +45,7 @@ class CustomerServiceIntegTest {
 			Customer customer = CustomerUtils.createFakeCustomer();
 
 			// Act && Assert
-			assertThatThrownBy(() -> customerService.getByCpf(customer.getCpf()))
+			assertThatThrownBy(() -> customerService.getByCpf(Cpf.format(customer.getCpf())))
 					.isInstanceOf(EntityNotFoundException.class)
 					.hasMessage(CustomerService.ENTITY_NOT_FOUND);
 		}
@@ -100,6 +102,25 @@ class CustomerServiceIntegTest {
 		}
 	}
 
+	@Nested
+	class CreateCustomers {
+		@Test
+		void allowCreateCustomers() {
+			//Arrange
+			Customer customer1 = CustomerUtils.createFakeCustomer("822.685.230-71", "Fulano da Silva Sauro");
+			Customer customer2 = CustomerUtils.createFakeCustomer("905.013.870-56", "Ciclano da Silva Sauro");
+			customerService.createCustomer(customer2);
+
+			//Act
+			CustomerBulkResult result = customerService.createCustomers(List.of(customer1, customer2, customer1));
+
+			//Assert
+			assertThat(result.getCreated()).isEqualTo(1);
+			assertThat(result.getAlreadyExists()).containsExactly(customer2.getCpf(), customer1.getCpf()); //Already registered and repeated in the list
+			assertThat(customerService.getByCpfs(List.of(Cpf.format(customer1.getCpf()), Cpf.format(customer2.getCpf())))).hasSize(2);
+		}
+	}
+
 	@Nested
 	class UpdateCustomer {
 		@Test
@@ -112,7 +133,7 @@ class CustomerServiceIntegTest {
 
 			//Act
 			customer = customerService.createCustomer(customer);
-			Customer updatedCustomer = customerService.updateCustomer(customer.getCpf(), newCustomer);
+			Customer updatedCustomer = customerService.updateCustomer(Cpf.format(customer.getCpf()), newCustomer);
 
 			//Assert
 			assertThat(updatedCustomer).isNotNull().isNotEqualTo(oldCustomer).isEqualTo(newCustomer);
@@ -125,7 +146,7 @@ class CustomerServiceIntegTest {
 			Customer anotherCustomer = CustomerUtils.createFakeCustomer();
 
 			// Act && Assert
-			assertThatThrownBy(() -> customerService.updateCustomer(customer.getCpf(), anotherCustomer))
+			assertThatThrownBy(() -> customerService.updateCustomer(Cpf.format(customer.getCpf()), anotherCustomer))
 					.isInstanceOf(EntityNotFoundException.class)
 					.hasMessage(CustomerService.ENTITY_NOT_FOUND); //Updating a non-existent customer
 		}
@@ -140,10 +161,10 @@ class CustomerServiceIntegTest {
 
 			//Act
 			customer = customerService.createCustomer(customer);
-			String message = customerService.deleteCustomer(customer.getCpf());
+			String message = customerService.deleteCustomer(Cpf.format(customer.getCpf()));
 
 			//Assert
-			assertThat(message).isNotNull().isEqualTo(String.format(CustomerService.CUSTOMER_DELETED, customer.getFullName(), customer.getCpf()));
+			assertThat(message).isNotNull().isEqualTo(String.format(CustomerService.CUSTOMER_DELETED, customer.getFullName(), Cpf.format(customer.getCpf())));
 		}
 
 		@Test
@@ -152,7 +173,7 @@ class CustomerServiceIntegTest {
 			Customer customer = CustomerUtils.createFakeCustomer();
 
 			// Act && Assert
-			assertThatThrownBy(() -> customerService.deleteCustomer(customer.getCpf()))
+			assertThatThrownBy(() -> customerService.deleteCustomer(Cpf.format(customer.getCpf())))
 					.isInstanceOf(EntityNotFoundException.class)
 					.hasMessage(CustomerService.ENTITY_NOT_FOUND); //Deleting a non-existent customer
 		}
@@ -1,6 +1,12 @@
 package br.com.fiap.mscustomers.service;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mscustomers.entity.Customer;
+import br.com.fiap.mscustomers.entity.CustomerBulkResult;
+import br.com.fiap.mscustomers.entity.CustomerChange;
+import br.com.fiap.mscustomers.entity.CustomerMatch;
+import br.com.fiap.mscustomers.entity.CustomerSearchResult;
+import br.com.fiap.mscustomers.repository.CustomerChangeRepository;
 import br.com.fiap.mscustomers.repository.CustomerRepository;
 import br.com.fiap.mscustomers.utils.CustomerUtils;
 import jakarta.persistence.EntityNotFoundException;
@@ -8,6 +14,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -17,6 +24,9 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class CustomerServiceUnitTest {
@@ -26,12 +36,15 @@ class CustomerServiceUnitTest {
 	@Mock
 	private CustomerRepository customerRepository;
 
+	@Mock
+	private CustomerChangeRepository customerChangeRepository;
+
 	AutoCloseable openMocks;
 
 	@BeforeEach
 	void setup(){
 		openMocks = MockitoAnnotations.openMocks(this);
-		customerService = new CustomerService(customerRepository);
+		customerService = new CustomerService(customerRepository, customerChangeRepository);
 	}
 
 	@AfterEach
@@ -45,27 +58,27 @@ class CustomerServiceUnitTest {
 		void allowGetByCpf() {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			when(customerRepository.findById(any(String.class))).thenReturn(Optional.of(customer));
+			when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
 
 			//Act
-			Customer findCustomer = customerService.getByCpf(customer.getCpf());
+			Customer findCustomer = customerService.getByCpf(Cpf.format(customer.getCpf()));
 
 			//Assert
 			assertThat(findCustomer).isNotNull().isEqualTo(customer);
-			verify(customerRepository, times(1)).findById(any(String.class));
+			verify(customerRepository, times(1)).findById(any(Long.class));
 		}
 
 		@Test
 		void shouldThrowEntityNotFoundException_WhenGetByCpf() {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			when(customerRepository.findById(any(String.class))).thenReturn(Optional.empty());
+			when(customerRepository.findById(any(Long.class))).thenReturn(Optional.empty());
 
 			// Act && Assert
-			assertThatThrownBy(() -> customerService.getByCpf(customer.getCpf()))
+			assertThatThrownBy(() -> customerService.getByCpf(Cpf.format(customer.getCpf())))
 					.isInstanceOf(EntityNotFoundException.class)
 					.hasMessage(CustomerService.ENTITY_NOT_FOUND);
-			verify(customerRepository, times(1)).findById(any(String.class));
+			verify(customerRepository, times(1)).findById(any(Long.class));
 		}
 	}
 
@@ -90,20 +103,132 @@ class CustomerServiceUnitTest {
 		}
 	}
 
+	@Nested
+	class SearchByName {
+		@Test
+		void allowSearchByName() {
+			//Arrange
+			Customer customer1 = CustomerUtils.createFakeCustomer("822.685.230-71", "João da Silva");
+			Customer customer2 = CustomerUtils.createFakeCustomer("905.013.870-56", "Joana da Silva");
+			List<CustomerMatch> matches = List.of(new CustomerMatch(customer1, 0.8f), new CustomerMatch(customer2, 0.5f));
+
+			when(customerRepository.searchByName("joao", null, null, 2)).thenReturn(matches);
+
+			//Act
+			CustomerSearchResult result = customerService.searchByName("joao", 1, null);
+
+			//Assert
+			assertThat(result.getMatches()).containsExactly(matches.get(0)); //Only one page, the extra match tells there is a next page
+			assertThat(result.getNextCursor()).isEqualTo("0.8_82268523071");
+		}
+
+		@Test
+		void allowSearchByNameWithCursor() {
+			//Arrange
+			Customer customer = CustomerUtils.createFakeCustomer("905.013.870-56", "Joana da Silva");
+			List<CustomerMatch> matches = List.of(new CustomerMatch(customer, 0.5f));
+
+			when(customerRepository.searchByName("joao", 0.8f, 82268523071L, 2)).thenReturn(matches);
+
+			//Act
+			CustomerSearchResult result = customerService.searchByName("joao", 1, "0.8_82268523071");
+
+			//Assert
+			assertThat(result.getMatches()).isEqualTo(matches);
+			assertThat(result.getNextCursor()).isNull();
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenSearchByNameWithInvalidCursor() {
+			// Act && Assert
+			assertThatThrownBy(() -> customerService.searchByName("joao", 10, "invalid"))
+					.isInstanceOf(DataIntegrityViolationException.class)
+					.hasMessage(CustomerService.INVALID_CURSOR);
+			verify(customerRepository, never()).searchByName(any(), any(), any(), anyInt());
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenSearchByNameTooShort() {
+			// Act && Assert
+			assertThatThrownBy(() -> customerService.searchByName(" jo ", 10, null))
+					.isInstanceOf(DataIntegrityViolationException.class)
+					.hasMessage(CustomerService.SEARCH_TERM_TOO_SHORT);
+			verify(customerRepository, never()).searchByName(any(), any(), any(), anyInt());
+		}
+	}
+
+	@Nested
+	class GetByCpfs {
+		@Test
+		void allowGetByCpfs() {
+			//Arrange
+			Customer customer1 = CustomerUtils.createFakeCustomer("822.685.230-71", "Fulano da Silva Sauro");
+			Customer customer2 = CustomerUtils.createFakeCustomer("905.013.870-56", "Ciclano da Silva Sauro");
+			List<String> cpfs = List.of(Cpf.format(customer1.getCpf()), Cpf.format(customer2.getCpf()), "invalid");
+			List<Long> keys = List.of(customer1.getCpf(), customer2.getCpf()); //The invalid CPF is left out
+
+			List<Customer> customerList = List.of(customer1, customer2);
+			when(customerRepository.findAllById(keys)).thenReturn(customerList);
+
+			//Act
+			List<Customer> customers = customerService.getByCpfs(cpfs);
+
+			//Assert
+			assertThat(customers).isNotEmpty().isEqualTo(customerList);
+			verify(customerRepository, times(1)).findAllById(keys);
+		}
+	}
+
+	@Nested
+	class GetChangesAfter {
+		@Test
+		void allowGetChangesAfter() {
+			//Arrange
+			Customer customer = CustomerUtils.createFakeCustomer();
+			CustomerChange change = CustomerChange.upsert(customer);
+			change.setId(11L);
+			when(customerChangeRepository.findChangesAfter(10L, CustomerService.CHANGES_PAGE_SIZE))
+					.thenReturn(List.of(change));
+
+			//Act
+			List<CustomerChange> changes = customerService.getChangesAfter(10L);
+
+			//Assert
+			assertThat(changes).containsExactly(change);
+			assertThat(changes.get(0).getDeliveryAddress())
+					.isEqualTo(customer.getAddress() + ", " + customer.getCity() + " - " + customer.getState() + ", " + customer.getCountry());
+			verify(customerChangeRepository, times(1)).findChangesAfter(eq(10L), anyInt());
+		}
+
+		@Test
+		void allowGetChangesFromTheBeginning() {
+			//Arrange
+			when(customerChangeRepository.findChangesAfter(any(), anyInt())).thenReturn(List.of());
+
+			//Act
+			List<CustomerChange> changes = customerService.getChangesAfter(null);
+
+			//Assert
+			assertThat(changes).isEmpty();
+			verify(customerChangeRepository, times(1)).findChangesAfter(eq(0L), anyInt());
+		}
+	}
+
 	@Nested
 	class CreateCustomer {
 		@Test
 		void allowCreateCustomer() {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			when(customerRepository.save(any(Customer.class))).thenAnswer(c -> c.getArgument(0));
+			when(customerRepository.insertIfAbsent(any(Customer.class))).thenReturn(true);
 
 			//Act
 			Customer savedCustomer = customerService.createCustomer(customer);
 
 			//Assert
 			assertThat(savedCustomer).isNotNull().isEqualTo(customer);
-			verify(customerRepository, times(1)).save(any(Customer.class));
+			verify(customerRepository, times(1)).insertIfAbsent(any(Customer.class));
+			verify(customerRepository, never()).findById(any(Long.class));
 		}
 
 		@Test
@@ -111,13 +236,34 @@ class CustomerServiceUnitTest {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
 
-			when(customerRepository.findById(any(String.class))).thenReturn(Optional.of(customer));
+			when(customerRepository.insertIfAbsent(any(Customer.class))).thenReturn(false);
 
 			// Act && Assert
 			assertThatThrownBy(() -> customerService.createCustomer(customer))
 					.isInstanceOf(DataIntegrityViolationException.class)
 					.hasMessage(CustomerService.CPF_ALREADY_EXISTS); //Trying to create same customer twice
-			verify(customerRepository, times(1)).findById(any(String.class));
+			verify(customerRepository, times(1)).insertIfAbsent(any(Customer.class));
+		}
+	}
+
+	@Nested
+	class CreateCustomers {
+		@Test
+		void allowCreateCustomers() {
+			//Arrange
+			Customer customer1 = CustomerUtils.createFakeCustomer("822.685.230-71", "Fulano da Silva Sauro");
+			Customer customer2 = CustomerUtils.createFakeCustomer("905.013.870-56", "Ciclano da Silva Sauro");
+			List<Customer> customerList = List.of(customer1, customer2);
+
+			when(customerRepository.insertAllIfAbsent(customerList)).thenReturn(List.of(customer2.getCpf()));
+
+			//Act
+			CustomerBulkResult result = customerService.createCustomers(customerList);
+
+			//Assert
+			assertThat(result.getCreated()).isEqualTo(1);
+			assertThat(result.getAlreadyExists()).containsExactly(customer2.getCpf());
+			verify(customerRepository, times(1)).insertAllIfAbsent(customerList);
 			verify(customerRepository, never()).save(any(Customer.class));
 		}
 	}
@@ -132,16 +278,19 @@ class CustomerServiceUnitTest {
 			Customer newCustomer = CustomerUtils.createFakeCustomer(); //Customer to validate new value
 			newCustomer.setEmail("newemail@email.com");
 
-			when(customerRepository.findById(any(String.class))).thenReturn(Optional.of(customer));
+			when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
 			when(customerRepository.save(any(Customer.class))).thenAnswer(c -> c.getArgument(0));
 
 			//Act
-			Customer updatedCustomer = customerService.updateCustomer(oldCustomer.getCpf(), newCustomer);
+			Customer updatedCustomer = customerService.updateCustomer(Cpf.format(oldCustomer.getCpf()), newCustomer);
 
 			//Assert
 			assertThat(updatedCustomer).isNotNull().isNotEqualTo(oldCustomer).isEqualTo(newCustomer);
-			verify(customerRepository, times(1)).findById(any(String.class));
+			verify(customerRepository, times(1)).findById(any(Long.class));
 			verify(customerRepository, times(1)).save(any(Customer.class));
+			InOrder feed = inOrder(customerChangeRepository);
+			feed.verify(customerChangeRepository, times(1)).lockFeed();
+			feed.verify(customerChangeRepository, times(1)).save(argThat(c -> CustomerChange.UPSERT.equals(c.getType())));
 		}
 
 		@Test
@@ -149,14 +298,15 @@ class CustomerServiceUnitTest {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
 			Customer anotherCustomer = CustomerUtils.createFakeCustomer();
-			when(customerRepository.findById(any(String.class))).thenReturn(Optional.empty());
+			when(customerRepository.findById(any(Long.class))).thenReturn(Optional.empty());
 
 			// Act && Assert
-			assertThatThrownBy(() -> customerService.updateCustomer(customer.getCpf(), anotherCustomer))
+			assertThatThrownBy(() -> customerService.updateCustomer(Cpf.format(customer.getCpf()), anotherCustomer))
 					.isInstanceOf(EntityNotFoundException.class)
 					.hasMessage(CustomerService.ENTITY_NOT_FOUND);
-			verify(customerRepository, times(1)).findById(any(String.class));
+			verify(customerRepository, times(1)).findById(any(Long.class));
 			verify(customerRepository, never()).save(any(Customer.class));
+			verify(customerChangeRepository, never()).save(any(CustomerChange.class));
 		}
 	}
 
@@ -166,29 +316,33 @@ class CustomerServiceUnitTest {
 		void allowDeleteCustomer() {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			when(customerRepository.findById(any(String.class))).thenReturn(Optional.of(customer));
+			when(customerRepository.findById(any(Long.class))).thenReturn(Optional.of(customer));
 			doNothing().when(customerRepository).delete(any(Customer.class));
 
 			//Act
-			String message = customerService.deleteCustomer(customer.getCpf());
+			String message = customerService.deleteCustomer(Cpf.format(customer.getCpf()));
 
 			//Assert
-			assertThat(message).isNotNull().isEqualTo(String.format(CustomerService.CUSTOMER_DELETED, customer.getFullName(), customer.getCpf()));
-			verify(customerRepository, times(1)).findById(any(String.class));
+			assertThat(message).isNotNull().isEqualTo(String.format(CustomerService.CUSTOMER_DELETED, customer.getFullName(), Cpf.format(customer.getCpf())));
+			verify(customerRepository, times(1)).findById(any(Long.class));
 			verify(customerRepository, times(1)).delete(any(Customer.class));
+			InOrder feed = inOrder(customerChangeRepository);
+			feed.verify(customerChangeRepository, times(1)).lockFeed();
+			feed.verify(customerChangeRepository, times(1)).save(argThat(c -> CustomerChange.DELETE.equals(c.getType())
+					&& customer.getCpf().equals(c.getCpf())));
 		}
 
 		@Test
 		void shouldThrowEntityNotFoundException_WhenDeleteCustomer() {
 			//Arrange
 			Customer customer = CustomerUtils.createFakeCustomer();
-			when(customerRepository.findById(any(String.class))).thenReturn(Optional.empty());
+			when(customerRepository.findById(any(Long.class))).thenReturn(Optional.empty());
 
 			// Act && Assert
-			assertThatThrownBy(() -> customerService.deleteCustomer(customer.getCpf()))
+			assertThatThrownBy(() -> customerService.deleteCustomer(Cpf.format(customer.getCpf())))
 					.isInstanceOf(EntityNotFoundException.class)
 					.hasMessage(CustomerService.ENTITY_NOT_FOUND);
-			verify(customerRepository, times(1)).findById(any(String.class));
+			verify(customerRepository, times(1)).findById(any(Long.class));
 			verify(customerRepository, never()).delete(any(Customer.class));
 		}
 	}
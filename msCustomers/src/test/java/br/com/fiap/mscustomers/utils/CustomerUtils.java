@@ -1,5 +1,6 @@
 package br.com.fiap.mscustomers.utils;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mscustomers.entity.Customer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,7 +9,7 @@ public class CustomerUtils {
 
 	public static Customer createFakeCustomer() {
 		Customer customer = new Customer();
-		customer.setCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		customer.setCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		customer.setFullName("Dummy customer");
 		customer.setEmail("dummycustomer@email.com");
 		customer.setZipCode("00000-000");
@@ -22,7 +23,7 @@ public class CustomerUtils {
 
 	public static Customer createFakeCustomer(String cpf, String name) {
 		Customer customer = new Customer();
-		customer.setCpf(cpf);
+		customer.setCpf(Cpf.parse(cpf));
 		customer.setFullName(name);
 		customer.setEmail("dummycustomer@email.com");
 		customer.setZipCode("00000-000");
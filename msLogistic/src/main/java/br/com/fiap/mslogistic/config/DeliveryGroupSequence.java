@@ -0,0 +1,20 @@
+package br.com.fiap.mslogistic.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+//Numbers of the delivery groups. ddl-auto=update only creates the sequences of the entities, this one is created here.
+@Component
+public class DeliveryGroupSequence implements InitializingBean {
+	private final JdbcTemplate jdbcTemplate;
+
+	public DeliveryGroupSequence(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS delivery_group_seq");
+	}
+}
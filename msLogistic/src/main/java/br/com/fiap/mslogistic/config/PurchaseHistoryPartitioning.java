@@ -0,0 +1,80 @@
+package br.com.fiap.mslogistic.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+//purchase_history is partitioned by month of status_date, so old months can be archived and dropped as a whole.
+//ddl-auto=update can't create a partitioned table, the table is created (or converted, keeping its rows) here.
+//The primary key of a partitioned table must contain the partition key, so it becomes (id, status_date).
+@Component
+public class PurchaseHistoryPartitioning implements InitializingBean {
+	//The advisory lock serializes the instances starting together, the second one finds the table already partitioned.
+	//Rows without status date (never written by the services) are moved with the date of the conversion.
+	private static final String PARTITION_TABLE = """
+			DO $$
+			DECLARE
+				kind "char";
+				month timestamp;
+			BEGIN
+				PERFORM pg_advisory_xact_lock(hashtext('purchase_history_partitioning'));
+				SELECT c.relkind INTO kind FROM pg_class c WHERE c.oid = to_regclass('purchase_history');
+				IF kind = 'p' THEN
+					RETURN;
+				END IF;
+
+				CREATE SEQUENCE IF NOT EXISTS purchase_history_id_seq_p;
+				CREATE TABLE purchase_history_p (
+					id bigint NOT NULL DEFAULT nextval('purchase_history_id_seq_p'),
+					purchase_id bigint NOT NULL,
+					status varchar(20) NOT NULL,
+					status_date timestamp(6) NOT NULL,
+					PRIMARY KEY (id, status_date)
+				) PARTITION BY RANGE (status_date);
+				CREATE TABLE purchase_history_default PARTITION OF purchase_history_p DEFAULT;
+
+				IF kind = 'r' THEN
+					LOCK TABLE purchase_history IN ACCESS EXCLUSIVE MODE;
+					FOR month IN SELECT DISTINCT date_trunc('month', COALESCE(status_date, now()::timestamp)) FROM purchase_history LOOP
+						EXECUTE format('CREATE TABLE %I PARTITION OF purchase_history_p FOR VALUES FROM (%L) TO (%L)',
+								'purchase_history_' || to_char(month, 'YYYY_MM'), month, month + interval '1 month');
+					END LOOP;
+					INSERT INTO purchase_history_p (id, purchase_id, status, status_date)
+						SELECT id, purchase_id, status, COALESCE(status_date, now()::timestamp) FROM purchase_history;
+					PERFORM setval('purchase_history_id_seq_p', COALESCE((SELECT max(id) FROM purchase_history), 0) + 1, false);
+					DROP TABLE purchase_history;
+				END IF;
+
+				ALTER TABLE purchase_history_p RENAME TO purchase_history;
+				ALTER SEQUENCE purchase_history_id_seq_p OWNED BY purchase_history.id;
+				CREATE INDEX purchase_history_purchase_id_idx ON purchase_history (purchase_id, status_date);
+			END $$""";
+
+	//An event is its purchase, status and status date: a message delivered again by the broker or a call retried by
+	//msSales carries the same three, and the inserts leave it out (ON CONFLICT DO NOTHING). The key contains the
+	//partition key, so it can be unique on the partitioned table. The duplicates written before it are removed first.
+	private static final String EVENT_KEY = """
+			DO $$
+			BEGIN
+				PERFORM pg_advisory_xact_lock(hashtext('purchase_history_partitioning'));
+				IF to_regclass('purchase_history_event_idx') IS NOT NULL THEN
+					RETURN;
+				END IF;
+
+				DELETE FROM purchase_history a USING purchase_history b
+					WHERE a.purchase_id = b.purchase_id AND a.status = b.status AND a.status_date = b.status_date AND a.id > b.id;
+				CREATE UNIQUE INDEX purchase_history_event_idx ON purchase_history (purchase_id, status, status_date);
+			END $$""";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public PurchaseHistoryPartitioning(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		jdbcTemplate.execute(PARTITION_TABLE);
+		jdbcTemplate.execute(EVENT_KEY);
+	}
+}
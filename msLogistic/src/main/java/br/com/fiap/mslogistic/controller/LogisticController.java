@@ -1,6 +1,8 @@
 package br.com.fiap.mslogistic.controller;
 
-import br.com.fiap.mslogistic.entity.Purchase;
+import br.com.fiap.mslogistic.entity.DeliveryGroup;
+import br.com.fiap.mslogistic.entity.DeliveryManifest;
+import br.com.fiap.mslogistic.entity.DeliveryManifestResult;
 import br.com.fiap.mslogistic.entity.PurchaseHistory;
 import br.com.fiap.mslogistic.service.LogisticService;
 import org.springframework.http.ResponseEntity;
@@ -23,7 +25,7 @@ public class LogisticController {
 	}
 
 	@PutMapping("/dispatchPurchases")
-	public ResponseEntity<List<Purchase>> dispatchPurchases(){
+	public ResponseEntity<List<DeliveryGroup>> dispatchPurchases(){
 		return ResponseEntity.ok(this.logisticService.dispatchPurchases());
 	}
 
@@ -32,4 +34,9 @@ public class LogisticController {
 		return ResponseEntity.ok(this.logisticService.deliveryPurchase(purchaseId));
 	}
 
+	@PutMapping("/deliveryPurchases")
+	public ResponseEntity<DeliveryManifestResult> deliveryPurchases(@RequestBody DeliveryManifest manifest){
+		return ResponseEntity.ok(this.logisticService.deliveryPurchases(manifest));
+	}
+
 }
@@ -0,0 +1,17 @@
+package br.com.fiap.mslogistic.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryGroup {
+	private String id;
+	private String region; //First 2 digits of the zip code (CEP) of the purchases
+	private Integer load;
+	private List<Long> purchaseIds;
+}
@@ -0,0 +1,16 @@
+package br.com.fiap.mslogistic.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+//Purchases delivered by the carrier, informed by their ids or by the delivery group of the route
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryManifest {
+	private List<Long> purchaseIds;
+	private String deliveryGroup;
+}
@@ -0,0 +1,17 @@
+package br.com.fiap.mslogistic.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryManifestResult {
+	private List<Long> delivered;
+	private Map<Long, String> wrongStatus; //Purchases not waiting for delivery, with their current status
+	private List<Long> notFound;
+}
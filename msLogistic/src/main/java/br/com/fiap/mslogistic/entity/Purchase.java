@@ -1,10 +1,14 @@
 package br.com.fiap.mslogistic.entity;
 
+import br.com.fiap.commons.cpf.CpfDeserializer;
+import br.com.fiap.commons.cpf.CpfSerializer;
+import br.com.fiap.commons.cpf.ValidCpf;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.validator.constraints.br.CPF;
 
 import java.util.List;
 
@@ -17,9 +21,11 @@ public class Purchase {
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 
-	@CPF
-	@Column(length = 14, nullable = false) // 000.000.000-00
-	private String customerCpf;
+	@ValidCpf
+	@JsonSerialize(using = CpfSerializer.class)
+	@JsonDeserialize(using = CpfDeserializer.class)
+	@Column(nullable = false) // Stored as a number, the API uses the format 000.000.000-00
+	private Long customerCpf;
 
 	@Column(length = 50)
 	private String customerName;
@@ -30,7 +36,7 @@ public class Purchase {
 	@Column(length = 200)
 	private String deliveryAddress;
 
-	@Column(length = 17) // YYYYMMDDHHMMSSsss
+	@Column(length = 17) // YYYYMMDD + 9 digit sequence
 	private String deliveryGroup;
 
 	@Column
@@ -12,7 +12,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "purchase_history")
+@Table(name = "purchase_history") //Partitioned table with the (purchase_id, status_date) index, see PurchaseHistoryPartitioning
 public class PurchaseHistory {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,7 +26,7 @@ public class PurchaseHistory {
 	@Column(length = 20, nullable = false)
 	private String status;
 
-	@Column
+	@Column(nullable = false) //Partition key of the table
 	@JsonFormat(pattern="dd/MM/yyyy HH:mm:ss")
 	private LocalDateTime statusDate;
 }
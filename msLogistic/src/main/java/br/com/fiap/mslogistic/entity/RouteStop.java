@@ -0,0 +1,15 @@
+package br.com.fiap.mslogistic.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Purchase waiting to be dispatched, with the total quantity of its items as the load taken in the vehicle
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteStop {
+	private Long purchaseId;
+	private String zipCode;
+	private int load;
+}
@@ -5,6 +5,7 @@ import br.com.fiap.mslogistic.service.LogisticService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @Component
@@ -19,4 +20,9 @@ public class PurchaseHistoryConsumer {
 	Consumer<PurchaseHistory> saveHistoryConsumer(){
 		return logisticService::createPurchaseHistory;
 	}
+
+	@Bean(name = "saveHistories")
+	Consumer<List<PurchaseHistory>> saveHistoriesConsumer(){
+		return logisticService::createPurchaseHistories;
+	}
 }
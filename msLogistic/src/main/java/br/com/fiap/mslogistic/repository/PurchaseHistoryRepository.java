@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface PurchaseHistoryRepository extends JpaRepository<PurchaseHistory, Long> {
-	List<PurchaseHistory> findByPurchaseId(Long purchaseId);
+public interface PurchaseHistoryRepository extends JpaRepository<PurchaseHistory, Long>, PurchaseHistoryRepositoryCustom {
+	//Served by the (purchase_id, status_date) index, already in the timeline order
+	List<PurchaseHistory> findByPurchaseIdOrderByStatusDateAscIdAsc(Long purchaseId);
 }
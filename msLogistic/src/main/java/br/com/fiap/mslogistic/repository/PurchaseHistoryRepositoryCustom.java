@@ -0,0 +1,11 @@
+package br.com.fiap.mslogistic.repository;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+
+import java.util.List;
+
+public interface PurchaseHistoryRepositoryCustom {
+	//Writes all the events with one statement and returns the ones inserted with their ids. An event already written
+	//(same purchase, status and status date) is left out, the broker delivers the messages at least once.
+	List<PurchaseHistory> insertAll(List<PurchaseHistory> history);
+}
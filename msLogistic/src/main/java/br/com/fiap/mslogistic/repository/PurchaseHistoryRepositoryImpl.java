@@ -0,0 +1,40 @@
+package br.com.fiap.mslogistic.repository;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+
+//The ids come from an identity column, so Hibernate can't batch the inserts. The rows are sent as arrays instead.
+//The events already written (purchase_history_event_idx, see PurchaseHistoryPartitioning) are left out.
+public class PurchaseHistoryRepositoryImpl implements PurchaseHistoryRepositoryCustom {
+	private static final String INSERT_ALL = "INSERT INTO purchase_history (purchase_id, status, status_date) " +
+			"SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::timestamp[]) " +
+			"ON CONFLICT (purchase_id, status, status_date) DO NOTHING RETURNING id, purchase_id, status, status_date";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public PurchaseHistoryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public List<PurchaseHistory> insertAll(List<PurchaseHistory> history) {
+		return jdbcTemplate.query(con -> {
+			PreparedStatement ps = con.prepareStatement(INSERT_ALL);
+			ps.setArray(1, con.createArrayOf("bigint", history.stream().map(PurchaseHistory::getPurchaseId).toArray()));
+			ps.setArray(2, con.createArrayOf("varchar", history.stream().map(PurchaseHistory::getStatus).toArray()));
+			ps.setArray(3, con.createArrayOf("timestamp", history.stream().map(h -> Timestamp.valueOf(h.getStatusDate())).toArray()));
+			return ps;
+		}, (rs, rowNum) -> {
+			PurchaseHistory saved = new PurchaseHistory();
+			saved.setId(rs.getLong("id"));
+			saved.setPurchaseId(rs.getLong("purchase_id"));
+			saved.setStatus(rs.getString("status"));
+			saved.setStatusDate(rs.getTimestamp("status_date").toLocalDateTime());
+			return saved;
+		});
+	}
+}
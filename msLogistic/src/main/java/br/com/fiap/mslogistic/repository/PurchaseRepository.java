@@ -7,6 +7,8 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
+public interface PurchaseRepository extends JpaRepository<Purchase, Long>, PurchaseRepositoryCustom {
 	List<Purchase> findByStatusOrderByDeliveryZipCode(String status);
+
+	List<Purchase> findByDeliveryGroup(String deliveryGroup);
 }
@@ -0,0 +1,26 @@
+package br.com.fiap.mslogistic.repository;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import br.com.fiap.mslogistic.entity.RouteStop;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PurchaseRepositoryCustom {
+	//Moves the purchases from the status "from" to the status "to" and writes their history, returning the history
+	//written. Purchases in another status are left as they are.
+	List<PurchaseHistory> updateStatusWithHistory(Collection<Long> ids, String from, String to, LocalDateTime statusDate);
+
+	List<PurchaseHistory> updateGroupStatusWithHistory(String deliveryGroup, String from, String to, LocalDateTime statusDate);
+
+	//Locks up to "limit" purchases in the status, skipping the ones locked by other transactions, and returns them with
+	//the total quantity of their items. Must be called inside a transaction.
+	List<RouteStop> claimRouteStops(String status, int limit);
+
+	//Sets the delivery group of each purchase (same position in the lists) and moves it to the status "to", as long as
+	//it is still in the status "from"
+	List<PurchaseHistory> assignDeliveryGroups(List<Long> ids, List<String> deliveryGroups, String from, String to, LocalDateTime statusDate);
+
+	List<Long> nextDeliveryGroupNumbers(int count);
+}
@@ -0,0 +1,99 @@
+package br.com.fiap.mslogistic.repository;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import br.com.fiap.mslogistic.entity.RouteStop;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+//The status check and the change are made by the same statement, without reading the purchases first
+public class PurchaseRepositoryImpl implements PurchaseRepositoryCustom {
+	private static final String INSERT_HISTORY = "INSERT INTO purchase_history (purchase_id, status, status_date) " +
+			"SELECT id, ?, ? FROM updated RETURNING id, purchase_id, status, status_date";
+
+	private static final String UPDATE_BY_IDS = "WITH updated AS (" +
+			"UPDATE purchases SET status = ? WHERE id = ANY(?) AND status = ? RETURNING id) " + INSERT_HISTORY;
+
+	private static final String UPDATE_BY_GROUP = "WITH updated AS (" +
+			"UPDATE purchases SET status = ? WHERE delivery_group = ? AND status = ? RETURNING id) " + INSERT_HISTORY;
+
+	private static final String ASSIGN_GROUPS = "WITH updated AS (" +
+			"UPDATE purchases p SET delivery_group = g.delivery_group, status = ? " +
+			"FROM unnest(?::bigint[], ?::varchar[]) AS g(id, delivery_group) WHERE p.id = g.id AND p.status = ? RETURNING p.id) " + INSERT_HISTORY;
+
+	//The chunks follow the zip code order, so each one keeps whole areas together. purchases_items is the join table of
+	//Purchase.items.
+	private static final String CLAIM_ROUTE_STOPS = "WITH claimed AS (" +
+			"SELECT id, delivery_zip_code FROM purchases WHERE status = ? ORDER BY delivery_zip_code, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+			"SELECT c.id, c.delivery_zip_code, COALESCE(SUM(i.quantity), 0) AS load " +
+			"FROM claimed c LEFT JOIN purchases_items pi ON pi.purchases_id = c.id LEFT JOIN purchase_items i ON i.id = pi.items_id " +
+			"GROUP BY c.id, c.delivery_zip_code";
+
+	private static final String NEXT_GROUP_NUMBERS = "SELECT nextval('delivery_group_seq') FROM generate_series(1, ?)";
+
+	private static final RowMapper<PurchaseHistory> HISTORY_MAPPER = (rs, rowNum) -> {
+		PurchaseHistory history = new PurchaseHistory();
+		history.setId(rs.getLong("id"));
+		history.setPurchaseId(rs.getLong("purchase_id"));
+		history.setStatus(rs.getString("status"));
+		history.setStatusDate(rs.getTimestamp("status_date").toLocalDateTime());
+		return history;
+	};
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public PurchaseRepositoryImpl(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public List<PurchaseHistory> updateStatusWithHistory(Collection<Long> ids, String from, String to, LocalDateTime statusDate) {
+		return jdbcTemplate.query(con -> {
+			Array idArray = con.createArrayOf("bigint", ids.toArray());
+			PreparedStatement ps = con.prepareStatement(UPDATE_BY_IDS);
+			ps.setString(1, to);
+			ps.setArray(2, idArray);
+			ps.setString(3, from);
+			ps.setString(4, to);
+			ps.setTimestamp(5, Timestamp.valueOf(statusDate));
+			return ps;
+		}, HISTORY_MAPPER);
+	}
+
+	@Override
+	public List<PurchaseHistory> updateGroupStatusWithHistory(String deliveryGroup, String from, String to, LocalDateTime statusDate) {
+		return jdbcTemplate.query(UPDATE_BY_GROUP, HISTORY_MAPPER, to, deliveryGroup, from, to, Timestamp.valueOf(statusDate));
+	}
+
+	@Override
+	public List<RouteStop> claimRouteStops(String status, int limit) {
+		return jdbcTemplate.query(CLAIM_ROUTE_STOPS, (rs, rowNum) ->
+				new RouteStop(rs.getLong("id"), rs.getString("delivery_zip_code"), rs.getInt("load")), status, limit);
+	}
+
+	@Override
+	public List<PurchaseHistory> assignDeliveryGroups(List<Long> ids, List<String> deliveryGroups, String from, String to,
+			LocalDateTime statusDate) {
+		return jdbcTemplate.query(con -> {
+			PreparedStatement ps = con.prepareStatement(ASSIGN_GROUPS);
+			ps.setString(1, to);
+			ps.setArray(2, con.createArrayOf("bigint", ids.toArray()));
+			ps.setArray(3, con.createArrayOf("varchar", deliveryGroups.toArray()));
+			ps.setString(4, from);
+			ps.setString(5, to);
+			ps.setTimestamp(6, Timestamp.valueOf(statusDate));
+			return ps;
+		}, HISTORY_MAPPER);
+	}
+
+	@Override
+	public List<Long> nextDeliveryGroupNumbers(int count) {
+		return jdbcTemplate.queryForList(NEXT_GROUP_NUMBERS, Long.class, count);
+	}
+}
@@ -0,0 +1,153 @@
+package br.com.fiap.mslogistic.service;
+
+import br.com.fiap.mslogistic.entity.RouteStop;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+//Splits the purchases in delivery groups that fit in a vehicle. The regions (first 2 digits of the CEP) are routed in
+//parallel. Inside a region the purchases of each 4 digit prefix are packed by best-fit decreasing, and the groups
+//left partially filled are joined with the ones of the next prefixes, which are the nearest areas.
+@Component
+public class DeliveryRouter implements DisposableBean {
+	private static final int REGION_DIGITS = 2;
+	private static final int AREA_DIGITS = 4;
+
+	//A group with this share of the capacity is closed, the smaller ones are joined with the next areas
+	private static final double FILLED_RATIO = 0.8;
+
+	private final int capacity;
+	private final int maxStops;
+	private final long timeoutSeconds;
+	private final ForkJoinPool pool;
+
+	public DeliveryRouter(@Value("${logistic.routing.vehicle-capacity}") int capacity,
+			@Value("${logistic.routing.max-stops}") int maxStops,
+			@Value("${logistic.routing.parallelism}") int parallelism,
+			@Value("${logistic.routing.timeout-seconds}") long timeoutSeconds) {
+		this.capacity = capacity;
+		this.maxStops = maxStops;
+		this.timeoutSeconds = timeoutSeconds;
+		this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	//Each group is returned ordered by zip code, the groups ordered by region
+	public List<List<RouteStop>> route(List<RouteStop> stops) {
+		Map<String, List<RouteStop>> regions = stops.stream()
+				.collect(Collectors.groupingBy(s -> region(s.getZipCode()), TreeMap::new, Collectors.toList()));
+
+		try {
+			return pool.submit(() -> regions.values().parallelStream()
+							.map(this::routeRegion)
+							.flatMap(List::stream)
+							.toList())
+					.get(timeoutSeconds, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			throw new IllegalStateException("Routing didn't finish in " + timeoutSeconds + " seconds", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Routing interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error routing the purchases", e.getCause());
+		}
+	}
+
+	private List<List<RouteStop>> routeRegion(List<RouteStop> stops) {
+		Map<String, List<RouteStop>> areas = stops.stream()
+				.collect(Collectors.groupingBy(s -> prefix(s.getZipCode(), AREA_DIGITS), TreeMap::new, Collectors.toList()));
+
+		List<Group> groups = new ArrayList<>();
+		Group open = null;
+		for (List<RouteStop> areaStops : areas.values()) {
+			for (Group group : bestFitDecreasing(areaStops)) {
+				if (group.load >= capacity * FILLED_RATIO || group.stops.size() >= maxStops) {
+					groups.add(group);
+				} else if (open != null && open.fits(group)) {
+					open.addAll(group);
+				} else {
+					if (open != null) groups.add(open);
+					open = group;
+				}
+			}
+		}
+		if (open != null) groups.add(open);
+
+		List<List<RouteStop>> routes = new ArrayList<>(groups.size());
+		for (Group group : groups) {
+			group.stops.sort(Comparator.comparing(RouteStop::getZipCode, Comparator.nullsLast(Comparator.naturalOrder())));
+			routes.add(group.stops);
+		}
+		return routes;
+	}
+
+	//The groups that still have room are indexed by the room left, each purchase goes to the fullest group it fits in
+	private List<Group> bestFitDecreasing(List<RouteStop> stops) {
+		List<RouteStop> sorted = new ArrayList<>(stops);
+		sorted.sort(Comparator.comparingInt(RouteStop::getLoad).reversed());
+
+		List<Group> groups = new ArrayList<>();
+		TreeMap<Integer, Deque<Group>> byRoom = new TreeMap<>();
+		for (RouteStop stop : sorted) {
+			Map.Entry<Integer, Deque<Group>> entry = byRoom.ceilingEntry(stop.getLoad());
+			Group group;
+			if (entry != null) {
+				group = entry.getValue().poll();
+				if (entry.getValue().isEmpty()) byRoom.remove(entry.getKey());
+			} else {
+				group = new Group();
+				groups.add(group); //A purchase bigger than the vehicle goes alone
+			}
+
+			group.add(stop);
+			int room = capacity - group.load;
+			if (room > 0 && group.stops.size() < maxStops) byRoom.computeIfAbsent(room, r -> new ArrayDeque<>()).push(group);
+		}
+		return groups;
+	}
+
+	public static String region(String zipCode) {
+		return prefix(zipCode, REGION_DIGITS);
+	}
+
+	private static String prefix(String zipCode, int digits) {
+		if (zipCode == null) return "";
+		return zipCode.length() > digits ? zipCode.substring(0, digits) : zipCode;
+	}
+
+	@Override
+	public void destroy() {
+		pool.shutdown();
+	}
+
+	private class Group {
+		private final List<RouteStop> stops = new ArrayList<>();
+		private int load;
+
+		private void add(RouteStop stop) {
+			stops.add(stop);
+			load += stop.getLoad();
+		}
+
+		private void addAll(Group other) {
+			stops.addAll(other.stops);
+			load += other.load;
+		}
+
+		private boolean fits(Group other) {
+			return load + other.load <= capacity && stops.size() + other.stops.size() <= maxStops;
+		}
+	}
+}
@@ -1,23 +1,44 @@
 package br.com.fiap.mslogistic.service;
 
+import br.com.fiap.mslogistic.entity.DeliveryGroup;
+import br.com.fiap.mslogistic.entity.DeliveryManifest;
+import br.com.fiap.mslogistic.entity.DeliveryManifestResult;
 import br.com.fiap.mslogistic.entity.Purchase;
 import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import br.com.fiap.mslogistic.entity.RouteStop;
 import br.com.fiap.mslogistic.repository.PurchaseHistoryRepository;
 import br.com.fiap.mslogistic.repository.PurchaseRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class LogisticService {
 	public static final String HISTORY_NOT_FOUND = "Histórico de compra não encontrado"; //History not found
 	public static final String PURCHASE_NOT_FOUND = "Pedido não encontrado"; //Purchase not found
+	public static final String DELIVERY_GROUP_NOT_FOUND = "Grupo de entrega não encontrado"; //Delivery group not found
 	public static final String NOT_POSSIBLE_TO_DELIVER = "Não é possível entregar pedido com o status: %s"; //Not possible to deliver purchase
 	public static final String PURCHASE_DELIVERED = "Pedido %s entregue";
+	public static final String INVALID_MANIFEST = "Informe os pedidos ou o grupo de entrega"; //Inform the purchases or the delivery group
+	public static final String MANIFEST_TOO_LARGE = "O manifesto pode ter no máximo %s pedidos"; //Too many purchases in the manifest
+	public static final String NULL_PURCHASE_ID = "O manifesto não pode ter pedidos nulos"; //The manifest can't have null purchases
+
+	public static final int MAX_MANIFEST_SIZE = 10000;
 
 	private static final String WAITING_DELIVERY_STATUS = "AGUARDANDO ENTREGA";
 	private static final String PAID_STATUS = "PAGO";
@@ -25,50 +46,109 @@ public class LogisticService {
 
 	private final PurchaseRepository purchaseRepository;
 	private final PurchaseHistoryRepository purchaseHistoryRepository;
-
-	public LogisticService(PurchaseRepository purchaseRepository, PurchaseHistoryRepository purchaseHistoryRepository) {
+	private final PurchaseTimelineCache purchaseTimelineCache;
+	private final PurchaseHistoryArchive purchaseHistoryArchive;
+	private final DeliveryRouter deliveryRouter;
+	private final TransactionTemplate transactionTemplate;
+	private final int dispatchChunkSize;
+
+	public LogisticService(PurchaseRepository purchaseRepository, PurchaseHistoryRepository purchaseHistoryRepository,
+			PurchaseTimelineCache purchaseTimelineCache, PurchaseHistoryArchive purchaseHistoryArchive,
+			DeliveryRouter deliveryRouter, PlatformTransactionManager transactionManager,
+			@Value("${logistic.dispatch.chunk-size}") int dispatchChunkSize) {
 		this.purchaseRepository = purchaseRepository;
 		this.purchaseHistoryRepository = purchaseHistoryRepository;
+		this.purchaseTimelineCache = purchaseTimelineCache;
+		this.purchaseHistoryArchive = purchaseHistoryArchive;
+		this.deliveryRouter = deliveryRouter;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.dispatchChunkSize = dispatchChunkSize;
 	}
 
+	//The history is returned in the order of the status date, the archived months come before the ones in the database.
+	//A month whose partition wasn't dropped after it was archived is in both, its rows are only returned once.
 	public List<PurchaseHistory> getHistoryByPurchaseId(Long purchaseId) {
-		List<PurchaseHistory> history = this.purchaseHistoryRepository.findByPurchaseId(purchaseId);
+		List<PurchaseHistory> history = this.purchaseTimelineCache.get(purchaseId);
+		if (history == null) {
+			this.purchaseTimelineCache.beginLoad(purchaseId);
+			List<PurchaseHistory> loaded = new ArrayList<>(this.purchaseHistoryArchive.findByPurchaseId(purchaseId));
+			Set<Long> archivedIds = loaded.stream().map(PurchaseHistory::getId).collect(Collectors.toSet());
+			for (PurchaseHistory row : this.purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(purchaseId)) {
+				if (!archivedIds.contains(row.getId())) loaded.add(row);
+			}
+			history = this.purchaseTimelineCache.endLoad(purchaseId, loaded);
+		}
 		if (history.isEmpty()) throw new EntityNotFoundException(HISTORY_NOT_FOUND);
 
 		return history;
 	}
 
+	//The event of msSales, returned without id when it was already written (delivered or sent again)
 	public PurchaseHistory createPurchaseHistory(PurchaseHistory purchaseHistory) {
-		return this.purchaseHistoryRepository.save(purchaseHistory);
+		List<PurchaseHistory> savedHistory = createPurchaseHistories(List.of(purchaseHistory));
+		return savedHistory.isEmpty() ? purchaseHistory : savedHistory.get(0);
 	}
 
-	public List<Purchase> dispatchPurchases() {
-		List<Purchase> purchases = purchaseRepository.findByStatusOrderByDeliveryZipCode(PAID_STATUS);
+	//History of many purchases at once (the expired reservations of msSales), written with one statement. The events
+	//already written are left out.
+	public List<PurchaseHistory> createPurchaseHistories(List<PurchaseHistory> history) {
+		if (history.isEmpty()) return List.of();
 
-		if (purchases.isEmpty()) return purchases;
+		List<PurchaseHistory> savedHistory = this.purchaseHistoryRepository.insertAll(history);
+		savedHistory.forEach(this.purchaseTimelineCache::append);
+		return savedHistory;
+	}
 
-		String deliveryGroupId = createNewDeliveryGroup();
-		String groupId = purchases.get(0).getDeliveryZipCode().substring(0, 4);
+	//The purchases paid are claimed in chunks, each chunk is routed and written in its own transaction. The rows
+	//claimed stay locked until the commit and are skipped by the other calls, so several calls (or replicas) drain
+	//the purchases together without dispatching the same purchase twice.
+	public List<DeliveryGroup> dispatchPurchases() {
+		List<DeliveryGroup> groups = new ArrayList<>();
 
-		for (Purchase purchase : purchases) {
-			String purchaseGroupId = purchase.getDeliveryZipCode().substring(0, 4);
+		DispatchedChunk chunk;
+		do {
+			chunk = this.transactionTemplate.execute(status -> dispatchChunk());
+			chunk.history().forEach(this.purchaseTimelineCache::append); //Only after the commit
+			groups.addAll(chunk.groups());
+		} while (chunk.claimed() == this.dispatchChunkSize);
 
-			if (!purchaseGroupId.equals(groupId)) {
-				deliveryGroupId = createNewDeliveryGroup();
-				groupId = purchaseGroupId;
-			}
+		return groups;
+	}
 
-			purchase.setDeliveryGroup(deliveryGroupId);
-			purchase.setStatus(WAITING_DELIVERY_STATUS);
-			purchase = this.purchaseRepository.save(purchase);
+	private DispatchedChunk dispatchChunk() {
+		List<RouteStop> stops = this.purchaseRepository.claimRouteStops(PAID_STATUS, this.dispatchChunkSize);
+		if (stops.isEmpty()) return new DispatchedChunk(0, List.of(), List.of());
+
+		List<List<RouteStop>> routes = this.deliveryRouter.route(stops);
+		List<Long> numbers = this.purchaseRepository.nextDeliveryGroupNumbers(routes.size());
+		String day = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+
+		List<Long> ids = new ArrayList<>(stops.size());
+		List<String> groupIds = new ArrayList<>(stops.size());
+		for (int i = 0; i < routes.size(); i++) {
+			String groupId = day + String.format("%09d", numbers.get(i) % 1_000_000_000L);
+			for (RouteStop stop : routes.get(i)) {
+				ids.add(stop.getPurchaseId());
+				groupIds.add(groupId);
+			}
+		}
 
-			PurchaseHistory history = new PurchaseHistory();
-			history.setPurchaseId(purchase.getId());
-			history.setStatus(WAITING_DELIVERY_STATUS);
-			history.setStatusDate(LocalDateTime.now());
-			history = this.purchaseHistoryRepository.save(history);
+		List<PurchaseHistory> history = this.purchaseRepository.assignDeliveryGroups(ids, groupIds, PAID_STATUS,
+				WAITING_DELIVERY_STATUS, LocalDateTime.now());
+
+		List<DeliveryGroup> groups = new ArrayList<>(routes.size());
+		int index = 0;
+		for (List<RouteStop> route : routes) {
+			List<Long> purchaseIds = new ArrayList<>(route.size());
+			int load = 0;
+			for (RouteStop stop : route) {
+				purchaseIds.add(stop.getPurchaseId());
+				load += stop.getLoad();
+			}
+			groups.add(new DeliveryGroup(groupIds.get(index), DeliveryRouter.region(route.get(0).getZipCode()), load, purchaseIds));
+			index += route.size();
 		}
-		return purchases;
+		return new DispatchedChunk(stops.size(), groups, history);
 	}
 
 	public String deliveryPurchase(Long purchaseId) {
@@ -83,7 +163,7 @@ public class LogisticService {
 			newHistory.setPurchaseId(purchaseId);
 			newHistory.setStatus(DELIVERED_STATUS);
 			newHistory.setStatusDate(LocalDateTime.now());
-			this.purchaseHistoryRepository.save(newHistory);
+			saveHistory(newHistory);
 			return String.format(PURCHASE_DELIVERED, purchaseId);
 		}
 		else {
@@ -91,9 +171,65 @@ public class LogisticService {
 		}
 	}
 
-	private String createNewDeliveryGroup() {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
-		LocalDateTime now = LocalDateTime.now();
-		return now.format(formatter);
+	//The event is added to the cached timeline of the purchase after it is saved
+	private PurchaseHistory saveHistory(PurchaseHistory purchaseHistory) {
+		PurchaseHistory savedHistory = this.purchaseHistoryRepository.save(purchaseHistory);
+		this.purchaseTimelineCache.append(savedHistory);
+		return savedHistory;
+	}
+
+	//Confirms all the purchases of the manifest with one statement, which also writes their history. The purchases
+	//not delivered are reported with their current status, or as not found.
+	public DeliveryManifestResult deliveryPurchases(DeliveryManifest manifest) {
+		boolean byIds = manifest.getPurchaseIds() != null && !manifest.getPurchaseIds().isEmpty();
+		boolean byGroup = manifest.getDeliveryGroup() != null && !manifest.getDeliveryGroup().isBlank();
+		if (byIds == byGroup) throw new DataIntegrityViolationException(INVALID_MANIFEST);
+
+		List<PurchaseHistory> history;
+		List<Purchase> notDelivered;
+		Set<Long> ids = null;
+		if (byIds) {
+			ids = new LinkedHashSet<>(manifest.getPurchaseIds());
+			if (ids.contains(null)) throw new DataIntegrityViolationException(NULL_PURCHASE_ID);
+			if (ids.size() > MAX_MANIFEST_SIZE) throw new DataIntegrityViolationException(String.format(MANIFEST_TOO_LARGE, MAX_MANIFEST_SIZE));
+
+			history = this.purchaseRepository.updateStatusWithHistory(ids, WAITING_DELIVERY_STATUS, DELIVERED_STATUS, LocalDateTime.now());
+			Set<Long> remaining = new LinkedHashSet<>(ids);
+			history.forEach(h -> remaining.remove(h.getPurchaseId()));
+			notDelivered = remaining.isEmpty() ? List.of() : this.purchaseRepository.findAllById(remaining);
+		} else {
+			history = this.purchaseRepository.updateGroupStatusWithHistory(manifest.getDeliveryGroup(), WAITING_DELIVERY_STATUS,
+					DELIVERED_STATUS, LocalDateTime.now());
+			Set<Long> deliveredIds = new HashSet<>();
+			history.forEach(h -> deliveredIds.add(h.getPurchaseId()));
+			notDelivered = this.purchaseRepository.findByDeliveryGroup(manifest.getDeliveryGroup()).stream()
+					.filter(p -> !deliveredIds.contains(p.getId()))
+					.toList();
+		}
+
+		List<Long> delivered = new ArrayList<>(history.size());
+		for (PurchaseHistory event : history) {
+			delivered.add(event.getPurchaseId());
+			this.purchaseTimelineCache.append(event);
+		}
+
+		Map<Long, String> wrongStatus = new LinkedHashMap<>();
+		notDelivered.forEach(p -> wrongStatus.put(p.getId(), p.getStatus()));
+
+		List<Long> notFound = new ArrayList<>();
+		if (ids != null) {
+			Set<Long> deliveredIds = new HashSet<>(delivered);
+			for (Long id : ids) {
+				if (!deliveredIds.contains(id) && !wrongStatus.containsKey(id)) notFound.add(id);
+			}
+		} else if (delivered.isEmpty() && wrongStatus.isEmpty()) {
+			throw new EntityNotFoundException(DELIVERY_GROUP_NOT_FOUND);
+		}
+
+		return new DeliveryManifestResult(delivered, wrongStatus, notFound);
+	}
+
+	//The purchases claimed by a chunk, the groups created and the history written
+	private record DispatchedChunk(int claimed, List<DeliveryGroup> groups, List<PurchaseHistory> history) {
 	}
 }
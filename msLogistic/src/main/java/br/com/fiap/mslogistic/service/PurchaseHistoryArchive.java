@@ -0,0 +1,283 @@
+package br.com.fiap.mslogistic.service;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//Months of purchase history moved out of the database. Each month is a gzip CSV sorted by purchase id, with a .meta
+//file holding the range of purchase ids, so a lookup only opens the files that may contain the purchase.
+//The data file is a series of gzip members of about INDEX_INTERVAL rows, each starting with a new purchase. The .meta
+//keeps the first purchase id and the offset of each member, a lookup seeks to its member instead of reading the month
+//from the start.
+//The directory must be shared by all the instances (the logistic_archive volume in compose.yaml): the month is archived
+//by one of them and its partition dropped, so the others find it again here. The .meta files are listed again every
+//archive-refresh milliseconds, only the new or replaced ones are read.
+@Component
+public class PurchaseHistoryArchive {
+	private static final String FILE_PREFIX = "purchase_history_";
+	private static final String DATA_SUFFIX = ".csv.gz";
+	private static final String META_SUFFIX = ".meta";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final String HEADER = "id;purchase_id;status;status_date";
+	private static final int INDEX_INTERVAL = 4096;
+
+	private final Path directory;
+	private volatile Archived archived = new Archived(List.of(), Long.MIN_VALUE);
+
+	public PurchaseHistoryArchive(@Value("${logistic.history.archive-dir}") String directory) throws IOException {
+		this.directory = Path.of(directory);
+		Files.createDirectories(this.directory);
+		refresh();
+	}
+
+	//Rows of the archived months, ordered by status date. The purchases newer than every archived month, most of the
+	//lookups, don't go through the files.
+	public List<PurchaseHistory> findByPurchaseId(Long purchaseId) {
+		Archived current = archived;
+		if (purchaseId > current.maxPurchaseId()) return List.of();
+
+		List<PurchaseHistory> history = new ArrayList<>();
+		for (ArchiveFile file : current.files()) {
+			if (purchaseId < file.minPurchaseId() || purchaseId > file.maxPurchaseId()) continue;
+
+			long offset = file.offsetOf(purchaseId);
+			try (BufferedReader reader = open(file.data(), offset)) {
+				if (offset == 0) reader.readLine(); //Header
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] fields = line.split(";", -1);
+					long rowPurchaseId = Long.parseLong(fields[1]);
+					if (rowPurchaseId > purchaseId) break; //Sorted by purchase id
+					if (rowPurchaseId < purchaseId) continue;
+
+					PurchaseHistory row = new PurchaseHistory();
+					row.setId(Long.valueOf(fields[0]));
+					row.setPurchaseId(rowPurchaseId);
+					row.setStatus(fields[2]);
+					row.setStatusDate(LocalDateTime.parse(fields[3]));
+					history.add(row);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException("Error reading archive " + file.data(), e);
+			}
+		}
+		return history;
+	}
+
+	//The rows must be appended sorted by purchase id. Nothing is visible to the lookups before publish().
+	public MonthWriter openMonth(YearMonth month) throws IOException {
+		return new MonthWriter(month);
+	}
+
+	public class MonthWriter implements Closeable {
+		private final YearMonth month;
+		private final Path data;
+		private final Path tempData;
+		private final CountingOutputStream file;
+		private final StringBuilder index = new StringBuilder();
+		private GZIPOutputStream member;
+		private long memberRows;
+		private long rows;
+		private long minPurchaseId = Long.MAX_VALUE;
+		private long maxPurchaseId = Long.MIN_VALUE;
+		private boolean published;
+
+		private MonthWriter(YearMonth month) throws IOException {
+			this.month = month;
+			this.data = directory.resolve(FILE_PREFIX + month + DATA_SUFFIX);
+			this.tempData = directory.resolve(data.getFileName() + TEMP_SUFFIX);
+			this.file = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tempData), 64 * 1024));
+			this.member = new GZIPOutputStream(file, 64 * 1024);
+			write(HEADER + "\n");
+		}
+
+		//A member only ends between two purchases, so all the rows of a purchase are in the member found by the index
+		public void append(long id, long purchaseId, String status, LocalDateTime statusDate) throws IOException {
+			if (rows == 0 || (memberRows >= INDEX_INTERVAL && purchaseId != maxPurchaseId)) {
+				long offset = 0;
+				if (rows > 0) {
+					member.finish();
+					offset = file.count(); //Before the header of the new member
+					member = new GZIPOutputStream(file, 64 * 1024);
+					memberRows = 0;
+				}
+				if (!index.isEmpty()) index.append(',');
+				index.append(purchaseId).append(':').append(offset);
+			}
+
+			write(id + ";" + purchaseId + ";" + status + ";" + statusDate + "\n");
+			memberRows++;
+			rows++;
+			minPurchaseId = Math.min(minPurchaseId, purchaseId);
+			maxPurchaseId = Math.max(maxPurchaseId, purchaseId);
+		}
+
+		private void write(String line) throws IOException {
+			member.write(line.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		//The data file is renamed before the .meta is written, the .meta marks the month as complete
+		public void publish() throws IOException {
+			member.close();
+			Files.move(tempData, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			Path meta = directory.resolve(FILE_PREFIX + month + META_SUFFIX);
+			Path tempMeta = directory.resolve(meta.getFileName() + TEMP_SUFFIX);
+			Properties properties = new Properties();
+			properties.setProperty("month", month.toString());
+			properties.setProperty("rows", String.valueOf(rows));
+			properties.setProperty("minPurchaseId", String.valueOf(minPurchaseId));
+			properties.setProperty("maxPurchaseId", String.valueOf(maxPurchaseId));
+			properties.setProperty("index", index.toString());
+			try (Writer metaWriter = Files.newBufferedWriter(tempMeta, StandardCharsets.UTF_8)) {
+				properties.store(metaWriter, null);
+			}
+			Files.move(tempMeta, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			refresh();
+			published = true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (published) return;
+			member.close();
+			Files.deleteIfExists(tempData);
+		}
+	}
+
+	//Months archived by another instance. Until then the lookups of this instance may miss the month, its partition is
+	//only dropped by the daily maintenance.
+	@Scheduled(fixedDelayString = "${logistic.history.archive-refresh}", initialDelayString = "${logistic.history.archive-refresh}")
+	public void refreshArchive() {
+		try {
+			refresh();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error listing archive " + directory, e);
+		}
+	}
+
+	//Only the months with a .meta file were archived completely. A .meta is read again when it was replaced.
+	private synchronized void refresh() throws IOException {
+		Map<Path, ArchiveFile> known = new HashMap<>();
+		for (ArchiveFile file : archived.files()) known.put(file.meta(), file);
+
+		List<ArchiveFile> refreshed = new ArrayList<>();
+		try (DirectoryStream<Path> metas = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + META_SUFFIX)) {
+			for (Path meta : metas) {
+				FileTime modified = Files.getLastModifiedTime(meta);
+				ArchiveFile file = known.get(meta);
+				refreshed.add(file != null && file.metaModified().equals(modified) ? file : readMeta(meta, modified));
+			}
+		}
+		refreshed.sort(Comparator.comparing(ArchiveFile::month));
+		long maxPurchaseId = refreshed.stream().mapToLong(ArchiveFile::maxPurchaseId).max().orElse(Long.MIN_VALUE);
+		archived = new Archived(List.copyOf(refreshed), maxPurchaseId);
+	}
+
+	private ArchiveFile readMeta(Path meta, FileTime modified) throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+
+		//The months archived before the index are read from the start
+		String[] entries = properties.getProperty("index", "").split(",");
+		int size = entries[0].isEmpty() ? 0 : entries.length;
+		long[] indexPurchaseIds = new long[size];
+		long[] indexOffsets = new long[size];
+		for (int i = 0; i < size; i++) {
+			String[] entry = entries[i].split(":");
+			indexPurchaseIds[i] = Long.parseLong(entry[0]);
+			indexOffsets[i] = Long.parseLong(entry[1]);
+		}
+
+		YearMonth month = YearMonth.parse(properties.getProperty("month"));
+		return new ArchiveFile(month, meta, modified,
+				directory.resolve(FILE_PREFIX + month + DATA_SUFFIX),
+				Long.parseLong(properties.getProperty("rows")),
+				Long.parseLong(properties.getProperty("minPurchaseId")),
+				Long.parseLong(properties.getProperty("maxPurchaseId")),
+				indexPurchaseIds, indexOffsets);
+	}
+
+	//GZIPInputStream goes on with the next members, the lookup stops after the rows of its purchase
+	private static BufferedReader open(Path data, long offset) throws IOException {
+		FileChannel channel = FileChannel.open(data).position(offset);
+		return new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Channels.newInputStream(channel), 64 * 1024), StandardCharsets.UTF_8));
+	}
+
+	private record Archived(List<ArchiveFile> files, long maxPurchaseId) {
+	}
+
+	private record ArchiveFile(YearMonth month, Path meta, FileTime metaModified, Path data, long rows, long minPurchaseId,
+			long maxPurchaseId, long[] indexPurchaseIds, long[] indexOffsets) {
+		//Offset of the last member starting at or before the purchase
+		long offsetOf(long purchaseId) {
+			int position = Arrays.binarySearch(indexPurchaseIds, purchaseId);
+			if (position < 0) position = -position - 2;
+			return position < 0 ? 0 : indexOffsets[position];
+		}
+	}
+
+	//Offset in the data file where the next gzip member starts
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		long count() {
+			return count;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package br.com.fiap.mslogistic.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.time.YearMonth;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Creates the monthly partitions of purchase_history ahead of time and moves the months older than the retention
+//to the archive. Dropping a whole partition leaves no dead rows to vacuum and no index entries to clean.
+@Slf4j
+@Service
+public class PurchaseHistoryMaintenance {
+	private static final Pattern PARTITION_NAME = Pattern.compile("purchase_history_(\\d{4})_(\\d{2})");
+	private static final int FETCH_SIZE = 1000;
+
+	private static final String FIND_PARTITIONS = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+			"WHERE i.inhparent = 'purchase_history'::regclass ORDER BY c.relname";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final PurchaseHistoryArchive purchaseHistoryArchive;
+	private final int partitionsAhead;
+	private final int retentionMonths;
+
+	public PurchaseHistoryMaintenance(JdbcTemplate jdbcTemplate,
+			PlatformTransactionManager transactionManager,
+			PurchaseHistoryArchive purchaseHistoryArchive,
+			@Value("${logistic.history.partitions-ahead}") int partitionsAhead,
+			@Value("${logistic.history.retention-months}") int retentionMonths) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.purchaseHistoryArchive = purchaseHistoryArchive;
+		this.partitionsAhead = partitionsAhead;
+		this.retentionMonths = retentionMonths;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void createPartitions() {
+		YearMonth month = YearMonth.now();
+		for (int i = 0; i <= partitionsAhead; i++) {
+			createPartition(month.plusMonths(i));
+		}
+	}
+
+	@Scheduled(cron = "${logistic.history.maintenance-cron}")
+	public void maintain() {
+		createPartitions();
+		archivePartitions();
+	}
+
+	public void archivePartitions() {
+		YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+
+		for (String partition : jdbcTemplate.queryForList(FIND_PARTITIONS, String.class)) {
+			Matcher matcher = PARTITION_NAME.matcher(partition);
+			if (!matcher.matches()) continue; //The default partition is never archived
+
+			YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+			if (month.isBefore(oldestKept)) {
+				try {
+					archivePartition(partition, month);
+				} catch (RuntimeException e) {
+					log.error("Error archiving partition {}", partition, e);
+				}
+			}
+		}
+	}
+
+	//The partition is only dropped after the file of the month is complete. If the drop fails the month is exported
+	//again on the next run, replacing the file.
+	void archivePartition(String partition, YearMonth month) {
+		transactionTemplate.executeWithoutResult(status -> {
+			Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(hashtext('purchase_history_archive'))", Boolean.class);
+			if (!Boolean.TRUE.equals(locked)) return; //Another instance is archiving
+
+			jdbcTemplate.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+
+			try (PurchaseHistoryArchive.MonthWriter writer = purchaseHistoryArchive.openMonth(month)) {
+				jdbcTemplate.query(con -> {
+					PreparedStatement ps = con.prepareStatement("SELECT id, purchase_id, status, status_date FROM " + partition +
+							" ORDER BY purchase_id, status_date, id");
+					ps.setFetchSize(FETCH_SIZE);
+					return ps;
+				}, rs -> {
+					try {
+						writer.append(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getTimestamp(4).toLocalDateTime());
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+				writer.publish();
+				log.info("Purchase history of {} archived: {} rows", month, writer.getRows());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			jdbcTemplate.execute("ALTER TABLE purchase_history DETACH PARTITION " + partition);
+			jdbcTemplate.execute("DROP TABLE " + partition);
+		});
+	}
+
+	private void createPartition(YearMonth month) {
+		String partition = String.format("purchase_history_%d_%02d", month.getYear(), month.getMonthValue());
+		try {
+			jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF purchase_history " +
+					"FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+		} catch (DataAccessException e) {
+			//Rows of this month already in the default partition, they stay there until moved by hand
+			log.warn("Partition {} not created: {}", partition, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package br.com.fiap.mslogistic.service;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+//Timelines of the purchases read recently, the least recently read is evicted when the cache is full.
+//New events are appended to the cached timeline, but only the ones saved by this instance: every instance has its own
+//cache, so a timeline is read again from the database timeToLive milliseconds after it was loaded.
+@Component
+public class PurchaseTimelineCache {
+	private static final Comparator<Event> TIMELINE_ORDER = Comparator
+			.comparing(Event::statusDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+			.thenComparing(Event::id, Comparator.nullsLast(Comparator.naturalOrder()));
+
+	private final Map<Long, Timeline> timelines;
+	private final long timeToLive;
+
+	public PurchaseTimelineCache(@Value("${logistic.timeline-cache.max-entries}") int maxEntries,
+			@Value("${logistic.timeline-cache.time-to-live}") long timeToLive) {
+		this.timelines = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Timeline> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+	}
+
+	//Returns null when the timeline isn't cached or has expired
+	public synchronized List<PurchaseHistory> get(Long purchaseId) {
+		Timeline timeline = timelines.get(purchaseId);
+		if (timeline == null || !timeline.loaded) return null;
+
+		if (System.nanoTime() - timeline.loadedAt >= timeToLive) {
+			timelines.remove(purchaseId);
+			return null;
+		}
+		return toHistory(timeline.events);
+	}
+
+	//Called before reading the database, the events appended during the read are kept and merged by endLoad
+	public synchronized void beginLoad(Long purchaseId) {
+		Timeline timeline = timelines.get(purchaseId);
+		if (timeline == null || timeline.loaded) timelines.put(purchaseId, new Timeline()); //An expired one is read again
+	}
+
+	public synchronized List<PurchaseHistory> endLoad(Long purchaseId, List<PurchaseHistory> history) {
+		Timeline timeline = timelines.get(purchaseId);
+		if (timeline == null) return history; //Evicted during the read
+
+		if (!timeline.loaded) {
+			List<Event> events = new ArrayList<>(history.stream().map(Event::of).toList());
+			for (Event event : timeline.events) {
+				if (!contains(events, event.id())) events.add(event);
+			}
+			events.sort(TIMELINE_ORDER);
+			timeline.events = List.copyOf(events);
+			timeline.loaded = true;
+			timeline.loadedAt = System.nanoTime();
+		}
+
+		//A purchase without history isn't kept, unknown ids would take the place of the real timelines
+		if (timeline.events.isEmpty()) timelines.remove(purchaseId);
+		return toHistory(timeline.events);
+	}
+
+	//Only the timelines already cached or being read are changed
+	public synchronized void append(PurchaseHistory history) {
+		Timeline timeline = timelines.get(history.getPurchaseId());
+		if (timeline == null || contains(timeline.events, history.getId())) return;
+
+		List<Event> events = new ArrayList<>(timeline.events);
+		events.add(Event.of(history));
+		events.sort(TIMELINE_ORDER);
+		timeline.events = List.copyOf(events);
+	}
+
+	private static boolean contains(List<Event> events, Long id) {
+		for (Event e : events) {
+			if (Objects.equals(e.id(), id)) return true;
+		}
+		return false;
+	}
+
+	//Every caller gets its own entities, a change made to them doesn't reach the cache
+	private static List<PurchaseHistory> toHistory(List<Event> events) {
+		return events.stream().map(Event::toHistory).toList();
+	}
+
+	//Copy of a saved PurchaseHistory, the entity itself is mutable
+	private record Event(Long id, Long purchaseId, String status, LocalDateTime statusDate) {
+		static Event of(PurchaseHistory history) {
+			return new Event(history.getId(), history.getPurchaseId(), history.getStatus(), history.getStatusDate());
+		}
+
+		PurchaseHistory toHistory() {
+			PurchaseHistory history = new PurchaseHistory();
+			history.setId(id);
+			history.setPurchaseId(purchaseId);
+			history.setStatus(status);
+			history.setStatusDate(statusDate);
+			return history;
+		}
+	}
+
+	private static class Timeline {
+		private List<Event> events = List.of();
+		private boolean loaded;
+		private long loadedAt;
+	}
+}
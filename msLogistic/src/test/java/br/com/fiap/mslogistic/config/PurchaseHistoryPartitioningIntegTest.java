@@ -0,0 +1,82 @@
+package br.com.fiap.mslogistic.config;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.Rollback;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//The purchase_history of the test database is already partitioned. The conversion runs on a plain purchase_history
+//created in a schema of its own, which the rollback drops with everything the conversion created.
+@SpringBootTest
+@Transactional
+@Rollback
+class PurchaseHistoryPartitioningIntegTest {
+	private static final String FIND_PARTITIONS = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+			"WHERE i.inhparent = 'purchase_history'::regclass";
+
+	@Autowired
+	private PurchaseHistoryPartitioning purchaseHistoryPartitioning;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setup() {
+		jdbcTemplate.execute("CREATE SCHEMA partitioning_test");
+		jdbcTemplate.execute("SET LOCAL search_path TO partitioning_test");
+		jdbcTemplate.execute("CREATE TABLE purchase_history (id bigserial PRIMARY KEY, purchase_id bigint NOT NULL, " +
+				"status varchar(20) NOT NULL, status_date timestamp(6))");
+	}
+
+	@Test
+	void allowConvertTable_KeepingTheRows() {
+		//Arrange
+		jdbcTemplate.execute("INSERT INTO purchase_history (id, purchase_id, status, status_date) VALUES " +
+				"(1, 10, 'AGUARDANDO PAGAMENTO', '2024-04-30 23:00:00'), " +
+				"(2, 10, 'PAGO', '2024-05-01 01:00:00'), " +
+				"(3, 10, 'PAGO', '2024-05-01 01:00:00'), " + //Written twice before the event key
+				"(4, 20, 'AGUARDANDO PAGAMENTO', NULL)");
+
+		//Act
+		purchaseHistoryPartitioning.afterPropertiesSet();
+		purchaseHistoryPartitioning.afterPropertiesSet(); //Another instance starting
+
+		//Assert
+		assertThat(jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE oid = 'purchase_history'::regclass", String.class))
+				.isEqualTo("p");
+		assertThat(jdbcTemplate.queryForList(FIND_PARTITIONS, String.class)).containsExactlyInAnyOrder(
+				"purchase_history_default", "purchase_history_2024_04", "purchase_history_2024_05",
+				"purchase_history_" + YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy_MM")));
+
+		List<Object[]> rows = jdbcTemplate.query("SELECT id, purchase_id, status FROM purchase_history ORDER BY id",
+				(rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getString(3)});
+		assertThat(rows).extracting(r -> r[0], r -> r[1], r -> r[2]).containsExactly(
+				tuple(1L, 10L, "AGUARDANDO PAGAMENTO"), tuple(2L, 10L, "PAGO"), tuple(4L, 20L, "AGUARDANDO PAGAMENTO"));
+		assertThat(jdbcTemplate.queryForObject("INSERT INTO purchase_history (purchase_id, status, status_date) " +
+				"VALUES (30, 'PAGO', '2024-05-02 00:00:00') RETURNING id", Long.class)).isEqualTo(5L);
+	}
+
+	@Test
+	void allowCreateTable_WhenThereIsNone() {
+		//Arrange
+		jdbcTemplate.execute("DROP TABLE purchase_history");
+
+		//Act
+		purchaseHistoryPartitioning.afterPropertiesSet();
+
+		//Assert
+		assertThat(jdbcTemplate.queryForList(FIND_PARTITIONS, String.class)).containsExactly("purchase_history_default");
+		assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('purchase_history_event_idx')::text", String.class))
+				.isEqualTo("purchase_history_event_idx");
+	}
+}
@@ -1,6 +1,9 @@
 package br.com.fiap.mslogistic.controller;
 
 import br.com.fiap.mslogistic.controller.exception.ControllerExceptionHandler;
+import br.com.fiap.mslogistic.entity.DeliveryGroup;
+import br.com.fiap.mslogistic.entity.DeliveryManifest;
+import br.com.fiap.mslogistic.entity.DeliveryManifestResult;
 import br.com.fiap.mslogistic.entity.Purchase;
 import br.com.fiap.mslogistic.entity.PurchaseHistory;
 import br.com.fiap.mslogistic.service.LogisticService;
@@ -14,11 +17,13 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.List;
+import java.util.Map;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -83,16 +88,15 @@ public class LogisticControllerUnitTest {
 		@Test
 		void allowDispatchPurchases() throws Exception{
 			//Arrange
-			String status = "AGUARDANDO ENTREGA";
-			Purchase p1 = PurchaseUtils.createFakePurchase(1L, status);
-			Purchase p2 = PurchaseUtils.createFakePurchase(2L, status);
-			List<Purchase> purchaseList = List.of(p1, p2);
-			when(logisticService.dispatchPurchases()).thenReturn(purchaseList);
+			DeliveryGroup g1 = new DeliveryGroup("20240501000000001", "12", 150, List.of(1L, 2L));
+			DeliveryGroup g2 = new DeliveryGroup("20240501000000002", "13", 80, List.of(3L));
+			List<DeliveryGroup> groups = List.of(g1, g2);
+			when(logisticService.dispatchPurchases()).thenReturn(groups);
 
 			//Act && Assert
 			mockMvc.perform(put("/logistic/dispatchPurchases")
 					).andExpect(status().isOk())
-					.andExpect(MockMvcResultMatchers.content().json(PurchaseUtils.asJsonString(purchaseList)));
+					.andExpect(MockMvcResultMatchers.content().json(PurchaseUtils.asJsonString(groups)));
 			verify(logisticService, times(1)).dispatchPurchases();
 		}
 	}
@@ -139,4 +143,37 @@ public class LogisticControllerUnitTest {
 			verify(logisticService, times(1)).deliveryPurchase(any(Long.class));
 		}
 	}
+
+	@Nested
+	class DeliveryPurchases{
+		@Test
+		void allowDeliveryPurchases() throws Exception{
+			//Arrange
+			DeliveryManifest manifest = new DeliveryManifest(List.of(1L, 2L, 3L), null);
+			DeliveryManifestResult result = new DeliveryManifestResult(List.of(1L), Map.of(2L, "PAGO"), List.of(3L));
+			when(logisticService.deliveryPurchases(any(DeliveryManifest.class))).thenReturn(result);
+
+			//Act && Assert
+			mockMvc.perform(put("/logistic/deliveryPurchases")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(PurchaseHistoryUtils.asJsonString(manifest))
+					).andExpect(status().isOk())
+					.andExpect(MockMvcResultMatchers.jsonPath("$.delivered[0]").value(1))
+					.andExpect(MockMvcResultMatchers.jsonPath("$.wrongStatus.2").value("PAGO"))
+					.andExpect(MockMvcResultMatchers.jsonPath("$.notFound[0]").value(3));
+			verify(logisticService, times(1)).deliveryPurchases(any(DeliveryManifest.class));
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenDeliveryPurchases() throws Exception{
+			//Arrange
+			when(logisticService.deliveryPurchases(any(DeliveryManifest.class))).thenThrow(DataIntegrityViolationException.class);
+
+			//Act && Assert
+			mockMvc.perform(put("/logistic/deliveryPurchases")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(PurchaseHistoryUtils.asJsonString(new DeliveryManifest()))
+					).andExpect(status().isBadRequest());
+		}
+	}
 }
@@ -0,0 +1,57 @@
+package br.com.fiap.mslogistic.function;
+
+import br.com.fiap.mslogistic.service.LogisticService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+//The functions called by msSales stay on /api while saveHistories is bound to the broker
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PurchaseHistoryConsumerIntegTest {
+	private static final String HISTORY = "{\"purchaseId\":1,\"status\":\"PAGO\",\"statusDate\":\"10/05/2024 14:30:15\"}";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private LogisticService logisticService;
+
+	@Test
+	void allowSaveHistory() throws Exception {
+		//Act
+		MvcResult result = perform(post("/api/saveHistory").contentType(MediaType.APPLICATION_JSON).content(HISTORY));
+
+		//Assert
+		assertThat(result.getResponse().getStatus()).isBetween(200, 299);
+		verify(logisticService, times(1)).createPurchaseHistory(argThat(h -> h.getPurchaseId() == 1L && h.getStatus().equals("PAGO")));
+	}
+
+	@Test
+	void allowSaveHistories() throws Exception {
+		//Act
+		MvcResult result = perform(post("/api/saveHistories").contentType(MediaType.APPLICATION_JSON).content("[" + HISTORY + "]"));
+
+		//Assert
+		assertThat(result.getResponse().getStatus()).isBetween(200, 299);
+		verify(logisticService, times(1)).createPurchaseHistories(anyList());
+	}
+
+	//The function endpoints may answer asynchronously
+	private MvcResult perform(RequestBuilder request) throws Exception {
+		MvcResult result = mockMvc.perform(request).andReturn();
+		return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result;
+	}
+}
@@ -9,9 +9,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Rollback;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -33,7 +35,7 @@ class PurchaseHistoryRepositoryIntegTest {
 		PurchaseHistory savedPh2 = purchaseHistoryRepository.save(ph2);
 		List<PurchaseHistory> purchaseHistory = List.of(savedPh1, savedPh2);
 
-		List<PurchaseHistory> findHistory = purchaseHistoryRepository.findByPurchaseId(purchaseId);
+		List<PurchaseHistory> findHistory = purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(purchaseId);
 
 		//Assert
 		assertThat(findHistory).isNotNull();
@@ -52,4 +54,44 @@ class PurchaseHistoryRepositoryIntegTest {
 		//Assert
 		assertThat(newHistory).isNotNull().isEqualTo(ph1);
 	}
+
+	@Test
+	void allowInsertAll(){
+		//Arrange
+		LocalDateTime statusDate = LocalDateTime.of(2024, 5, 10, 14, 30, 15);
+		PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(100001L, "CANCELADO");
+		ph1.setStatusDate(statusDate);
+		PurchaseHistory ph2 = PurchaseHistoryUtils.createFakePurchaseHistory(100002L, "CANCELADO");
+		ph2.setStatusDate(statusDate.plusSeconds(1));
+
+		//Act
+		List<PurchaseHistory> saved = purchaseHistoryRepository.insertAll(List.of(ph1, ph2));
+		List<PurchaseHistory> findHistory = purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(100002L);
+
+		//Assert
+		assertThat(saved)
+				.extracting(PurchaseHistory::getPurchaseId, PurchaseHistory::getStatus, PurchaseHistory::getStatusDate)
+				.containsExactly(tuple(100001L, "CANCELADO", statusDate), tuple(100002L, "CANCELADO", statusDate.plusSeconds(1)));
+		assertThat(saved).allMatch(h -> h.getId() != null && h.getId() > 0);
+		assertThat(findHistory).extracting(PurchaseHistory::getId).containsExactly(saved.get(1).getId());
+	}
+
+	@Test
+	void allowInsertAll_LeavingOutTheEventsAlreadyWritten(){
+		//Arrange
+		LocalDateTime statusDate = LocalDateTime.of(2024, 5, 11, 9, 0, 0);
+		PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(100003L, "CANCELADO");
+		ph1.setStatusDate(statusDate);
+		PurchaseHistory ph2 = PurchaseHistoryUtils.createFakePurchaseHistory(100004L, "CANCELADO");
+		ph2.setStatusDate(statusDate);
+		purchaseHistoryRepository.insertAll(List.of(ph1));
+
+		//Act
+		List<PurchaseHistory> saved = purchaseHistoryRepository.insertAll(List.of(ph1, ph2, ph2)); // Delivered again
+
+		//Assert
+		assertThat(saved).extracting(PurchaseHistory::getPurchaseId).containsExactly(100004L);
+		assertThat(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(100003L)).hasSize(1);
+		assertThat(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(100004L)).hasSize(1);
+	}
 }
@@ -37,14 +37,14 @@ public class PurchaseHistoryRepositoryUnitTest {
 		PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, 1L, "AGUARDANDO PAGAMENTO");
 		PurchaseHistory ph2 = PurchaseHistoryUtils.createFakePurchaseHistory(2L, 1L, "PAGO");
 		List<PurchaseHistory> purchaseHistory = List.of(ph1, ph2);
-		when(purchaseHistoryRepository.findByPurchaseId(any(Long.class))).thenReturn(purchaseHistory);
+		when(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class))).thenReturn(purchaseHistory);
 
 		//Act
-		List<PurchaseHistory> findHistory = purchaseHistoryRepository.findByPurchaseId(1L);
+		List<PurchaseHistory> findHistory = purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(1L);
 
 		//Assert
 		assertThat(findHistory).isNotNull().isEqualTo(purchaseHistory);
-		verify(purchaseHistoryRepository, times(1)).findByPurchaseId(any(Long.class));
+		verify(purchaseHistoryRepository, times(1)).findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class));
 	}
 
 	@Test
@@ -0,0 +1,61 @@
+package br.com.fiap.mslogistic.service;
+
+import br.com.fiap.mslogistic.entity.RouteStop;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeliveryRouterUnitTest {
+
+	private DeliveryRouter deliveryRouter;
+
+	@BeforeEach
+	void setup(){
+		deliveryRouter = new DeliveryRouter(100, 10, 2, 30);
+	}
+
+	@AfterEach
+	void tearDown() {
+		deliveryRouter.destroy();
+	}
+
+	@Test
+	void allowRouteWithinCapacity() {
+		//Arrange
+		Random random = new Random(42);
+		List<RouteStop> stops = new ArrayList<>();
+		for (long id = 1; id <= 5000; id++) {
+			stops.add(new RouteStop(id, String.format("%05d-000", random.nextInt(100000)), 1 + random.nextInt(20)));
+		}
+
+		//Act
+		List<List<RouteStop>> routes = deliveryRouter.route(stops);
+
+		//Assert
+		assertThat(routes).flatExtracting(r -> r).hasSize(stops.size());
+		assertThat(routes).allSatisfy(route -> {
+			assertThat(route).hasSizeLessThanOrEqualTo(10);
+			assertThat(route.stream().mapToInt(RouteStop::getLoad).sum()).isLessThanOrEqualTo(100);
+			assertThat(route).extracting(s -> DeliveryRouter.region(s.getZipCode())).containsOnly(DeliveryRouter.region(route.get(0).getZipCode()));
+		});
+	}
+
+	@Test
+	void allowRouteOversizedPurchaseAlone() {
+		//Arrange
+		List<RouteStop> stops = List.of(new RouteStop(1L, "01000-000", 150), new RouteStop(2L, "01000-001", 30));
+
+		//Act
+		List<List<RouteStop>> routes = deliveryRouter.route(stops);
+
+		//Assert
+		assertThat(routes).hasSize(2);
+		assertThat(routes).anySatisfy(route -> assertThat(route).extracting(RouteStop::getPurchaseId).containsExactly(1L));
+	}
+}
@@ -1,5 +1,8 @@
 package br.com.fiap.mslogistic.service;
 
+import br.com.fiap.mslogistic.entity.DeliveryGroup;
+import br.com.fiap.mslogistic.entity.DeliveryManifest;
+import br.com.fiap.mslogistic.entity.DeliveryManifestResult;
 import br.com.fiap.mslogistic.entity.Purchase;
 import br.com.fiap.mslogistic.entity.PurchaseHistory;
 import br.com.fiap.mslogistic.repository.PurchaseHistoryRepository;
@@ -16,7 +19,9 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,6 +38,12 @@ public class LogisticServiceIntegTest {
 	@Autowired
 	private LogisticService logisticService;
 
+	@Autowired
+	private PurchaseRepository purchaseRepository;
+
+	@Autowired
+	private PurchaseHistoryRepository purchaseHistoryRepository;
+
 	@Nested
 	class GetHistoryByPurchaseId{
 		@Test
@@ -83,12 +94,17 @@ public class LogisticServiceIntegTest {
 		@Test
 		void allowDispatchPurchases(){
 			//Act
-			List<Purchase> purchases = logisticService.dispatchPurchases();
+			List<DeliveryGroup> groups = logisticService.dispatchPurchases();
 
 			//Assert
-			assertThat(purchases).hasSizeGreaterThan(0);
-			assertThat(purchases.get(0).getDeliveryGroup()).isNotNull();
-			assertThat(purchases.get(0).getStatus()).isEqualTo("AGUARDANDO ENTREGA");
+			assertThat(groups).hasSizeGreaterThan(0);
+			assertThat(groups.get(0).getId()).hasSize(17);
+			assertThat(groups.get(0).getPurchaseIds()).isNotEmpty();
+			assertThat(purchaseRepository.findById(groups.get(0).getPurchaseIds().get(0)))
+					.hasValueSatisfying(p -> {
+						assertThat(p.getDeliveryGroup()).isEqualTo(groups.get(0).getId());
+						assertThat(p.getStatus()).isEqualTo("AGUARDANDO ENTREGA");
+					});
 		}
 	}
 
@@ -126,4 +142,54 @@ public class LogisticServiceIntegTest {
 					.isThrownBy(() -> logisticService.deliveryPurchase(id));
 		}
 	}
+
+	@Nested
+	class DeliveryPurchases{
+		@Test
+		void allowDeliveryPurchases_WithMixedManifest(){
+			//Arrange
+			DeliveryManifest manifest = new DeliveryManifest(List.of(1000003L, 1000001L, 99999999L, 1000003L), null);
+
+			//Act
+			DeliveryManifestResult result = logisticService.deliveryPurchases(manifest);
+
+			//Assert
+			assertThat(result.getDelivered()).containsExactly(1000003L);
+			assertThat(result.getWrongStatus()).containsExactlyEntriesOf(Map.of(1000001L, "PAGO"));
+			assertThat(result.getNotFound()).containsExactly(99999999L);
+
+			assertThat(purchaseRepository.findById(1000003L)).hasValueSatisfying(p -> assertThat(p.getStatus()).isEqualTo("ENTREGUE"));
+			assertThat(purchaseRepository.findById(1000001L)).hasValueSatisfying(p -> assertThat(p.getStatus()).isEqualTo("PAGO"));
+			assertThat(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(1000003L))
+					.extracting(PurchaseHistory::getStatus).containsExactly("AGUARDANDO PAGAMENTO", "PAGO", "AGUARDANDO ENTREGA", "ENTREGUE");
+			assertThat(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(1000001L))
+					.extracting(PurchaseHistory::getStatus).containsExactly("AGUARDANDO PAGAMENTO", "PAGO");
+		}
+
+		@Test
+		void allowDeliveryPurchases_ByDeliveryGroup(){
+			//Act
+			DeliveryManifestResult result = logisticService.deliveryPurchases(new DeliveryManifest(null, "1"));
+
+			//Assert
+			assertThat(result.getDelivered()).containsExactly(1000003L);
+			assertThat(result.getWrongStatus()).containsOnlyKeys(1000000L, 1000001L, 1000002L);
+			assertThat(result.getNotFound()).isEmpty();
+			assertThat(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(1000003L))
+					.extracting(PurchaseHistory::getStatus).endsWith("ENTREGUE");
+			assertThat(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(1000002L))
+					.extracting(PurchaseHistory::getStatus).doesNotContain("ENTREGUE");
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenManifestHasNullPurchase(){
+			//Arrange
+			DeliveryManifest manifest = new DeliveryManifest(Arrays.asList(1000003L, null), null);
+
+			//Act && Assert
+			assertThatExceptionOfType(DataIntegrityViolationException.class)
+					.isThrownBy(() -> logisticService.deliveryPurchases(manifest));
+			assertThat(purchaseRepository.findById(1000003L)).hasValueSatisfying(p -> assertThat(p.getStatus()).isEqualTo("AGUARDANDO ENTREGA"));
+		}
+	}
 }
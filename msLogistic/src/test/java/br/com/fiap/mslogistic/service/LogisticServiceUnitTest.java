@@ -1,7 +1,11 @@
 package br.com.fiap.mslogistic.service;
 
+import br.com.fiap.mslogistic.entity.DeliveryGroup;
+import br.com.fiap.mslogistic.entity.DeliveryManifest;
+import br.com.fiap.mslogistic.entity.DeliveryManifestResult;
 import br.com.fiap.mslogistic.entity.Purchase;
 import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import br.com.fiap.mslogistic.entity.RouteStop;
 import br.com.fiap.mslogistic.repository.PurchaseHistoryRepository;
 import br.com.fiap.mslogistic.repository.PurchaseRepository;
 import br.com.fiap.mslogistic.utils.PurchaseHistoryUtils;
@@ -11,13 +15,23 @@ import org.junit.jupiter.api.*;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class LogisticServiceUnitTest {
@@ -30,16 +44,30 @@ public class LogisticServiceUnitTest {
 	@Mock
 	private PurchaseHistoryRepository purchaseHistoryRepository;
 
+	@Mock
+	private PurchaseHistoryArchive purchaseHistoryArchive;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private PurchaseTimelineCache purchaseTimelineCache;
+
+	private DeliveryRouter deliveryRouter;
+
 	AutoCloseable openMocks;
 
 	@BeforeEach
 	void setup(){
 		openMocks = MockitoAnnotations.openMocks(this);
-		logisticService = new LogisticService(purchaseRepository, purchaseHistoryRepository);
+		purchaseTimelineCache = new PurchaseTimelineCache(100, 60000);
+		deliveryRouter = new DeliveryRouter(200, 40, 1, 30);
+		logisticService = new LogisticService(purchaseRepository, purchaseHistoryRepository, purchaseTimelineCache,
+				purchaseHistoryArchive, deliveryRouter, transactionManager, 1000);
 	}
 
 	@AfterEach
 	void tearDown() throws Exception {
+		deliveryRouter.destroy();
 		openMocks.close();
 	}
 
@@ -52,26 +80,81 @@ public class LogisticServiceUnitTest {
 			PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(purchaseId, "AGUARDANDO PAGAMENTO");
 			PurchaseHistory ph2 = PurchaseHistoryUtils.createFakePurchaseHistory(purchaseId, "PAGO");
 			List<PurchaseHistory> purchaseHistory = List.of(ph1, ph2);
-			when(purchaseHistoryRepository.findByPurchaseId(any(Long.class))).thenReturn(purchaseHistory);
+			when(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class))).thenReturn(purchaseHistory);
 
 			//Act
 			List<PurchaseHistory> findHistory = logisticService.getHistoryByPurchaseId(purchaseId);
 
 			//Assert
 			assertThat(findHistory).isNotNull().isEqualTo(purchaseHistory);
-			verify(purchaseHistoryRepository, times(1)).findByPurchaseId(any(Long.class));
+			verify(purchaseHistoryRepository, times(1)).findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class));
+		}
+
+		@Test
+		void allowGetHistoryByPurchaseId_FromCache() {
+			//Arrange
+			Long purchaseId = 1L;
+			PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, purchaseId, "AGUARDANDO PAGAMENTO");
+			PurchaseHistory ph2 = PurchaseHistoryUtils.createFakePurchaseHistory(2L, purchaseId, "PAGO");
+			when(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class))).thenReturn(List.of(ph1, ph2));
+
+			//Act
+			logisticService.getHistoryByPurchaseId(purchaseId);
+			List<PurchaseHistory> findHistory = logisticService.getHistoryByPurchaseId(purchaseId);
+
+			//Assert
+			assertThat(findHistory).containsExactly(ph1, ph2);
+			verify(purchaseHistoryRepository, times(1)).findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class));
+		}
+
+		@Test
+		void allowGetHistoryByPurchaseId_WithArchivedHistory() {
+			//Arrange
+			Long purchaseId = 1L;
+			PurchaseHistory archived = PurchaseHistoryUtils.createFakePurchaseHistory(1L, purchaseId, "AGUARDANDO PAGAMENTO");
+			archived.setStatusDate(archived.getStatusDate().minusYears(1));
+			PurchaseHistory current = PurchaseHistoryUtils.createFakePurchaseHistory(2L, purchaseId, "ENTREGUE");
+			when(purchaseHistoryArchive.findByPurchaseId(any(Long.class))).thenReturn(List.of(archived));
+			when(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class))).thenReturn(List.of(current));
+
+			//Act
+			List<PurchaseHistory> findHistory = logisticService.getHistoryByPurchaseId(purchaseId);
+
+			//Assert
+			assertThat(findHistory).containsExactly(archived, current);
+			verify(purchaseHistoryArchive, times(1)).findByPurchaseId(purchaseId);
+		}
+
+		@Test
+		void allowGetHistoryByPurchaseId_WithMonthArchivedAndNotDropped() {
+			//Arrange
+			Long purchaseId = 1L;
+			PurchaseHistory archived = PurchaseHistoryUtils.createFakePurchaseHistory(1L, purchaseId, "AGUARDANDO PAGAMENTO");
+			archived.setStatusDate(archived.getStatusDate().minusYears(1));
+			PurchaseHistory notDropped = PurchaseHistoryUtils.createFakePurchaseHistory(1L, purchaseId, "AGUARDANDO PAGAMENTO");
+			notDropped.setStatusDate(archived.getStatusDate());
+			PurchaseHistory current = PurchaseHistoryUtils.createFakePurchaseHistory(2L, purchaseId, "ENTREGUE");
+			when(purchaseHistoryArchive.findByPurchaseId(any(Long.class))).thenReturn(List.of(archived));
+			when(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class)))
+					.thenReturn(List.of(notDropped, current));
+
+			//Act
+			List<PurchaseHistory> findHistory = logisticService.getHistoryByPurchaseId(purchaseId);
+
+			//Assert
+			assertThat(findHistory).extracting(PurchaseHistory::getId).containsExactly(1L, 2L);
 		}
 
 		@Test
 		void shouldThrowEntityNotFoundException_WhenGetHistoryByPurchaseId() {
 			//Arrange
 			Long purchaseId = 1L;
-			when(purchaseHistoryRepository.findByPurchaseId(any(Long.class))).thenReturn(List.of());
+			when(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class))).thenReturn(List.of());
 
 			//Act && Assert
 			assertThatExceptionOfType(EntityNotFoundException.class)
 				.isThrownBy(() -> logisticService.getHistoryByPurchaseId(purchaseId));
-			verify(purchaseHistoryRepository, times(1)).findByPurchaseId(any(Long.class));
+			verify(purchaseHistoryRepository, times(1)).findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class));
 		}
 	}
 
@@ -81,14 +164,47 @@ public class LogisticServiceUnitTest {
 		void allowCreatePurchaseHistory(){
 			//Arrange
 			PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, "AGUARDANDO PAGAMENTO");
-			when(purchaseHistoryRepository.save(any(PurchaseHistory.class))).thenAnswer(p -> p.getArgument(0));
+			PurchaseHistory saved = PurchaseHistoryUtils.createFakePurchaseHistory(10L, 1L, "AGUARDANDO PAGAMENTO");
+			when(purchaseHistoryRepository.insertAll(anyList())).thenReturn(List.of(saved));
 
 			//Act
 			PurchaseHistory savedHistory = logisticService.createPurchaseHistory(ph1);
 
 			//Assert
-			assertThat(savedHistory).isNotNull().isEqualTo(ph1);
-			verify(purchaseHistoryRepository, times(1)).save(any(PurchaseHistory.class));
+			assertThat(savedHistory).isNotNull().isEqualTo(saved);
+			verify(purchaseHistoryRepository, times(1)).insertAll(List.of(ph1));
+		}
+
+		@Test
+		void allowCreatePurchaseHistory_AlreadyWritten(){
+			//Arrange
+			PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, "PAGO");
+			when(purchaseHistoryRepository.insertAll(anyList())).thenReturn(List.of()); // Delivered again
+
+			//Act
+			PurchaseHistory savedHistory = logisticService.createPurchaseHistory(ph1);
+
+			//Assert
+			assertThat(savedHistory).isEqualTo(ph1);
+			assertThat(savedHistory.getId()).isNull();
+		}
+
+		@Test
+		void allowCreatePurchaseHistories(){
+			//Arrange
+			PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, "CANCELADO");
+			PurchaseHistory ph2 = PurchaseHistoryUtils.createFakePurchaseHistory(2L, "CANCELADO");
+			PurchaseHistory saved1 = PurchaseHistoryUtils.createFakePurchaseHistory(10L, 1L, "CANCELADO");
+			PurchaseHistory saved2 = PurchaseHistoryUtils.createFakePurchaseHistory(11L, 2L, "CANCELADO");
+			when(purchaseHistoryRepository.insertAll(anyList())).thenReturn(List.of(saved1, saved2));
+
+			//Act
+			List<PurchaseHistory> savedHistory = logisticService.createPurchaseHistories(List.of(ph1, ph2));
+
+			//Assert
+			assertThat(savedHistory).containsExactly(saved1, saved2);
+			verify(purchaseHistoryRepository, times(1)).insertAll(List.of(ph1, ph2));
+			verify(purchaseHistoryRepository, never()).save(any(PurchaseHistory.class));
 		}
 	}
 
@@ -97,27 +213,70 @@ public class LogisticServiceUnitTest {
 		@Test
 		void allowDispatchPurchases(){
 			//Arrange
-			String status = "PAGO"; //Initial status
-			Purchase p1 = PurchaseUtils.createFakePurchase(1L, status);
-			p1.setDeliveryZipCode("12390-000"); //Different zip code to create a new delivery group
-			Purchase p2 = PurchaseUtils.createFakePurchase(2L, status);
-			p1.setDeliveryZipCode("12380-000"); //Different zip code to create a new delivery group
-			List<Purchase> purchaseList = List.of(p1, p2);
-			when(purchaseRepository.findByStatusOrderByDeliveryZipCode(any(String.class))).thenReturn(purchaseList);
-			when(purchaseRepository.save(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
-			when(purchaseHistoryRepository.save(any(PurchaseHistory.class))).thenAnswer(p -> p.getArgument(0));
+			RouteStop s1 = new RouteStop(1L, "12390-000", 150);
+			RouteStop s2 = new RouteStop(2L, "12380-000", 100);
+			RouteStop s3 = new RouteStop(3L, "12380-100", 40);
+			when(purchaseRepository.claimRouteStops("PAGO", 1000)).thenReturn(List.of(s1, s2, s3));
+			when(purchaseRepository.nextDeliveryGroupNumbers(anyInt())).thenAnswer(c ->
+					LongStream.rangeClosed(1, c.<Integer>getArgument(0)).boxed().toList());
+			when(purchaseRepository.assignDeliveryGroups(anyList(), anyList(), eq("PAGO"), eq("AGUARDANDO ENTREGA"), any(LocalDateTime.class)))
+					.thenAnswer(c -> c.<List<Long>>getArgument(0).stream()
+							.map(id -> PurchaseHistoryUtils.createFakePurchaseHistory(id + 100, id, "AGUARDANDO ENTREGA"))
+							.toList());
+
+			//Act
+			List<DeliveryGroup> groups = logisticService.dispatchPurchases();
+
+			//Assert
+			assertThat(groups).hasSize(2); //The area 1238 takes 140, the 150 of the area 1239 doesn't fit in the same vehicle
+			assertThat(groups).allSatisfy(g -> {
+				assertThat(g.getId()).hasSize(17);
+				assertThat(g.getLoad()).isLessThanOrEqualTo(200);
+				assertThat(g.getRegion()).isEqualTo("12");
+			});
+			assertThat(groups).flatExtracting(DeliveryGroup::getPurchaseIds).containsExactlyInAnyOrder(1L, 2L, 3L);
+			verify(purchaseRepository, times(1)).assignDeliveryGroups(anyList(), anyList(), any(), any(), any());
+			verify(purchaseRepository, never()).save(any(Purchase.class));
+			verify(purchaseHistoryRepository, never()).save(any(PurchaseHistory.class));
+		}
+
+		@Test
+		void allowDispatchPurchases_InChunks(){
+			//Arrange
+			logisticService = new LogisticService(purchaseRepository, purchaseHistoryRepository, purchaseTimelineCache,
+					purchaseHistoryArchive, deliveryRouter, transactionManager, 2);
+			when(purchaseRepository.claimRouteStops("PAGO", 2))
+					.thenReturn(List.of(new RouteStop(1L, "12390-000", 1), new RouteStop(2L, "12390-000", 1)))
+					.thenReturn(List.of(new RouteStop(3L, "12390-000", 1)));
+			when(purchaseRepository.nextDeliveryGroupNumbers(1)).thenReturn(List.of(1L)).thenReturn(List.of(2L));
+			when(purchaseRepository.assignDeliveryGroups(anyList(), anyList(), eq("PAGO"), eq("AGUARDANDO ENTREGA"), any(LocalDateTime.class)))
+					.thenAnswer(c -> c.<List<Long>>getArgument(0).stream()
+							.map(id -> PurchaseHistoryUtils.createFakePurchaseHistory(id + 100, id, "AGUARDANDO ENTREGA"))
+							.toList());
 
 			//Act
-			List<Purchase> purchases = logisticService.dispatchPurchases();
+			List<DeliveryGroup> groups = logisticService.dispatchPurchases();
 
 			//Assert
-			assertThat(purchases).hasSize(2);
-			assertThat(purchases.get(0).getDeliveryGroup()).isNotNull();
-			assertThat(purchases.get(0).getStatus()).isEqualTo("AGUARDANDO ENTREGA");
+			assertThat(groups).hasSize(2); //One group per chunk, the second chunk is smaller so there is nothing left
+			assertThat(groups.get(0).getPurchaseIds()).containsExactly(1L, 2L);
+			assertThat(groups.get(1).getPurchaseIds()).containsExactly(3L);
+			assertThat(groups.get(0).getId()).isNotEqualTo(groups.get(1).getId());
+			verify(purchaseRepository, times(2)).claimRouteStops("PAGO", 2);
+			verify(transactionManager, times(2)).commit(any());
+		}
+
+		@Test
+		void allowDispatchPurchases_WithoutPurchases(){
+			//Arrange
+			when(purchaseRepository.claimRouteStops(any(String.class), anyInt())).thenReturn(List.of());
+
+			//Act
+			List<DeliveryGroup> groups = logisticService.dispatchPurchases();
 
-			verify(purchaseRepository, times(1)).findByStatusOrderByDeliveryZipCode(any(String.class));
-			verify(purchaseRepository, times(2)).save(any(Purchase.class));
-			verify(purchaseHistoryRepository, times(2)).save(any(PurchaseHistory.class));
+			//Assert
+			assertThat(groups).isEmpty();
+			verify(purchaseRepository, never()).assignDeliveryGroups(anyList(), anyList(), any(), any(), any());
 		}
 	}
 
@@ -142,6 +301,32 @@ public class LogisticServiceUnitTest {
 			verify(purchaseHistoryRepository, times(1)).save(any(PurchaseHistory.class));
 		}
 
+		@Test
+		void allowDeliveryPurchase_AppendingToCachedTimeline(){
+			//Arrange
+			Long purchaseId = 1L;
+			Purchase purchase = PurchaseUtils.createFakePurchase(purchaseId, "AGUARDANDO ENTREGA");
+			PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, purchaseId, "AGUARDANDO ENTREGA");
+			when(purchaseHistoryRepository.findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class))).thenReturn(List.of(ph1));
+			when(purchaseRepository.findById(any(Long.class))).thenReturn(Optional.of(purchase));
+			when(purchaseRepository.save(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
+			when(purchaseHistoryRepository.save(any(PurchaseHistory.class))).thenAnswer(p -> {
+				PurchaseHistory history = p.getArgument(0);
+				history.setId(2L);
+				return history;
+			});
+			logisticService.getHistoryByPurchaseId(purchaseId);
+
+			//Act
+			logisticService.deliveryPurchase(purchaseId);
+			List<PurchaseHistory> findHistory = logisticService.getHistoryByPurchaseId(purchaseId);
+
+			//Assert
+			assertThat(findHistory).hasSize(2);
+			assertThat(findHistory.get(1).getStatus()).isEqualTo("ENTREGUE");
+			verify(purchaseHistoryRepository, times(1)).findByPurchaseIdOrderByStatusDateAscIdAsc(any(Long.class));
+		}
+
 		@Test
 		void shouldThrowEntityNotFoundException_WhenDeliveryPurchase(){
 			//Arrange
@@ -171,4 +356,78 @@ public class LogisticServiceUnitTest {
 			verify(purchaseHistoryRepository, never()).save(any(PurchaseHistory.class));
 		}
 	}
+
+	@Nested
+	class DeliveryPurchases{
+		@Test
+		void allowDeliveryPurchases_ByIds(){
+			//Arrange
+			PurchaseHistory delivered = PurchaseHistoryUtils.createFakePurchaseHistory(10L, 1L, "ENTREGUE");
+			Purchase paid = PurchaseUtils.createFakePurchase(2L, "PAGO");
+			when(purchaseRepository.updateStatusWithHistory(anyCollection(), eq("AGUARDANDO ENTREGA"), eq("ENTREGUE"), any(LocalDateTime.class)))
+					.thenReturn(List.of(delivered));
+			when(purchaseRepository.findAllById(anyIterable())).thenReturn(List.of(paid));
+
+			//Act
+			DeliveryManifestResult result = logisticService.deliveryPurchases(new DeliveryManifest(List.of(1L, 2L, 3L, 1L), null));
+
+			//Assert
+			assertThat(result.getDelivered()).containsExactly(1L);
+			assertThat(result.getWrongStatus()).containsExactly(entry(2L, "PAGO"));
+			assertThat(result.getNotFound()).containsExactly(3L);
+			verify(purchaseRepository, times(1)).updateStatusWithHistory(anyCollection(), any(), any(), any());
+			verify(purchaseRepository, never()).save(any(Purchase.class));
+			verify(purchaseHistoryRepository, never()).save(any(PurchaseHistory.class));
+		}
+
+		@Test
+		void allowDeliveryPurchases_ByDeliveryGroup(){
+			//Arrange
+			String deliveryGroup = "20240501120000000";
+			PurchaseHistory delivered = PurchaseHistoryUtils.createFakePurchaseHistory(10L, 1L, "ENTREGUE");
+			Purchase deliveredPurchase = PurchaseUtils.createFakePurchase(1L, "ENTREGUE");
+			Purchase canceled = PurchaseUtils.createFakePurchase(2L, "CANCELADO");
+			when(purchaseRepository.updateGroupStatusWithHistory(eq(deliveryGroup), any(), any(), any(LocalDateTime.class)))
+					.thenReturn(List.of(delivered));
+			when(purchaseRepository.findByDeliveryGroup(deliveryGroup)).thenReturn(List.of(deliveredPurchase, canceled));
+
+			//Act
+			DeliveryManifestResult result = logisticService.deliveryPurchases(new DeliveryManifest(null, deliveryGroup));
+
+			//Assert
+			assertThat(result.getDelivered()).containsExactly(1L);
+			assertThat(result.getWrongStatus()).containsExactly(entry(2L, "CANCELADO"));
+			assertThat(result.getNotFound()).isEmpty();
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenDeliveryGroupNotFound(){
+			//Arrange
+			when(purchaseRepository.updateGroupStatusWithHistory(any(), any(), any(), any())).thenReturn(List.of());
+			when(purchaseRepository.findByDeliveryGroup(any(String.class))).thenReturn(List.of());
+
+			//Act && Assert
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> logisticService.deliveryPurchases(new DeliveryManifest(null, "20240501120000000")));
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenManifestIsInvalid(){
+			//Act && Assert
+			assertThatExceptionOfType(DataIntegrityViolationException.class)
+					.isThrownBy(() -> logisticService.deliveryPurchases(new DeliveryManifest(List.of(1L), "20240501120000000")));
+			assertThatExceptionOfType(DataIntegrityViolationException.class)
+					.isThrownBy(() -> logisticService.deliveryPurchases(new DeliveryManifest(null, null)));
+			verify(purchaseRepository, never()).updateStatusWithHistory(anyCollection(), any(), any(), any());
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenManifestHasNullPurchase(){
+			//Act && Assert
+			assertThatExceptionOfType(DataIntegrityViolationException.class)
+					.isThrownBy(() -> logisticService.deliveryPurchases(new DeliveryManifest(Arrays.asList(1L, null), null)))
+					.withMessage(LogisticService.NULL_PURCHASE_ID);
+			verify(purchaseRepository, never()).updateStatusWithHistory(anyCollection(), any(), any(), any());
+		}
+	}
 }
@@ -0,0 +1,124 @@
+package br.com.fiap.mslogistic.service;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PurchaseHistoryArchiveUnitTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void allowFindArchivedHistory() throws Exception {
+		//Arrange
+		PurchaseHistoryArchive archive = new PurchaseHistoryArchive(directory.toString());
+		LocalDateTime date = LocalDateTime.of(2023, 1, 10, 12, 0);
+		try (PurchaseHistoryArchive.MonthWriter writer = archive.openMonth(YearMonth.of(2023, 1))) {
+			writer.append(1L, 10L, "AGUARDANDO PAGAMENTO", date);
+			writer.append(2L, 10L, "PAGO", date.plusHours(1));
+			writer.append(3L, 20L, "AGUARDANDO PAGAMENTO", date.plusHours(2));
+			writer.publish();
+		}
+
+		//Act
+		List<PurchaseHistory> history = archive.findByPurchaseId(10L);
+		List<PurchaseHistory> reopenedHistory = new PurchaseHistoryArchive(directory.toString()).findByPurchaseId(20L);
+
+		//Assert
+		assertThat(history).extracting(PurchaseHistory::getStatus).containsExactly("AGUARDANDO PAGAMENTO", "PAGO");
+		assertThat(history.get(1).getStatusDate()).isEqualTo(date.plusHours(1));
+		assertThat(reopenedHistory).hasSize(1);
+		assertThat(archive.findByPurchaseId(30L)).isEmpty();
+	}
+
+	@Test
+	void shouldIgnoreMonthNotPublished() throws Exception {
+		//Arrange
+		PurchaseHistoryArchive archive = new PurchaseHistoryArchive(directory.toString());
+		try (PurchaseHistoryArchive.MonthWriter writer = archive.openMonth(YearMonth.of(2023, 2))) {
+			writer.append(1L, 10L, "PAGO", LocalDateTime.now());
+		}
+
+		//Act
+		List<PurchaseHistory> history = new PurchaseHistoryArchive(directory.toString()).findByPurchaseId(10L);
+
+		//Assert
+		assertThat(history).isEmpty();
+		try (var files = Files.list(directory)) {
+			assertThat(files).isEmpty();
+		}
+	}
+
+	@Test
+	void allowFindHistoryArchivedByAnotherInstance() throws Exception {
+		//Arrange
+		PurchaseHistoryArchive archive = new PurchaseHistoryArchive(directory.toString());
+		PurchaseHistoryArchive anotherInstance = new PurchaseHistoryArchive(directory.toString());
+		assertThat(archive.findByPurchaseId(10L)).isEmpty();
+
+		try (PurchaseHistoryArchive.MonthWriter writer = anotherInstance.openMonth(YearMonth.of(2023, 3))) {
+			writer.append(1L, 10L, "PAGO", LocalDateTime.of(2023, 3, 1, 12, 0));
+			writer.publish();
+		}
+		List<PurchaseHistory> beforeRefresh = archive.findByPurchaseId(10L);
+
+		//Act
+		archive.refreshArchive();
+
+		//Assert
+		assertThat(beforeRefresh).isEmpty();
+		assertThat(archive.findByPurchaseId(10L)).extracting(PurchaseHistory::getId).containsExactly(1L);
+	}
+
+	@Test
+	void allowFindHistory_InAnyMemberOfTheIndex() throws Exception {
+		//Arrange
+		PurchaseHistoryArchive archive = new PurchaseHistoryArchive(directory.toString());
+		LocalDateTime date = LocalDateTime.of(2023, 4, 1, 12, 0);
+		long id = 1;
+		try (PurchaseHistoryArchive.MonthWriter writer = archive.openMonth(YearMonth.of(2023, 4))) {
+			for (long purchaseId = 1; purchaseId <= 10000; purchaseId++) {
+				writer.append(id++, purchaseId, "AGUARDANDO PAGAMENTO", date);
+				if (purchaseId % 2 == 0) writer.append(id++, purchaseId, "PAGO", date.plusHours(1));
+			}
+			writer.publish();
+		}
+
+		//Act
+		List<PurchaseHistory> first = archive.findByPurchaseId(1L);
+		List<PurchaseHistory> middle = archive.findByPurchaseId(5000L);
+		List<PurchaseHistory> last = new PurchaseHistoryArchive(directory.toString()).findByPurchaseId(10000L);
+
+		//Assert
+		assertThat(Files.readString(directory.resolve("purchase_history_2023-04.meta"))).containsPattern("index=1\\\\:0,\\d+");
+		assertThat(first).extracting(PurchaseHistory::getStatus).containsExactly("AGUARDANDO PAGAMENTO");
+		assertThat(middle).extracting(PurchaseHistory::getStatus).containsExactly("AGUARDANDO PAGAMENTO", "PAGO");
+		assertThat(last).extracting(PurchaseHistory::getPurchaseId).containsExactly(10000L, 10000L);
+	}
+
+	@Test
+	void shouldSkipTheFiles_WhenThePurchaseIsNewerThanTheArchive() throws Exception {
+		//Arrange
+		PurchaseHistoryArchive archive = new PurchaseHistoryArchive(directory.toString());
+		try (PurchaseHistoryArchive.MonthWriter writer = archive.openMonth(YearMonth.of(2023, 5))) {
+			writer.append(1L, 10L, "PAGO", LocalDateTime.of(2023, 5, 1, 12, 0));
+			writer.publish();
+		}
+		Files.delete(directory.resolve("purchase_history_2023-05.csv.gz")); //Any read would fail
+
+		//Act
+		List<PurchaseHistory> history = archive.findByPurchaseId(11L);
+
+		//Assert
+		assertThat(history).isEmpty();
+	}
+}
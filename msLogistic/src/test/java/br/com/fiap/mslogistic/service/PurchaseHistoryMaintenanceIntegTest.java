@@ -0,0 +1,76 @@
+package br.com.fiap.mslogistic.service;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.Rollback;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@Rollback
+class PurchaseHistoryMaintenanceIntegTest {
+	//A month no other test writes, its partition is created by the test
+	private static final YearMonth MONTH = YearMonth.of(2001, 1);
+	private static final String PARTITION = "purchase_history_2001_01";
+	private static final long PURCHASE_ID = 900101L;
+
+	@Autowired
+	private PurchaseHistoryMaintenance purchaseHistoryMaintenance;
+
+	@Autowired
+	private PurchaseHistoryArchive purchaseHistoryArchive;
+
+	@Autowired
+	private LogisticService logisticService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${logistic.history.archive-dir}")
+	private String archiveDir;
+
+	//The rollback doesn't remove the files of the archive
+	@AfterEach
+	void cleanup() throws IOException {
+		Files.deleteIfExists(Path.of(archiveDir, "purchase_history_" + MONTH + ".meta"));
+		Files.deleteIfExists(Path.of(archiveDir, "purchase_history_" + MONTH + ".csv.gz"));
+		purchaseHistoryArchive.refreshArchive();
+	}
+
+	@Test
+	void allowArchivePartition_DetachingAndDroppingIt() {
+		//Arrange
+		LocalDateTime statusDate = LocalDateTime.of(2001, 1, 10, 12, 0);
+		jdbcTemplate.execute("CREATE TABLE " + PARTITION + " PARTITION OF purchase_history " +
+				"FOR VALUES FROM ('2001-01-01') TO ('2001-02-01')");
+		jdbcTemplate.update("INSERT INTO purchase_history (purchase_id, status, status_date) VALUES (?, ?, ?), (?, ?, ?)",
+				PURCHASE_ID, "AGUARDANDO PAGAMENTO", statusDate, PURCHASE_ID, "PAGO", statusDate.plusHours(1));
+
+		//Act
+		purchaseHistoryMaintenance.archivePartition(PARTITION, MONTH);
+
+		//Assert
+		assertThat(jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, PARTITION)).isNull();
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM purchase_history WHERE purchase_id = ?", Long.class, PURCHASE_ID))
+				.isZero();
+		assertThat(Path.of(archiveDir, "purchase_history_" + MONTH + ".meta")).exists();
+
+		List<PurchaseHistory> history = logisticService.getHistoryByPurchaseId(PURCHASE_ID);
+		assertThat(history).extracting(PurchaseHistory::getStatus).containsExactly("AGUARDANDO PAGAMENTO", "PAGO");
+		assertThat(history).extracting(PurchaseHistory::getStatusDate).containsExactly(statusDate, statusDate.plusHours(1));
+	}
+}
@@ -0,0 +1,92 @@
+package br.com.fiap.mslogistic.service;
+
+import br.com.fiap.mslogistic.entity.PurchaseHistory;
+import br.com.fiap.mslogistic.utils.PurchaseHistoryUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PurchaseTimelineCacheUnitTest {
+
+	@Test
+	void allowKeepEventsAppendedDuringTheLoad() {
+		//Arrange
+		PurchaseTimelineCache cache = new PurchaseTimelineCache(10, 60000);
+		PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, 1L, "AGUARDANDO PAGAMENTO");
+		PurchaseHistory ph2 = PurchaseHistoryUtils.createFakePurchaseHistory(2L, 1L, "PAGO");
+
+		//Act
+		cache.beginLoad(1L);
+		cache.append(ph2); //Saved after the database was read
+		List<PurchaseHistory> timeline = cache.endLoad(1L, List.of(ph1));
+
+		//Assert
+		assertThat(timeline).containsExactly(ph1, ph2);
+		assertThat(cache.get(1L)).containsExactly(ph1, ph2);
+	}
+
+	@Test
+	void allowIgnoreEventsOfTimelinesNotCached() {
+		//Arrange
+		PurchaseTimelineCache cache = new PurchaseTimelineCache(10, 60000);
+
+		//Act
+		cache.append(PurchaseHistoryUtils.createFakePurchaseHistory(1L, 1L, "PAGO"));
+
+		//Assert
+		assertThat(cache.get(1L)).isNull();
+	}
+
+	@Test
+	void allowEvictLeastRecentlyRead() {
+		//Arrange
+		PurchaseTimelineCache cache = new PurchaseTimelineCache(2, 60000);
+		for (long purchaseId = 1; purchaseId <= 2; purchaseId++) {
+			cache.beginLoad(purchaseId);
+			cache.endLoad(purchaseId, List.of(PurchaseHistoryUtils.createFakePurchaseHistory(purchaseId, purchaseId, "PAGO")));
+		}
+
+		//Act
+		cache.get(1L);
+		cache.beginLoad(3L);
+		cache.endLoad(3L, List.of(PurchaseHistoryUtils.createFakePurchaseHistory(3L, 3L, "PAGO")));
+
+		//Assert
+		assertThat(cache.get(1L)).isNotNull();
+		assertThat(cache.get(2L)).isNull();
+		assertThat(cache.get(3L)).isNotNull();
+	}
+
+	@Test
+	void allowReadAgainAfterTheTimeToLive() {
+		//Arrange
+		PurchaseTimelineCache cache = new PurchaseTimelineCache(10, 0);
+		PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, 1L, "PAGO");
+
+		//Act
+		cache.beginLoad(1L);
+		List<PurchaseHistory> timeline = cache.endLoad(1L, List.of(ph1));
+
+		//Assert
+		assertThat(timeline).containsExactly(ph1);
+		assertThat(cache.get(1L)).isNull();
+	}
+
+	@Test
+	void allowKeepTheCachedTimeline_WhenTheReturnedEventsAreChanged() {
+		//Arrange
+		PurchaseTimelineCache cache = new PurchaseTimelineCache(10, 60000);
+		PurchaseHistory ph1 = PurchaseHistoryUtils.createFakePurchaseHistory(1L, 1L, "PAGO");
+		cache.beginLoad(1L);
+		cache.endLoad(1L, List.of(ph1));
+
+		//Act
+		ph1.setStatus("CANCELADO");
+		cache.get(1L).get(0).setStatus("ENTREGUE");
+
+		//Assert
+		assertThat(cache.get(1L)).extracting(PurchaseHistory::getStatus).containsExactly("PAGO");
+	}
+}
@@ -1,5 +1,6 @@
 package br.com.fiap.mslogistic.utils;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mslogistic.entity.Purchase;
 import br.com.fiap.mslogistic.entity.PurchaseItem;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -15,7 +16,7 @@ public class PurchaseUtils {
 
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
@@ -33,7 +34,7 @@ public class PurchaseUtils {
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
 		purchase.setId(purchaseId);
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
@@ -50,7 +51,7 @@ public class PurchaseUtils {
 
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
@@ -68,7 +69,7 @@ public class PurchaseUtils {
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
 		purchase.setId(purchaseId);
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
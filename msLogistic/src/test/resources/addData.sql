@@ -1,14 +1,14 @@
 INSERT INTO purchases (id,customer_cpf, customer_name, delivery_address, delivery_group, delivery_zip_code, status, total_amount)
-VALUES (1000000, '767.368.420-93', 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'AGUARDANDO PAGAMENTO', 599.8);
+VALUES (1000000, 76736842093, 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'AGUARDANDO PAGAMENTO', 599.8);
 
 INSERT INTO purchases (id, customer_cpf, customer_name, delivery_address, delivery_group, delivery_zip_code, status, total_amount)
-VALUES (1000001, '767.368.420-93', 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'PAGO', 599.8);
+VALUES (1000001, 76736842093, 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'PAGO', 599.8);
 
 INSERT INTO purchases (id, customer_cpf, customer_name, delivery_address, delivery_group, delivery_zip_code, status, total_amount)
-VALUES (1000002, '767.368.420-93', 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'PAGO', 599.8);
+VALUES (1000002, 76736842093, 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'PAGO', 599.8);
 
 INSERT INTO purchases (id, customer_cpf, customer_name, delivery_address, delivery_group, delivery_zip_code, status, total_amount)
-VALUES (1000003, '767.368.420-93', 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'AGUARDANDO ENTREGA', 599.8);
+VALUES (1000003, 76736842093, 'Nome test', 'Rua Pedro João Candiano nª 56, Jardim Myrian, Indaiatuba - São Paulo, Brasil', 1, '13074-000', 'AGUARDANDO ENTREGA', 599.8);
 
 INSERT INTO purchase_history (id, purchase_id, status, status_date)
 VALUES (1000000, 1000000, 'AGUARDANDO PAGAMENTO', '2024-05-01 00:00:00');
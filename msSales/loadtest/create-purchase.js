@@ -0,0 +1,51 @@
+// Load test of POST /sales/createPurchase with k6 (https://k6.io).
+//
+// The arrival rate grows until msSales can't keep up, the summary shows the p99 of the requests and the number of
+// virtual users k6 needed to hold the rate, which is the number of requests msSales had in flight.
+// Run it once with each mode, against the stack started by compose.yaml:
+//
+//   SPRING_THREADS_VIRTUAL_ENABLED=true  docker compose up -d mssales   (default)
+//   k6 run --summary-export=virtual.json  msSales/loadtest/create-purchase.js
+//
+//   SPRING_THREADS_VIRTUAL_ENABLED=false docker compose up -d mssales
+//   k6 run --summary-export=platform.json msSales/loadtest/create-purchase.js
+//
+// The customers and products used must exist: CPF and PRODUCT_IDS can be changed with -e.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8083';
+const CPF = __ENV.CPF || '822.685.230-71';
+const PRODUCT_IDS = (__ENV.PRODUCT_IDS || '1,2,3,4,5').split(',').map(Number);
+
+export const options = {
+	summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+	scenarios: {
+		createPurchase: {
+			executor: 'ramping-arrival-rate',
+			startRate: 50,
+			timeUnit: '1s',
+			preAllocatedVUs: 200,
+			maxVUs: 5000,
+			stages: [
+				{ target: 200, duration: '1m' },
+				{ target: 800, duration: '2m' },
+				{ target: 800, duration: '2m' },
+			],
+		},
+	},
+	thresholds: {
+		'http_req_duration{scenario:createPurchase}': ['p(99)<2000'],
+		http_req_failed: ['rate<0.01'],
+	},
+};
+
+export default function () {
+	const body = JSON.stringify({
+		customerCpf: CPF,
+		items: [{ productId: PRODUCT_IDS[Math.floor(Math.random() * PRODUCT_IDS.length)], quantity: 1 }],
+	});
+
+	const res = http.post(`${BASE_URL}/sales/createPurchase`, body, { headers: { 'Content-Type': 'application/json' } });
+	check(res, { 'purchase created': (r) => r.status === 201 });
+}
@@ -1,11 +1,16 @@
 package br.com.fiap.mssales;
 
+import br.com.fiap.commons.concurrency.ConcurrencyLimitFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableFeignClients
+@EnableScheduling
+@Import(ConcurrencyLimitFilter.class)
 public class SalesApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,43 @@
+package br.com.fiap.mssales.config;
+
+//Read timeout of a dependency following its latency, like the TCP retransmission timeout: the smoothed latency plus
+//four times its deviation. Until enough calls were measured the configured timeout is used.
+class AdaptiveTimeout {
+	private static final double LATENCY_GAIN = 0.125;
+	private static final double DEVIATION_GAIN = 0.25;
+
+	private final long minTimeout;
+	private final int warmupCalls;
+
+	private double latency;
+	private double deviation;
+	private long calls;
+
+	AdaptiveTimeout(long minTimeout, int warmupCalls) {
+		this.minTimeout = minTimeout;
+		this.warmupCalls = warmupCalls;
+	}
+
+	//Only the calls answered are measured, a timeout says nothing about how long the answer would take
+	synchronized void record(long millis) {
+		if (calls++ == 0) {
+			latency = millis;
+			deviation = millis / 2.0;
+			return;
+		}
+
+		deviation += DEVIATION_GAIN * (Math.abs(millis - latency) - deviation);
+		latency += LATENCY_GAIN * (millis - latency);
+	}
+
+	synchronized long timeout(long maxTimeout) {
+		if (calls < warmupCalls) return maxTimeout;
+
+		return Math.max(minTimeout, Math.min(maxTimeout, Math.round(latency + 4 * deviation)));
+	}
+
+	//Timeout computed from the latency, before the limits are applied. NaN until enough calls were measured.
+	synchronized double estimate() {
+		return calls < warmupCalls ? Double.NaN : latency + 4 * deviation;
+	}
+}
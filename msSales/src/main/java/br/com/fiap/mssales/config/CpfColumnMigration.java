@@ -0,0 +1,36 @@
+package br.com.fiap.mssales.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+//Databases created before the CPF was stored as a number keep the varchar column, since ddl-auto=update doesn't change
+//column types. The column is converted once, before the application starts receiving requests.
+//msSales and msLogistic share the purchases table, both check the column on startup.
+@Component
+public class CpfColumnMigration implements InitializingBean {
+	//The type is checked again after the lock, another instance may have converted the column in the meantime
+	private static final String CONVERT_COLUMN = """
+			DO $$
+			BEGIN
+				IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema()
+						AND table_name = 'purchases' AND column_name = 'customer_cpf' AND data_type = 'character varying') THEN
+					LOCK TABLE purchases IN ACCESS EXCLUSIVE MODE;
+					IF EXISTS (SELECT 1 FROM information_schema.columns WHERE table_schema = current_schema()
+							AND table_name = 'purchases' AND column_name = 'customer_cpf' AND data_type = 'character varying') THEN
+						ALTER TABLE purchases ALTER COLUMN customer_cpf TYPE bigint USING regexp_replace(customer_cpf, '[^0-9]', '', 'g')::bigint;
+					END IF;
+				END IF;
+			END $$""";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public CpfColumnMigration(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		jdbcTemplate.execute(CONVERT_COLUMN);
+	}
+}
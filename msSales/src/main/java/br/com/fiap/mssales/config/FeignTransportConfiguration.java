@@ -0,0 +1,114 @@
+package br.com.fiap.mssales.config;
+
+import feign.Client;
+import feign.hc5.ApacheHttp5Client;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+//The Feign clients share one pool of keep-alive connections, each target has its own limit so a slow service can't
+//take the connections of the others. The connect and read timeouts are set per client by spring.cloud.openfeign.
+@Configuration
+public class FeignTransportConfiguration {
+
+	@Bean(destroyMethod = "close")
+	public PoolingHttpClientConnectionManager feignConnectionManager(
+			@Value("${sales.clients.customer.url}") String customerUrl,
+			@Value("${sales.clients.customer.max-connections}") int customerMaxConnections,
+			@Value("${sales.clients.product.url}") String productUrl,
+			@Value("${sales.clients.product.max-connections}") int productMaxConnections,
+			@Value("${sales.clients.history.url}") String historyUrl,
+			@Value("${sales.clients.history.max-connections}") int historyMaxConnections,
+			@Value("${sales.http-client.connect-timeout}") long connectTimeout,
+			@Value("${sales.http-client.connection-ttl}") long connectionTtl,
+			@Value("${sales.http-client.validate-after-inactivity}") long validateAfterInactivity) {
+		PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+				.setMaxConnTotal(customerMaxConnections + productMaxConnections + historyMaxConnections)
+				.setDefaultConnectionConfig(ConnectionConfig.custom()
+						.setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+						.setTimeToLive(TimeValue.ofMilliseconds(connectionTtl))
+						//A connection closed by the server while idle in the pool is detected before being reused
+						.setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivity))
+						.build())
+				.build();
+
+		connectionManager.setMaxPerRoute(route(customerUrl), customerMaxConnections);
+		connectionManager.setMaxPerRoute(route(productUrl), productMaxConnections);
+		connectionManager.setMaxPerRoute(route(historyUrl), historyMaxConnections);
+		return connectionManager;
+	}
+
+	//The client decompresses the gzip responses and sends the Accept-Encoding header by itself
+	@Bean(destroyMethod = "close")
+	public CloseableHttpClient feignHttpClient(PoolingHttpClientConnectionManager feignConnectionManager,
+			@Value("${sales.http-client.pool-timeout}") long poolTimeout,
+			@Value("${sales.http-client.idle-timeout}") long idleTimeout) {
+		return HttpClients.custom()
+				.setConnectionManager(feignConnectionManager)
+				//A request waits at most this long for a free connection instead of queueing forever on a full pool
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeout))
+						.build())
+				.evictExpiredConnections()
+				.evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout))
+				.disableCookieManagement()
+				.build();
+	}
+
+	@Bean
+	public Client feignClient(CloseableHttpClient feignHttpClient) {
+		return new ApacheHttp5Client(feignHttpClient);
+	}
+
+	//The pool usage of each target, leased close to max with pending requests means the pool is saturated
+	@Bean
+	public MeterBinder feignConnectionPoolMetrics(PoolingHttpClientConnectionManager feignConnectionManager,
+			@Value("${sales.clients.customer.url}") String customerUrl,
+			@Value("${sales.clients.product.url}") String productUrl,
+			@Value("${sales.clients.history.url}") String historyUrl) {
+		Map<String, HttpRoute> routes = new LinkedHashMap<>();
+		routes.put("customer", route(customerUrl));
+		routes.put("product", route(productUrl));
+		routes.put("history", route(historyUrl));
+
+		return registry -> routes.forEach((target, route) -> {
+			poolGauge(registry, "feign.pool.leased", target, feignConnectionManager, route, PoolStats::getLeased);
+			poolGauge(registry, "feign.pool.available", target, feignConnectionManager, route, PoolStats::getAvailable);
+			poolGauge(registry, "feign.pool.pending", target, feignConnectionManager, route, PoolStats::getPending);
+			poolGauge(registry, "feign.pool.max", target, feignConnectionManager, route, PoolStats::getMax);
+		});
+	}
+
+	private static void poolGauge(MeterRegistry registry, String name, String target,
+			PoolingHttpClientConnectionManager connectionManager, HttpRoute route, ToIntFunction<PoolStats> value) {
+		Gauge.builder(name, connectionManager, cm -> value.applyAsInt(cm.getStats(route)))
+				.tag("target", target)
+				.register(registry);
+	}
+
+	//The port is always explicit on the route the client resolves, so the default one is filled in here too
+	private static HttpRoute route(String url) {
+		URI uri = URI.create(url);
+		int port = uri.getPort() != -1 ? uri.getPort() : "https".equals(uri.getScheme()) ? 443 : 80;
+		return new HttpRoute(new HttpHost(uri.getScheme(), uri.getHost(), port));
+	}
+}
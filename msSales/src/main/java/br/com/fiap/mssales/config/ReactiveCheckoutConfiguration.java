@@ -0,0 +1,60 @@
+package br.com.fiap.mssales.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+//Clients of the reactive checkout. The calls waiting for a connection are limited, when the limit is reached the
+//checkout fails right away instead of piling up requests in memory.
+@Configuration
+@ConditionalOnProperty(name = "sales.checkout.mode", havingValue = "reactive")
+public class ReactiveCheckoutConfiguration {
+
+	@Bean(destroyMethod = "dispose")
+	public ConnectionProvider checkoutConnectionProvider(@Value("${sales.checkout.max-connections}") int maxConnections,
+			@Value("${sales.checkout.pending-requests}") int pendingRequests,
+			@Value("${sales.http-client.pool-timeout}") long poolTimeout,
+			@Value("${sales.http-client.idle-timeout}") long idleTimeout) {
+		return ConnectionProvider.builder("checkout")
+				.maxConnections(maxConnections)
+				.pendingAcquireMaxCount(pendingRequests)
+				.pendingAcquireTimeout(Duration.ofMillis(poolTimeout))
+				.maxIdleTime(Duration.ofMillis(idleTimeout))
+				.metrics(true)
+				.build();
+	}
+
+	@Bean
+	public ReactorClientHttpConnector checkoutHttpConnector(ConnectionProvider checkoutConnectionProvider,
+			@Value("${sales.http-client.connect-timeout}") int connectTimeout,
+			@Value("${sales.checkout.timeout}") long timeout) {
+		HttpClient httpClient = HttpClient.create(checkoutConnectionProvider)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+				.responseTimeout(Duration.ofMillis(timeout))
+				.compress(true);
+		return new ReactorClientHttpConnector(httpClient);
+	}
+
+	@Bean
+	public WebClient productWebClient(WebClient.Builder builder, ReactorClientHttpConnector checkoutHttpConnector,
+			@Value("${sales.clients.product.url}") String url) {
+		return builder.clone().clientConnector(checkoutHttpConnector).baseUrl(url).build();
+	}
+
+	//JPA blocks the thread, so the database calls get as many threads as connections and a bounded queue
+	@Bean(destroyMethod = "dispose")
+	public Scheduler checkoutJdbcScheduler(@Value("${sales.checkout.jdbc-threads}") int jdbcThreads,
+			@Value("${sales.checkout.jdbc-queue}") int jdbcQueue) {
+		return Schedulers.newBoundedElastic(jdbcThreads, jdbcQueue, "checkout-jdbc");
+	}
+}
@@ -0,0 +1,101 @@
+package br.com.fiap.mssales.config;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//Every Feign call goes through the bulkhead and the circuit breaker of its client (customer, product or history), so a
+//slow service only holds its own share of the threads. A full bulkhead or an open circuit fails the call right away
+//with BulkheadFullException or CallNotPermittedException, answered with 503 by the controllers.
+@Component
+public class ResilienceCapability implements Capability {
+
+	private final CircuitBreakerRegistry circuitBreakerRegistry;
+	private final BulkheadRegistry bulkheadRegistry;
+	private final MeterRegistry meterRegistry;
+	private final long minReadTimeout;
+	private final int warmupCalls;
+	private final Map<String, AdaptiveTimeout> timeouts = new ConcurrentHashMap<>();
+
+	public ResilienceCapability(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+			MeterRegistry meterRegistry,
+			@Value("${sales.http-client.adaptive-timeout.min}") long minReadTimeout,
+			@Value("${sales.http-client.adaptive-timeout.warmup-calls}") int warmupCalls) {
+		this.circuitBreakerRegistry = circuitBreakerRegistry;
+		this.bulkheadRegistry = bulkheadRegistry;
+		this.meterRegistry = meterRegistry;
+		this.minReadTimeout = minReadTimeout;
+		this.warmupCalls = warmupCalls;
+	}
+
+	@Override
+	public Client enrich(Client client) {
+		return (request, options) -> execute(client, request, options);
+	}
+
+	private Response execute(Client client, Request request, Request.Options options) throws IOException {
+		String target = request.requestTemplate().feignTarget().name();
+		Bulkhead bulkhead = bulkheadRegistry.bulkhead(target);
+		CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(target);
+		AdaptiveTimeout timeout = timeouts.computeIfAbsent(target, this::createTimeout);
+
+		bulkhead.acquirePermission();
+		try {
+			circuitBreaker.acquirePermission();
+
+			//The configured read timeout is the upper limit of the adaptive one. Only the reads use it: a write cut short
+			//may still be applied by the service (updateStock, saveHistory), so it keeps the configured timeout.
+			boolean read = isRead(request);
+			Request.Options callOptions = !read ? options : new Request.Options(options.connectTimeout(),
+					options.connectTimeoutUnit(), timeout.timeout(options.readTimeoutMillis()), TimeUnit.MILLISECONDS,
+					options.isFollowRedirects());
+
+			long start = System.nanoTime();
+			try {
+				Response response = client.execute(request, callOptions);
+				long elapsed = System.nanoTime() - start;
+
+				//An answer with an error of the server counts as a failure, the client errors are answers like any other
+				if (response.status() >= 500) {
+					circuitBreaker.onError(elapsed, TimeUnit.NANOSECONDS, new IOException(target + " answered " + response.status()));
+				} else {
+					circuitBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+					if (read) timeout.record(TimeUnit.NANOSECONDS.toMillis(elapsed));
+				}
+				return response;
+			} catch (IOException | RuntimeException e) {
+				circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+				throw e;
+			}
+		} finally {
+			bulkhead.onComplete();
+		}
+	}
+
+	private static boolean isRead(Request request) {
+		return request.httpMethod() == Request.HttpMethod.GET || request.httpMethod() == Request.HttpMethod.HEAD;
+	}
+
+	private AdaptiveTimeout createTimeout(String target) {
+		AdaptiveTimeout timeout = new AdaptiveTimeout(minReadTimeout, warmupCalls);
+		Gauge.builder("feign.adaptive.read-timeout", timeout, AdaptiveTimeout::estimate)
+				.tag("target", target)
+				.baseUnit("milliseconds")
+				.register(meterRegistry);
+		return timeout;
+	}
+}
@@ -0,0 +1,41 @@
+package br.com.fiap.mssales.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import feign.RequestInterceptor;
+import feign.codec.Decoder;
+import feign.optionals.OptionalDecoder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+//Smile is the binary form of JSON, the same objects and annotations are read from a smaller payload with less parsing.
+//msCustomers, msStock and msLogistic answer in Smile when it is accepted and in JSON otherwise. The request bodies stay
+//in JSON, the function endpoints read them as text.
+@Configuration
+public class SmileCodecConfiguration {
+	public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+	//The converter only reads the responses with the Smile content type, the JSON ones use the default converters.
+	//It isn't a bean so the controllers of msSales keep answering in JSON.
+	@Bean
+	public Decoder feignDecoder(Jackson2ObjectMapperBuilder builder, ObjectProvider<HttpMessageConverterCustomizer> customizers) {
+		HttpMessageConverters converters = new HttpMessageConverters(
+				new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build()));
+		return new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(() -> converters, customizers)));
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "sales.clients.smile-enabled", havingValue = "true")
+	public RequestInterceptor smileAcceptInterceptor() {
+		return template -> template.header(HttpHeaders.ACCEPT, SMILE_VALUE, MediaType.APPLICATION_JSON_VALUE + ";q=0.9");
+	}
+}
@@ -1,21 +1,30 @@
 package br.com.fiap.mssales.controller;
 
 import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.service.CheckoutService;
+import br.com.fiap.mssales.service.IdempotencyKeyStore;
 import br.com.fiap.mssales.service.SalesService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/sales")
 public class SalesController {
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
 	private final SalesService salesService;
+	private final CheckoutService checkoutService;
+	private final IdempotencyKeyStore idempotencyKeyStore;
 
-	public SalesController(SalesService salesService) {
+	public SalesController(SalesService salesService, CheckoutService checkoutService, IdempotencyKeyStore idempotencyKeyStore) {
 		this.salesService = salesService;
+		this.checkoutService = checkoutService;
+		this.idempotencyKeyStore = idempotencyKeyStore;
 	}
 
 	@GetMapping("/getPurchaseById/{id}")
@@ -29,8 +38,15 @@ public class SalesController {
 	}
 
 	@PostMapping("/createPurchase")
-	public ResponseEntity<Purchase> createPurchase(@RequestBody @Valid Purchase purchase) {
-		return ResponseEntity.status(HttpStatus.CREATED).body(this.salesService.createPurchase(purchase));
+	public Mono<ResponseEntity<Purchase>> createPurchase(@RequestBody @Valid Purchase purchase,
+			@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+		//Without a key every call creates a new purchase
+		Mono<Purchase> checkout = idempotencyKey == null || idempotencyKey.isBlank()
+				? this.checkoutService.createPurchase(purchase)
+				: this.idempotencyKeyStore.execute(idempotencyKey, purchase, () -> this.checkoutService.createPurchase(purchase));
+
+		return checkout
+				.map(savedPurchase -> ResponseEntity.status(HttpStatus.CREATED).body(savedPurchase));
 	}
 
 	@PutMapping("/payPurchase/id/{id}")
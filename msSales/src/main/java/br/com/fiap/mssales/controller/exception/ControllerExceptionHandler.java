@@ -1,8 +1,12 @@
 package br.com.fiap.mssales.controller.exception;
 
+import br.com.fiap.commons.concurrency.ConcurrencyLimitFilter;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -16,6 +20,8 @@ import java.time.Instant;
 @ControllerAdvice
 public class ControllerExceptionHandler {
 
+	private static final String RETRY_AFTER_SECONDS = "5";
+
 	private final StandardError newError = new StandardError();
 
 	@ExceptionHandler(EntityNotFoundException.class)
@@ -44,6 +50,22 @@ public class ControllerExceptionHandler {
 		return ResponseEntity.status(status).body(newError);
 	}
 
+	//A dependency is slow or down (open circuit or full bulkhead), the client can try again later. Marked for the
+	//ConcurrencyLimitFilter, it isn't an overload of msSales.
+	@ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+	public ResponseEntity<StandardError> serviceUnavailable(RuntimeException e, HttpServletRequest request){
+		HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+		request.setAttribute(ConcurrencyLimitFilter.DEPENDENCY_FAILURE, true);
+
+		newError.setTimestamp(Instant.now());
+		newError.setStatus(status.value());
+		newError.setError("Serviço temporariamente indisponível."); //Service temporarily unavailable
+		newError.setMessage(e.getMessage());
+		newError.setPath(request.getRequestURI());
+
+		return ResponseEntity.status(status).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(newError);
+	}
+
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	public ResponseEntity<StandardError> entityValidation(MethodArgumentNotValidException e, HttpServletRequest request){
 		HttpStatus status = HttpStatus.BAD_REQUEST;
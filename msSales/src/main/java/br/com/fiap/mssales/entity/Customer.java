@@ -1,12 +1,18 @@
 package br.com.fiap.mssales.entity;
 
+import br.com.fiap.commons.cpf.CpfDeserializer;
+import br.com.fiap.commons.cpf.CpfSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
 public class Customer {
-	private String cpf;
+	@JsonSerialize(using = CpfSerializer.class)
+	@JsonDeserialize(using = CpfDeserializer.class)
+	private Long cpf;
 	private String fullName;
 	private String email;
 	private String zipCode; // CEP
@@ -0,0 +1,23 @@
+package br.com.fiap.mssales.entity;
+
+import br.com.fiap.commons.cpf.CpfDeserializer;
+import br.com.fiap.commons.cpf.CpfSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CustomerChange {
+	public static final String DELETE = "DELETE";
+
+	private Long id;
+	@JsonSerialize(using = CpfSerializer.class)
+	@JsonDeserialize(using = CpfDeserializer.class)
+	private Long cpf;
+	private String type; //UPSERT or DELETE
+	private String fullName;
+	private String zipCode; // CEP
+	private String deliveryAddress;
+}
@@ -0,0 +1,23 @@
+package br.com.fiap.mssales.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Position of a source of customer changes, only moved by that source. The snapshots also receive the changes of the
+//broker, so their last change can't tell which changes the feed still has to read.
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "customer_feed_cursors")
+public class CustomerFeedCursor {
+	@Id
+	@Column(length = 20)
+	private String source;
+
+	@Column(nullable = false)
+	private Long lastChangeId; //Id of the last change read
+}
@@ -0,0 +1,49 @@
+package br.com.fiap.mssales.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Local copy of the customer delivery data, kept by the change feed of msCustomers
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "customer_snapshots")
+public class CustomerSnapshot {
+
+	@Id
+	private Long cpf;
+
+	@Column(length = 50)
+	private String fullName;
+
+	@Column(length = 9) // 00000-000
+	private String zipCode;
+
+	@Column
+	private String deliveryAddress;
+
+	@Column(nullable = false)
+	private Long lastChangeId; //Id of the last change applied, 0 when the customer was read directly from msCustomers
+
+	@Column(nullable = false)
+	private boolean deleted; //Kept after the delete so the checkout doesn't look for the customer again
+
+	@Version // The broker and the change feed apply changes at the same time, the one saving second applies them again
+	@Column(columnDefinition = "bigint default 0 not null") // The snapshots saved before the column start at 0
+	private Long version;
+
+	public static CustomerSnapshot of(Customer customer) {
+		CustomerSnapshot snapshot = new CustomerSnapshot();
+		snapshot.setCpf(customer.getCpf());
+		snapshot.setFullName(customer.getFullName());
+		snapshot.setZipCode(customer.getZipCode());
+		snapshot.setDeliveryAddress(customer.getAddress() + ", " + customer.getCity() + " - " + customer.getState() + ", " + customer.getCountry());
+		snapshot.setLastChangeId(0L);
+		return snapshot;
+	}
+}
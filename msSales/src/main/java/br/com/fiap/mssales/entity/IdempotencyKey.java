@@ -0,0 +1,31 @@
+package br.com.fiap.mssales.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//Idempotency-Key of a createPurchase, shared by all the msSales instances. The row is inserted by the first call with
+//the key, the purchase created is saved on it when the checkout finishes.
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idempotency_keys_expires_at_idx", columnList = "expires_at"))
+public class IdempotencyKey {
+	@Id
+	@Column(length = 255)
+	private String idempotencyKey;
+
+	@Column(nullable = false) // Customer and items of the request
+	private String fingerprint;
+
+	@Column(length = 20, nullable = false) // EM ANDAMENTO or CONCLUIDA
+	private String status;
+
+	@Column // Response of the checkout, set when it is CONCLUIDA
+	private Long purchaseId;
+
+	@Column(nullable = false) // A checkout still running when it expires was interrupted, the key can be used again
+	private LocalDateTime expiresAt;
+}
@@ -1,5 +1,6 @@
 package br.com.fiap.mssales.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -11,4 +12,10 @@ public class Product {
 	private String description;
 	private Float price;
 	private Integer quantity;
+
+	@JsonInclude(JsonInclude.Include.NON_NULL) // Stock change sent again is applied once by msStock
+	private String changeId;
+
+	@JsonInclude(JsonInclude.Include.NON_NULL) // Change undone by a compensation, only given back if msStock applied it
+	private String revertedChangeId;
 }
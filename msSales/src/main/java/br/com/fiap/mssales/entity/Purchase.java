@@ -1,25 +1,33 @@
 package br.com.fiap.mssales.entity;
 
+import br.com.fiap.commons.cpf.CpfDeserializer;
+import br.com.fiap.commons.cpf.CpfSerializer;
+import br.com.fiap.commons.cpf.ValidCpf;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
 import jakarta.validation.Valid;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.validator.constraints.br.CPF;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "purchases")
+@Table(name = "purchases", indexes = @Index(name = "purchases_status_created_at_idx", columnList = "status, created_at"))
 public class Purchase {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 
-	@CPF
-	@Column(length = 14, nullable = false) // 000.000.000-00
-	private String customerCpf;
+	@ValidCpf
+	@JsonSerialize(using = CpfSerializer.class)
+	@JsonDeserialize(using = CpfDeserializer.class)
+	@Column(nullable = false) // Stored as a number, the API uses the format 000.000.000-00
+	private Long customerCpf;
 
 	@Column(length = 50)
 	private String customerName;
@@ -30,7 +38,7 @@ public class Purchase {
 	@Column
 	private String deliveryAddress;
 
-	@Column(length = 17) // YYYYMMDDHHMMSSsss
+	@Column(length = 17) // YYYYMMDD + 9 digit sequence
 	private String deliveryGroup;
 
 	@Column
@@ -39,6 +47,10 @@ public class Purchase {
 	@Column(length = 20)
 	private String status;
 
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	@Column(updatable = false) // Null for the purchases created before the column, they never expire
+	private LocalDateTime createdAt;
+
 	@Valid
 	@OneToMany(cascade = CascadeType.ALL)
 	List<PurchaseItem> items;
@@ -0,0 +1,42 @@
+package br.com.fiap.mssales.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//Stock changes of a purchase made by PurchaseSagaOrchestrator, one step per item. The step is saved after each call to
+//msStock, so a saga interrupted by a failure or a restart continues from the item where it stopped. Each call carries
+//the id of the saga and of the step, so a call made again is applied once by msStock.
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "purchase_sagas", indexes = @Index(name = "purchase_sagas_status_idx", columnList = "status, updated_at"))
+public class PurchaseSaga {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long purchaseId;
+
+	@Column(length = 20, nullable = false) // RESERVA (checkout) or DEVOLUCAO (cancellation)
+	private String type;
+
+	@Column(length = 20, nullable = false)
+	private String status;
+
+	@Column(nullable = false) // Items already changed in msStock, in the order of their ids
+	private Integer step;
+
+	@Column
+	private String failure;
+
+	@Column(nullable = false)
+	private LocalDateTime updatedAt;
+
+	@Version // Changed by each save, a runner whose saga was claimed by recoverStale fails at its next step
+	@Column(columnDefinition = "bigint default 0 not null") // The sagas saved before the column start at 0
+	private Long version;
+}
@@ -0,0 +1,43 @@
+package br.com.fiap.mssales.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//Purchase history not delivered to msLogistic yet, sent again by PurchaseHistoryPublisher.relayQueued
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "purchase_history_queue")
+public class QueuedPurchaseHistory {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long purchaseId;
+
+	@Column(length = 20, nullable = false)
+	private String status;
+
+	@Column(nullable = false)
+	private LocalDateTime statusDate;
+
+	public static QueuedPurchaseHistory of(PurchaseHistory purchaseHistory) {
+		QueuedPurchaseHistory queued = new QueuedPurchaseHistory();
+		queued.setPurchaseId(purchaseHistory.getPurchaseId());
+		queued.setStatus(purchaseHistory.getStatus());
+		queued.setStatusDate(purchaseHistory.getStatusDate());
+		return queued;
+	}
+
+	public PurchaseHistory toPurchaseHistory() {
+		PurchaseHistory purchaseHistory = new PurchaseHistory();
+		purchaseHistory.setPurchaseId(purchaseId);
+		purchaseHistory.setStatus(status);
+		purchaseHistory.setStatusDate(statusDate);
+		return purchaseHistory;
+	}
+}
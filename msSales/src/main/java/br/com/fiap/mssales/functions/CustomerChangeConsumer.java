@@ -0,0 +1,25 @@
+package br.com.fiap.mssales.functions;
+
+import br.com.fiap.mssales.entity.CustomerChange;
+import br.com.fiap.mssales.service.CustomerSnapshotService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+@Component
+public class CustomerChangeConsumer {
+	private final CustomerSnapshotService customerSnapshotService;
+
+	public CustomerChangeConsumer(CustomerSnapshotService customerSnapshotService) {
+		this.customerSnapshotService = customerSnapshotService;
+	}
+
+	//Changes sent by msCustomers to the broker, a batch is applied like a page of the change feed. A batch sent to the
+	//dead letter queue is applied later by CustomerSnapshotService.syncChanges.
+	@Bean(name = "customerChanged")
+	Consumer<List<CustomerChange>> customerChangedConsumer(){
+		return customerSnapshotService::applyChanges;
+	}
+}
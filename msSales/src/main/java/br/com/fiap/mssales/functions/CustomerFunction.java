@@ -1,14 +1,20 @@
 package br.com.fiap.mssales.functions;
 
 import br.com.fiap.mssales.entity.Customer;
+import br.com.fiap.mssales.entity.CustomerChange;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
-@FeignClient(value = "customer", url = "http://mscustomers:8081/api")
+import java.util.List;
+
+@FeignClient(value = "customer", url = "${sales.clients.customer.url}")
 public interface CustomerFunction {
 
 	@GetMapping("/consumer-findCustomer/{cpf}")
 	Customer findCustomer(@PathVariable String cpf);
 
+	@GetMapping("/customerChanges/{afterId}")
+	List<CustomerChange> customerChanges(@PathVariable Long afterId);
+
 }
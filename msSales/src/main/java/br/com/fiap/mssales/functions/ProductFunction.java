@@ -6,12 +6,17 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 
-@FeignClient(value = "product", url = "http://msstock:8082/api")
+import java.util.List;
+
+@FeignClient(value = "product", url = "${sales.clients.product.url}")
 public interface ProductFunction {
 
 	@PostMapping("/updateStock")
 	void updateStock(Product product);
 
+	@PostMapping("/updateStocks")
+	void updateStocks(List<Product> products);
+
 	@GetMapping("/findProduct/{id}")
 	Product findProduct(@PathVariable Long id);
 }
@@ -4,9 +4,14 @@ import br.com.fiap.mssales.entity.PurchaseHistory;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 
-@FeignClient(value = "history", url = "http://mslogistic:8084/api")
+import java.util.List;
+
+@FeignClient(value = "history", url = "${sales.clients.history.url}")
 public interface PurchaseHistoryFunction {
 
 	@PostMapping("/consumer-saveHistory")
 	void saveHistory(PurchaseHistory purchaseHistory);
+
+	@PostMapping("/saveHistories")
+	void saveHistories(List<PurchaseHistory> history);
 }
@@ -0,0 +1,9 @@
+package br.com.fiap.mssales.repository;
+
+import br.com.fiap.mssales.entity.CustomerFeedCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CustomerFeedCursorRepository extends JpaRepository<CustomerFeedCursor, String> {
+}
@@ -0,0 +1,47 @@
+package br.com.fiap.mssales.repository;
+
+import br.com.fiap.mssales.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+	//Only one of the calls with the same key inserts it, whatever the instance. Returns 0 when the key already exists.
+	@Transactional
+	@Modifying
+	@Query(value = """
+			INSERT INTO idempotency_keys (idempotency_key, fingerprint, status, expires_at)
+			VALUES (:key, :fingerprint, :status, :expiresAt) ON CONFLICT (idempotency_key) DO NOTHING""", nativeQuery = true)
+	int insertIfAbsent(@Param("key") String key, @Param("fingerprint") String fingerprint, @Param("status") String status,
+			@Param("expiresAt") LocalDateTime expiresAt);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE IdempotencyKey k SET k.status = :status, k.purchaseId = :purchaseId, k.expiresAt = :expiresAt " +
+			"WHERE k.idempotencyKey = :key")
+	int complete(@Param("key") String key, @Param("status") String status, @Param("purchaseId") Long purchaseId,
+			@Param("expiresAt") LocalDateTime expiresAt);
+
+	//A failed checkout gives the key back, the retry runs it again
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyKey k WHERE k.idempotencyKey = :key AND k.status = :status")
+	int deleteByKeyAndStatus(@Param("key") String key, @Param("status") String status);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyKey k WHERE k.idempotencyKey = :key AND k.expiresAt <= :now")
+	int deleteExpired(@Param("key") String key, @Param("now") LocalDateTime now);
+
+	//Served by the expires_at index
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt <= :now")
+	int deleteAllExpired(@Param("now") LocalDateTime now);
+}
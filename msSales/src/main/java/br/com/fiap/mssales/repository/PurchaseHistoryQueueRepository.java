@@ -0,0 +1,16 @@
+package br.com.fiap.mssales.repository;
+
+import br.com.fiap.mssales.entity.QueuedPurchaseHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PurchaseHistoryQueueRepository extends JpaRepository<QueuedPurchaseHistory, Long> {
+	//The oldest rows not being sent by another instance, locked until the end of the transaction
+	@Query(value = "SELECT * FROM purchase_history_queue ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+	List<QueuedPurchaseHistory> lockOldest(@Param("limit") int limit);
+}
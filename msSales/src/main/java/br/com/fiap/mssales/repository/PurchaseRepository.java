@@ -1,12 +1,53 @@
 package br.com.fiap.mssales.repository;
 
 import br.com.fiap.mssales.entity.Purchase;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PurchaseRepository extends JpaRepository<Purchase, Long>{
 	List<Purchase> findByStatusIgnoreCase(String status);
+
+	//Locked until the end of the transaction, so the change of status doesn't race with ReservationExpirySweeper
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT p FROM Purchase p WHERE p.id = :id")
+	Optional<Purchase> lockById(@Param("id") Long id);
+
+	//Purchases in the status created before createdBefore, served by the (status, created_at) index. The ones with a saga
+	//still changing their stock and the ones locked by another transaction are skipped.
+	@Query(value = """
+			SELECT p.id FROM purchases p
+			WHERE p.status = :status AND p.created_at < :createdBefore
+			AND NOT EXISTS (SELECT 1 FROM purchase_sagas s WHERE s.purchase_id = p.id AND s.status IN (:sagaStatus))
+			ORDER BY p.created_at LIMIT :limit FOR UPDATE OF p SKIP LOCKED""", nativeQuery = true)
+	List<Long> lockCreatedBefore(@Param("status") String status, @Param("createdBefore") LocalDateTime createdBefore,
+			@Param("sagaStatus") Collection<String> sagaStatus, @Param("limit") int limit);
+
+	//Total quantity of each product in each of the purchases. purchases_items is the join table of Purchase.items.
+	@Query(value = """
+			SELECT pi.purchases_id AS "purchaseId", i.product_id AS "productId", SUM(i.quantity) AS "quantity"
+			FROM purchases_items pi JOIN purchase_items i ON i.id = pi.items_id
+			WHERE pi.purchases_id IN (:ids) GROUP BY pi.purchases_id, i.product_id
+			ORDER BY pi.purchases_id, i.product_id""", nativeQuery = true)
+	List<ProductQuantity> sumQuantities(@Param("ids") Collection<Long> ids);
+
+	@Modifying
+	@Query("UPDATE Purchase p SET p.status = :status WHERE p.id IN :ids")
+	int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+	interface ProductQuantity {
+		Long getPurchaseId();
+		Long getProductId();
+		Long getQuantity();
+	}
 }
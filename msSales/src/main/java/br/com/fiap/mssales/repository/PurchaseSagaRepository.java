@@ -0,0 +1,25 @@
+package br.com.fiap.mssales.repository;
+
+import br.com.fiap.mssales.entity.PurchaseSaga;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PurchaseSagaRepository extends JpaRepository<PurchaseSaga, Long> {
+	boolean existsByPurchaseIdAndStatusIn(Long purchaseId, Collection<String> status);
+
+	//Sagas not finished and not changed since staleBefore, locked until the end of the transaction.
+	//The ones being run by another instance are changed at every step and skipped.
+	@Query(value = """
+			SELECT * FROM purchase_sagas
+			WHERE status IN (:status) AND updated_at < :staleBefore
+			ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED""", nativeQuery = true)
+	List<PurchaseSaga> lockStale(@Param("status") Collection<String> status, @Param("staleBefore") LocalDateTime staleBefore,
+			@Param("limit") int limit);
+}
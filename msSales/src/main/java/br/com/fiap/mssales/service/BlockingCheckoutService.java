@@ -0,0 +1,23 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Purchase;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+//The checkout runs on the request thread, one remote call after the other
+@Service
+@ConditionalOnProperty(name = "sales.checkout.mode", havingValue = "blocking", matchIfMissing = true)
+public class BlockingCheckoutService implements CheckoutService {
+
+	private final SalesService salesService;
+
+	public BlockingCheckoutService(SalesService salesService) {
+		this.salesService = salesService;
+	}
+
+	@Override
+	public Mono<Purchase> createPurchase(Purchase purchase) {
+		return Mono.fromCallable(() -> this.salesService.createPurchase(purchase));
+	}
+}
@@ -0,0 +1,87 @@
+package br.com.fiap.mssales.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//Sends the events to the broker and waits for RabbitMQ to confirm them. StreamBridge.send returns true once the message
+//is handed to the binder, also when RabbitMQ drops it, so a message is only sent when the broker acked it and didn't
+//return it as unroutable (publisher-confirm-type=correlated and publisher-returns=true). With a confirm-timeout of 0
+//the confirmations aren't waited for, the test binder has none.
+@Slf4j
+@Service
+public class BrokerPublisher {
+	private final StreamBridge streamBridge;
+	private final long confirmTimeout;
+
+	public BrokerPublisher(StreamBridge streamBridge,
+			@Value("${sales.events.confirm-timeout}") long confirmTimeout) {
+		this.streamBridge = streamBridge;
+		this.confirmTimeout = confirmTimeout;
+	}
+
+	public void send(String binding, Object payload) {
+		if (!sendAll(binding, List.of(payload)).isEmpty()) {
+			throw new MessageDeliveryException("Event " + payload + " not confirmed by the broker");
+		}
+	}
+
+	//All the messages are sent before waiting for the confirmations, they are confirmed together. Returns the positions
+	//of the ones not sent, empty when all were confirmed.
+	public List<Integer> sendAll(String binding, List<?> payloads) {
+		List<Integer> notSent = new ArrayList<>();
+		List<CorrelationData> correlations = new ArrayList<>(payloads.size());
+
+		for (int i = 0; i < payloads.size(); i++) {
+			CorrelationData correlation = new CorrelationData();
+			Message<?> message = MessageBuilder.withPayload(payloads.get(i))
+					.setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, correlation)
+					.build();
+			correlations.add(correlation);
+			if (!this.streamBridge.send(binding, message)) notSent.add(i);
+		}
+		if (this.confirmTimeout <= 0) return notSent;
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.confirmTimeout);
+		for (int i = 0; i < correlations.size(); i++) {
+			if (!notSent.contains(i) && !confirmed(binding, correlations.get(i), deadline)) notSent.add(i);
+		}
+		notSent.sort(null);
+		return notSent;
+	}
+
+	private boolean confirmed(String binding, CorrelationData correlation, long deadline) {
+		try {
+			CorrelationData.Confirm confirm = correlation.getFuture().get(Math.max(0, deadline - System.nanoTime()),
+					TimeUnit.NANOSECONDS);
+			if (!confirm.isAck()) {
+				log.warn("Message of {} refused by the broker: {}", binding, confirm.getReason());
+				return false;
+			}
+			//Returned before the ack, no queue bound to the exchange
+			if (correlation.getReturned() != null) {
+				log.warn("Message of {} not routed to a queue: {}", binding, correlation.getReturned().getReplyText());
+				return false;
+			}
+			return true;
+		} catch (TimeoutException | ExecutionException e) {
+			log.warn("Message of {} not confirmed by the broker: {}", binding, e.getMessage());
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Purchase;
+import reactor.core.publisher.Mono;
+
+//Implementation of SalesController.createPurchase, selected by sales.checkout.mode (blocking or reactive)
+public interface CheckoutService {
+
+	Mono<Purchase> createPurchase(Purchase purchase);
+}
@@ -0,0 +1,121 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.commons.cpf.Cpf;
+import br.com.fiap.mssales.entity.Customer;
+import br.com.fiap.mssales.entity.CustomerChange;
+import br.com.fiap.mssales.entity.CustomerFeedCursor;
+import br.com.fiap.mssales.entity.CustomerSnapshot;
+import br.com.fiap.mssales.functions.CustomerFunction;
+import br.com.fiap.mssales.repository.CustomerFeedCursorRepository;
+import br.com.fiap.mssales.repository.CustomerSnapshotRepository;
+import feign.FeignException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//The checkout reads the customers from the local snapshots, msCustomers is only called for a customer not received yet
+@Slf4j
+@Service
+public class CustomerSnapshotService {
+	static final String FEED = "FEED";
+
+	private final CustomerSnapshotRepository customerSnapshotRepository;
+	private final CustomerFeedCursorRepository customerFeedCursorRepository;
+	private final CustomerFunction customerFunction;
+
+	public CustomerSnapshotService(CustomerSnapshotRepository customerSnapshotRepository,
+			CustomerFeedCursorRepository customerFeedCursorRepository,
+			CustomerFunction customerFunction) {
+		this.customerSnapshotRepository = customerSnapshotRepository;
+		this.customerFeedCursorRepository = customerFeedCursorRepository;
+		this.customerFunction = customerFunction;
+	}
+
+	public CustomerSnapshot getCustomer(Long cpf) {
+		CustomerSnapshot snapshot = this.customerSnapshotRepository.findById(cpf).orElse(null);
+		if (snapshot != null) {
+			if (snapshot.isDeleted()) throw new EntityNotFoundException(SalesService.CUSTOMER_NOT_FOUND);
+			return snapshot;
+		}
+
+		try {
+			Customer customer = customerFunction.findCustomer(Cpf.format(cpf));
+			return this.customerSnapshotRepository.save(CustomerSnapshot.of(customer));
+		}
+		catch (FeignException.NotFound e){
+			throw new EntityNotFoundException(SalesService.CUSTOMER_NOT_FOUND);
+		}
+		catch (DataIntegrityViolationException e){
+			//Saved meanwhile by a change of the customer, the snapshot is read again
+			return getCustomer(cpf);
+		}
+	}
+
+	//Reads the changes until the feed is empty. When msCustomers is unavailable the snapshots are kept as they are.
+	//The feed has its own position, so the changes of a broker batch sent to the dead letter queue are read here even
+	//when later changes were already received from the broker. The ones already applied are skipped.
+	@Scheduled(fixedDelayString = "${sales.customer-feed.poll-interval}")
+	public void syncChanges() {
+		CustomerFeedCursor cursor = this.customerFeedCursorRepository.findById(FEED).orElseGet(() -> {
+			CustomerFeedCursor newCursor = new CustomerFeedCursor();
+			newCursor.setSource(FEED);
+			newCursor.setLastChangeId(0L);
+			return newCursor;
+		});
+
+		try {
+			List<CustomerChange> changes = customerFunction.customerChanges(cursor.getLastChangeId());
+			while (!changes.isEmpty()) {
+				applyChanges(changes);
+				cursor.setLastChangeId(changes.stream().mapToLong(CustomerChange::getId).max().getAsLong());
+				this.customerFeedCursorRepository.save(cursor); //After the page, a failure reads it again
+				changes = customerFunction.customerChanges(cursor.getLastChangeId());
+			}
+		} catch (FeignException | CallNotPermittedException | BulkheadFullException e) {
+			log.warn("Customer change feed unavailable: {}", e.getMessage());
+		} catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+			log.info("Customer changes applied meanwhile from the broker, page read again on the next poll: {}", e.getMessage());
+		}
+	}
+
+	//A page (or a broker batch) is saved at once. The snapshots have a version, a batch saved over changes applied
+	//meanwhile fails and is applied again, so the last change of a snapshot never goes back.
+	public void applyChanges(List<CustomerChange> changes) {
+		if (changes.isEmpty()) return;
+
+		Map<Long, CustomerSnapshot> snapshots = this.customerSnapshotRepository
+				.findAllById(changes.stream().map(CustomerChange::getCpf).distinct().toList())
+				.stream()
+				.collect(Collectors.toMap(CustomerSnapshot::getCpf, Function.identity()));
+
+		for (CustomerChange change : changes) {
+			CustomerSnapshot snapshot = snapshots.computeIfAbsent(change.getCpf(), cpf -> {
+				CustomerSnapshot newSnapshot = new CustomerSnapshot();
+				newSnapshot.setCpf(cpf);
+				newSnapshot.setLastChangeId(0L);
+				return newSnapshot;
+			});
+			if (snapshot.getLastChangeId() >= change.getId()) continue; //Already applied
+
+			boolean deleted = CustomerChange.DELETE.equals(change.getType());
+			snapshot.setDeleted(deleted);
+			snapshot.setFullName(deleted ? null : change.getFullName());
+			snapshot.setZipCode(deleted ? null : change.getZipCode());
+			snapshot.setDeliveryAddress(deleted ? null : change.getDeliveryAddress());
+			snapshot.setLastChangeId(change.getId());
+		}
+
+		this.customerSnapshotRepository.saveAll(new ArrayList<>(snapshots.values()));
+	}
+}
@@ -0,0 +1,148 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.IdempotencyKey;
+import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.entity.PurchaseItem;
+import br.com.fiap.mssales.repository.IdempotencyKeyRepository;
+import br.com.fiap.mssales.repository.PurchaseRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+//Purchases created with an Idempotency-Key, so a client or gateway retrying createPurchase gets the purchase already
+//created instead of a second one, whatever the instance it reaches. The keys are rows of idempotency_keys: the first
+//call inserts the key and runs the checkout, the others wait for its result. The keys are kept for ttl milliseconds
+//after the purchase is created. A failed checkout isn't kept, the retry runs it again. A checkout still running after
+//runningTimeout milliseconds was interrupted (the instance stopped), the key can be used again.
+@Slf4j
+@Component
+public class IdempotencyKeyStore {
+	public static final String IDEMPOTENCY_KEY_REUSED = "A chave de idempotência %s já foi usada em outro pedido"; //Idempotency key used by another purchase
+
+	static final String RUNNING = "EM ANDAMENTO";
+	static final String COMPLETED = "CONCLUIDA";
+
+	private final IdempotencyKeyRepository idempotencyKeyRepository;
+	private final PurchaseRepository purchaseRepository;
+	private final long ttl;
+	private final long runningTimeout;
+	private final Duration pollInterval;
+	private final Map<String, CompletableFuture<Purchase>> running = new ConcurrentHashMap<>(); //Checkouts of this instance
+
+	public IdempotencyKeyStore(IdempotencyKeyRepository idempotencyKeyRepository,
+			PurchaseRepository purchaseRepository,
+			@Value("${sales.idempotency.ttl}") long ttl,
+			@Value("${sales.idempotency.running-timeout}") long runningTimeout,
+			@Value("${sales.idempotency.poll-interval}") long pollInterval) {
+		this.idempotencyKeyRepository = idempotencyKeyRepository;
+		this.purchaseRepository = purchaseRepository;
+		this.ttl = ttl;
+		this.runningTimeout = runningTimeout;
+		this.pollInterval = Duration.ofMillis(pollInterval);
+	}
+
+	//The key is claimed before returning, the checkout of the first call runs even when the result isn't subscribed
+	public Mono<Purchase> execute(String key, Purchase purchase, Supplier<Mono<Purchase>> checkout) {
+		String fingerprint = fingerprint(purchase);
+		if (claim(key, fingerprint)) return start(key, checkout);
+
+		Optional<IdempotencyKey> existing = this.idempotencyKeyRepository.findById(key);
+		if (existing.isEmpty()) return execute(key, purchase, checkout); //Given back by a failed checkout meanwhile
+
+		//The same key with another purchase is an error of the client, it would get the wrong purchase back
+		if (!existing.get().getFingerprint().equals(fingerprint)) {
+			return Mono.error(new DataIntegrityViolationException(String.format(IDEMPOTENCY_KEY_REUSED, key)));
+		}
+		if (COMPLETED.equals(existing.get().getStatus())) return Mono.fromCallable(() -> findPurchase(existing.get()));
+
+		//Still running: on this instance its result is awaited, on another one the key is read again
+		CompletableFuture<Purchase> result = this.running.get(key);
+		return result != null
+				? Mono.fromFuture(result, true)
+				: Mono.delay(this.pollInterval, Schedulers.boundedElastic())
+						.then(Mono.defer(() -> execute(key, purchase, checkout)));
+	}
+
+	//The key of an interrupted checkout is removed before the insert, so it can be claimed again
+	private boolean claim(String key, String fingerprint) {
+		LocalDateTime now = LocalDateTime.now();
+		this.idempotencyKeyRepository.deleteExpired(key, now);
+		return this.idempotencyKeyRepository.insertIfAbsent(key, fingerprint, RUNNING,
+				now.plus(this.runningTimeout, ChronoUnit.MILLIS)) > 0;
+	}
+
+	private Mono<Purchase> start(String key, Supplier<Mono<Purchase>> checkout) {
+		CompletableFuture<Purchase> result = new CompletableFuture<>();
+		this.running.put(key, result);
+
+		//The checkout isn't cancelled when the client gives up, its retry gets the result. The key is saved out of the
+		//threads of the remote calls.
+		Mono.defer(checkout).publishOn(Schedulers.boundedElastic()).subscribe(
+				savedPurchase -> {
+					complete(key, savedPurchase);
+					this.running.remove(key, result);
+					result.complete(savedPurchase);
+				},
+				e -> {
+					release(key);
+					this.running.remove(key, result);
+					result.completeExceptionally(e);
+				});
+
+		return Mono.fromFuture(result, true);
+	}
+
+	//When the key can't be saved the purchase is still returned, a retry after runningTimeout creates another one
+	private void complete(String key, Purchase savedPurchase) {
+		try {
+			this.idempotencyKeyRepository.complete(key, COMPLETED, savedPurchase.getId(),
+					LocalDateTime.now().plus(this.ttl, ChronoUnit.MILLIS));
+		} catch (DataAccessException e) {
+			log.error("Idempotency key {} of purchase {} not saved: {}", key, savedPurchase.getId(), e.getMessage());
+		}
+	}
+
+	private void release(String key) {
+		try {
+			this.idempotencyKeyRepository.deleteByKeyAndStatus(key, RUNNING);
+		} catch (DataAccessException e) {
+			log.error("Idempotency key {} not given back, it is free after the running timeout: {}", key, e.getMessage());
+		}
+	}
+
+	private Purchase findPurchase(IdempotencyKey idempotencyKey) {
+		return this.purchaseRepository.findById(idempotencyKey.getPurchaseId())
+				.orElseThrow(() -> new EntityNotFoundException(SalesService.PURCHASE_NOT_FOUND));
+	}
+
+	@Scheduled(fixedDelayString = "${sales.idempotency.cleanup-interval}")
+	public void removeExpired() {
+		int removed = this.idempotencyKeyRepository.deleteAllExpired(LocalDateTime.now());
+		if (removed > 0) log.info("{} expired idempotency keys removed", removed);
+	}
+
+	//Customer and items of the request, in the same order whatever the order sent by the client
+	static String fingerprint(Purchase purchase) {
+		return purchase.getCustomerCpf() + ":" + purchase.getItems().stream()
+				.sorted(Comparator.comparing(PurchaseItem::getProductId, Comparator.nullsFirst(Comparator.naturalOrder())))
+				.map(item -> item.getProductId() + "x" + item.getQuantity())
+				.collect(Collectors.joining(","));
+	}
+}
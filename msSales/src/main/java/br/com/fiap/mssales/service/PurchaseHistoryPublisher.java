@@ -0,0 +1,131 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.PurchaseHistory;
+import br.com.fiap.mssales.entity.QueuedPurchaseHistory;
+import br.com.fiap.mssales.functions.PurchaseHistoryFunction;
+import br.com.fiap.mssales.repository.PurchaseHistoryQueueRepository;
+import feign.FeignException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+//The history is sent to msLogistic, through the purchase-history exchange with the broker transport. While msLogistic
+//or the broker is unavailable the events are kept in the purchase_history_queue table and sent again later, so a
+//purchase doesn't fail because of its history.
+@Slf4j
+@Service
+public class PurchaseHistoryPublisher {
+	static final String BINDING = "saveHistory-out-0";
+
+	private final PurchaseHistoryFunction purchaseHistoryFunction;
+	private final BrokerPublisher brokerPublisher;
+	private final PurchaseHistoryQueueRepository purchaseHistoryQueueRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean broker;
+	private final int relayBatchSize;
+
+	public PurchaseHistoryPublisher(PurchaseHistoryFunction purchaseHistoryFunction,
+			BrokerPublisher brokerPublisher,
+			PurchaseHistoryQueueRepository purchaseHistoryQueueRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${sales.events.transport}") String transport,
+			@Value("${sales.history-queue.batch-size}") int relayBatchSize) {
+		this.purchaseHistoryFunction = purchaseHistoryFunction;
+		this.brokerPublisher = brokerPublisher;
+		this.purchaseHistoryQueueRepository = purchaseHistoryQueueRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.broker = StockChangePublisher.BROKER.equalsIgnoreCase(transport);
+		this.relayBatchSize = relayBatchSize;
+	}
+
+	public void publish(PurchaseHistory purchaseHistory) {
+		try {
+			send(purchaseHistory);
+		} catch (FeignException e) {
+			if (!isUnavailable(e)) throw e;
+			enqueue(purchaseHistory);
+		} catch (CallNotPermittedException | BulkheadFullException | MessagingException e) {
+			enqueue(purchaseHistory);
+		}
+	}
+
+	//All the events with one call, queued together when msLogistic is unavailable
+	public void publishAll(List<PurchaseHistory> history) {
+		if (this.broker) {
+			//One message per event, the ones not confirmed by the broker are queued
+			List<Integer> notSent = this.brokerPublisher.sendAll(BINDING, history);
+			if (!notSent.isEmpty()) enqueueAll(notSent.stream().map(history::get).toList());
+			return;
+		}
+
+		try {
+			this.purchaseHistoryFunction.saveHistories(history);
+		} catch (FeignException e) {
+			if (!isUnavailable(e)) throw e;
+			enqueueAll(history);
+		} catch (CallNotPermittedException | BulkheadFullException e) {
+			enqueueAll(history);
+		}
+	}
+
+	private void enqueueAll(List<PurchaseHistory> history) {
+		this.purchaseHistoryQueueRepository.saveAll(history.stream().map(QueuedPurchaseHistory::of).toList());
+	}
+
+	public void enqueue(PurchaseHistory purchaseHistory) {
+		this.purchaseHistoryQueueRepository.save(QueuedPurchaseHistory.of(purchaseHistory));
+	}
+
+	//Each batch is locked with SKIP LOCKED, so several instances send the queue without sending an event twice
+	@Scheduled(fixedDelayString = "${sales.history-queue.relay-interval}")
+	public void relayQueued() {
+		Integer processed;
+		do {
+			processed = this.transactionTemplate.execute(status -> relayBatch());
+		} while (processed != null && processed == this.relayBatchSize);
+	}
+
+	//Stops at the first event not delivered, the ones sent before it are removed when the transaction commits
+	private int relayBatch() {
+		List<QueuedPurchaseHistory> batch = this.purchaseHistoryQueueRepository.lockOldest(this.relayBatchSize);
+
+		int processed = 0;
+		for (QueuedPurchaseHistory queued : batch) {
+			try {
+				send(queued.toPurchaseHistory());
+			} catch (FeignException e) {
+				if (isUnavailable(e)) {
+					log.warn("msLogistic still unavailable, {} history events queued: {}", batch.size() - processed, e.getMessage());
+					break;
+				}
+				//Rejected by msLogistic, sending it again would fail the same way
+				log.error("Queued history {} rejected by msLogistic, discarded: {}", queued, e.getMessage());
+			} catch (CallNotPermittedException | BulkheadFullException | MessagingException e) {
+				log.warn("msLogistic still unavailable, {} history events queued: {}", batch.size() - processed, e.getMessage());
+				break;
+			}
+
+			this.purchaseHistoryQueueRepository.delete(queued);
+			processed++;
+		}
+		return processed;
+	}
+
+	private void send(PurchaseHistory purchaseHistory) {
+		if (this.broker) this.brokerPublisher.send(BINDING, purchaseHistory);
+		else this.purchaseHistoryFunction.saveHistory(purchaseHistory);
+	}
+
+	//No answer or an error of the server, the client errors won't change by sending it again
+	private static boolean isUnavailable(FeignException e) {
+		return !(e instanceof FeignException.FeignClientException);
+	}
+}
@@ -0,0 +1,313 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.entity.PurchaseHistory;
+import br.com.fiap.mssales.entity.PurchaseItem;
+import br.com.fiap.mssales.entity.PurchaseSaga;
+import br.com.fiap.mssales.functions.ProductFunction;
+import br.com.fiap.mssales.repository.PurchaseRepository;
+import br.com.fiap.mssales.repository.PurchaseSagaRepository;
+import feign.FeignException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+//Stock changes of the purchases, run after the HTTP request returns. The purchase and its saga are saved in the same
+//transaction, then one msStock call is made per item and the step is saved after each one. The items given back go
+//through StockChangePublisher, over the broker when it is the transport.
+//A reservation (checkout) that fails gives back the items already removed, in the reverse order, and cancels the
+//purchase. A devolution (cancellation) has nothing to undo, it is retried until all the items are back in stock.
+//The sagas interrupted by a restart or by a failure are resumed by recoverStale, also run on startup.
+//Each call carries a changeId made of the saga and the step, so a call answered by msStock but not saved as a step
+//(timeout, the instance stopped in between) is made again on recovery and applied once. A reservation without an answer
+//is compensated too: its compensation reverts its changeId, msStock only gives the item back when it was removed.
+//The saga is saved with its version after each call and when recoverStale claims it, so only one runner goes on: the
+//other one fails before its next call.
+@Slf4j
+@Service
+public class PurchaseSagaOrchestrator {
+	static final String RESERVE = "RESERVA";
+	static final String RELEASE = "DEVOLUCAO";
+
+	static final String RUNNING = "EM ANDAMENTO";
+	static final String COMPENSATING = "COMPENSANDO";
+	static final String COMPLETED = "CONCLUIDA";
+	static final String COMPENSATED = "COMPENSADA";
+
+	static final List<String> UNFINISHED = List.of(RUNNING, COMPENSATING);
+	private static final Comparator<PurchaseItem> ITEM_ORDER =
+			Comparator.comparing(PurchaseItem::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	private final PurchaseRepository purchaseRepository;
+	private final PurchaseSagaRepository purchaseSagaRepository;
+	private final ProductFunction productFunction;
+	private final StockChangePublisher stockChangePublisher;
+	private final PurchaseHistoryPublisher purchaseHistoryPublisher;
+	private final TransactionTemplate transactionTemplate;
+	private final TaskExecutor taskExecutor;
+	private final long staleAfter;
+	private final int recoveryBatchSize;
+
+	public PurchaseSagaOrchestrator(PurchaseRepository purchaseRepository,
+			PurchaseSagaRepository purchaseSagaRepository,
+			ProductFunction productFunction,
+			StockChangePublisher stockChangePublisher,
+			PurchaseHistoryPublisher purchaseHistoryPublisher,
+			PlatformTransactionManager transactionManager,
+			@Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+			@Value("${sales.saga.stale-after}") long staleAfter,
+			@Value("${sales.saga.recovery-batch-size}") int recoveryBatchSize) {
+		this.purchaseRepository = purchaseRepository;
+		this.purchaseSagaRepository = purchaseSagaRepository;
+		this.productFunction = productFunction;
+		this.stockChangePublisher = stockChangePublisher;
+		this.purchaseHistoryPublisher = purchaseHistoryPublisher;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.taskExecutor = taskExecutor;
+		this.staleAfter = staleAfter;
+		this.recoveryBatchSize = recoveryBatchSize;
+	}
+
+	//Returns once the purchase and the reservation are saved, the stock is removed in the background
+	public Purchase startCheckout(Purchase purchase) {
+		purchase.setCreatedAt(LocalDateTime.now()); //Start of the reservation, see ReservationExpirySweeper
+		return start(purchase, RESERVE);
+	}
+
+	//The purchase must already have the cancelled status
+	public Purchase startCancellation(Purchase purchase) {
+		return start(purchase, RELEASE);
+	}
+
+	//The purchase can't be paid or cancelled while its stock is being reserved or given back
+	public boolean isRunning(Long purchaseId) {
+		return this.purchaseSagaRepository.existsByPurchaseIdAndStatusIn(purchaseId, UNFINISHED);
+	}
+
+	private Purchase start(Purchase purchase, String type) {
+		PurchaseSaga saga = new PurchaseSaga();
+		Purchase savedPurchase = this.transactionTemplate.execute(status -> {
+			Purchase saved = this.purchaseRepository.save(purchase);
+			saga.setPurchaseId(saved.getId());
+			saga.setType(type);
+			saga.setStatus(RUNNING);
+			saga.setStep(0);
+			saga.setUpdatedAt(LocalDateTime.now());
+			this.purchaseSagaRepository.save(saga);
+			return saved;
+		});
+
+		List<PurchaseItem> items = new ArrayList<>(savedPurchase.getItems());
+		Runnable task = () -> {
+			try {
+				run(saga, savedPurchase, items);
+			} catch (RuntimeException e) {
+				//Resumed by recoverStale after staleAfter milliseconds
+				log.error("Saga {} of purchase {} interrupted: {}", saga.getId(), saga.getPurchaseId(), e.getMessage());
+			}
+		};
+
+		//Started inside a transaction of the caller, the saga only runs once it is committed
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					taskExecutor.execute(task);
+				}
+			});
+		} else {
+			this.taskExecutor.execute(task);
+		}
+		return savedPurchase;
+	}
+
+	//The sagas without progress for staleAfter milliseconds, the first run is on startup
+	@Scheduled(fixedDelayString = "${sales.saga.recovery-interval}")
+	public void recoverStale() {
+		List<PurchaseSaga> stale;
+		do {
+			stale = this.transactionTemplate.execute(status -> claimStale());
+			if (stale == null) return;
+
+			for (PurchaseSaga saga : stale) {
+				try {
+					resume(saga);
+				} catch (RuntimeException e) {
+					log.error("Saga {} of purchase {} not resumed: {}", saga.getId(), saga.getPurchaseId(), e.getMessage());
+				}
+			}
+		} while (stale.size() == this.recoveryBatchSize);
+	}
+
+	//The claim changes updated_at, so the other instances skip the sagas while they run here
+	private List<PurchaseSaga> claimStale() {
+		List<PurchaseSaga> stale = this.purchaseSagaRepository.lockStale(UNFINISHED,
+				LocalDateTime.now().minus(this.staleAfter, ChronoUnit.MILLIS), this.recoveryBatchSize);
+		for (PurchaseSaga saga : stale) {
+			saga.setUpdatedAt(LocalDateTime.now());
+		}
+		return this.purchaseSagaRepository.saveAll(stale);
+	}
+
+	private void resume(PurchaseSaga saga) {
+		Purchase purchase = this.transactionTemplate.execute(status -> {
+			Purchase loaded = this.purchaseRepository.findById(saga.getPurchaseId()).orElse(null);
+			if (loaded != null) loaded.getItems().size(); //Items read inside the transaction
+			return loaded;
+		});
+
+		if (purchase == null) {
+			log.error("Saga {} of purchase {} stopped, purchase not found", saga.getId(), saga.getPurchaseId());
+			finish(saga, COMPENSATED, null);
+			return;
+		}
+		log.info("Resuming saga {} ({} {}) of purchase {} at step {}", saga.getId(), saga.getType(), saga.getStatus(),
+				saga.getPurchaseId(), saga.getStep());
+		run(saga, purchase, new ArrayList<>(purchase.getItems()));
+	}
+
+	private void run(PurchaseSaga saga, Purchase purchase, List<PurchaseItem> items) {
+		items.sort(ITEM_ORDER);
+
+		if (RUNNING.equals(saga.getStatus()) && !forward(saga, items)) return;
+
+		if (COMPENSATING.equals(saga.getStatus())) {
+			if (!backward(saga, items)) return;
+			finish(saga, COMPENSATED, purchase);
+			return;
+		}
+
+		finish(saga, COMPLETED, purchase);
+	}
+
+	//Returns false when the saga must wait for the recovery
+	private boolean forward(PurchaseSaga saga, List<PurchaseItem> items) {
+		int sign = RESERVE.equals(saga.getType()) ? -1 : 1;
+
+		for (int i = saga.getStep(); i < items.size(); i++) {
+			try {
+				updateStock(items.get(i), sign, changeId(saga, i), null);
+			} catch (FeignException.FeignClientException e) {
+				if (RESERVE.equals(saga.getType())) return compensate(saga, saga.getStep(), e); //Refused, nothing removed
+				//The product can't receive the stock back (deleted), the other items are still given back
+				log.error("Item {} of purchase {} not given back to the stock: {}", items.get(i).getProductId(),
+						saga.getPurchaseId(), e.getMessage());
+			} catch (RuntimeException e) {
+				//Maybe removed by msStock (timeout), the item is also given back if it was
+				if (RESERVE.equals(saga.getType())) return compensate(saga, i + 1, e);
+				log.warn("Saga {} of purchase {} waiting for msStock at step {}: {}", saga.getId(), saga.getPurchaseId(), i,
+						e.getMessage());
+				return false;
+			}
+			saveStep(saga, i + 1);
+		}
+		return true;
+	}
+
+	//step is the number of items to give back, counting the one without an answer
+	private boolean compensate(PurchaseSaga saga, int step, RuntimeException e) {
+		log.warn("Reservation of purchase {} failed at step {}, compensating: {}", saga.getPurchaseId(), saga.getStep(),
+				e.getMessage());
+		saga.setStatus(COMPENSATING);
+		saga.setFailure(abbreviate(String.valueOf(e.getMessage())));
+		saveStep(saga, step);
+		return true;
+	}
+
+	//Gives back the items removed, from the last one to the first
+	private boolean backward(PurchaseSaga saga, List<PurchaseItem> items) {
+		for (int i = saga.getStep() - 1; i >= 0; i--) {
+			try {
+				updateStock(items.get(i), 1, changeId(saga, i) + "-" + COMPENSATING, changeId(saga, i));
+			} catch (FeignException.FeignClientException e) {
+				log.error("Item {} of purchase {} not given back to the stock: {}", items.get(i).getProductId(),
+						saga.getPurchaseId(), e.getMessage());
+			} catch (RuntimeException e) {
+				log.warn("Compensation of purchase {} waiting for msStock at step {}: {}", saga.getPurchaseId(), i, e.getMessage());
+				return false;
+			}
+			saveStep(saga, i);
+		}
+		return true;
+	}
+
+	private void updateStock(PurchaseItem item, int sign, String changeId, String revertedChangeId) {
+		Product product = new Product();
+		product.setId(item.getProductId());
+		product.setQuantity(sign * item.getQuantity());
+		product.setChangeId(changeId);
+		product.setRevertedChangeId(revertedChangeId);
+
+		//The reservation needs the answer of msStock, the stock given back is only sent
+		if (sign < 0) this.productFunction.updateStock(product);
+		else this.stockChangePublisher.updateStock(product);
+	}
+
+	private void saveStep(PurchaseSaga saga, int step) {
+		saga.setStep(step);
+		saga.setUpdatedAt(LocalDateTime.now());
+		save(saga);
+	}
+
+	//The saga kept by the runner gets the new version, a version changed meanwhile fails with an
+	//ObjectOptimisticLockingFailureException
+	private void save(PurchaseSaga saga) {
+		saga.setVersion(this.purchaseSagaRepository.save(saga).getVersion());
+	}
+
+	//The same for each attempt of the step, RESERVA or DEVOLUCAO
+	private static String changeId(PurchaseSaga saga, int step) {
+		return "saga-" + saga.getId() + "-" + saga.getType() + "-" + step;
+	}
+
+	//A reservation compensated cancels its purchase, the history is sent after the commit
+	private void finish(PurchaseSaga saga, String status, Purchase purchase) {
+		boolean cancelled = Boolean.TRUE.equals(this.transactionTemplate.execute(s -> {
+			saga.setStatus(status);
+			saga.setUpdatedAt(LocalDateTime.now());
+			save(saga);
+
+			if (purchase == null || !RESERVE.equals(saga.getType()) || !COMPENSATED.equals(status)) return false;
+			purchase.setStatus(SalesService.CANCELED_STATUS);
+			this.purchaseRepository.save(purchase);
+			return true;
+		}));
+
+		if (purchase == null || !RESERVE.equals(saga.getType())) return;
+		if (cancelled || COMPLETED.equals(status)) {
+			saveHistory(purchase.getId(), cancelled ? SalesService.CANCELED_STATUS : SalesService.WAITING_PAYMENT_STATUS);
+		}
+	}
+
+	private void saveHistory(Long purchaseId, String status) {
+		PurchaseHistory purchaseHistory = new PurchaseHistory();
+
+		purchaseHistory.setPurchaseId(purchaseId);
+		purchaseHistory.setStatus(status);
+		purchaseHistory.setStatusDate(LocalDateTime.now());
+
+		try {
+			this.purchaseHistoryPublisher.publish(purchaseHistory);
+		} catch (RuntimeException e) {
+			log.error("History {} of purchase {} not saved: {}", status, purchaseId, e.getMessage());
+		}
+	}
+
+	private static String abbreviate(String message) {
+		return message.length() <= 255 ? message : message.substring(0, 255);
+	}
+}
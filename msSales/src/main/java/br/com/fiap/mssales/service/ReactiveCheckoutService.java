@@ -0,0 +1,93 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.CustomerSnapshot;
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.entity.PurchaseItem;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+
+//The customer and the products are read at the same time, then the purchase is saved with its reservation and the
+//stock is removed by PurchaseSagaOrchestrator. No thread waits for the remote calls, the database calls run on a
+//bounded scheduler the size of the connection pool.
+@Service
+@ConditionalOnProperty(name = "sales.checkout.mode", havingValue = "reactive")
+public class ReactiveCheckoutService implements CheckoutService {
+
+	private final CustomerSnapshotService customerSnapshotService;
+	private final PurchaseSagaOrchestrator purchaseSagaOrchestrator;
+	private final WebClient productClient;
+	private final Scheduler jdbcScheduler;
+	private final Duration timeout;
+	private final int concurrency;
+
+	public ReactiveCheckoutService(CustomerSnapshotService customerSnapshotService,
+			PurchaseSagaOrchestrator purchaseSagaOrchestrator,
+			@Qualifier("productWebClient") WebClient productClient,
+			@Qualifier("checkoutJdbcScheduler") Scheduler jdbcScheduler,
+			@Value("${sales.checkout.timeout}") long timeout,
+			@Value("${sales.checkout.concurrency}") int concurrency) {
+		this.customerSnapshotService = customerSnapshotService;
+		this.purchaseSagaOrchestrator = purchaseSagaOrchestrator;
+		this.productClient = productClient;
+		this.jdbcScheduler = jdbcScheduler;
+		this.timeout = Duration.ofMillis(timeout);
+		this.concurrency = concurrency;
+	}
+
+	@Override
+	public Mono<Purchase> createPurchase(Purchase purchase) {
+		purchase.setStatus(SalesService.WAITING_PAYMENT_STATUS); //Initial status value. Waiting for payment
+
+		Mono<CustomerSnapshot> customer = Mono.fromCallable(() -> this.customerSnapshotService.getCustomer(purchase.getCustomerCpf()))
+				.subscribeOn(this.jdbcScheduler);
+
+		//The values are summed in the order of the items, like the blocking checkout
+		Mono<Float> totalValue = Flux.fromIterable(purchase.getItems())
+				.flatMapSequential(item -> findProduct(item.getProductId()).map(product -> itemValue(item, product)), this.concurrency)
+				.reduce(0.0F, Float::sum);
+
+		//A failure in one of the reads cancels the other
+		return Mono.zip(customer, totalValue)
+				.flatMap(data -> {
+					setCustomerData(purchase, data.getT1());
+					purchase.setTotalAmount(data.getT2());
+					return Mono.fromCallable(() -> this.purchaseSagaOrchestrator.startCheckout(purchase)).subscribeOn(this.jdbcScheduler);
+				});
+	}
+
+	private Mono<Product> findProduct(Long productId) {
+		return this.productClient.get()
+				.uri("/findProduct/{id}", productId)
+				.retrieve()
+				.bodyToMono(Product.class)
+				.timeout(this.timeout)
+				.onErrorMap(WebClientResponseException.NotFound.class,
+						e -> new EntityNotFoundException(String.format(SalesService.PRODUCT_NOT_FOUND, productId)))
+				.switchIfEmpty(Mono.error(() -> new EntityNotFoundException(String.format(SalesService.PRODUCT_NOT_FOUND, productId))));
+	}
+
+	private float itemValue(PurchaseItem item, Product product) {
+		if (product.getQuantity() < item.getQuantity()) {
+			throw new DataIntegrityViolationException(String.format(SalesService.PRODUCT_DOESNT_HAVE_ENOUGH_STOCK, item.getProductId()));
+		}
+		return product.getPrice() * item.getQuantity();
+	}
+
+	private void setCustomerData(Purchase purchase, CustomerSnapshot customer) {
+		purchase.setCustomerName(customer.getFullName());
+		purchase.setDeliveryZipCode(customer.getZipCode());
+		purchase.setDeliveryAddress(customer.getDeliveryAddress()); //Already rendered by msCustomers
+	}
+}
@@ -0,0 +1,107 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.entity.PurchaseHistory;
+import br.com.fiap.mssales.repository.PurchaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+//Purchases not paid expireAfter milliseconds after the checkout are cancelled and their stock goes back to msStock.
+//Each batch is locked with SKIP LOCKED and cancelled in one transaction, the stock of the whole batch is given back with
+//one call (or sent to the broker) before the commit: when it fails the purchases stay reserved and are tried again on
+//the next sweep.
+//Each product of each purchase is sent with its own changeId, so when msStock applied the call but the answer was lost
+//(timeout, the batch rolled back) the purchases cancelled again on the next sweep, whatever the batch, aren't given back
+//twice.
+//The history of the batch is sent to msLogistic with one call after the commit.
+@Slf4j
+@Service
+public class ReservationExpirySweeper {
+
+	private final PurchaseRepository purchaseRepository;
+	private final StockChangePublisher stockChangePublisher;
+	private final PurchaseHistoryPublisher purchaseHistoryPublisher;
+	private final TransactionTemplate transactionTemplate;
+	private final long expireAfter;
+	private final int batchSize;
+
+	public ReservationExpirySweeper(PurchaseRepository purchaseRepository,
+			StockChangePublisher stockChangePublisher,
+			PurchaseHistoryPublisher purchaseHistoryPublisher,
+			PlatformTransactionManager transactionManager,
+			@Value("${sales.reservation-expiry.expire-after}") long expireAfter,
+			@Value("${sales.reservation-expiry.batch-size}") int batchSize) {
+		this.purchaseRepository = purchaseRepository;
+		this.stockChangePublisher = stockChangePublisher;
+		this.purchaseHistoryPublisher = purchaseHistoryPublisher;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.expireAfter = expireAfter;
+		this.batchSize = batchSize;
+	}
+
+	@Scheduled(fixedDelayString = "${sales.reservation-expiry.sweep-interval}")
+	public void sweep() {
+		LocalDateTime expiredBefore = LocalDateTime.now().minus(this.expireAfter, ChronoUnit.MILLIS);
+
+		List<PurchaseHistory> history;
+		do {
+			try {
+				history = this.transactionTemplate.execute(status -> cancelBatch(expiredBefore));
+			} catch (RuntimeException e) {
+				log.warn("Expired reservations not cancelled, trying again on the next sweep: {}", e.getMessage());
+				return;
+			}
+			if (history == null || history.isEmpty()) return;
+
+			log.info("{} expired reservations cancelled", history.size());
+			try {
+				this.purchaseHistoryPublisher.publishAll(history);
+			} catch (RuntimeException e) {
+				log.error("History of {} expired reservations not saved: {}", history.size(), e.getMessage());
+			}
+		} while (history.size() == this.batchSize);
+	}
+
+	private List<PurchaseHistory> cancelBatch(LocalDateTime expiredBefore) {
+		List<Long> ids = this.purchaseRepository.lockCreatedBefore(SalesService.WAITING_PAYMENT_STATUS, expiredBefore,
+				PurchaseSagaOrchestrator.UNFINISHED, this.batchSize);
+		if (ids.isEmpty()) return List.of();
+
+		List<Product> stock = this.purchaseRepository.sumQuantities(ids).stream()
+				.map(item -> {
+					Product product = new Product();
+					product.setId(item.getProductId());
+					product.setQuantity(item.getQuantity().intValue());
+					product.setChangeId(changeId(item));
+					return product;
+				})
+				.toList();
+
+		this.purchaseRepository.updateStatus(ids, SalesService.CANCELED_STATUS);
+		if (!stock.isEmpty()) this.stockChangePublisher.updateStocks(stock); //Last, a failure rolls back the batch
+
+		LocalDateTime statusDate = LocalDateTime.now();
+		return ids.stream()
+				.map(id -> {
+					PurchaseHistory purchaseHistory = new PurchaseHistory();
+					purchaseHistory.setPurchaseId(id);
+					purchaseHistory.setStatus(SalesService.CANCELED_STATUS);
+					purchaseHistory.setStatusDate(statusDate);
+					return purchaseHistory;
+				})
+				.toList();
+	}
+
+	//A purchase is cancelled only once, its stock given back only once
+	private static String changeId(PurchaseRepository.ProductQuantity item) {
+		return "purchase-" + item.getPurchaseId() + "-" + SalesService.CANCELED_STATUS + "-" + item.getProductId();
+	}
+}
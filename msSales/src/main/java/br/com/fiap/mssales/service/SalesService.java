@@ -1,15 +1,15 @@
 package br.com.fiap.mssales.service;
 
 import br.com.fiap.mssales.entity.*;
-import br.com.fiap.mssales.functions.CustomerFunction;
 import br.com.fiap.mssales.functions.ProductFunction;
-import br.com.fiap.mssales.functions.PurchaseHistoryFunction;
 import br.com.fiap.mssales.repository.PurchaseRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.FeignException;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
@@ -23,25 +23,32 @@ public class SalesService {
 	public static final String PRODUCT_NOT_FOUND = "Item %s não encontrado"; //Product not found
 	public static final String PRODUCT_DOESNT_HAVE_ENOUGH_STOCK = "Estoque insuficiente para o produto %s"; //Insufficient stock
 	public static final String STATUS_NOT_VALID = "Não foi possível mudar o pedido do status %s para o status %s"; //Cannot change to this new status based on last status
+	public static final String STOCK_CHANGE_RUNNING = "O estoque do pedido %s ainda está sendo atualizado"; //Stock of the purchase still being changed
 
-	private static final String WAITING_PAYMENT_STATUS = "AGUARDANDO PAGAMENTO";
+	static final String WAITING_PAYMENT_STATUS = "AGUARDANDO PAGAMENTO";
 	private static final String PAID_STATUS = "PAGO";
-	private static final String CANCELED_STATUS = "CANCELADO";
+	static final String CANCELED_STATUS = "CANCELADO";
 
 	private final PurchaseRepository purchaseRepository;
-	private final CustomerFunction customerFunction;
+	private final CustomerSnapshotService customerSnapshotService;
 	private final ProductFunction productFunction;
-	private final PurchaseHistoryFunction purchaseHistoryFunction;
+	private final PurchaseHistoryPublisher purchaseHistoryPublisher;
+	private final PurchaseSagaOrchestrator purchaseSagaOrchestrator;
+	private final TransactionTemplate transactionTemplate;
 
 	public SalesService(
 			PurchaseRepository purchaseRepository,
-			CustomerFunction customerFunction,
+			CustomerSnapshotService customerSnapshotService,
 			ProductFunction productFunction,
-			PurchaseHistoryFunction purchaseHistoryFunction) {
+			PurchaseHistoryPublisher purchaseHistoryPublisher,
+			PurchaseSagaOrchestrator purchaseSagaOrchestrator,
+			PlatformTransactionManager transactionManager) {
 		this.purchaseRepository = purchaseRepository;
-		this.customerFunction = customerFunction;
+		this.customerSnapshotService = customerSnapshotService;
 		this.productFunction = productFunction;
-		this.purchaseHistoryFunction = purchaseHistoryFunction;
+		this.purchaseHistoryPublisher = purchaseHistoryPublisher;
+		this.purchaseSagaOrchestrator = purchaseSagaOrchestrator;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
 	}
 
 	public Purchase getPurchaseById(Long id) {
@@ -58,11 +65,8 @@ public class SalesService {
 		setCustomerData(purchase); //Set customer data
 		setTotalValue(purchase); //Set total value
 
-		Purchase savedPurchase = this.purchaseRepository.save(purchase);
-		removeProductsFromStock(savedPurchase); //Remove product from stock
-		saveHistory(savedPurchase); //Save history
-
-		return savedPurchase;
+		//Saved with its reservation, the stock is removed and the history saved by the saga
+		return this.purchaseSagaOrchestrator.startCheckout(purchase);
 	}
 
 	public Purchase payPurchase(Long id) {
@@ -74,45 +78,31 @@ public class SalesService {
 	}
 
 	private Purchase updatePurchase(Long id, String status){
-		Purchase purchaseToUpdate = this.purchaseRepository.findById(id)
-				.orElseThrow(() -> new EntityNotFoundException(PURCHASE_NOT_FOUND));
-
-		//If the status is different from WAITING_PAYMENT_STATUS, it is not possible to change the status
-		if(!purchaseToUpdate.getStatus().equals(WAITING_PAYMENT_STATUS)){
-			throw new DataIntegrityViolationException(
-					String.format(STATUS_NOT_VALID, purchaseToUpdate.getStatus(), status)
-			);
-		}
-
-		purchaseToUpdate.setStatus(status);
-		Purchase savedPurchase = this.purchaseRepository.save(purchaseToUpdate);
-		saveHistory(savedPurchase); //Save history
-
-		if (status.equals(CANCELED_STATUS)) {
-			addProductsFromStock(savedPurchase); //Add product to stock
-		}
-
-		return savedPurchase;
-	}
+		//The purchase stays locked until the new status is saved, so it isn't also cancelled by ReservationExpirySweeper
+		Purchase savedPurchase = this.transactionTemplate.execute(s -> {
+			Purchase purchaseToUpdate = this.purchaseRepository.lockById(id)
+					.orElseThrow(() -> new EntityNotFoundException(PURCHASE_NOT_FOUND));
 
-	private void removeProductsFromStock(Purchase purchase) {
-		for (PurchaseItem item : purchase.getItems()) {
-			Product product = new Product();
-			product.setId(item.getProductId());
-			product.setQuantity(-1 * item.getQuantity());
+			//If the status is different from WAITING_PAYMENT_STATUS, it is not possible to change the status
+			if(!purchaseToUpdate.getStatus().equals(WAITING_PAYMENT_STATUS)){
+				throw new DataIntegrityViolationException(
+						String.format(STATUS_NOT_VALID, purchaseToUpdate.getStatus(), status)
+				);
+			}
 
-			productFunction.updateStock(product);
-		}
-	}
+			//The reservation of the stock must be finished, a failed one cancels the purchase by itself
+			if (this.purchaseSagaOrchestrator.isRunning(id)) {
+				throw new DataIntegrityViolationException(String.format(STOCK_CHANGE_RUNNING, id));
+			}
 
-	private void addProductsFromStock(Purchase purchase) {
-		for (PurchaseItem item : purchase.getItems()) {
-			Product product = new Product();
-			product.setId(item.getProductId());
-			product.setQuantity(item.getQuantity());
+			purchaseToUpdate.setStatus(status);
+			return status.equals(CANCELED_STATUS)
+					? this.purchaseSagaOrchestrator.startCancellation(purchaseToUpdate) //Add products to stock
+					: this.purchaseRepository.save(purchaseToUpdate);
+		});
+		saveHistory(savedPurchase); //Save history
 
-			productFunction.updateStock(product);
-		}
+		return savedPurchase;
 	}
 
 	private void setTotalValue(Purchase purchase) {
@@ -134,15 +124,10 @@ public class SalesService {
 	}
 
 	private void setCustomerData(Purchase purchase) {
-		try {
-			Customer customer = customerFunction.findCustomer(purchase.getCustomerCpf());
-			purchase.setCustomerName(customer.getFullName());
-			purchase.setDeliveryZipCode(customer.getZipCode());
-			purchase.setDeliveryAddress(customer.getAddress() + ", " + customer.getCity() + " - " + customer.getState() + ", " + customer.getCountry()); //Get the complete address
-		}
-		catch (FeignException.NotFound e){
-			throw new EntityNotFoundException(CUSTOMER_NOT_FOUND);
-		}
+		CustomerSnapshot customer = customerSnapshotService.getCustomer(purchase.getCustomerCpf());
+		purchase.setCustomerName(customer.getFullName());
+		purchase.setDeliveryZipCode(customer.getZipCode());
+		purchase.setDeliveryAddress(customer.getDeliveryAddress()); //Already rendered by msCustomers
 	}
 
 	private void saveHistory(Purchase savedPurchase) {
@@ -152,7 +137,7 @@ public class SalesService {
 		purchaseHistory.setStatus(savedPurchase.getStatus());
 		purchaseHistory.setStatusDate(LocalDateTime.now());
 
-		purchaseHistoryFunction.saveHistory(purchaseHistory);
+		purchaseHistoryPublisher.publish(purchaseHistory);
 	}
 
 }
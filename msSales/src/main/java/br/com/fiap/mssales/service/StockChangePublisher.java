@@ -0,0 +1,51 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.functions.ProductFunction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+//Stock given back to msStock by the cancellations, the compensations and the expired reservations. Nothing is waiting
+//for its answer, so with the broker transport the changes are sent to stock-updates and applied by msStock in batches.
+//A change not confirmed by the broker fails with a MessagingException, like a call to msStock not answered.
+//Each change carries the changeId of its saga step or expired purchase, msStock applies a message delivered again once.
+@Service
+public class StockChangePublisher {
+	static final String BINDING = "updateStock-out-0";
+	static final String BROKER = "broker";
+
+	private final ProductFunction productFunction;
+	private final BrokerPublisher brokerPublisher;
+	private final boolean broker;
+
+	public StockChangePublisher(ProductFunction productFunction,
+			BrokerPublisher brokerPublisher,
+			@Value("${sales.events.transport}") String transport) {
+		this.productFunction = productFunction;
+		this.brokerPublisher = brokerPublisher;
+		this.broker = BROKER.equalsIgnoreCase(transport);
+	}
+
+	public void updateStock(Product product) {
+		if (!this.broker) {
+			this.productFunction.updateStock(product);
+			return;
+		}
+		this.brokerPublisher.send(BINDING, product);
+	}
+
+	//One message per product, msStock gathers them again in its batches
+	public void updateStocks(List<Product> products) {
+		if (!this.broker) {
+			this.productFunction.updateStocks(products);
+			return;
+		}
+		List<Integer> notSent = this.brokerPublisher.sendAll(BINDING, products);
+		if (!notSent.isEmpty()) {
+			throw new MessageDeliveryException(notSent.size() + " of " + products.size() + " stock changes not sent");
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package br.com.fiap.mssales.benchmark;
+
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.entity.PurchaseHistory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+//Encode and decode time of JSON and Smile for batches of the objects sent between the services. The payload sizes,
+//raw and gzipped, are printed once before the benchmarks run.
+//Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=br.com.fiap.mssales.benchmark.CodecBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+	private static final int BATCH_SIZE = 1000;
+	private static final TypeReference<List<Product>> PRODUCTS = new TypeReference<>() {};
+	private static final TypeReference<List<PurchaseHistory>> HISTORY = new TypeReference<>() {};
+
+	@Param({"json", "smile"})
+	public String codec;
+
+	private ObjectMapper mapper;
+	private List<Product> products;
+	private List<PurchaseHistory> history;
+	private byte[] productsPayload;
+	private byte[] historyPayload;
+
+	@Setup
+	public void setup() throws IOException {
+		mapper = mapper(codec);
+		products = products();
+		history = history();
+		productsPayload = mapper.writeValueAsBytes(products);
+		historyPayload = mapper.writeValueAsBytes(history);
+	}
+
+	@Benchmark
+	public byte[] encodeProducts() throws IOException {
+		return mapper.writeValueAsBytes(products);
+	}
+
+	@Benchmark
+	public List<Product> decodeProducts() throws IOException {
+		return mapper.readValue(productsPayload, PRODUCTS);
+	}
+
+	@Benchmark
+	public byte[] encodeHistory() throws IOException {
+		return mapper.writeValueAsBytes(history);
+	}
+
+	@Benchmark
+	public List<PurchaseHistory> decodeHistory() throws IOException {
+		return mapper.readValue(historyPayload, HISTORY);
+	}
+
+	private static ObjectMapper mapper(String codec) {
+		return "smile".equals(codec)
+				? Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build()
+				: Jackson2ObjectMapperBuilder.json().build();
+	}
+
+	private static List<Product> products() {
+		List<Product> products = new ArrayList<>(BATCH_SIZE);
+		for (int i = 1; i <= BATCH_SIZE; i++) {
+			Product product = new Product();
+			product.setId((long) i);
+			product.setName("Bola de futebol " + i);
+			product.setDescription("Bola oficial tamanho 5, costurada a mão");
+			product.setPrice(129.9f + i);
+			product.setQuantity(i % 50);
+			products.add(product);
+		}
+		return products;
+	}
+
+	private static List<PurchaseHistory> history() {
+		List<PurchaseHistory> history = new ArrayList<>(BATCH_SIZE);
+		for (int i = 1; i <= BATCH_SIZE; i++) {
+			PurchaseHistory event = new PurchaseHistory();
+			event.setPurchaseId(1_000_000L + i);
+			event.setStatus(i % 2 == 0 ? "PAGO" : "AGUARDANDO ENTREGA");
+			event.setStatusDate(LocalDateTime.of(2024, 5, 1, 10, 0).plusSeconds(i));
+			history.add(event);
+		}
+		return history;
+	}
+
+	private static int gzipSize(byte[] payload) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(payload);
+		}
+		return out.size();
+	}
+
+	public static void main(String[] args) throws IOException, RunnerException {
+		System.out.printf("%-16s %-6s %10s %10s%n", "batch", "codec", "bytes", "gzip");
+		for (String codec : new String[]{"json", "smile"}) {
+			ObjectMapper mapper = mapper(codec);
+			byte[] products = mapper.writeValueAsBytes(products());
+			byte[] history = mapper.writeValueAsBytes(history());
+			System.out.printf("%-16s %-6s %10d %10d%n", "Product", codec, products.length, gzipSize(products));
+			System.out.printf("%-16s %-6s %10d %10d%n", "PurchaseHistory", codec, history.length, gzipSize(history));
+		}
+
+		new Runner(new OptionsBuilder().include(CodecBenchmark.class.getSimpleName()).build()).run();
+	}
+}
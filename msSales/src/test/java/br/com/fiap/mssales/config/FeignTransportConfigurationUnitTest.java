@@ -0,0 +1,92 @@
+package br.com.fiap.mssales.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpHost;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FeignTransportConfigurationUnitTest {
+	//One url with the port, one for each default port
+	private static final String CUSTOMER_URL = "http://mscustomers:8081/api";
+	private static final String PRODUCT_URL = "http://msstock/api";
+	private static final String HISTORY_URL = "https://mslogistic/api";
+	private static final int CUSTOMER_MAX_CONNECTIONS = 10;
+	private static final int PRODUCT_MAX_CONNECTIONS = 30;
+	private static final int HISTORY_MAX_CONNECTIONS = 20;
+
+	private final FeignTransportConfiguration configuration = new FeignTransportConfiguration();
+	private PoolingHttpClientConnectionManager connectionManager;
+
+	@BeforeEach
+	void setup() {
+		connectionManager = configuration.feignConnectionManager(CUSTOMER_URL, CUSTOMER_MAX_CONNECTIONS,
+				PRODUCT_URL, PRODUCT_MAX_CONNECTIONS, HISTORY_URL, HISTORY_MAX_CONNECTIONS, 1000, 60000, 2000);
+	}
+
+	@AfterEach
+	void tearDown() {
+		connectionManager.close();
+	}
+
+	private static HttpRoute route(String scheme, String host, int port) {
+		return new HttpRoute(new HttpHost(scheme, host, port));
+	}
+
+	@Nested
+	class ConnectionManager {
+		@Test
+		void allowLimitConnections_OfEachTarget() {
+			//Act && Assert
+			assertThat(connectionManager.getMaxPerRoute(route("http", "mscustomers", 8081))).isEqualTo(CUSTOMER_MAX_CONNECTIONS);
+			assertThat(connectionManager.getMaxTotal())
+					.isEqualTo(CUSTOMER_MAX_CONNECTIONS + PRODUCT_MAX_CONNECTIONS + HISTORY_MAX_CONNECTIONS);
+		}
+
+		@Test
+		void allowLimitConnections_WhenTheUrlHasTheDefaultPort() {
+			//Act && Assert
+			assertThat(connectionManager.getMaxPerRoute(route("http", "msstock", 80))).isEqualTo(PRODUCT_MAX_CONNECTIONS);
+			assertThat(connectionManager.getMaxPerRoute(route("https", "mslogistic", 443))).isEqualTo(HISTORY_MAX_CONNECTIONS);
+		}
+
+		@Test
+		void shouldNotLimitConnections_OfAnotherRoute() {
+			//Act && Assert
+			assertThat(connectionManager.getMaxPerRoute(route("http", "msstock", 8082)))
+					.isEqualTo(connectionManager.getDefaultMaxPerRoute());
+		}
+	}
+
+	@Nested
+	class PoolMetrics {
+		@Test
+		void allowRegisterPoolGauges_OfEachTarget() {
+			//Arrange
+			SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+			//Act
+			configuration.feignConnectionPoolMetrics(connectionManager, CUSTOMER_URL, PRODUCT_URL, HISTORY_URL).bindTo(registry);
+
+			//Assert
+			for (String name : new String[]{"feign.pool.leased", "feign.pool.available", "feign.pool.pending", "feign.pool.max"}) {
+				assertThat(registry.find(name).gauges()).extracting(gauge -> gauge.getId().getTag("target"))
+						.containsExactlyInAnyOrder("customer", "product", "history");
+			}
+			assertThat(gauge(registry, "feign.pool.max", "customer").value()).isEqualTo(CUSTOMER_MAX_CONNECTIONS);
+			assertThat(gauge(registry, "feign.pool.max", "product").value()).isEqualTo(PRODUCT_MAX_CONNECTIONS);
+			assertThat(gauge(registry, "feign.pool.max", "history").value()).isEqualTo(HISTORY_MAX_CONNECTIONS);
+			assertThat(gauge(registry, "feign.pool.leased", "product").value()).isZero();
+		}
+
+		private Gauge gauge(SimpleMeterRegistry registry, String name, String target) {
+			return registry.get(name).tag("target", target).gauge();
+		}
+	}
+}
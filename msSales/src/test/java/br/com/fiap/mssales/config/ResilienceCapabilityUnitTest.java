@@ -0,0 +1,78 @@
+package br.com.fiap.mssales.config;
+
+import br.com.fiap.mssales.functions.ProductFunction;
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Target;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResilienceCapabilityUnitTest {
+	private static final int READ_TIMEOUT = 5000;
+
+	private Client client;
+	private final List<Request.Options> options = new ArrayList<>();
+
+	@BeforeEach
+	void setup() {
+		ResilienceCapability capability = new ResilienceCapability(CircuitBreakerRegistry.ofDefaults(),
+				BulkheadRegistry.ofDefaults(), new SimpleMeterRegistry(), 250, 2);
+		client = capability.enrich((request, callOptions) -> {
+			options.add(callOptions);
+			return Response.builder().status(200).request(request).headers(Map.of()).build();
+		});
+	}
+
+	private Request request(Request.HttpMethod method, String path) {
+		RequestTemplate template = new RequestTemplate();
+		template.feignTarget(new Target.HardCodedTarget<>(ProductFunction.class, "product", "http://localhost:8082/api"));
+		return Request.create(method, "http://localhost:8082/api" + path, Map.of(), null, StandardCharsets.UTF_8, template);
+	}
+
+	private long execute(Request request) throws Exception {
+		Request.Options configured = new Request.Options(1000, TimeUnit.MILLISECONDS, READ_TIMEOUT, TimeUnit.MILLISECONDS, true);
+		client.execute(request, configured).close();
+		return options.get(options.size() - 1).readTimeoutMillis();
+	}
+
+	@Test
+	void allowAdaptReadTimeout_OfTheReads() throws Exception {
+		//Arrange
+		execute(request(Request.HttpMethod.GET, "/findProduct/1"));
+		execute(request(Request.HttpMethod.GET, "/findProduct/2"));
+
+		//Act
+		long readTimeout = execute(request(Request.HttpMethod.GET, "/findProduct/3"));
+
+		//Assert
+		assertThat(readTimeout).isEqualTo(250); //Answered right away, the minimum is used
+	}
+
+	@Test
+	void shouldKeepTheConfiguredReadTimeout_OfTheWrites() throws Exception {
+		//Arrange
+		execute(request(Request.HttpMethod.GET, "/findProduct/1"));
+		execute(request(Request.HttpMethod.GET, "/findProduct/2"));
+
+		//Act
+		long updateStock = execute(request(Request.HttpMethod.POST, "/updateStock"));
+		long updateStocks = execute(request(Request.HttpMethod.POST, "/updateStocks"));
+
+		//Assert
+		assertThat(updateStock).isEqualTo(READ_TIMEOUT);
+		assertThat(updateStocks).isEqualTo(READ_TIMEOUT);
+	}
+}
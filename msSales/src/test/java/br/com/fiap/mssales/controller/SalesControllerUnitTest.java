@@ -1,8 +1,14 @@
 package br.com.fiap.mssales.controller;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mssales.controller.exception.ControllerExceptionHandler;
 import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.repository.IdempotencyKeyRepository;
+import br.com.fiap.mssales.repository.PurchaseRepository;
+import br.com.fiap.mssales.service.BlockingCheckoutService;
+import br.com.fiap.mssales.service.IdempotencyKeyStore;
 import br.com.fiap.mssales.service.SalesService;
+import br.com.fiap.mssales.utils.IdempotencyKeyUtils;
 import br.com.fiap.mssales.utils.PurchaseUtils;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.AfterEach;
@@ -13,14 +19,17 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class SalesControllerUnitTest {
@@ -29,12 +38,20 @@ public class SalesControllerUnitTest {
 	@Mock
 	private SalesService salesService;
 
+	@Mock
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	@Mock
+	private PurchaseRepository purchaseRepository;
+
 	AutoCloseable openMocks;
 
 	@BeforeEach
 	void setup(){
 		openMocks = MockitoAnnotations.openMocks(this);
-		SalesController salesController = new SalesController(salesService);
+		IdempotencyKeyUtils.storeKeys(idempotencyKeyRepository);
+		SalesController salesController = new SalesController(salesService, new BlockingCheckoutService(salesService),
+				new IdempotencyKeyStore(idempotencyKeyRepository, purchaseRepository, 60000, 60000, 10));
 		mockMvc = MockMvcBuilders.standaloneSetup(salesController)
 				.setControllerAdvice(new ControllerExceptionHandler())
 				.build();
@@ -122,26 +139,82 @@ public class SalesControllerUnitTest {
 			when(salesService.createPurchase(any(Purchase.class))).thenReturn(purchase);
 
 			//Act
-			mockMvc.perform(post("/sales/createPurchase")
+			MvcResult result = mockMvc.perform(post("/sales/createPurchase")
 					.contentType("application/json")
 					.content(PurchaseUtils.asJsonString(purchase)))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			mockMvc.perform(asyncDispatch(result))
 					.andExpect(status().isCreated());
 
 			//Assert
 			verify(salesService, times(1)).createPurchase(any(Purchase.class));
 		}
 
+		@Test
+		void allowCreatePurchase_OnceWithTheSameIdempotencyKey() throws Exception {
+			//Arrange
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			when(salesService.createPurchase(any(Purchase.class))).thenReturn(purchase);
+			when(purchaseRepository.findById(1L)).thenReturn(Optional.of(purchase)); // The retry gets the stored purchase
+
+			//Act
+			for (int i = 0; i < 2; i++) {
+				MvcResult result = mockMvc.perform(post("/sales/createPurchase")
+								.header(SalesController.IDEMPOTENCY_KEY, "a4f1c7de-retry")
+								.contentType("application/json")
+								.content(PurchaseUtils.asJsonString(purchase)))
+						.andExpect(request().asyncStarted())
+						.andReturn();
+				mockMvc.perform(asyncDispatch(result))
+						.andExpect(status().isCreated());
+			}
+
+			//Assert
+			verify(salesService, times(1)).createPurchase(any(Purchase.class));
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenCreatePurchase_IdempotencyKeyReused() throws Exception {
+			//Arrange
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			when(salesService.createPurchase(any(Purchase.class))).thenReturn(purchase);
+			MvcResult first = mockMvc.perform(post("/sales/createPurchase")
+							.header(SalesController.IDEMPOTENCY_KEY, "a4f1c7de-reused")
+							.contentType("application/json")
+							.content(PurchaseUtils.asJsonString(purchase)))
+					.andReturn();
+			mockMvc.perform(asyncDispatch(first));
+			purchase.getItems().get(0).setQuantity(50); // Another purchase with the same key
+
+			//Act
+			MvcResult result = mockMvc.perform(post("/sales/createPurchase")
+							.header(SalesController.IDEMPOTENCY_KEY, "a4f1c7de-reused")
+							.contentType("application/json")
+							.content(PurchaseUtils.asJsonString(purchase)))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			mockMvc.perform(asyncDispatch(result))
+					.andExpect(status().isBadRequest());
+
+			//Assert
+			verify(salesService, times(1)).createPurchase(any(Purchase.class));
+		}
+
 		@Test
 		void shouldThrowEntityNotFoundException_WhenCreatePurchase_Customer() throws Exception {
 			//Arrange
 			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
-			purchase.setCustomerCpf("553.628.452-50"); // Not found customer
+			purchase.setCustomerCpf(Cpf.parse("553.628.452-50")); // Not found customer
 			when(salesService.createPurchase(any(Purchase.class))).thenThrow(EntityNotFoundException.class);
 
 			//Act
-			mockMvc.perform(post("/sales/createPurchase")
+			MvcResult result = mockMvc.perform(post("/sales/createPurchase")
 					.contentType("application/json")
 					.content(PurchaseUtils.asJsonString(purchase)))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			mockMvc.perform(asyncDispatch(result))
 					.andExpect(status().isNotFound());
 			//Assert
 			verify(salesService, times(1)).createPurchase(any(Purchase.class));
@@ -156,9 +229,12 @@ public class SalesControllerUnitTest {
 			when(salesService.createPurchase(any(Purchase.class))).thenThrow(EntityNotFoundException.class);
 
 			//Act
-			mockMvc.perform(post("/sales/createPurchase")
+			MvcResult result = mockMvc.perform(post("/sales/createPurchase")
 							.contentType("application/json")
 							.content(PurchaseUtils.asJsonString(purchase)))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			mockMvc.perform(asyncDispatch(result))
 					.andExpect(status().isNotFound());
 
 			//Assert
@@ -169,7 +245,7 @@ public class SalesControllerUnitTest {
 		void shouldThrowMethodArgumentNotValidException_WhenCreatePurchase() throws Exception {
 			//Arrange
 			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
-			purchase.setCustomerCpf("00000000000"); // Invalid CPF
+			purchase.setCustomerCpf(0L); // Invalid CPF
 			purchase.getItems().get(0).setQuantity(-1); // Invalid quantity
 
 			//Act
@@ -0,0 +1,103 @@
+package br.com.fiap.mssales.repository;
+
+import br.com.fiap.mssales.entity.IdempotencyKey;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.Rollback;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@Rollback
+class IdempotencyKeyRepositoryIntegTest {
+	@Autowired
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	@Test
+	void allowInsertIfAbsent(){
+		//Arrange
+		LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(1);
+
+		//Act
+		int first = idempotencyKeyRepository.insertIfAbsent("key-insert", "fingerprint-1", "EM ANDAMENTO", expiresAt);
+		int second = idempotencyKeyRepository.insertIfAbsent("key-insert", "fingerprint-2", "EM ANDAMENTO", expiresAt);
+		Optional<IdempotencyKey> key = idempotencyKeyRepository.findById("key-insert");
+
+		//Assert
+		assertThat(first).isEqualTo(1);
+		assertThat(second).isZero();
+		assertThat(key).isPresent();
+		assertThat(key.get().getFingerprint()).isEqualTo("fingerprint-1");
+	}
+
+	@Test
+	void allowComplete(){
+		//Arrange
+		idempotencyKeyRepository.insertIfAbsent("key-complete", "fingerprint", "EM ANDAMENTO", LocalDateTime.now());
+
+		//Act
+		int completed = idempotencyKeyRepository.complete("key-complete", "CONCLUIDA", 1L, LocalDateTime.now().plusHours(1));
+		Optional<IdempotencyKey> key = idempotencyKeyRepository.findById("key-complete");
+
+		//Assert
+		assertThat(completed).isEqualTo(1);
+		assertThat(key).isPresent();
+		assertThat(key.get().getStatus()).isEqualTo("CONCLUIDA");
+		assertThat(key.get().getPurchaseId()).isEqualTo(1L);
+	}
+
+	@Test
+	void allowDeleteByKeyAndStatus(){
+		//Arrange
+		idempotencyKeyRepository.insertIfAbsent("key-delete", "fingerprint", "EM ANDAMENTO", LocalDateTime.now().plusMinutes(1));
+
+		//Act
+		int completedNotDeleted = idempotencyKeyRepository.deleteByKeyAndStatus("key-delete", "CONCLUIDA");
+		int deleted = idempotencyKeyRepository.deleteByKeyAndStatus("key-delete", "EM ANDAMENTO");
+
+		//Assert
+		assertThat(completedNotDeleted).isZero();
+		assertThat(deleted).isEqualTo(1);
+		assertThat(idempotencyKeyRepository.findById("key-delete")).isEmpty();
+	}
+
+	@Test
+	void allowDeleteExpired(){
+		//Arrange
+		LocalDateTime now = LocalDateTime.now();
+		idempotencyKeyRepository.insertIfAbsent("key-expired", "fingerprint", "EM ANDAMENTO", now.minusSeconds(1));
+		idempotencyKeyRepository.insertIfAbsent("key-valid", "fingerprint", "EM ANDAMENTO", now.plusMinutes(1));
+
+		//Act
+		int notExpired = idempotencyKeyRepository.deleteExpired("key-valid", now);
+		int expired = idempotencyKeyRepository.deleteExpired("key-expired", now);
+
+		//Assert
+		assertThat(notExpired).isZero();
+		assertThat(expired).isEqualTo(1);
+		assertThat(idempotencyKeyRepository.findById("key-expired")).isEmpty();
+		assertThat(idempotencyKeyRepository.findById("key-valid")).isPresent();
+	}
+
+	@Test
+	void allowDeleteAllExpired(){
+		//Arrange
+		LocalDateTime now = LocalDateTime.now();
+		idempotencyKeyRepository.insertIfAbsent("key-expired-1", "fingerprint", "CONCLUIDA", now.minusSeconds(2));
+		idempotencyKeyRepository.insertIfAbsent("key-expired-2", "fingerprint", "CONCLUIDA", now.minusSeconds(1));
+		idempotencyKeyRepository.insertIfAbsent("key-valid", "fingerprint", "CONCLUIDA", now.plusMinutes(1));
+
+		//Act
+		int removed = idempotencyKeyRepository.deleteAllExpired(now);
+
+		//Assert
+		assertThat(removed).isGreaterThanOrEqualTo(2);
+		assertThat(idempotencyKeyRepository.findById("key-valid")).isPresent();
+	}
+}
@@ -1,6 +1,8 @@
 package br.com.fiap.mssales.repository;
 
 import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.entity.PurchaseSaga;
+import br.com.fiap.mssales.utils.PurchaseItemUtils;
 import br.com.fiap.mssales.utils.PurchaseUtils;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.Test;
@@ -8,10 +10,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Rollback;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -20,6 +24,18 @@ class PurchaseRepositoryIntegTest {
 	@Autowired
 	private PurchaseRepository purchaseRepository;
 
+	@Autowired
+	private PurchaseSagaRepository purchaseSagaRepository;
+
+	//Created before any purchase of the database, so only the ones of the test are found
+	private static final LocalDateTime EXPIRED_AT = LocalDateTime.of(1999, 1, 1, 0, 0);
+
+	private Purchase saveExpired(String status, int minutes) {
+		Purchase purchase = PurchaseUtils.createFakePurchase(status);
+		purchase.setCreatedAt(EXPIRED_AT.minusMinutes(minutes));
+		return purchaseRepository.save(purchase);
+	}
+
 	@Test
 	void allowFindById(){
 		//Arrange
@@ -64,4 +80,69 @@ class PurchaseRepositoryIntegTest {
 		assertThat(newPurchase.getCustomerCpf()).isNotNull().isEqualTo(p1.getCustomerCpf());
 		assertThat(newPurchase.getDeliveryZipCode()).isNotNull().isEqualTo(p1.getDeliveryZipCode());
 	}
+
+	@Test
+	void allowLockCreatedBefore(){
+		//Arrange
+		Purchase newest = saveExpired("AGUARDANDO PAGAMENTO", 1);
+		Purchase oldest = saveExpired("AGUARDANDO PAGAMENTO", 3);
+		Purchase middle = saveExpired("AGUARDANDO PAGAMENTO", 2);
+		saveExpired("PAGO", 4);
+		Purchase running = saveExpired("AGUARDANDO PAGAMENTO", 5);
+		PurchaseSaga saga = new PurchaseSaga();
+		saga.setPurchaseId(running.getId());
+		saga.setType("RESERVA");
+		saga.setStatus("EM ANDAMENTO");
+		saga.setStep(0);
+		saga.setUpdatedAt(LocalDateTime.now());
+		purchaseSagaRepository.save(saga);
+
+		//Act
+		List<Long> ids = purchaseRepository.lockCreatedBefore("AGUARDANDO PAGAMENTO", EXPIRED_AT,
+				List.of("EM ANDAMENTO", "COMPENSANDO"), 2);
+		List<Long> all = purchaseRepository.lockCreatedBefore("AGUARDANDO PAGAMENTO", EXPIRED_AT,
+				List.of("EM ANDAMENTO", "COMPENSANDO"), 10);
+
+		//Assert
+		assertThat(ids).containsExactly(oldest.getId(), middle.getId());
+		assertThat(all).containsExactly(oldest.getId(), middle.getId(), newest.getId());
+	}
+
+	@Test
+	void allowSumQuantities(){
+		//Arrange
+		Purchase p1 = PurchaseUtils.createFakePurchase("AGUARDANDO PAGAMENTO");
+		p1.setItems(List.of(PurchaseItemUtils.createFakePurchaseItem(1L, 2), PurchaseItemUtils.createFakePurchaseItem(2L, 1),
+				PurchaseItemUtils.createFakePurchaseItem(1L, 3)));
+		Purchase p2 = PurchaseUtils.createFakePurchase("AGUARDANDO PAGAMENTO");
+		p2.setItems(List.of(PurchaseItemUtils.createFakePurchaseItem(2L, 4)));
+		Purchase p3 = PurchaseUtils.createFakePurchase("AGUARDANDO PAGAMENTO");
+		Long id1 = purchaseRepository.saveAndFlush(p1).getId(); //The join table is written on the flush
+		Long id2 = purchaseRepository.saveAndFlush(p2).getId();
+		purchaseRepository.saveAndFlush(p3);
+
+		//Act
+		List<PurchaseRepository.ProductQuantity> quantities = purchaseRepository.sumQuantities(List.of(id1, id2));
+
+		//Assert
+		assertThat(quantities)
+				.extracting(PurchaseRepository.ProductQuantity::getPurchaseId, PurchaseRepository.ProductQuantity::getProductId,
+						PurchaseRepository.ProductQuantity::getQuantity)
+				.containsExactly(tuple(id1, 1L, 5L), tuple(id1, 2L, 1L), tuple(id2, 2L, 4L));
+	}
+
+	@Test
+	void allowUpdateStatus(){
+		//Arrange
+		Purchase p1 = saveExpired("AGUARDANDO PAGAMENTO", 1);
+		Purchase p2 = saveExpired("AGUARDANDO PAGAMENTO", 2);
+
+		//Act
+		int updated = purchaseRepository.updateStatus(List.of(p1.getId(), p2.getId()), "CANCELADO");
+		List<Long> waiting = purchaseRepository.lockCreatedBefore("AGUARDANDO PAGAMENTO", EXPIRED_AT, List.of("EM ANDAMENTO"), 10);
+
+		//Assert
+		assertThat(updated).isEqualTo(2);
+		assertThat(waiting).isEmpty();
+	}
 }
@@ -0,0 +1,124 @@
+package br.com.fiap.mssales.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class BrokerPublisherUnitTest {
+
+	@Mock
+	private StreamBridge streamBridge;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	//Answers each message sent like the broker, completing its correlation
+	private void brokerAnswers(Consumer<CorrelationData> answer) {
+		when(streamBridge.send(anyString(), any())).thenAnswer(invocation -> {
+			Message<?> message = invocation.getArgument(1);
+			answer.accept(message.getHeaders().get(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, CorrelationData.class));
+			return true;
+		});
+	}
+
+	private static ReturnedMessage returned() {
+		return new ReturnedMessage(new org.springframework.amqp.core.Message(new byte[0], new MessageProperties()),
+				312, "NO_ROUTE", "stock-updates", "");
+	}
+
+	@Nested
+	class SendAll {
+		@Test
+		void allowSendAll_Confirmed() {
+			//Arrange
+			BrokerPublisher publisher = new BrokerPublisher(streamBridge, 1000);
+			brokerAnswers(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null)));
+
+			//Act
+			List<Integer> notSent = publisher.sendAll("updateStock-out-0", List.of("a", "b"));
+
+			//Assert
+			assertThat(notSent).isEmpty();
+			verify(streamBridge, times(2)).send(eq("updateStock-out-0"), any(Message.class));
+		}
+
+		@Test
+		void allowSendAll_NackedReturnedAndNotConfirmed() {
+			//Arrange
+			BrokerPublisher publisher = new BrokerPublisher(streamBridge, 100);
+			int[] sent = {0};
+			brokerAnswers(correlation -> {
+				switch (sent[0]++) {
+					case 0 -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+					case 1 -> correlation.getFuture().complete(new CorrelationData.Confirm(false, "nack"));
+					case 2 -> {
+						correlation.setReturned(returned()); // No queue bound, acked after the return
+						correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+					}
+					default -> { } // Never confirmed
+				}
+			});
+
+			//Act
+			List<Integer> notSent = publisher.sendAll("updateStock-out-0", List.of("a", "b", "c", "d"));
+
+			//Assert
+			assertThat(notSent).containsExactly(1, 2, 3);
+		}
+
+		@Test
+		void allowSendAll_WithoutWaitingTheConfirmations() {
+			//Arrange
+			BrokerPublisher publisher = new BrokerPublisher(streamBridge, 0);
+			when(streamBridge.send(anyString(), any())).thenReturn(true, false);
+
+			//Act
+			List<Integer> notSent = publisher.sendAll("updateStock-out-0", List.of("a", "b"));
+
+			//Assert
+			assertThat(notSent).containsExactly(1);
+		}
+	}
+
+	@Nested
+	class Send {
+		@Test
+		void shouldThrowMessageDeliveryException_WhenSend_NotConfirmed() {
+			//Arrange
+			BrokerPublisher publisher = new BrokerPublisher(streamBridge, 100);
+			brokerAnswers(correlation -> correlation.getFuture().complete(new CorrelationData.Confirm(false, "nack")));
+
+			//Act && Assert
+			assertThatExceptionOfType(MessageDeliveryException.class)
+					.isThrownBy(() -> publisher.send("saveHistory-out-0", "a"));
+		}
+	}
+}
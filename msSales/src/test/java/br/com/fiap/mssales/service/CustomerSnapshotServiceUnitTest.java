@@ -0,0 +1,246 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Customer;
+import br.com.fiap.mssales.entity.CustomerChange;
+import br.com.fiap.mssales.entity.CustomerFeedCursor;
+import br.com.fiap.mssales.entity.CustomerSnapshot;
+import br.com.fiap.mssales.functions.CustomerFunction;
+import br.com.fiap.mssales.repository.CustomerFeedCursorRepository;
+import br.com.fiap.mssales.repository.CustomerSnapshotRepository;
+import br.com.fiap.mssales.utils.PurchaseUtils;
+import feign.FeignException;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class CustomerSnapshotServiceUnitTest {
+
+	private CustomerSnapshotService customerSnapshotService;
+
+	@Mock
+	private CustomerSnapshotRepository customerSnapshotRepository;
+
+	@Mock
+	private CustomerFeedCursorRepository customerFeedCursorRepository;
+
+	@Mock
+	private CustomerFunction customerFunction;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		customerSnapshotService = new CustomerSnapshotService(customerSnapshotRepository, customerFeedCursorRepository,
+				customerFunction);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	@Nested
+	class GetCustomer{
+		@Test
+		void allowGetCustomer_FromSnapshot() {
+			//Arrange
+			Customer customer = PurchaseUtils.createFakeCustomer();
+			CustomerSnapshot snapshot = CustomerSnapshot.of(customer);
+			when(customerSnapshotRepository.findById(any(Long.class))).thenReturn(Optional.of(snapshot));
+
+			//Act
+			CustomerSnapshot findSnapshot = customerSnapshotService.getCustomer(customer.getCpf());
+
+			//Assert
+			assertThat(findSnapshot).isEqualTo(snapshot);
+			verify(customerFunction, never()).findCustomer(any(String.class));
+		}
+
+		@Test
+		void allowGetCustomer_FromMsCustomers_WhenSnapshotNotFound() {
+			//Arrange
+			Customer customer = PurchaseUtils.createFakeCustomer();
+			when(customerSnapshotRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+			when(customerFunction.findCustomer(any(String.class))).thenReturn(customer);
+			when(customerSnapshotRepository.save(any(CustomerSnapshot.class))).thenAnswer(s -> s.getArgument(0));
+
+			//Act
+			CustomerSnapshot findSnapshot = customerSnapshotService.getCustomer(customer.getCpf());
+
+			//Assert
+			assertThat(findSnapshot.getDeliveryAddress()).isEqualTo("Rua dos Bobos, 0, São Paulo - São Paulo, Brasil");
+			verify(customerFunction, times(1)).findCustomer("822.685.230-71");
+			verify(customerSnapshotRepository, times(1)).save(any(CustomerSnapshot.class));
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenCustomerWasDeleted() {
+			//Arrange
+			CustomerSnapshot snapshot = CustomerSnapshot.of(PurchaseUtils.createFakeCustomer());
+			snapshot.setDeleted(true);
+			when(customerSnapshotRepository.findById(any(Long.class))).thenReturn(Optional.of(snapshot));
+
+			//Act && Assert
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> customerSnapshotService.getCustomer(snapshot.getCpf()));
+			verify(customerFunction, never()).findCustomer(any(String.class));
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenCustomerNotFound() {
+			//Arrange
+			when(customerSnapshotRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+			when(customerFunction.findCustomer(any(String.class))).thenThrow(FeignException.NotFound.class);
+
+			//Act && Assert
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> customerSnapshotService.getCustomer(82268523071L));
+			verify(customerSnapshotRepository, never()).save(any(CustomerSnapshot.class));
+		}
+
+		@Test
+		void allowGetCustomer_SavedMeanwhileByAChange() {
+			//Arrange
+			Customer customer = PurchaseUtils.createFakeCustomer();
+			CustomerSnapshot snapshot = CustomerSnapshot.of(customer);
+			snapshot.setLastChangeId(8L);
+			when(customerSnapshotRepository.findById(any(Long.class))).thenReturn(Optional.empty(), Optional.of(snapshot));
+			when(customerFunction.findCustomer(any(String.class))).thenReturn(customer);
+			when(customerSnapshotRepository.save(any(CustomerSnapshot.class))).thenThrow(DataIntegrityViolationException.class);
+
+			//Act
+			CustomerSnapshot findSnapshot = customerSnapshotService.getCustomer(customer.getCpf());
+
+			//Assert
+			assertThat(findSnapshot).isSameAs(snapshot);
+			verify(customerFunction, times(1)).findCustomer(any(String.class));
+		}
+	}
+
+	@Nested
+	class SyncChanges{
+		private CustomerFeedCursor cursor(long lastChangeId) {
+			CustomerFeedCursor cursor = new CustomerFeedCursor();
+			cursor.setSource("FEED");
+			cursor.setLastChangeId(lastChangeId);
+			return cursor;
+		}
+
+		@Test
+		@SuppressWarnings("unchecked")
+		void allowSyncChanges() {
+			//Arrange
+			Customer customer = PurchaseUtils.createFakeCustomer();
+			CustomerSnapshot snapshot = CustomerSnapshot.of(customer);
+			snapshot.setLastChangeId(5L);
+
+			CustomerChange oldChange = createChange(4L, customer.getCpf(), "UPSERT");
+			CustomerChange deleteChange = createChange(6L, customer.getCpf(), CustomerChange.DELETE);
+			CustomerChange newChange = createChange(7L, 90501387056L, "UPSERT");
+
+			when(customerFeedCursorRepository.findById("FEED")).thenReturn(Optional.of(cursor(3L)));
+			when(customerFunction.customerChanges(3L)).thenReturn(List.of(oldChange, deleteChange, newChange));
+			when(customerFunction.customerChanges(7L)).thenReturn(List.of());
+			when(customerSnapshotRepository.findAllById(anyList())).thenReturn(List.of(snapshot));
+
+			//Act
+			customerSnapshotService.syncChanges();
+
+			//Assert
+			ArgumentCaptor<List<CustomerSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+			verify(customerSnapshotRepository, times(1)).saveAll(captor.capture());
+			assertThat(captor.getValue()).hasSize(2);
+			assertThat(snapshot.isDeleted()).isTrue();
+			assertThat(snapshot.getLastChangeId()).isEqualTo(6L);
+			assertThat(captor.getValue()).anySatisfy(s -> {
+				assertThat(s.getCpf()).isEqualTo(90501387056L);
+				assertThat(s.getDeliveryAddress()).isEqualTo(newChange.getDeliveryAddress());
+			});
+		}
+
+		@Test
+		@SuppressWarnings("unchecked")
+		void allowSyncChanges_FromItsOwnPosition() {
+			//Arrange
+			Customer customer = PurchaseUtils.createFakeCustomer();
+			CustomerSnapshot snapshot = CustomerSnapshot.of(customer);
+			snapshot.setLastChangeId(9L); //Received from the broker, changes 5 to 8 were sent to the dead letter queue
+			CustomerChange lostChange = createChange(5L, 90501387056L, "UPSERT");
+			CustomerChange receivedChange = createChange(9L, customer.getCpf(), "UPSERT");
+
+			when(customerFeedCursorRepository.findById("FEED")).thenReturn(Optional.empty());
+			when(customerFunction.customerChanges(0L)).thenReturn(List.of(lostChange, receivedChange));
+			when(customerFunction.customerChanges(9L)).thenReturn(List.of());
+			when(customerSnapshotRepository.findAllById(anyList())).thenReturn(List.of(snapshot));
+
+			//Act
+			customerSnapshotService.syncChanges();
+
+			//Assert
+			verify(customerFunction, times(1)).customerChanges(0L);
+			ArgumentCaptor<List<CustomerSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+			verify(customerSnapshotRepository, times(1)).saveAll(captor.capture());
+			assertThat(captor.getValue()).anySatisfy(s -> {
+				assertThat(s.getCpf()).isEqualTo(90501387056L);
+				assertThat(s.getLastChangeId()).isEqualTo(5L);
+			});
+			verify(customerFeedCursorRepository, times(1)).save(argThat(c -> c.getLastChangeId() == 9L));
+		}
+
+		@Test
+		void shouldKeepThePosition_WhenTheBrokerAppliedChangesMeanwhile() {
+			//Arrange
+			when(customerFeedCursorRepository.findById("FEED")).thenReturn(Optional.of(cursor(3L)));
+			when(customerFunction.customerChanges(3L)).thenReturn(List.of(createChange(4L, 90501387056L, "UPSERT")));
+			when(customerSnapshotRepository.saveAll(anyList()))
+					.thenThrow(new ObjectOptimisticLockingFailureException(CustomerSnapshot.class, 90501387056L));
+
+			//Act
+			customerSnapshotService.syncChanges();
+
+			//Assert
+			verify(customerFeedCursorRepository, never()).save(any(CustomerFeedCursor.class));
+		}
+
+		@Test
+		void shouldKeepSnapshots_WhenFeedUnavailable() {
+			//Arrange
+			when(customerFeedCursorRepository.findById("FEED")).thenReturn(Optional.empty());
+			when(customerFunction.customerChanges(any(Long.class))).thenThrow(FeignException.ServiceUnavailable.class);
+
+			//Act
+			customerSnapshotService.syncChanges();
+
+			//Assert
+			verify(customerSnapshotRepository, never()).saveAll(anyList());
+		}
+
+		private CustomerChange createChange(Long id, Long cpf, String type) {
+			CustomerChange change = new CustomerChange();
+			change.setId(id);
+			change.setCpf(cpf);
+			change.setType(type);
+			change.setFullName("Dummy customer");
+			change.setZipCode("00000-000");
+			change.setDeliveryAddress("Rua dos Bobos, " + id + ", São Paulo - São Paulo, Brasil");
+			return change;
+		}
+	}
+}
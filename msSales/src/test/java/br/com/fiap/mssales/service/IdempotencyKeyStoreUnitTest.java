@@ -0,0 +1,217 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.IdempotencyKey;
+import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.repository.IdempotencyKeyRepository;
+import br.com.fiap.mssales.repository.PurchaseRepository;
+import br.com.fiap.mssales.utils.IdempotencyKeyUtils;
+import br.com.fiap.mssales.utils.PurchaseUtils;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyKeyStoreUnitTest {
+
+	@Mock
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	@Mock
+	private PurchaseRepository purchaseRepository;
+
+	private Map<String, IdempotencyKey> keys;
+
+	private final AtomicInteger checkouts = new AtomicInteger();
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		keys = IdempotencyKeyUtils.storeKeys(idempotencyKeyRepository);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	private IdempotencyKeyStore createStore(long ttl, long runningTimeout) {
+		return new IdempotencyKeyStore(idempotencyKeyRepository, purchaseRepository, ttl, runningTimeout, 10);
+	}
+
+	private Mono<Purchase> checkout(Purchase purchase) {
+		checkouts.incrementAndGet();
+		return Mono.just(purchase);
+	}
+
+	@Nested
+	class Execute {
+		@Test
+		void allowExecute_ReturningTheStoredPurchase() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			when(purchaseRepository.findById(1L)).thenReturn(Optional.of(purchase));
+
+			//Act
+			Purchase first = store.execute("key-1", purchase, () -> checkout(purchase)).block();
+			Purchase retry = store.execute("key-1", PurchaseUtils.createFakePurchase(), () -> checkout(purchase)).block();
+
+			//Assert
+			assertThat(retry).isSameAs(first);
+			assertThat(checkouts).hasValue(1);
+			assertThat(keys.get("key-1").getStatus()).isEqualTo(IdempotencyKeyStore.COMPLETED);
+			assertThat(keys.get("key-1").getPurchaseId()).isEqualTo(1L);
+		}
+
+		@Test
+		void allowExecute_WaitingForTheCheckoutRunning() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			Sinks.One<Purchase> running = Sinks.one();
+			Mono<Purchase> first = store.execute("key-1", purchase, running::asMono);
+
+			//Act
+			Mono<Purchase> retry = store.execute("key-1", purchase, () -> checkout(purchase));
+			running.tryEmitValue(purchase);
+
+			//Assert
+			assertThat(retry.block()).isSameAs(purchase);
+			assertThat(first.block()).isSameAs(purchase);
+			assertThat(checkouts).hasValue(0);
+		}
+
+		@Test
+		void allowExecute_WaitingForTheCheckoutRunningOnAnotherInstance() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			when(purchaseRepository.findById(1L)).thenReturn(Optional.of(purchase));
+			IdempotencyKey running = IdempotencyKeyUtils.createFakeIdempotencyKey("key-1",
+					IdempotencyKeyStore.fingerprint(purchase), IdempotencyKeyStore.RUNNING, null, LocalDateTime.now().plusMinutes(1));
+			keys.put("key-1", running);
+			Mono<Purchase> retry = store.execute("key-1", purchase, () -> checkout(purchase));
+
+			//Act
+			running.setPurchaseId(1L);
+			running.setStatus(IdempotencyKeyStore.COMPLETED);
+
+			//Assert
+			assertThat(retry.block()).isSameAs(purchase);
+			assertThat(checkouts).hasValue(0);
+		}
+
+		@Test
+		void allowExecute_AgainAfterAFailure() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> store.execute("key-1", purchase, () -> Mono.error(new EntityNotFoundException())).block());
+
+			//Act
+			Purchase retry = store.execute("key-1", purchase, () -> checkout(purchase)).block();
+
+			//Assert
+			assertThat(retry).isSameAs(purchase);
+			assertThat(checkouts).hasValue(1);
+			verify(idempotencyKeyRepository, times(1)).deleteByKeyAndStatus("key-1", IdempotencyKeyStore.RUNNING);
+		}
+
+		@Test
+		void allowExecute_AgainAfterTheKeyExpired() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(0, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			store.execute("key-1", purchase, () -> checkout(purchase)).block();
+
+			//Act
+			store.execute("key-1", purchase, () -> checkout(purchase)).block();
+
+			//Assert
+			assertThat(checkouts).hasValue(2);
+			assertThat(keys).hasSize(1);
+		}
+
+		@Test
+		void allowExecute_AgainAfterTheRunningCheckoutWasInterrupted() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			keys.put("key-1", IdempotencyKeyUtils.createFakeIdempotencyKey("key-1", IdempotencyKeyStore.fingerprint(purchase),
+					IdempotencyKeyStore.RUNNING, null, LocalDateTime.now().minusSeconds(1))); // Instance stopped
+
+			//Act
+			Purchase retry = store.execute("key-1", purchase, () -> checkout(purchase)).block();
+
+			//Assert
+			assertThat(retry).isSameAs(purchase);
+			assertThat(checkouts).hasValue(1);
+			assertThat(keys.get("key-1").getStatus()).isEqualTo(IdempotencyKeyStore.COMPLETED);
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenExecute_KeyUsedByAnotherPurchase() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			store.execute("key-1", purchase, () -> checkout(purchase)).block();
+			Purchase another = PurchaseUtils.createFakePurchase(1L);
+			another.getItems().get(0).setQuantity(10);
+
+			//Act && Assert
+			assertThatExceptionOfType(DataIntegrityViolationException.class)
+					.isThrownBy(() -> store.execute("key-1", another, () -> checkout(another)).block())
+					.withMessageContaining("key-1");
+			assertThat(checkouts).hasValue(1);
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenExecute_StoredPurchaseRemoved() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
+			store.execute("key-1", purchase, () -> checkout(purchase)).block();
+			when(purchaseRepository.findById(1L)).thenReturn(Optional.empty());
+
+			//Act && Assert
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> store.execute("key-1", purchase, () -> checkout(purchase)).block())
+					.withMessage(SalesService.PURCHASE_NOT_FOUND);
+		}
+	}
+
+	@Nested
+	class RemoveExpired {
+		@Test
+		void allowRemoveExpired() {
+			//Arrange
+			IdempotencyKeyStore store = createStore(60000, 60000);
+			when(idempotencyKeyRepository.deleteAllExpired(any(LocalDateTime.class))).thenReturn(3);
+
+			//Act
+			store.removeExpired();
+
+			//Assert
+			verify(idempotencyKeyRepository, times(1)).deleteAllExpired(any(LocalDateTime.class));
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.PurchaseHistory;
+import br.com.fiap.mssales.entity.QueuedPurchaseHistory;
+import br.com.fiap.mssales.functions.PurchaseHistoryFunction;
+import br.com.fiap.mssales.repository.PurchaseHistoryQueueRepository;
+import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class PurchaseHistoryPublisherUnitTest {
+
+	private PurchaseHistoryPublisher purchaseHistoryPublisher;
+
+	@Mock
+	private PurchaseHistoryFunction purchaseHistoryFunction;
+
+	@Mock
+	private BrokerPublisher brokerPublisher;
+
+	@Mock
+	private PurchaseHistoryQueueRepository purchaseHistoryQueueRepository;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		purchaseHistoryPublisher = new PurchaseHistoryPublisher(purchaseHistoryFunction, brokerPublisher,
+				purchaseHistoryQueueRepository, transactionManager, "http", 2);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	private static PurchaseHistory createHistory(Long purchaseId) {
+		PurchaseHistory purchaseHistory = new PurchaseHistory();
+		purchaseHistory.setPurchaseId(purchaseId);
+		purchaseHistory.setStatus("AGUARDANDO PAGAMENTO");
+		purchaseHistory.setStatusDate(LocalDateTime.now());
+		return purchaseHistory;
+	}
+
+	private static QueuedPurchaseHistory createQueued(Long id, Long purchaseId) {
+		QueuedPurchaseHistory queued = QueuedPurchaseHistory.of(createHistory(purchaseId));
+		queued.setId(id);
+		return queued;
+	}
+
+	@Nested
+	class Publish{
+		@Test
+		void allowPublish() {
+			//Arrange
+			PurchaseHistory purchaseHistory = createHistory(1L);
+
+			//Act
+			purchaseHistoryPublisher.publish(purchaseHistory);
+
+			//Assert
+			verify(purchaseHistoryFunction, times(1)).saveHistory(purchaseHistory);
+			verify(purchaseHistoryQueueRepository, never()).save(any(QueuedPurchaseHistory.class));
+		}
+
+		@Test
+		void allowPublish_QueueingWhenLogisticUnavailable() {
+			//Arrange
+			PurchaseHistory purchaseHistory = createHistory(1L);
+			doThrow(FeignException.ServiceUnavailable.class).when(purchaseHistoryFunction).saveHistory(any(PurchaseHistory.class));
+			ArgumentCaptor<QueuedPurchaseHistory> captor = ArgumentCaptor.forClass(QueuedPurchaseHistory.class);
+
+			//Act
+			purchaseHistoryPublisher.publish(purchaseHistory);
+
+			//Assert
+			verify(purchaseHistoryQueueRepository, times(1)).save(captor.capture());
+			assertThat(captor.getValue().getPurchaseId()).isEqualTo(1L);
+			assertThat(captor.getValue().getStatus()).isEqualTo("AGUARDANDO PAGAMENTO");
+		}
+
+		@Test
+		void allowPublish_QueueingWhenCircuitOpen() {
+			//Arrange
+			doThrow(CallNotPermittedException.class).when(purchaseHistoryFunction).saveHistory(any(PurchaseHistory.class));
+
+			//Act
+			purchaseHistoryPublisher.publish(createHistory(1L));
+
+			//Assert
+			verify(purchaseHistoryQueueRepository, times(1)).save(any(QueuedPurchaseHistory.class));
+		}
+
+		@Test
+		void shouldThrowFeignException_WhenPublishRejected() {
+			//Arrange
+			doThrow(FeignException.BadRequest.class).when(purchaseHistoryFunction).saveHistory(any(PurchaseHistory.class));
+
+			//Act && Assert
+			assertThatExceptionOfType(FeignException.BadRequest.class)
+					.isThrownBy(() -> purchaseHistoryPublisher.publish(createHistory(1L)));
+			verify(purchaseHistoryQueueRepository, never()).save(any(QueuedPurchaseHistory.class));
+		}
+	}
+
+	@Nested
+	class RelayQueued{
+		@Test
+		void allowRelayQueued() {
+			//Arrange
+			QueuedPurchaseHistory q1 = createQueued(1L, 10L);
+			QueuedPurchaseHistory q2 = createQueued(2L, 11L);
+			QueuedPurchaseHistory q3 = createQueued(3L, 12L);
+			when(purchaseHistoryQueueRepository.lockOldest(2)).thenReturn(List.of(q1, q2)).thenReturn(List.of(q3));
+
+			//Act
+			purchaseHistoryPublisher.relayQueued();
+
+			//Assert
+			verify(purchaseHistoryFunction, times(3)).saveHistory(any(PurchaseHistory.class));
+			verify(purchaseHistoryQueueRepository).delete(q1);
+			verify(purchaseHistoryQueueRepository).delete(q2);
+			verify(purchaseHistoryQueueRepository).delete(q3);
+			verify(purchaseHistoryQueueRepository, times(2)).lockOldest(anyInt()); //The second batch wasn't full
+		}
+
+		@Test
+		void allowRelayQueued_StoppingWhenLogisticUnavailable() {
+			//Arrange
+			QueuedPurchaseHistory q1 = createQueued(1L, 10L);
+			QueuedPurchaseHistory q2 = createQueued(2L, 11L);
+			when(purchaseHistoryQueueRepository.lockOldest(2)).thenReturn(List.of(q1, q2));
+			doNothing().doThrow(FeignException.ServiceUnavailable.class)
+					.when(purchaseHistoryFunction).saveHistory(any(PurchaseHistory.class));
+
+			//Act
+			purchaseHistoryPublisher.relayQueued();
+
+			//Assert
+			verify(purchaseHistoryQueueRepository).delete(q1);
+			verify(purchaseHistoryQueueRepository, never()).delete(q2);
+			verify(purchaseHistoryQueueRepository, times(1)).lockOldest(anyInt());
+		}
+	}
+
+	@Nested
+	class PublishToBroker{
+		private PurchaseHistoryPublisher historyPublisher;
+
+		@BeforeEach
+		void setup(){
+			historyPublisher = new PurchaseHistoryPublisher(purchaseHistoryFunction, brokerPublisher,
+					purchaseHistoryQueueRepository, transactionManager, "broker", 2);
+		}
+
+		@Test
+		void allowPublish() {
+			//Arrange
+			PurchaseHistory purchaseHistory = createHistory(1L);
+
+			//Act
+			historyPublisher.publish(purchaseHistory);
+
+			//Assert
+			verify(brokerPublisher, times(1)).send("saveHistory-out-0", purchaseHistory);
+			verify(purchaseHistoryFunction, never()).saveHistory(any(PurchaseHistory.class));
+			verify(purchaseHistoryQueueRepository, never()).save(any(QueuedPurchaseHistory.class));
+		}
+
+		@Test
+		void allowPublish_QueueingWhenBrokerUnavailable() {
+			//Arrange
+			doThrow(new MessageDeliveryException("Not confirmed")).when(brokerPublisher).send(anyString(), any());
+
+			//Act
+			historyPublisher.publish(createHistory(1L));
+
+			//Assert
+			verify(purchaseHistoryQueueRepository, times(1)).save(any(QueuedPurchaseHistory.class));
+		}
+
+		@Test
+		@SuppressWarnings("unchecked")
+		void allowPublishAll_QueueingTheEventsNotSent() {
+			//Arrange
+			List<PurchaseHistory> history = List.of(createHistory(1L), createHistory(2L), createHistory(3L));
+			when(brokerPublisher.sendAll(anyString(), anyList())).thenReturn(List.of(1)); // The second not confirmed
+			ArgumentCaptor<List<QueuedPurchaseHistory>> captor = ArgumentCaptor.forClass(List.class);
+
+			//Act
+			historyPublisher.publishAll(history);
+
+			//Assert
+			verify(brokerPublisher, times(1)).sendAll("saveHistory-out-0", history);
+			verify(purchaseHistoryQueueRepository, times(1)).saveAll(captor.capture());
+			assertThat(captor.getValue()).extracting(QueuedPurchaseHistory::getPurchaseId).containsExactly(2L);
+			verify(purchaseHistoryFunction, never()).saveHistories(anyList());
+		}
+	}
+}
@@ -0,0 +1,281 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.entity.Purchase;
+import br.com.fiap.mssales.entity.PurchaseHistory;
+import br.com.fiap.mssales.entity.PurchaseItem;
+import br.com.fiap.mssales.entity.PurchaseSaga;
+import br.com.fiap.mssales.functions.ProductFunction;
+import br.com.fiap.mssales.repository.PurchaseRepository;
+import br.com.fiap.mssales.repository.PurchaseSagaRepository;
+import br.com.fiap.mssales.utils.PurchaseItemUtils;
+import br.com.fiap.mssales.utils.PurchaseUtils;
+import feign.FeignException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class PurchaseSagaOrchestratorUnitTest {
+
+	private PurchaseSagaOrchestrator orchestrator;
+
+	@Mock
+	private PurchaseRepository purchaseRepository;
+
+	@Mock
+	private PurchaseSagaRepository purchaseSagaRepository;
+
+	@Mock
+	private ProductFunction productFunction;
+
+	@Mock
+	private PurchaseHistoryPublisher purchaseHistoryPublisher;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		//The saga runs on the calling thread, the stock is given back through productFunction (http transport)
+		orchestrator = new PurchaseSagaOrchestrator(purchaseRepository, purchaseSagaRepository, productFunction,
+				new StockChangePublisher(productFunction, null, "http"), purchaseHistoryPublisher, transactionManager,
+				Runnable::run, 60000, 100);
+		when(purchaseRepository.save(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
+		when(purchaseSagaRepository.save(any(PurchaseSaga.class))).thenAnswer(s -> s.getArgument(0));
+		when(purchaseSagaRepository.saveAll(anyList())).thenAnswer(s -> s.getArgument(0));
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	//Items 1, 2 and 3 with the quantity of their id
+	private Purchase createPurchase(String status) {
+		Purchase purchase = PurchaseUtils.createFakePurchase(1L, status);
+		List<PurchaseItem> items = new ArrayList<>();
+		for (long id = 3; id >= 1; id--) {
+			PurchaseItem item = PurchaseItemUtils.createFakePurchaseItem(id, (int) id);
+			item.setId(id);
+			items.add(item);
+		}
+		purchase.setItems(items);
+		return purchase;
+	}
+
+	private static Product stockChange(long productId, int quantity) {
+		return argThat(p -> p != null && p.getId() == productId && p.getQuantity() == quantity);
+	}
+
+	private PurchaseSaga lastSaga() {
+		ArgumentCaptor<PurchaseSaga> saga = ArgumentCaptor.forClass(PurchaseSaga.class);
+		verify(purchaseSagaRepository, atLeastOnce()).save(saga.capture());
+		return saga.getValue();
+	}
+
+	@Nested
+	class StartCheckout {
+		@Test
+		void allowStartCheckout() {
+			//Arrange
+			Purchase purchase = createPurchase("AGUARDANDO PAGAMENTO");
+
+			//Act
+			Purchase savedPurchase = orchestrator.startCheckout(purchase);
+
+			//Assert
+			assertThat(savedPurchase.getStatus()).isEqualTo("AGUARDANDO PAGAMENTO");
+			InOrder stock = inOrder(productFunction);
+			stock.verify(productFunction).updateStock(stockChange(1L, -1));
+			stock.verify(productFunction).updateStock(stockChange(2L, -2));
+			stock.verify(productFunction).updateStock(stockChange(3L, -3));
+			assertThat(lastSaga().getStatus()).isEqualTo("CONCLUIDA");
+			assertThat(lastSaga().getStep()).isEqualTo(3);
+			verify(purchaseHistoryPublisher, times(1)).publish(argThat(h -> h.getStatus().equals("AGUARDANDO PAGAMENTO")));
+		}
+
+		@Test
+		void allowStartCheckout_CompensatingWhenTheStockFails() {
+			//Arrange
+			Purchase purchase = createPurchase("AGUARDANDO PAGAMENTO");
+			doThrow(new RuntimeException("msStock unavailable")).when(productFunction).updateStock(stockChange(3L, -3));
+
+			//Act
+			orchestrator.startCheckout(purchase);
+
+			//Assert
+			InOrder stock = inOrder(productFunction);
+			stock.verify(productFunction).updateStock(stockChange(1L, -1));
+			stock.verify(productFunction).updateStock(stockChange(2L, -2));
+			stock.verify(productFunction).updateStock(stockChange(3L, -3));
+			//Maybe removed by msStock before the failure, given back only if it was
+			stock.verify(productFunction).updateStock(argThat(p -> p != null && p.getId() == 3L && p.getQuantity() == 3
+					&& "saga-null-RESERVA-2".equals(p.getRevertedChangeId())));
+			stock.verify(productFunction).updateStock(stockChange(2L, 2));
+			stock.verify(productFunction).updateStock(stockChange(1L, 1));
+			assertThat(purchase.getStatus()).isEqualTo("CANCELADO");
+			assertThat(lastSaga().getStatus()).isEqualTo("COMPENSADA");
+			assertThat(lastSaga().getFailure()).isEqualTo("msStock unavailable");
+			verify(purchaseHistoryPublisher, times(1)).publish(argThat(h -> h.getStatus().equals("CANCELADO")));
+		}
+
+		@Test
+		void allowStartCheckout_NotGivingBackTheItemRefused() {
+			//Arrange
+			Purchase purchase = createPurchase("AGUARDANDO PAGAMENTO");
+			doThrow(FeignException.BadRequest.class).when(productFunction).updateStock(stockChange(3L, -3));
+
+			//Act
+			orchestrator.startCheckout(purchase);
+
+			//Assert
+			verify(productFunction).updateStock(stockChange(2L, 2));
+			verify(productFunction).updateStock(stockChange(1L, 1));
+			verify(productFunction, never()).updateStock(stockChange(3L, 3));
+			assertThat(purchase.getStatus()).isEqualTo("CANCELADO");
+			assertThat(lastSaga().getStatus()).isEqualTo("COMPENSADA");
+		}
+
+		@Test
+		void allowStartCheckout_SendingTheSameChangeIdForEachStep() {
+			//Arrange
+			Purchase purchase = createPurchase("AGUARDANDO PAGAMENTO");
+
+			//Act
+			orchestrator.startCheckout(purchase);
+
+			//Assert
+			ArgumentCaptor<Product> stock = ArgumentCaptor.forClass(Product.class);
+			verify(productFunction, times(3)).updateStock(stock.capture());
+			assertThat(stock.getAllValues()).extracting(Product::getChangeId)
+					.containsExactly("saga-null-RESERVA-0", "saga-null-RESERVA-1", "saga-null-RESERVA-2");
+			assertThat(stock.getAllValues()).allMatch(p -> p.getRevertedChangeId() == null);
+		}
+
+		@Test
+		void allowStartCheckout_WaitingForTheRecoveryWhenTheCompensationFails() {
+			//Arrange
+			Purchase purchase = createPurchase("AGUARDANDO PAGAMENTO");
+			doThrow(new RuntimeException("msStock unavailable")).when(productFunction).updateStock(stockChange(2L, -2));
+			doThrow(new RuntimeException("msStock unavailable")).when(productFunction).updateStock(stockChange(1L, 1));
+
+			//Act
+			orchestrator.startCheckout(purchase);
+
+			//Assert
+			assertThat(purchase.getStatus()).isEqualTo("AGUARDANDO PAGAMENTO");
+			assertThat(lastSaga().getStatus()).isEqualTo("COMPENSANDO");
+			assertThat(lastSaga().getStep()).isEqualTo(1);
+			verify(purchaseHistoryPublisher, never()).publish(any(PurchaseHistory.class));
+		}
+	}
+
+	@Nested
+	class StartCancellation {
+		@Test
+		void allowStartCancellation() {
+			//Arrange
+			Purchase purchase = createPurchase("CANCELADO");
+
+			//Act
+			orchestrator.startCancellation(purchase);
+
+			//Assert
+			verify(productFunction).updateStock(stockChange(1L, 1));
+			verify(productFunction).updateStock(stockChange(2L, 2));
+			verify(productFunction).updateStock(stockChange(3L, 3));
+			assertThat(lastSaga().getStatus()).isEqualTo("CONCLUIDA");
+			verify(purchaseHistoryPublisher, never()).publish(any(PurchaseHistory.class)); //Sent by SalesService
+		}
+
+		@Test
+		void allowStartCancellation_StoppingAtTheFirstFailure() {
+			//Arrange
+			Purchase purchase = createPurchase("CANCELADO");
+			doThrow(new RuntimeException("msStock unavailable")).when(productFunction).updateStock(stockChange(2L, 2));
+
+			//Act
+			orchestrator.startCancellation(purchase);
+
+			//Assert
+			verify(productFunction, never()).updateStock(stockChange(3L, 3));
+			assertThat(lastSaga().getStatus()).isEqualTo("EM ANDAMENTO");
+			assertThat(lastSaga().getStep()).isEqualTo(1);
+		}
+	}
+
+	@Nested
+	class RecoverStale {
+		@Test
+		void allowRecoverStale() {
+			//Arrange
+			Purchase purchase = createPurchase("AGUARDANDO PAGAMENTO");
+			PurchaseSaga saga = new PurchaseSaga();
+			saga.setId(1L);
+			saga.setPurchaseId(purchase.getId());
+			saga.setType("RESERVA");
+			saga.setStatus("COMPENSANDO");
+			saga.setStep(2);
+			saga.setUpdatedAt(LocalDateTime.now().minusHours(1));
+			when(purchaseSagaRepository.lockStale(anyCollection(), any(LocalDateTime.class), anyInt())).thenReturn(List.of(saga));
+			when(purchaseRepository.findById(purchase.getId())).thenReturn(Optional.of(purchase));
+
+			//Act
+			orchestrator.recoverStale();
+
+			//Assert
+			InOrder stock = inOrder(productFunction);
+			stock.verify(productFunction).updateStock(stockChange(2L, 2));
+			stock.verify(productFunction).updateStock(stockChange(1L, 1));
+			verify(productFunction, times(2)).updateStock(any(Product.class));
+			assertThat(saga.getStatus()).isEqualTo("COMPENSADA");
+			assertThat(saga.getStep()).isZero();
+			assertThat(purchase.getStatus()).isEqualTo("CANCELADO");
+		}
+
+		@Test
+		void allowRecoverStale_StoppingWhenTheSagaWasClaimedByAnotherRunner() {
+			//Arrange
+			Purchase purchase = createPurchase("AGUARDANDO PAGAMENTO");
+			PurchaseSaga saga = new PurchaseSaga();
+			saga.setId(1L);
+			saga.setPurchaseId(purchase.getId());
+			saga.setType("RESERVA");
+			saga.setStatus("EM ANDAMENTO");
+			saga.setStep(0);
+			saga.setVersion(1L);
+			saga.setUpdatedAt(LocalDateTime.now().minusHours(1));
+			when(purchaseSagaRepository.lockStale(anyCollection(), any(LocalDateTime.class), anyInt())).thenReturn(List.of(saga));
+			when(purchaseRepository.findById(purchase.getId())).thenReturn(Optional.of(purchase));
+			when(purchaseSagaRepository.save(any(PurchaseSaga.class)))
+					.thenThrow(new ObjectOptimisticLockingFailureException(PurchaseSaga.class, 1L));
+
+			//Act
+			orchestrator.recoverStale();
+
+			//Assert
+			verify(productFunction, times(1)).updateStock(argThat(p -> "saga-1-RESERVA-0".equals(p.getChangeId())));
+			verify(productFunction, never()).updateStock(argThat(p -> "saga-1-RESERVA-1".equals(p.getChangeId())));
+			verify(purchaseHistoryPublisher, never()).publish(any(PurchaseHistory.class));
+		}
+	}
+}
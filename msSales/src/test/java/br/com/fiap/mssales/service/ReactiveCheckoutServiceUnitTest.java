@@ -0,0 +1,160 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.*;
+import br.com.fiap.mssales.utils.PurchaseItemUtils;
+import br.com.fiap.mssales.utils.PurchaseUtils;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReactiveCheckoutServiceUnitTest {
+
+	private ReactiveCheckoutService checkoutService;
+
+	@Mock
+	private CustomerSnapshotService customerSnapshotService;
+
+	@Mock
+	private PurchaseSagaOrchestrator purchaseSagaOrchestrator;
+
+	private Scheduler jdbcScheduler;
+
+	//Products returned by the fake msStock, the ids missing answer 404
+	private final Map<Long, String> products = new ConcurrentHashMap<>();
+
+	//Paths of the requests received by the fake services
+	private final List<String> requests = new CopyOnWriteArrayList<>();
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		jdbcScheduler = Schedulers.newBoundedElastic(2, 100, "test-jdbc");
+		WebClient productClient = WebClient.builder().exchangeFunction(this::stock).build();
+		checkoutService = new ReactiveCheckoutService(customerSnapshotService, purchaseSagaOrchestrator,
+				productClient, jdbcScheduler, 1000, 4);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		jdbcScheduler.dispose();
+		openMocks.close();
+	}
+
+	private Mono<ClientResponse> stock(ClientRequest request) {
+		String path = request.url().getPath();
+		requests.add(path);
+		if (path.startsWith("/findProduct/")) {
+			String product = products.get(Long.valueOf(path.substring("/findProduct/".length())));
+			if (product == null) return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+
+			return Mono.just(ClientResponse.create(HttpStatus.OK)
+					.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+					.body(product)
+					.build());
+		}
+		return Mono.just(ClientResponse.create(HttpStatus.ACCEPTED).build());
+	}
+
+	private void addProduct(Long id, float price, int quantity) {
+		products.put(id, "{\"id\":" + id + ",\"name\":\"Dummy product\",\"price\":" + price + ",\"quantity\":" + quantity + "}");
+	}
+
+	@Nested
+	class CreatePurchase{
+		@Test
+		void allowCreatePurchase() {
+			//Arrange
+			Customer customer = PurchaseUtils.createFakeCustomer();
+			addProduct(1L, 10.0f, 5);
+			addProduct(2L, 2.5f, 5);
+
+			Purchase purchase = PurchaseUtils.createFakePurchase();
+			purchase.setItems(List.of(PurchaseItemUtils.createFakePurchaseItem(1L, 2), PurchaseItemUtils.createFakePurchaseItem(2L, 4)));
+
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenReturn(CustomerSnapshot.of(customer));
+			when(purchaseSagaOrchestrator.startCheckout(any(Purchase.class))).thenAnswer(p -> {
+				Purchase saved = p.getArgument(0);
+				saved.setId(1L);
+				return saved;
+			});
+
+			//Act
+			Purchase savedPurchase = checkoutService.createPurchase(purchase).block();
+
+			//Assert
+			assertThat(savedPurchase).isNotNull();
+			assertThat(savedPurchase.getStatus()).isEqualTo("AGUARDANDO PAGAMENTO");
+			assertThat(savedPurchase.getTotalAmount()).isEqualTo(30.0f);
+			assertThat(savedPurchase.getDeliveryAddress()).isEqualTo("Rua dos Bobos, 0, São Paulo - São Paulo, Brasil");
+			assertThat(requests).containsOnly("/findProduct/1", "/findProduct/2"); //Stock removed by the saga
+			verify(purchaseSagaOrchestrator, times(1)).startCheckout(any(Purchase.class));
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenCreatePurchase_Customer(){
+			//Arrange
+			addProduct(1L, 10.0f, 5);
+			addProduct(2L, 10.0f, 5);
+			Purchase purchase = PurchaseUtils.createFakePurchase();
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenThrow(EntityNotFoundException.class);
+
+			//Act && Assert
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> checkoutService.createPurchase(purchase).block());
+			verify(purchaseSagaOrchestrator, never()).startCheckout(any(Purchase.class));
+		}
+
+		@Test
+		void shouldThrowEntityNotFoundException_WhenCreatePurchase_Product() {
+			//Arrange
+			Purchase purchase = PurchaseUtils.createFakePurchase();
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenReturn(CustomerSnapshot.of(PurchaseUtils.createFakeCustomer()));
+
+			//Act && Assert
+			assertThatExceptionOfType(EntityNotFoundException.class)
+					.isThrownBy(() -> checkoutService.createPurchase(purchase).block())
+					.withMessageContaining("não encontrado");
+			verify(purchaseSagaOrchestrator, never()).startCheckout(any(Purchase.class));
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenCreatePurchase() {
+			//Arrange
+			addProduct(1L, 10.0f, 5);
+			Purchase purchase = PurchaseUtils.createFakePurchase();
+			purchase.setItems(List.of(PurchaseItemUtils.createFakePurchaseItem(1L, 1000000)));
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenReturn(CustomerSnapshot.of(PurchaseUtils.createFakeCustomer()));
+
+			//Act && Assert
+			assertThatExceptionOfType(DataIntegrityViolationException.class)
+					.isThrownBy(() -> checkoutService.createPurchase(purchase).block());
+			verify(purchaseSagaOrchestrator, never()).startCheckout(any(Purchase.class));
+		}
+	}
+}
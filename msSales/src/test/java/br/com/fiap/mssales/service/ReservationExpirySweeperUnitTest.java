@@ -0,0 +1,158 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.entity.PurchaseHistory;
+import br.com.fiap.mssales.functions.ProductFunction;
+import br.com.fiap.mssales.repository.PurchaseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReservationExpirySweeperUnitTest {
+
+	private ReservationExpirySweeper sweeper;
+
+	@Mock
+	private PurchaseRepository purchaseRepository;
+
+	@Mock
+	private ProductFunction productFunction;
+
+	@Mock
+	private PurchaseHistoryPublisher purchaseHistoryPublisher;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+		//The stock is given back through productFunction (http transport)
+		sweeper = new ReservationExpirySweeper(purchaseRepository, new StockChangePublisher(productFunction, null, "http"),
+				purchaseHistoryPublisher, transactionManager, 86400000, 2);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	private static PurchaseRepository.ProductQuantity quantity(long purchaseId, long productId, long quantity) {
+		return new PurchaseRepository.ProductQuantity() {
+			@Override
+			public Long getPurchaseId() {
+				return purchaseId;
+			}
+
+			@Override
+			public Long getProductId() {
+				return productId;
+			}
+
+			@Override
+			public Long getQuantity() {
+				return quantity;
+			}
+		};
+	}
+
+	@Nested
+	class Sweep {
+		@Test
+		@SuppressWarnings("unchecked")
+		void allowSweep() {
+			//Arrange
+			when(purchaseRepository.lockCreatedBefore(eq("AGUARDANDO PAGAMENTO"), any(LocalDateTime.class), anyCollection(), eq(2)))
+					.thenReturn(List.of(1L, 2L), List.of(3L));
+			when(purchaseRepository.sumQuantities(anyCollection()))
+					.thenReturn(List.of(quantity(1L, 1L, 2L), quantity(2L, 1L, 1L), quantity(2L, 2L, 1L)),
+							List.of(quantity(3L, 1L, 2L)));
+
+			//Act
+			sweeper.sweep();
+
+			//Assert
+			verify(purchaseRepository, times(2)).lockCreatedBefore(anyString(), any(LocalDateTime.class), anyCollection(), anyInt());
+			verify(purchaseRepository).updateStatus(List.of(1L, 2L), "CANCELADO");
+			verify(purchaseRepository).updateStatus(List.of(3L), "CANCELADO");
+
+			ArgumentCaptor<List<Product>> stock = ArgumentCaptor.forClass(List.class);
+			verify(productFunction, times(2)).updateStocks(stock.capture());
+			assertThat(stock.getAllValues().get(0)).extracting(Product::getId, Product::getQuantity, Product::getChangeId)
+					.containsExactly(tuple(1L, 2, "purchase-1-CANCELADO-1"), tuple(1L, 1, "purchase-2-CANCELADO-1"),
+							tuple(2L, 1, "purchase-2-CANCELADO-2"));
+
+			ArgumentCaptor<List<PurchaseHistory>> history = ArgumentCaptor.forClass(List.class);
+			verify(purchaseHistoryPublisher, times(2)).publishAll(history.capture());
+			assertThat(history.getAllValues().get(0)).extracting(PurchaseHistory::getPurchaseId).containsExactly(1L, 2L);
+			assertThat(history.getAllValues().get(0)).allMatch(h -> h.getStatus().equals("CANCELADO"));
+		}
+
+		@Test
+		void allowSweep_NothingExpired() {
+			//Arrange
+			when(purchaseRepository.lockCreatedBefore(anyString(), any(LocalDateTime.class), anyCollection(), anyInt()))
+					.thenReturn(List.of());
+
+			//Act
+			sweeper.sweep();
+
+			//Assert
+			verify(purchaseRepository, never()).updateStatus(anyCollection(), anyString());
+			verify(productFunction, never()).updateStocks(anyList());
+			verify(purchaseHistoryPublisher, never()).publishAll(anyList());
+		}
+
+		@Test
+		void allowSweep_RollingBackWhenTheStockFails() {
+			//Arrange
+			when(purchaseRepository.lockCreatedBefore(anyString(), any(LocalDateTime.class), anyCollection(), anyInt()))
+					.thenReturn(List.of(1L, 2L));
+			when(purchaseRepository.sumQuantities(anyCollection())).thenReturn(List.of(quantity(1L, 1L, 3L)));
+			doThrow(new RuntimeException("msStock unavailable")).when(productFunction).updateStocks(anyList());
+
+			//Act
+			sweeper.sweep();
+
+			//Assert
+			verify(transactionManager, times(1)).rollback(any());
+			verify(transactionManager, never()).commit(any());
+			verify(purchaseHistoryPublisher, never()).publishAll(anyList());
+		}
+
+		@Test
+		@SuppressWarnings("unchecked")
+		void allowSweep_SendingTheSameChangeIdsAfterARollback() {
+			//Arrange
+			when(purchaseRepository.lockCreatedBefore(anyString(), any(LocalDateTime.class), anyCollection(), anyInt()))
+					.thenReturn(List.of(1L));
+			when(purchaseRepository.sumQuantities(anyCollection())).thenReturn(List.of(quantity(1L, 1L, 3L)));
+			doThrow(new RuntimeException("Read timed out")).doNothing().when(productFunction).updateStocks(anyList());
+
+			//Act
+			sweeper.sweep();
+			sweeper.sweep();
+
+			//Assert
+			ArgumentCaptor<List<Product>> stock = ArgumentCaptor.forClass(List.class);
+			verify(productFunction, times(2)).updateStocks(stock.capture());
+			assertThat(stock.getAllValues().get(1)).extracting(Product::getChangeId)
+					.containsExactlyElementsOf(stock.getAllValues().get(0).stream().map(Product::getChangeId).toList());
+		}
+	}
+}
@@ -1,9 +1,7 @@
 package br.com.fiap.mssales.service;
 
 import br.com.fiap.mssales.entity.*;
-import br.com.fiap.mssales.functions.CustomerFunction;
 import br.com.fiap.mssales.functions.ProductFunction;
-import br.com.fiap.mssales.functions.PurchaseHistoryFunction;
 import br.com.fiap.mssales.repository.PurchaseRepository;
 import br.com.fiap.mssales.utils.PurchaseUtils;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
@@ -33,13 +32,19 @@ public class SalesServiceUnitTest {
 	private PurchaseRepository purchaseRepository;
 
 	@Mock
-	private CustomerFunction customerFunction;
+	private CustomerSnapshotService customerSnapshotService;
 
 	@Mock
 	private ProductFunction productFunction;
 
 	@Mock
-	private PurchaseHistoryFunction purchaseHistoryFunction;
+	private PurchaseHistoryPublisher purchaseHistoryPublisher;
+
+	@Mock
+	private PurchaseSagaOrchestrator purchaseSagaOrchestrator;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
 
 	AutoCloseable openMocks;
 
@@ -48,9 +53,11 @@ public class SalesServiceUnitTest {
 		openMocks = MockitoAnnotations.openMocks(this);
 		salesService = new SalesService(
 				purchaseRepository,
-				customerFunction,
+				customerSnapshotService,
 				productFunction,
-				purchaseHistoryFunction
+				purchaseHistoryPublisher,
+				purchaseSagaOrchestrator,
+				transactionManager
 		);
 	}
 
@@ -125,30 +132,30 @@ public class SalesServiceUnitTest {
 			purchase.setItems(List.of(purchaseItem));
 
 
-			when(purchaseRepository.save(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
-			when(customerFunction.findCustomer(any(String.class))).thenReturn(customer);
+			when(purchaseSagaOrchestrator.startCheckout(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenReturn(CustomerSnapshot.of(customer));
 			when(productFunction.findProduct(purchaseItem.getProductId())).thenReturn(product);
-			doNothing().when(purchaseHistoryFunction).saveHistory(any(PurchaseHistory.class));
-			doNothing().when(productFunction).updateStock(any(Product.class));
 
 			//Act
 			Purchase savedPurchase = salesService.createPurchase(purchase);
 
 			//Assert
 			assertThat(savedPurchase.getStatus()).isEqualTo("AGUARDANDO PAGAMENTO");
-			verify(purchaseRepository, times(1)).save(any(Purchase.class));
+			assertThat(savedPurchase.getDeliveryAddress()).isEqualTo("Rua dos Bobos, 0, São Paulo - São Paulo, Brasil");
+			verify(purchaseSagaOrchestrator, times(1)).startCheckout(any(Purchase.class));
+			verify(productFunction, never()).updateStock(any(Product.class)); //Removed by the saga
 		}
 
 		@Test
 		void shouldThrowEntityNotFoundException_WhenCreatePurchase_Customer(){
 			//Arrange
 			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
-			when(customerFunction.findCustomer(any(String.class))).thenThrow(EntityNotFoundException.class);
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenThrow(EntityNotFoundException.class);
 
 			//Act && Assert
 			assertThatExceptionOfType(EntityNotFoundException.class)
 				.isThrownBy(() -> salesService.createPurchase(purchase));
-			verify(purchaseRepository, never()).save(any(Purchase.class));
+			verify(purchaseSagaOrchestrator, never()).startCheckout(any(Purchase.class));
 		}
 
 		@Test
@@ -157,13 +164,13 @@ public class SalesServiceUnitTest {
 			Customer customer = PurchaseUtils.createFakeCustomer();
 			Purchase purchase = PurchaseUtils.createFakePurchase(1L);
 			purchase.setCustomerCpf(customer.getCpf());
-			when(customerFunction.findCustomer(any(String.class))).thenReturn(customer);
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenReturn(CustomerSnapshot.of(customer));
 			when(productFunction.findProduct(any(Long.class))).thenThrow (EntityNotFoundException.class);
 
 			//Act && Assert
 			assertThatExceptionOfType(EntityNotFoundException.class)
 					.isThrownBy(() -> salesService.createPurchase(purchase));
-			verify(purchaseRepository, never()).save(any(Purchase.class));
+			verify(purchaseSagaOrchestrator, never()).startCheckout(any(Purchase.class));
 		}
 
 		@Test
@@ -179,13 +186,13 @@ public class SalesServiceUnitTest {
 			purchase.setCustomerCpf(customer.getCpf());
 			purchase.setItems(List.of(purchaseItem));
 
-			when(customerFunction.findCustomer(any(String.class))).thenReturn(customer);
+			when(customerSnapshotService.getCustomer(any(Long.class))).thenReturn(CustomerSnapshot.of(customer));
 			when(productFunction.findProduct(purchaseItem.getProductId())).thenReturn(product);
 
 			//Act && Assert
 			assertThatExceptionOfType(DataIntegrityViolationException.class)
 					.isThrownBy(() -> salesService.createPurchase(purchase));
-			verify(purchaseRepository, never()).save(any(Purchase.class));
+			verify(purchaseSagaOrchestrator, never()).startCheckout(any(Purchase.class));
 		}
 	}
 
@@ -196,7 +203,7 @@ public class SalesServiceUnitTest {
 			//Arrange
 			Long id = 1L;
 			Purchase purchase = PurchaseUtils.createFakePurchase(id);
-			when(purchaseRepository.findById(any(Long.class))).thenReturn(Optional.of(purchase));
+			when(purchaseRepository.lockById(any(Long.class))).thenReturn(Optional.of(purchase));
 			when(purchaseRepository.save(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
 
 			//Act
@@ -204,20 +211,35 @@ public class SalesServiceUnitTest {
 
 			//Assert
 			assertThat(paidPurchase.getStatus()).isEqualTo("PAGO");
-			verify(purchaseRepository, times(1)).findById(any(Long.class));
+			verify(purchaseRepository, times(1)).lockById(any(Long.class));
 			verify(purchaseRepository, times(1)).save(any(Purchase.class));
 		}
 
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenPayPurchase_StockBeingReserved(){
+			//Arrange
+			Long id = 1L;
+			Purchase purchase = PurchaseUtils.createFakePurchase(id);
+			when(purchaseRepository.lockById(any(Long.class))).thenReturn(Optional.of(purchase));
+			when(purchaseSagaOrchestrator.isRunning(id)).thenReturn(true);
+
+			//Act && Assert
+			assertThatExceptionOfType(DataIntegrityViolationException.class)
+				.isThrownBy(() -> salesService.payPurchase(id))
+				.withMessageContaining("sendo atualizado");
+			verify(purchaseRepository, never()).save(any(Purchase.class));
+		}
+
 		@Test
 		void shouldThrowEntityNotFoundException_WhenPayPurchase(){
 			//Arrange
 			Long id = 9999999L;
-			when(purchaseRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+			when(purchaseRepository.lockById(any(Long.class))).thenReturn(Optional.empty());
 
 			//Act && Assert
 			assertThatExceptionOfType(EntityNotFoundException.class)
 				.isThrownBy(() -> salesService.payPurchase(id));
-			verify(purchaseRepository, times(1)).findById(any(Long.class));
+			verify(purchaseRepository, times(1)).lockById(any(Long.class));
 			verify(purchaseRepository, never()).save(any(Purchase.class));
 		}
 
@@ -226,12 +248,12 @@ public class SalesServiceUnitTest {
 			//Arrange
 			Long id = 1L;
 			Purchase purchase = PurchaseUtils.createFakePurchase(id, "CANCELADO");
-			when(purchaseRepository.findById(any(Long.class))).thenReturn(Optional.of(purchase));
+			when(purchaseRepository.lockById(any(Long.class))).thenReturn(Optional.of(purchase));
 
 			//Act && Assert
 			assertThatExceptionOfType(DataIntegrityViolationException.class)
 				.isThrownBy(() -> salesService.payPurchase(id));
-			verify(purchaseRepository, times(1)).findById(any(Long.class));
+			verify(purchaseRepository, times(1)).lockById(any(Long.class));
 			verify(purchaseRepository, never()).save(any(Purchase.class));
 		}
 	}
@@ -243,28 +265,29 @@ public class SalesServiceUnitTest {
 			//Arrange
 			Long id = 1L;
 			Purchase purchase = PurchaseUtils.createFakePurchase(id);
-			when(purchaseRepository.findById(any(Long.class))).thenReturn(Optional.of(purchase));
-			when(purchaseRepository.save(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
+			when(purchaseRepository.lockById(any(Long.class))).thenReturn(Optional.of(purchase));
+			when(purchaseSagaOrchestrator.startCancellation(any(Purchase.class))).thenAnswer(p -> p.getArgument(0));
 
 			//Act
 			Purchase canceledPurchase = salesService.cancelPurchase(id);
 
 			//Assert
 			assertThat(canceledPurchase.getStatus()).isEqualTo("CANCELADO");
-			verify(purchaseRepository, times(1)).findById(any(Long.class));
-			verify(purchaseRepository, times(1)).save(any(Purchase.class));
+			verify(purchaseRepository, times(1)).lockById(any(Long.class));
+			verify(purchaseSagaOrchestrator, times(1)).startCancellation(any(Purchase.class));
+			verify(purchaseHistoryPublisher, times(1)).publish(any(PurchaseHistory.class));
 		}
 
 		@Test
 		void shouldThrowEntityNotFoundException_WhenCancelPurchase(){
 			//Arrange
 			Long id = 9999999L;
-			when(purchaseRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+			when(purchaseRepository.lockById(any(Long.class))).thenReturn(Optional.empty());
 
 			//Act && Assert
 			assertThatExceptionOfType(EntityNotFoundException.class)
 				.isThrownBy(() -> salesService.cancelPurchase(id));
-			verify(purchaseRepository, times(1)).findById(any(Long.class));
+			verify(purchaseRepository, times(1)).lockById(any(Long.class));
 			verify(purchaseRepository, never()).save(any(Purchase.class));
 		}
 
@@ -273,12 +296,12 @@ public class SalesServiceUnitTest {
 			//Arrange
 			Long id = 1L;
 			Purchase purchase = PurchaseUtils.createFakePurchase(id, "PAGO");
-			when(purchaseRepository.findById(any(Long.class))).thenReturn(Optional.of(purchase));
+			when(purchaseRepository.lockById(any(Long.class))).thenReturn(Optional.of(purchase));
 
 			//Act && Assert
 			assertThatExceptionOfType(DataIntegrityViolationException.class)
 				.isThrownBy(() -> salesService.cancelPurchase(id));
-			verify(purchaseRepository, times(1)).findById(any(Long.class));
+			verify(purchaseRepository, times(1)).lockById(any(Long.class));
 			verify(purchaseRepository, never()).save(any(Purchase.class));
 		}
 	}
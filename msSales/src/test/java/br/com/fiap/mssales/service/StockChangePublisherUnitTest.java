@@ -0,0 +1,89 @@
+package br.com.fiap.mssales.service;
+
+import br.com.fiap.mssales.entity.Product;
+import br.com.fiap.mssales.functions.ProductFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.MessageDeliveryException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class StockChangePublisherUnitTest {
+
+	@Mock
+	private ProductFunction productFunction;
+
+	@Mock
+	private BrokerPublisher brokerPublisher;
+
+	AutoCloseable openMocks;
+
+	@BeforeEach
+	void setup(){
+		openMocks = MockitoAnnotations.openMocks(this);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		openMocks.close();
+	}
+
+	private static Product createProduct(Long id, int quantity) {
+		Product product = new Product();
+		product.setId(id);
+		product.setQuantity(quantity);
+		return product;
+	}
+
+	@Nested
+	class UpdateStocks {
+		@Test
+		void allowUpdateStocks_ThroughTheBroker() {
+			//Arrange
+			StockChangePublisher publisher = new StockChangePublisher(productFunction, brokerPublisher, "broker");
+			List<Product> products = List.of(createProduct(1L, 2), createProduct(2L, 3));
+			when(brokerPublisher.sendAll(anyString(), anyList())).thenReturn(List.of());
+
+			//Act
+			publisher.updateStocks(products);
+
+			//Assert
+			verify(brokerPublisher, times(1)).sendAll("updateStock-out-0", products);
+			verify(productFunction, never()).updateStocks(anyList());
+		}
+
+		@Test
+		void allowUpdateStocks_ThroughHttp() {
+			//Arrange
+			StockChangePublisher publisher = new StockChangePublisher(productFunction, brokerPublisher, "http");
+			List<Product> products = List.of(createProduct(1L, 2));
+
+			//Act
+			publisher.updateStocks(products);
+
+			//Assert
+			verify(productFunction, times(1)).updateStocks(products);
+			verifyNoInteractions(brokerPublisher);
+		}
+
+		@Test
+		void shouldThrowMessageDeliveryException_WhenUpdateStocks_NotSent() {
+			//Arrange
+			StockChangePublisher publisher = new StockChangePublisher(productFunction, brokerPublisher, "broker");
+			when(brokerPublisher.sendAll(anyString(), anyList())).thenReturn(List.of(0)); // Not confirmed
+
+			//Act && Assert
+			assertThatExceptionOfType(MessageDeliveryException.class)
+					.isThrownBy(() -> publisher.updateStocks(List.of(createProduct(1L, 2))));
+		}
+	}
+}
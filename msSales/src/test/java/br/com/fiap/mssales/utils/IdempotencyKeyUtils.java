@@ -0,0 +1,61 @@
+package br.com.fiap.mssales.utils;
+
+import br.com.fiap.mssales.entity.IdempotencyKey;
+import br.com.fiap.mssales.repository.IdempotencyKeyRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+public class IdempotencyKeyUtils {
+	public static IdempotencyKey createFakeIdempotencyKey(String key, String fingerprint, String status,
+			Long purchaseId, LocalDateTime expiresAt) {
+		IdempotencyKey idempotencyKey = new IdempotencyKey();
+		idempotencyKey.setIdempotencyKey(key);
+		idempotencyKey.setFingerprint(fingerprint);
+		idempotencyKey.setStatus(status);
+		idempotencyKey.setPurchaseId(purchaseId);
+		idempotencyKey.setExpiresAt(expiresAt);
+
+		return idempotencyKey;
+	}
+
+	//The mocked repository keeps the keys in the returned map, like the rows of idempotency_keys
+	public static Map<String, IdempotencyKey> storeKeys(IdempotencyKeyRepository idempotencyKeyRepository) {
+		Map<String, IdempotencyKey> keys = new ConcurrentHashMap<>();
+
+		when(idempotencyKeyRepository.insertIfAbsent(anyString(), anyString(), anyString(), any(LocalDateTime.class)))
+				.thenAnswer(i -> keys.putIfAbsent(i.getArgument(0), createFakeIdempotencyKey(i.getArgument(0),
+						i.getArgument(1), i.getArgument(2), null, i.getArgument(3))) == null ? 1 : 0);
+		when(idempotencyKeyRepository.findById(anyString()))
+				.thenAnswer(i -> Optional.ofNullable(keys.get(i.<String>getArgument(0))));
+		when(idempotencyKeyRepository.complete(anyString(), anyString(), any(), any(LocalDateTime.class)))
+				.thenAnswer(i -> {
+					IdempotencyKey idempotencyKey = keys.get(i.<String>getArgument(0));
+					if (idempotencyKey == null) return 0;
+					idempotencyKey.setStatus(i.getArgument(1));
+					idempotencyKey.setPurchaseId(i.getArgument(2));
+					idempotencyKey.setExpiresAt(i.getArgument(3));
+					return 1;
+				});
+		when(idempotencyKeyRepository.deleteByKeyAndStatus(anyString(), anyString()))
+				.thenAnswer(i -> {
+					IdempotencyKey idempotencyKey = keys.get(i.<String>getArgument(0));
+					return idempotencyKey != null && idempotencyKey.getStatus().equals(i.getArgument(1))
+							&& keys.remove(i.getArgument(0), idempotencyKey) ? 1 : 0;
+				});
+		when(idempotencyKeyRepository.deleteExpired(anyString(), any(LocalDateTime.class)))
+				.thenAnswer(i -> {
+					LocalDateTime now = i.getArgument(1);
+					IdempotencyKey idempotencyKey = keys.get(i.<String>getArgument(0));
+					return idempotencyKey != null && !idempotencyKey.getExpiresAt().isAfter(now)
+							&& keys.remove(i.getArgument(0), idempotencyKey) ? 1 : 0;
+				});
+
+		return keys;
+	}
+}
@@ -1,5 +1,6 @@
 package br.com.fiap.mssales.utils;
 
+import br.com.fiap.commons.cpf.Cpf;
 import br.com.fiap.mssales.entity.Customer;
 import br.com.fiap.mssales.entity.Product;
 import br.com.fiap.mssales.entity.Purchase;
@@ -17,7 +18,7 @@ public class PurchaseUtils {
 
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
@@ -35,7 +36,7 @@ public class PurchaseUtils {
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
 		purchase.setId(purchaseId);
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
@@ -52,7 +53,7 @@ public class PurchaseUtils {
 
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
@@ -70,7 +71,7 @@ public class PurchaseUtils {
 		List<PurchaseItem> itemsList = List.of(purchaseItem1, purchaseItem2);
 
 		purchase.setId(purchaseId);
-		purchase.setCustomerCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		purchase.setCustomerCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		purchase.setCustomerName("Dummy customer");
 		purchase.setDeliveryAddress("Rua dos Bobos, 0");
 		purchase.setDeliveryZipCode("00000-000");
@@ -86,7 +87,7 @@ public class PurchaseUtils {
 
 	public static Customer createFakeCustomer() {
 		Customer customer = new Customer();
-		customer.setCpf("822.685.230-71"); //Random CPF generated by 4devs.com.br site
+		customer.setCpf(Cpf.parse("822.685.230-71")); //Random CPF generated by 4devs.com.br site
 		customer.setFullName("Dummy customer");
 		customer.setEmail("dummycustomer@email.com");
 		customer.setZipCode("00000-000");
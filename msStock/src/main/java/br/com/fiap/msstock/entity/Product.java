@@ -1,5 +1,6 @@
 package br.com.fiap.msstock.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
@@ -32,4 +33,12 @@ public class Product {
 	@PositiveOrZero
 	@Column(nullable = false)
 	private Integer quantity;
+
+	@Transient // Id of a stock change sent by msSales, see StockService.updateStock
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String changeId;
+
+	@Transient // The change undone by this one, when it is a compensation
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String revertedChangeId;
 }
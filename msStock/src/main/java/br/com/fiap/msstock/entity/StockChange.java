@@ -0,0 +1,22 @@
+package br.com.fiap.msstock.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//Stock change already received from msSales, by its changeId. A change sent again (answer lost, saga resumed, batch
+//rolled back) is found here and skipped.
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_changes", indexes = @Index(name = "stock_changes_applied_at_idx", columnList = "applied_at"))
+public class StockChange {
+	@Id
+	@Column(length = 100)
+	private String changeId;
+
+	@Column(nullable = false)
+	private LocalDateTime appliedAt;
+}
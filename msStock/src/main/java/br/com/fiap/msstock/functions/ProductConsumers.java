@@ -5,6 +5,7 @@ import br.com.fiap.msstock.service.StockService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @Component
@@ -19,4 +20,9 @@ public class ProductConsumers {
 	Consumer<Product> updateStock(){
 		return stockService::updateStock;
 	}
+
+	@Bean(name = "updateStocks")
+	Consumer<List<Product>> updateStocks(){
+		return stockService::updateStocks;
+	}
 }
@@ -2,13 +2,23 @@ package br.com.fiap.msstock.repository;
 
 import br.com.fiap.msstock.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 	Optional<Product> findByNameEqualsIgnoreCase(String name);
 	List<Product> findByNameContainingIgnoreCase(String name);
+
+	//Adds the quantity (negative to remove) only when the stock doesn't go below zero, checked by the same statement
+	//that changes it: two reservations of the last items at the same time can't both take them. Returns 0 when the
+	//product wasn't changed.
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Product p SET p.quantity = p.quantity + :quantity WHERE p.id = :id AND p.quantity + :quantity >= 0")
+	int addQuantity(@Param("id") Long id, @Param("quantity") Integer quantity);
 }
@@ -0,0 +1,9 @@
+package br.com.fiap.msstock.repository;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+	//Adds each quantity (negative to remove) to the product in the same position, with one statement. The same product
+	//may appear more than once. Returns the products changed, the ids not found are left out.
+	List<Long> addQuantities(List<Long> ids, List<Integer> quantities);
+}
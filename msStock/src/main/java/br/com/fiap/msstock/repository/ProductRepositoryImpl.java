@@ -0,0 +1,29 @@
+package br.com.fiap.msstock.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+	//The quantities of the same product are summed first, an UPDATE ... FROM only applies one row per product
+	private static final String ADD_QUANTITIES = "UPDATE products p SET quantity = p.quantity + c.quantity " +
+			"FROM (SELECT id, SUM(quantity) AS quantity FROM unnest(?::bigint[], ?::int[]) AS u(id, quantity) GROUP BY id) c " +
+			"WHERE p.id = c.id RETURNING p.id";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public ProductRepositoryImpl(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public List<Long> addQuantities(List<Long> ids, List<Integer> quantities) {
+		return jdbcTemplate.query(con -> {
+			PreparedStatement ps = con.prepareStatement(ADD_QUANTITIES);
+			ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+			ps.setArray(2, con.createArrayOf("integer", quantities.toArray()));
+			return ps;
+		}, (rs, rowNum) -> rs.getLong(1));
+	}
+}
@@ -0,0 +1,20 @@
+package br.com.fiap.msstock.repository;
+
+import br.com.fiap.msstock.entity.StockChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockChangeRepository extends JpaRepository<StockChange, String>, StockChangeRepositoryCustom {
+	//Served by the applied_at index
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM StockChange c WHERE c.appliedAt < :appliedBefore")
+	int deleteAppliedBefore(@Param("appliedBefore") LocalDateTime appliedBefore);
+}
@@ -0,0 +1,9 @@
+package br.com.fiap.msstock.repository;
+
+import java.util.List;
+
+public interface StockChangeRepositoryCustom {
+	//Saves the changes not received yet, with one statement. Returns only the ones saved now, the others were already
+	//received (or saved by a transaction still running, the statement waits for it).
+	List<String> insertAll(List<String> changeIds);
+}
@@ -0,0 +1,27 @@
+package br.com.fiap.msstock.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+public class StockChangeRepositoryImpl implements StockChangeRepositoryCustom {
+	private static final String INSERT_ALL = "INSERT INTO stock_changes (change_id, applied_at) " +
+			"SELECT change_id, now() FROM unnest(?::varchar[]) AS u(change_id) " +
+			"ON CONFLICT (change_id) DO NOTHING RETURNING change_id";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public StockChangeRepositoryImpl(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public List<String> insertAll(List<String> changeIds) {
+		return jdbcTemplate.query(con -> {
+			PreparedStatement ps = con.prepareStatement(INSERT_ALL);
+			ps.setArray(1, con.createArrayOf("varchar", changeIds.toArray()));
+			return ps;
+		}, (rs, rowNum) -> rs.getString(1));
+	}
+}
@@ -2,23 +2,42 @@ package br.com.fiap.msstock.service;
 
 import br.com.fiap.msstock.entity.Product;
 import br.com.fiap.msstock.repository.ProductRepository;
+import br.com.fiap.msstock.repository.StockChangeRepository;
 import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
+@Slf4j
 @Service
 public class StockService {
 	public static final String ENTITY_NOT_FOUND = "Produto não encontrado"; //Product not found
 	public static final String PRODUCT_ALREADY_EXISTS = "Produto já cadastrado com esse nome"; //Product already registered
 	public static final String PRODUCT_HAS_STOCK = "O produto tem quantidade em estoque, ele não pode ser deletado."; //The product has stock, it can't be deleted
 	public static final String PRODUCT_DELETED = "Produto %s deletado com sucesso"; //Product %s deleted successfully
+	public static final String INSUFFICIENT_STOCK = "Quantidade em estoque insuficiente"; //Insufficient stock
 
 	private final ProductRepository productRepository;
+	private final StockChangeRepository stockChangeRepository;
+	private final long changesRetention;
 
-	public StockService(ProductRepository productRepository) {
+	public StockService(ProductRepository productRepository,
+			StockChangeRepository stockChangeRepository,
+			@Value("${stock.changes.retention}") long changesRetention) {
 		this.productRepository = productRepository;
+		this.stockChangeRepository = stockChangeRepository;
+		this.changesRetention = changesRetention;
 	}
 
 	public Product getProductById(Long id) {
@@ -64,13 +83,59 @@ public class StockService {
 		return String.format(PRODUCT_DELETED, productToDelete.getName());
 	}
 
+	@Transactional
 	public void updateStock(Product product) {
-			Product productToUpdate = this.productRepository.findById(product.getId())
-					.orElseThrow(() -> new EntityNotFoundException(ENTITY_NOT_FOUND));
+		if (newChanges(List.of(product)).isEmpty()) return; //Already applied
 
-			//The stock was validated before in the consumer
-			productToUpdate.setQuantity(productToUpdate.getQuantity() + product.getQuantity());
-			this.productRepository.save(productToUpdate);
+		if (this.productRepository.addQuantity(product.getId(), product.getQuantity()) > 0) return;
+
+		//Not changed, the changeId is rolled back with the transaction and the saga compensates the purchase
+		if (!this.productRepository.existsById(product.getId())) throw new EntityNotFoundException(ENTITY_NOT_FOUND);
+		throw new DataIntegrityViolationException(INSUFFICIENT_STOCK);
+	}
+
+	//Changes the stock of many products at once (the expired reservations of msSales). A product deleted in the meantime
+	//doesn't fail the others, it is left out.
+	@Transactional
+	public void updateStocks(List<Product> products) {
+		List<Product> changes = newChanges(products);
+		if (changes.isEmpty()) return;
+
+		List<Long> ids = changes.stream().map(Product::getId).toList();
+		List<Integer> quantities = changes.stream().map(Product::getQuantity).toList();
+		this.productRepository.addQuantities(ids, quantities);
+	}
+
+	//The changes with a changeId already received are left out, it is saved in the same transaction as the stock.
+	//A compensation is only applied when the change it reverts was applied. When that one wasn't received (its call
+	//timed out before reaching msStock) it is saved instead, so it is left out if it still arrives.
+	private List<Product> newChanges(List<Product> products) {
+		List<String> changeIds = products.stream().map(Product::getChangeId).filter(Objects::nonNull).toList();
+		Set<String> received = changeIds.isEmpty()
+				? new HashSet<>()
+				: new HashSet<>(this.stockChangeRepository.insertAll(changeIds));
+
+		List<Product> changes = new ArrayList<>();
+		for (Product product : products) {
+			//remove, so the same change twice in a batch is applied once
+			if (product.getChangeId() == null || received.remove(product.getChangeId())) changes.add(product);
+		}
+
+		List<String> revertedIds = changes.stream().map(Product::getRevertedChangeId).filter(Objects::nonNull).toList();
+		if (revertedIds.isEmpty()) return changes;
+
+		Set<String> notApplied = new HashSet<>(this.stockChangeRepository.insertAll(revertedIds));
+		return changes.stream()
+				.filter(product -> product.getRevertedChangeId() == null || !notApplied.contains(product.getRevertedChangeId()))
+				.toList();
+	}
+
+	//The changes are kept far longer than msSales takes to send one again
+	@Scheduled(fixedDelayString = "${stock.changes.cleanup-interval}")
+	public void removeOldChanges() {
+		int removed = this.stockChangeRepository.deleteAppliedBefore(
+				LocalDateTime.now().minus(this.changesRetention, ChronoUnit.MILLIS));
+		if (removed > 0) log.info("{} old stock changes removed", removed);
 	}
 
 	private void validateIfNameExists(String name) {
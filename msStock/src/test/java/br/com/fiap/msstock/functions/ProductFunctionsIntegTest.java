@@ -0,0 +1,84 @@
+package br.com.fiap.msstock.functions;
+
+import br.com.fiap.msstock.entity.Product;
+import br.com.fiap.msstock.service.StockService;
+import br.com.fiap.msstock.utils.ProductUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+//The functions called by msSales stay on /api while updateStocks is bound to the broker
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ProductFunctionsIntegTest {
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private StockService stockService;
+
+	@Test
+	void allowFindProduct() throws Exception {
+		//Arrange
+		Product product = ProductUtils.createFakeProduct(10000001L, "Dummy test name 1");
+		when(stockService.getProductById(any(Long.class))).thenReturn(product);
+
+		//Act
+		MvcResult result = perform(get("/api/findProduct/{id}", product.getId()));
+
+		//Assert
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getContentAsString()).contains(product.getName());
+	}
+
+	@Test
+	void allowUpdateStock() throws Exception {
+		//Arrange
+		Product product = ProductUtils.createFakeProduct(10000001L, "Dummy test name 1");
+		product.setQuantity(-1);
+
+		//Act
+		MvcResult result = perform(post("/api/updateStock")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(ProductUtils.asJsonString(product)));
+
+		//Assert
+		assertThat(result.getResponse().getStatus()).isBetween(200, 299);
+		verify(stockService, times(1)).updateStock(argThat(p -> p.getId().equals(product.getId()) && p.getQuantity() == -1));
+	}
+
+	@Test
+	void allowUpdateStocks() throws Exception {
+		//Arrange
+		Product product = ProductUtils.createFakeProduct(10000001L, "Dummy test name 1");
+
+		//Act
+		MvcResult result = perform(post("/api/updateStocks")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(ProductUtils.asJsonString(List.of(product))));
+
+		//Assert
+		assertThat(result.getResponse().getStatus()).isBetween(200, 299);
+		verify(stockService, times(1)).updateStocks(anyList());
+	}
+
+	//The function endpoints may answer asynchronously
+	private MvcResult perform(RequestBuilder request) throws Exception {
+		MvcResult result = mockMvc.perform(request).andReturn();
+		return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result;
+	}
+}
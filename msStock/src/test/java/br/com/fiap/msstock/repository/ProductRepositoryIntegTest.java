@@ -2,6 +2,7 @@ package br.com.fiap.msstock.repository;
 
 import br.com.fiap.msstock.entity.Product;
 import br.com.fiap.msstock.utils.ProductUtils;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +22,9 @@ class ProductRepositoryIntegTest {
 	@Autowired
 	private ProductRepository productRepository;
 
+	@Autowired
+	private EntityManager entityManager;
+
 	@Test
 	void allowFindByNameEqualsIgnoreCase(){
 		//Arrange
@@ -93,4 +97,30 @@ class ProductRepositoryIntegTest {
 		//Assert
 		assertThat(findProduct).isNotPresent();
 	}
+
+	@Test
+	void allowAddQuantities(){
+		//Arrange
+		Long id1 = productRepository.save(ProductUtils.createFakeProduct("Dummy test quantities 1")).getId();
+		Long id2 = productRepository.save(ProductUtils.createFakeProduct("Dummy test quantities 2")).getId();
+		Long notFound = id2 + 1000000;
+
+		//Act
+		List<Long> changed = productRepository.addQuantities(List.of(id1, id2, id1, notFound), List.of(-10, 5, -20, 3));
+		entityManager.clear(); //The products were changed without Hibernate
+
+		//Assert
+		assertThat(changed).containsExactlyInAnyOrder(id1, id2);
+		assertThat(productRepository.findById(id1)).get().extracting(Product::getQuantity).isEqualTo(70);
+		assertThat(productRepository.findById(id2)).get().extracting(Product::getQuantity).isEqualTo(105);
+	}
+
+	@Test
+	void allowAddQuantities_Empty(){
+		//Act
+		List<Long> changed = productRepository.addQuantities(List.of(), List.of());
+
+		//Assert
+		assertThat(changed).isEmpty();
+	}
 }
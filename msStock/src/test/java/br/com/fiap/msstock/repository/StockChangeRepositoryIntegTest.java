@@ -0,0 +1,48 @@
+package br.com.fiap.msstock.repository;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.Rollback;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@Rollback //Rollback the transaction after each test
+class StockChangeRepositoryIntegTest {
+
+	@Autowired
+	private StockChangeRepository stockChangeRepository;
+
+	@Test
+	void allowInsertAll(){
+		//Arrange
+		stockChangeRepository.insertAll(List.of("test-change-1"));
+
+		//Act
+		List<String> inserted = stockChangeRepository.insertAll(List.of("test-change-1", "test-change-2", "test-change-2"));
+
+		//Assert
+		assertThat(inserted).containsExactly("test-change-2");
+		assertThat(stockChangeRepository.findById("test-change-2")).isPresent();
+	}
+
+	@Test
+	void allowDeleteAppliedBefore(){
+		//Arrange
+		stockChangeRepository.insertAll(List.of("test-change-3"));
+
+		//Act
+		int notRemoved = stockChangeRepository.deleteAppliedBefore(LocalDateTime.now().minusHours(1));
+		int removed = stockChangeRepository.deleteAppliedBefore(LocalDateTime.now().plusHours(1));
+
+		//Assert
+		assertThat(removed).isGreaterThan(notRemoved);
+		assertThat(stockChangeRepository.findById("test-change-3")).isEmpty();
+	}
+}
@@ -0,0 +1,81 @@
+package br.com.fiap.msstock.service;
+
+import br.com.fiap.msstock.entity.Product;
+import br.com.fiap.msstock.repository.ProductRepository;
+import br.com.fiap.msstock.utils.ProductUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Not @Transactional, each reservation commits in its own transaction like two checkouts at the same time
+@SpringBootTest
+class StockServiceConcurrencyIntegTest {
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private Long productId;
+
+	@AfterEach
+	void tearDown() {
+		if (productId != null) productRepository.deleteById(productId);
+	}
+
+	@Test
+	void allowRemoveStock_OnlyOnceForTheLastItem() throws Exception {
+		//Arrange
+		Product product = ProductUtils.createFakeProduct("Dummy test concurrency 1");
+		product.setQuantity(1);
+		productId = productRepository.save(product).getId();
+
+		CountDownLatch start = new CountDownLatch(1);
+		String sagaId = UUID.randomUUID().toString(); //The changes are committed, a new id for each run
+		List<Callable<Boolean>> reservations = List.of(reservation(start, sagaId + "-1-0"),
+				reservation(start, sagaId + "-2-0"));
+
+		//Act
+		long reserved = 0;
+		try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+			List<Future<Boolean>> results = reservations.stream().map(executor::submit).toList();
+			start.countDown();
+			for (Future<Boolean> result : results) {
+				if (result.get()) reserved++;
+			}
+		}
+
+		//Assert
+		assertThat(reserved).isEqualTo(1);
+		assertThat(productRepository.findById(productId)).get().extracting(Product::getQuantity).isEqualTo(0);
+	}
+
+	private Callable<Boolean> reservation(CountDownLatch start, String changeId) {
+		Product change = new Product();
+		change.setId(productId);
+		change.setQuantity(-1);
+		change.setChangeId(changeId);
+
+		return () -> {
+			start.await();
+			try {
+				stockService.updateStock(change);
+				return true;
+			} catch (DataIntegrityViolationException e) {
+				return false; //Refused, the saga compensates the purchase
+			}
+		};
+	}
+}
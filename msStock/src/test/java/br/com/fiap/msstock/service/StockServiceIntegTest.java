@@ -214,6 +214,41 @@ public class StockServiceIntegTest {
 			assertThat(product.getQuantity()).isZero();
 		}
 
+		@Test
+		void allowRemoveStock_OnceWithTheSameChangeId(){
+			//Arrange
+			Product product = ProductUtils.createFakeProduct("Dummy test name 15");
+			stockService.createProduct(product);
+			Product updateProduct = new Product();
+			updateProduct.setId(product.getId());
+			updateProduct.setQuantity(-1);
+			updateProduct.setChangeId("saga-test-15-0");
+
+			//Act
+			stockService.updateStock(updateProduct);
+			stockService.updateStock(updateProduct); // Sent again, its answer was lost
+			product = stockService.getProductById(updateProduct.getId());
+
+			//Assert
+			assertThat(product.getQuantity()).isEqualTo(99);
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenRemoveStock(){
+			//Arrange
+			Product product = ProductUtils.createFakeProduct("Dummy test name 16");
+			stockService.createProduct(product);
+			Product updateProduct = new Product();
+			updateProduct.setId(product.getId());
+			updateProduct.setQuantity(-101);
+
+			//Act && Assert
+			assertThatThrownBy(() -> stockService.updateStock(updateProduct))
+					.isInstanceOf(DataIntegrityViolationException.class)
+					.hasMessage(StockService.INSUFFICIENT_STOCK);
+			assertThat(stockService.getProductById(product.getId()).getQuantity()).isEqualTo(100);
+		}
+
 		@Test
 		void shouldThrowEntityNotFoundException_WhenRemoveStock(){
 			//Arrange
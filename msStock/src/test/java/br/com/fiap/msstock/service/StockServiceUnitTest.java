@@ -2,6 +2,7 @@ package br.com.fiap.msstock.service;
 
 import br.com.fiap.msstock.entity.Product;
 import br.com.fiap.msstock.repository.ProductRepository;
+import br.com.fiap.msstock.repository.StockChangeRepository;
 import br.com.fiap.msstock.utils.ProductUtils;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.AfterEach;
@@ -12,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.dao.DataIntegrityViolationException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,12 +28,15 @@ public class StockServiceUnitTest {
 	@Mock
 	private ProductRepository productRepository;
 
+	@Mock
+	private StockChangeRepository stockChangeRepository;
+
 	AutoCloseable openMocks;
 
 	@BeforeEach
 	void setup(){
 		openMocks = MockitoAnnotations.openMocks(this);
-		stockService = new StockService(productRepository);
+		stockService = new StockService(productRepository, stockChangeRepository, 604800000);
 	}
 
 	@AfterEach
@@ -228,32 +233,171 @@ public class StockServiceUnitTest {
 		void allowRemoveStock(){
 			//Arrange
 			Product product = ProductUtils.createFakeProduct();
-			Product productToUpdate = ProductUtils.createFakeProduct();
-			productToUpdate.setQuantity(productToUpdate.getQuantity() - product.getQuantity());
-
-			when(productRepository.findById(any(Long.class))).thenReturn(Optional.of(productToUpdate));
-			when(productRepository.save(any(Product.class))).thenAnswer(p -> p.getArgument(0));
+			product.setQuantity(-10);
+			when(productRepository.addQuantity(product.getId(), -10)).thenReturn(1);
 
 			//Act
 			stockService.updateStock(product);
 
 			//Assert
-			verify(productRepository, times(1)).findById(any(Long.class));
-			verify(productRepository, times(1)).save(any(Product.class));
+			verify(productRepository, times(1)).addQuantity(product.getId(), -10);
+			verify(productRepository, never()).save(any(Product.class));
 		}
 
 		@Test
 		void shouldThrowEntityNotFoundException_WhenRemoveStock(){
 			//Arrange
 			Product product = ProductUtils.createFakeProduct();
-			when(productRepository.findById(any(Long.class))).thenReturn(Optional.empty());
+			when(productRepository.addQuantity(any(Long.class), any(Integer.class))).thenReturn(0);
+			when(productRepository.existsById(any(Long.class))).thenReturn(false);
 
 			//Act && Assert
 			assertThatThrownBy(() -> stockService.updateStock(product))
 					.isInstanceOf(EntityNotFoundException.class)
 					.hasMessageContaining(StockService.ENTITY_NOT_FOUND);
-			verify(productRepository, times(1)).findById(any(Long.class));
+			verify(productRepository, times(1)).existsById(any(Long.class));
+		}
+
+		@Test
+		void shouldThrowDataIntegrityViolationException_WhenRemoveStock(){
+			//Arrange
+			Product product = ProductUtils.createFakeProduct();
+			product.setQuantity(-101);
+			when(productRepository.addQuantity(any(Long.class), any(Integer.class))).thenReturn(0); // Not enough stock
+			when(productRepository.existsById(any(Long.class))).thenReturn(true);
+
+			//Act && Assert
+			assertThatThrownBy(() -> stockService.updateStock(product))
+					.isInstanceOf(DataIntegrityViolationException.class)
+					.hasMessage(StockService.INSUFFICIENT_STOCK);
+		}
+
+		@Test
+		void allowRemoveStock_OnceWithTheSameChangeId(){
+			//Arrange
+			Product product = ProductUtils.createFakeProduct();
+			product.setChangeId("saga-1-0");
+			when(stockChangeRepository.insertAll(List.of("saga-1-0"))).thenReturn(List.of()); // Already received
+
+			//Act
+			stockService.updateStock(product);
+
+			//Assert
+			verify(productRepository, never()).addQuantity(any(Long.class), any(Integer.class));
+		}
+
+		@Test
+		void allowRemoveStock_CompensationOfAChangeApplied(){
+			//Arrange
+			Product product = ProductUtils.createFakeProduct();
+			product.setChangeId("saga-1-0-compensation");
+			product.setRevertedChangeId("saga-1-0");
+			when(stockChangeRepository.insertAll(List.of("saga-1-0-compensation"))).thenReturn(List.of("saga-1-0-compensation"));
+			when(stockChangeRepository.insertAll(List.of("saga-1-0"))).thenReturn(List.of()); // The reservation was applied
+			when(productRepository.addQuantity(any(Long.class), any(Integer.class))).thenReturn(1);
+
+			//Act
+			stockService.updateStock(product);
+
+			//Assert
+			verify(productRepository, times(1)).addQuantity(product.getId(), product.getQuantity());
+		}
+
+		@Test
+		void allowRemoveStock_CompensationOfAChangeNotReceived(){
+			//Arrange
+			Product product = ProductUtils.createFakeProduct();
+			product.setChangeId("saga-1-0-compensation");
+			product.setRevertedChangeId("saga-1-0");
+			when(stockChangeRepository.insertAll(List.of("saga-1-0-compensation"))).thenReturn(List.of("saga-1-0-compensation"));
+			when(stockChangeRepository.insertAll(List.of("saga-1-0"))).thenReturn(List.of("saga-1-0")); // Never applied
+
+			//Act
+			stockService.updateStock(product);
+
+			//Assert
+			verify(productRepository, never()).addQuantity(any(Long.class), any(Integer.class));
+		}
+	}
+
+	@Nested
+	class UpdateStocks{
+		@Test
+		void allowUpdateStocks(){
+			//Arrange
+			Product product1 = ProductUtils.createFakeProduct();
+			product1.setId(1L);
+			product1.setQuantity(2);
+			Product product2 = ProductUtils.createFakeProduct();
+			product2.setId(2L);
+			product2.setQuantity(5);
+			when(productRepository.addQuantities(anyList(), anyList())).thenReturn(List.of(1L, 2L));
+
+			//Act
+			stockService.updateStocks(List.of(product1, product2));
+
+			//Assert
+			verify(productRepository, times(1)).addQuantities(List.of(1L, 2L), List.of(2, 5));
 			verify(productRepository, never()).save(any(Product.class));
 		}
+
+		@Test
+		void allowUpdateStocks_Empty(){
+			//Act
+			stockService.updateStocks(List.of());
+
+			//Assert
+			verify(productRepository, never()).addQuantities(anyList(), anyList());
+		}
+
+		@Test
+		void allowUpdateStocks_LeavingOutTheChangesAlreadyReceived(){
+			//Arrange
+			Product product1 = ProductUtils.createFakeProduct();
+			product1.setId(1L);
+			product1.setQuantity(2);
+			product1.setChangeId("CANCELADO-10-1");
+			Product product2 = ProductUtils.createFakeProduct();
+			product2.setId(2L);
+			product2.setQuantity(5);
+			product2.setChangeId("CANCELADO-10-2");
+			when(stockChangeRepository.insertAll(List.of("CANCELADO-10-1", "CANCELADO-10-2", "CANCELADO-10-2")))
+					.thenReturn(List.of("CANCELADO-10-2"));
+
+			//Act
+			stockService.updateStocks(List.of(product1, product2, product2));
+
+			//Assert
+			verify(productRepository, times(1)).addQuantities(List.of(2L), List.of(5));
+		}
+
+		@Test
+		void allowUpdateStocks_AllAlreadyReceived(){
+			//Arrange
+			Product product = ProductUtils.createFakeProduct();
+			product.setChangeId("CANCELADO-10-1");
+			when(stockChangeRepository.insertAll(anyList())).thenReturn(List.of());
+
+			//Act
+			stockService.updateStocks(List.of(product));
+
+			//Assert
+			verify(productRepository, never()).addQuantities(anyList(), anyList());
+		}
+	}
+
+	@Nested
+	class RemoveOldChanges{
+		@Test
+		void allowRemoveOldChanges(){
+			//Arrange
+			when(stockChangeRepository.deleteAppliedBefore(any(LocalDateTime.class))).thenReturn(2);
+
+			//Act
+			stockService.removeOldChanges();
+
+			//Assert
+			verify(stockChangeRepository, times(1)).deleteAppliedBefore(any(LocalDateTime.class));
+		}
 	}
 }